@@ -42,6 +42,9 @@ public class ChildHelper {
 
     final List<View> mHiddenViews = new ArrayList<View>();
 
+    //LayoutManager可见的子View列表每变化一次加1
+    private int mModCount;
+
     public ChildHelper(ChildHelperCallBack callback) {
         mCallback = callback;
     }
@@ -79,6 +82,7 @@ public class ChildHelper {
             hideViewInternal(child);
         }
         mCallback.addView(child, offset);
+        mModCount++;
         Log.d(TAG, "addViewAt " + index + ",h:" + hidden + ", " + this);
     }
 
@@ -113,6 +117,7 @@ public class ChildHelper {
             unhideViewInternal(view);
         }
         mCallback.removeViewAt(index);
+        mModCount++;
         Log.d(TAG, "remove View off:" + index + "," + this);
     }
 
@@ -127,6 +132,7 @@ public class ChildHelper {
             unhideViewInternal(view);
         }
         mCallback.removeViewAt(offset);
+        mModCount++;
         Log.d(TAG, "removeViewAt " + index + ", off:" + offset + ", " + this);
     }
 
@@ -144,6 +150,7 @@ public class ChildHelper {
             mHiddenViews.remove(i);
         }
         mCallback.removeAllViews();
+        mModCount++;
     }
 
     //根据位置找到一个正在消失的视图。
@@ -182,10 +189,18 @@ public class ChildHelper {
             hideViewInternal(child);
         }
         mCallback.attachViewToParent(child, offset, layoutParams);
+        mModCount++;
         Log.d(TAG, "attach view to parent index:" + index + ",off:" + offset + ","
                 + "h:" + hidden + ", " + this);
     }
 
+    /**
+     * 子View列表的修改次数, 用来判断按index缓存的子View信息是否过期
+     */
+    public int getModCount() {
+        return mModCount;
+    }
+
     /**
      * Returns the number of children that are not hidden.
      *
@@ -221,6 +236,7 @@ public class ChildHelper {
         final int offset = getOffset(index);
         mBucket.remove(offset);
         mCallback.detachViewFromParent(offset);
+        mModCount++;
         Log.d(TAG, "detach view from parent " + index + ", off:" + offset);
     }
 
@@ -267,6 +283,7 @@ public class ChildHelper {
         }
         mBucket.set(offset);
         hideViewInternal(view);
+        mModCount++;
         Log.d(TAG, "hiding child " + view + " at offset " + offset + ", " + this);
     }
 
@@ -287,6 +304,7 @@ public class ChildHelper {
         }
         mBucket.clear(offset);
         unhideViewInternal(view);
+        mModCount++;
     }
 
     @Override
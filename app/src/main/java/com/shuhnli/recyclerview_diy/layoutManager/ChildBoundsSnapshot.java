@@ -0,0 +1,196 @@
+package com.shuhnli.recyclerview_diy.layoutManager;
+
+import android.view.View;
+
+import com.shuhnli.recyclerview_diy.recyclerview.RecyclerView;
+
+import java.util.Arrays;
+
+/**
+ * 按index保存所有子View的边界(包括ItemDecoration和margin), 布局或滑动的一步里反复查询时直接读数组,
+ * 不需要每次都读LayoutParams和decoration
+ * <p>
+ * 整体平移时直接平移数组; LayoutManager加入/移除一个子View时只插入/删除对应的一项, 刚加入的子View
+ * 记下来, 下次查询时才读取它的边界(加入后通常马上会摆放)。其他修改(摆放已有的子View、ChildHelper上
+ * 不是由LayoutManager发起的修改)让快照失效, 下次查询时重新生成。
+ */
+final class ChildBoundsSnapshot {
+    private int[] mLeft = new int[0];
+    private int[] mTop = new int[0];
+    private int[] mRight = new int[0];
+    private int[] mBottom = new int[0];
+    private int mCount;
+    //快照对应的ChildHelper的修改次数
+    private int mModCount;
+    private boolean mValid;
+
+    //加入后还没有读取边界的子View和它们的index
+    private int[] mStaleIndices = new int[4];
+    private View[] mStaleViews = new View[4];
+    private int mStaleCount;
+
+    void invalidate() {
+        mValid = false;
+        clearStale();
+    }
+
+    boolean isValid(int modCount, int childCount) {
+        return mValid && mModCount == modCount && mCount == childCount;
+    }
+
+    void build(LayoutManager layoutManager, int modCount) {
+        final int count = layoutManager.getChildCount();
+        ensureCapacity(count);
+        for (int i = 0; i < count; i++) {
+            readBounds(layoutManager, i, layoutManager.getChildAt(i));
+        }
+        mCount = count;
+        mModCount = modCount;
+        mValid = true;
+        clearStale();
+    }
+
+    /**
+     * 读取刚加入的子View的边界, 快照有效时查询之前调用
+     */
+    void updateStaleBounds(LayoutManager layoutManager) {
+        for (int i = 0; i < mStaleCount; i++) {
+            readBounds(layoutManager, mStaleIndices[i], mStaleViews[i]);
+        }
+        clearStale();
+    }
+
+    /**
+     * 在index处加入了child, ChildHelper的修改次数从modCountBefore变成了modCount。
+     * 快照有效并且只发生了这一次修改时插入一项, 否则失效
+     */
+    void onChildAdded(int index, View child, int modCountBefore, int modCount) {
+        if (!mValid || mModCount != modCountBefore || modCount != modCountBefore + 1
+                || index < 0 || index > mCount) {
+            invalidate();
+            return;
+        }
+        ensureCapacity(mCount + 1);
+        final int moved = mCount - index;
+        System.arraycopy(mLeft, index, mLeft, index + 1, moved);
+        System.arraycopy(mTop, index, mTop, index + 1, moved);
+        System.arraycopy(mRight, index, mRight, index + 1, moved);
+        System.arraycopy(mBottom, index, mBottom, index + 1, moved);
+        for (int i = 0; i < mStaleCount; i++) {
+            if (mStaleIndices[i] >= index) {
+                mStaleIndices[i]++;
+            }
+        }
+        if (mStaleCount == mStaleIndices.length) {
+            mStaleIndices = Arrays.copyOf(mStaleIndices, mStaleCount * 2);
+            mStaleViews = Arrays.copyOf(mStaleViews, mStaleCount * 2);
+        }
+        mStaleIndices[mStaleCount] = index;
+        mStaleViews[mStaleCount] = child;
+        mStaleCount++;
+        mCount++;
+        mModCount = modCount;
+    }
+
+    /**
+     * 移除了index处的子View, 其他同{@link #onChildAdded(int, View, int, int)}
+     */
+    void onChildRemoved(int index, int modCountBefore, int modCount) {
+        if (!mValid || mModCount != modCountBefore || modCount != modCountBefore + 1
+                || index < 0 || index >= mCount) {
+            invalidate();
+            return;
+        }
+        final int moved = mCount - index - 1;
+        System.arraycopy(mLeft, index + 1, mLeft, index, moved);
+        System.arraycopy(mTop, index + 1, mTop, index, moved);
+        System.arraycopy(mRight, index + 1, mRight, index, moved);
+        System.arraycopy(mBottom, index + 1, mBottom, index, moved);
+        int kept = 0;
+        for (int i = 0; i < mStaleCount; i++) {
+            final int staleIndex = mStaleIndices[i];
+            if (staleIndex == index) {
+                continue;
+            }
+            mStaleIndices[kept] = staleIndex > index ? staleIndex - 1 : staleIndex;
+            mStaleViews[kept] = mStaleViews[i];
+            kept++;
+        }
+        for (int i = kept; i < mStaleCount; i++) {
+            mStaleViews[i] = null;
+        }
+        mStaleCount = kept;
+        mCount--;
+        mModCount = modCount;
+    }
+
+    /**
+     * child重新摆放了: 刚加入的子View查询时才读取, 不受影响; 其他子View只能让快照失效
+     */
+    void onChildLaidOut(View child) {
+        if (!mValid) {
+            return;
+        }
+        for (int i = 0; i < mStaleCount; i++) {
+            if (mStaleViews[i] == child) {
+                return;
+            }
+        }
+        invalidate();
+    }
+
+    private void readBounds(LayoutManager layoutManager, int index, View child) {
+        final RecyclerView.LayoutParams lp =
+                (RecyclerView.LayoutParams) child.getLayoutParams();
+        mLeft[index] = layoutManager.getDecoratedLeft(child) - lp.leftMargin;
+        mTop[index] = layoutManager.getDecoratedTop(child) - lp.topMargin;
+        mRight[index] = layoutManager.getDecoratedRight(child) + lp.rightMargin;
+        mBottom[index] = layoutManager.getDecoratedBottom(child) + lp.bottomMargin;
+    }
+
+    private void clearStale() {
+        Arrays.fill(mStaleViews, 0, mStaleCount, null);
+        mStaleCount = 0;
+    }
+
+    private void ensureCapacity(int count) {
+        if (mLeft.length >= count) {
+            return;
+        }
+        final int capacity = Math.max(count, mLeft.length * 2);
+        mLeft = Arrays.copyOf(mLeft, capacity);
+        mTop = Arrays.copyOf(mTop, capacity);
+        mRight = Arrays.copyOf(mRight, capacity);
+        mBottom = Arrays.copyOf(mBottom, capacity);
+    }
+
+    //所有子View水平平移了dx
+    void offsetHorizontal(int dx) {
+        if (!mValid) {
+            return;
+        }
+        for (int i = 0; i < mCount; i++) {
+            mLeft[i] += dx;
+            mRight[i] += dx;
+        }
+    }
+
+    //所有子View竖直平移了dy
+    void offsetVertical(int dy) {
+        if (!mValid) {
+            return;
+        }
+        for (int i = 0; i < mCount; i++) {
+            mTop[i] += dy;
+            mBottom[i] += dy;
+        }
+    }
+
+    int getStart(int index, boolean horizontal) {
+        return horizontal ? mLeft[index] : mTop[index];
+    }
+
+    int getEnd(int index, boolean horizontal) {
+        return horizontal ? mRight[index] : mBottom[index];
+    }
+}
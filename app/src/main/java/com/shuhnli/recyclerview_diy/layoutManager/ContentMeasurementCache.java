@@ -0,0 +1,74 @@
+package com.shuhnli.recyclerview_diy.layoutManager;
+
+/**
+ * 按(viewType, widthSpec, heightSpec, 内容的测量key)缓存子View的测量结果
+ * <p>
+ * 固定容量的直接映射表, 冲突时直接覆盖旧的记录。所有数据都在基本类型数组里, 查询和写入都不分配对象。
+ */
+final class ContentMeasurementCache {
+    //没有命中
+    static final long MISS = -1L;
+
+    private static final int CAPACITY = 256;
+    private static final int MASK = CAPACITY - 1;
+
+    private final boolean[] mUsed = new boolean[CAPACITY];
+    private final int[] mViewTypes = new int[CAPACITY];
+    private final int[] mWidthSpecs = new int[CAPACITY];
+    private final int[] mHeightSpecs = new int[CAPACITY];
+    private final long[] mKeys = new long[CAPACITY];
+    private final int[] mWidths = new int[CAPACITY];
+    private final int[] mHeights = new int[CAPACITY];
+
+    /**
+     * 查询测量结果, 命中时返回{@link #pack(int, int)}的值, 否则返回{@link #MISS}
+     */
+    long get(int viewType, int widthSpec, int heightSpec, long key) {
+        final int index = indexOf(viewType, widthSpec, heightSpec, key);
+        if (mUsed[index] && mKeys[index] == key && mViewTypes[index] == viewType
+                && mWidthSpecs[index] == widthSpec && mHeightSpecs[index] == heightSpec) {
+            return pack(mWidths[index], mHeights[index]);
+        }
+        return MISS;
+    }
+
+    void put(int viewType, int widthSpec, int heightSpec, long key, int width, int height) {
+        final int index = indexOf(viewType, widthSpec, heightSpec, key);
+        mUsed[index] = true;
+        mViewTypes[index] = viewType;
+        mWidthSpecs[index] = widthSpec;
+        mHeightSpecs[index] = heightSpec;
+        mKeys[index] = key;
+        mWidths[index] = width;
+        mHeights[index] = height;
+    }
+
+    void clear() {
+        for (int i = 0; i < CAPACITY; i++) {
+            mUsed[i] = false;
+        }
+    }
+
+    //测量结果都是非负数, 打包后不会等于MISS
+    static long pack(int width, int height) {
+        return ((long) width << 32) | (height & 0xFFFFFFFFL);
+    }
+
+    static int unpackWidth(long packed) {
+        return (int) (packed >>> 32);
+    }
+
+    static int unpackHeight(long packed) {
+        return (int) packed;
+    }
+
+    private static int indexOf(int viewType, int widthSpec, int heightSpec, long key) {
+        int hash = (int) (key ^ (key >>> 32));
+        hash = 31 * hash + viewType;
+        hash = 31 * hash + widthSpec;
+        hash = 31 * hash + heightSpec;
+        // 打散低位, 避免key连续时都落在相邻的槽里
+        hash ^= (hash >>> 16);
+        return hash & MASK;
+    }
+}
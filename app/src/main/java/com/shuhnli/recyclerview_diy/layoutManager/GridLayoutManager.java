@@ -0,0 +1,689 @@
+package com.shuhnli.recyclerview_diy.layoutManager;
+
+import android.content.Context;
+import android.graphics.Rect;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+
+import com.shuhnli.recyclerview_diy.recyclerview.Recycler;
+import com.shuhnli.recyclerview_diy.recyclerview.RecyclerView;
+
+import java.util.Arrays;
+
+/**
+ * 网格布局, 每一行(水平布局时是每一列)分成mSpanCount份, 每个item占用{@link SpanSizeLookup#getSpanSize}份
+ * <p>
+ * item的span index和所在行(span group)只取决于它之前的item, 由{@link SpanSizeLookup}计算并缓存,
+ * 数据变化时只让变化位置之后的缓存失效。
+ */
+public class GridLayoutManager extends LinearLayoutManager {
+    public static final int DEFAULT_SPAN_COUNT = -1;
+
+    int mSpanCount = DEFAULT_SPAN_COUNT;
+
+    //每个span的边界, mCachedBorders[i]是第i个span的起点, 长度mSpanCount + 1
+    int[] mCachedBorders;
+    //一行中正在布局的子View, 以及它们的位置、span index和span size
+    View[] mSet;
+    private int[] mSetPositions;
+    private int[] mSetSpanIndices;
+    private int[] mSetSpanSizes;
+
+    @NonNull
+    SpanSizeLookup mSpanSizeLookup = new DefaultSpanSizeLookup();
+
+    public GridLayoutManager(Context context, int spanCount) {
+        super(context);
+        setSpanCount(spanCount);
+    }
+
+    public GridLayoutManager(Context context, int spanCount, int orientation,
+                             boolean reverseLayout) {
+        super(context, orientation, reverseLayout);
+        setSpanCount(spanCount);
+    }
+
+    /**
+     * 网格布局不支持从末尾堆叠
+     */
+    @Override
+    public void setStackFromEnd(boolean stackFromEnd) {
+        if (stackFromEnd) {
+            throw new UnsupportedOperationException(
+                    "GridLayoutManager does not support stack from end."
+                            + " Consider using reverse layout");
+        }
+        super.setStackFromEnd(false);
+    }
+
+    public int getSpanCount() {
+        return mSpanCount;
+    }
+
+    public void setSpanCount(int spanCount) {
+        if (spanCount == mSpanCount) {
+            return;
+        }
+        if (spanCount < 1) {
+            throw new IllegalArgumentException("Span count should be at least 1. Provided "
+                    + spanCount);
+        }
+        mSpanCount = spanCount;
+        mSpanSizeLookup.invalidateSpanIndexCache();
+        requestLayout();
+    }
+
+    public void setSpanSizeLookup(@NonNull SpanSizeLookup spanSizeLookup) {
+        mSpanSizeLookup = spanSizeLookup;
+        spanSizeLookup.invalidateSpanIndexCache();
+    }
+
+    @NonNull
+    public SpanSizeLookup getSpanSizeLookup() {
+        return mSpanSizeLookup;
+    }
+
+    @Override
+    boolean areChildrenSortedAlongLayout() {
+        // 同一行的子View起点相同、高度可能不同, end不是单调的, 只能逐个检查
+        return false;
+    }
+
+    @Override
+    public void onItemsAdded(@NonNull RecyclerView recyclerView, int positionStart,
+                             int itemCount) {
+        super.onItemsAdded(recyclerView, positionStart, itemCount);
+        mSpanSizeLookup.invalidateSpanIndexCacheFrom(positionStart);
+    }
+
+    @Override
+    public void onItemsRemoved(@NonNull RecyclerView recyclerView, int positionStart,
+                               int itemCount) {
+        super.onItemsRemoved(recyclerView, positionStart, itemCount);
+        mSpanSizeLookup.invalidateSpanIndexCacheFrom(positionStart);
+    }
+
+    @Override
+    public void onItemsUpdated(@NonNull RecyclerView recyclerView, int positionStart,
+                               int itemCount) {
+        super.onItemsUpdated(recyclerView, positionStart, itemCount);
+        // 更新后span size可能变化
+        mSpanSizeLookup.invalidateSpanIndexCacheFrom(positionStart);
+    }
+
+    @Override
+    public void onItemsMoved(@NonNull RecyclerView recyclerView, int from, int to,
+                             int itemCount) {
+        super.onItemsMoved(recyclerView, from, to, itemCount);
+        mSpanSizeLookup.invalidateSpanIndexCacheFrom(Math.min(from, to));
+    }
+
+    @Override
+    public void onItemsChanged(@NonNull RecyclerView recyclerView) {
+        super.onItemsChanged(recyclerView);
+        mSpanSizeLookup.invalidateSpanIndexCache();
+    }
+
+    @Override
+    public void onLayoutChildren(Recycler recycler, RecyclerView.State state) {
+        calculateItemBorders();
+        ensureViewSet();
+        super.onLayoutChildren(recycler, state);
+    }
+
+    /**
+     * 尺寸索引里一行的尺寸平分给了这一行的item, 找到的可能是行中间的item, 换成这一行的第一个,
+     * 偏移量也从行首算起, 和onAnchorReady对齐到行首的锚点一致
+     */
+    @Override
+    int findPositionAtOffset(long offset) {
+        return mSpanSizeLookup.findRowStartPosition(super.findPositionAtOffset(offset), mSpanCount);
+    }
+
+    @Override
+    public boolean relayoutUpdatedChildren(Recycler recycler, RecyclerView.State state) {
+        // 一行的尺寸由整行最大的item决定, span size也可能变化, 需要完整布局
+        return false;
+    }
+
+    @Override
+    public int scrollHorizontallyBy(int dx, Recycler recycler, RecyclerView.State state) {
+        calculateItemBorders();
+        ensureViewSet();
+        return super.scrollHorizontallyBy(dx, recycler, state);
+    }
+
+    @Override
+    public int scrollVerticallyBy(int dy, Recycler recycler, RecyclerView.State state) {
+        calculateItemBorders();
+        ensureViewSet();
+        return super.scrollVerticallyBy(dy, recycler, state);
+    }
+
+    private void ensureViewSet() {
+        if (mSet == null || mSet.length != mSpanCount) {
+            mSet = new View[mSpanCount];
+            mSetPositions = new int[mSpanCount];
+            mSetSpanIndices = new int[mSpanCount];
+            mSetSpanSizes = new int[mSpanCount];
+        }
+    }
+
+    private void calculateItemBorders() {
+        final int totalSpace;
+        if (getOrientation() == VERTICAL) {
+            totalSpace = getWidth() - getPaddingRight() - getPaddingLeft();
+        } else {
+            totalSpace = getHeight() - getPaddingBottom() - getPaddingTop();
+        }
+        mCachedBorders = calculateItemBorders(mCachedBorders, mSpanCount, totalSpace);
+    }
+
+    /**
+     * 把totalSpace尽量平均地分给spanCount个span, 除不尽的像素分给前面的span
+     */
+    static int[] calculateItemBorders(int[] cachedBorders, int spanCount, int totalSpace) {
+        if (cachedBorders == null || cachedBorders.length != spanCount + 1
+                || cachedBorders[cachedBorders.length - 1] != totalSpace) {
+            cachedBorders = new int[spanCount + 1];
+        }
+        cachedBorders[0] = 0;
+        final int sizePerSpan = totalSpace / spanCount;
+        final int sizePerSpanRemainder = totalSpace % spanCount;
+        int consumedPixels = 0;
+        int additionalSize = 0;
+        for (int i = 1; i <= spanCount; i++) {
+            int itemSize = sizePerSpan;
+            additionalSize += sizePerSpanRemainder;
+            if (additionalSize > 0 && (spanCount - additionalSize) < sizePerSpanRemainder) {
+                itemSize += 1;
+                additionalSize -= spanCount;
+            }
+            consumedPixels += itemSize;
+            cachedBorders[i] = consumedPixels;
+        }
+        return cachedBorders;
+    }
+
+    int getSpaceForSpanRange(int startSpan, int spanSize) {
+        return mCachedBorders[startSpan + spanSize] - mCachedBorders[startSpan];
+    }
+
+    private int getSpanSize(int position) {
+        return Math.min(mSpanSizeLookup.getSpanSize(position), mSpanCount);
+    }
+
+    /**
+     * 锚点必须在一行的开头(反向填充时是一行的末尾)
+     */
+    @Override
+    void onAnchorReady(Recycler recycler, RecyclerView.State state, AnchorInfo anchorInfo,
+                       int itemDirection) {
+        calculateItemBorders();
+        ensureViewSet();
+        if (state.getItemCount() == 0 || anchorInfo.mPosition == RecyclerView.NO_POSITION) {
+            return;
+        }
+        final boolean layingOutInPrimaryDirection =
+                itemDirection == LayoutState.ITEM_DIRECTION_TAIL;
+        final int span = mSpanSizeLookup.getCachedSpanIndex(anchorInfo.mPosition, mSpanCount);
+        if (layingOutInPrimaryDirection) {
+            anchorInfo.mPosition = mSpanSizeLookup.findRowStartPosition(anchorInfo.mPosition,
+                    mSpanCount);
+        } else {
+            final int indexLimit = state.getItemCount() - 1;
+            int pos = anchorInfo.mPosition;
+            int bestSpan = span;
+            while (pos < indexLimit) {
+                final int next = mSpanSizeLookup.getCachedSpanIndex(pos + 1, mSpanCount);
+                if (next > bestSpan) {
+                    pos += 1;
+                    bestSpan = next;
+                } else {
+                    break;
+                }
+            }
+            anchorInfo.mPosition = pos;
+        }
+    }
+
+    /**
+     * 布局一整行
+     */
+    @Override
+    void layoutChunk(Recycler recycler, LayoutState layoutState, LayoutChunkResult result) {
+        final boolean layingOutInPrimaryDirection =
+                layoutState.mItemDirection == LayoutState.ITEM_DIRECTION_TAIL;
+        int count = 0;
+        int remainingSpan = mSpanCount;
+        if (!layingOutInPrimaryDirection) {
+            // 反向时从这一行的最后一个item开始, 可用的span到它的末尾为止
+            final int itemSpanIndex = mSpanSizeLookup.getCachedSpanIndex(
+                    layoutState.mCurrentPosition, mSpanCount);
+            remainingSpan = itemSpanIndex + getSpanSize(layoutState.mCurrentPosition);
+        }
+        while (count < mSpanCount && layoutState.hasMore(mRecyclerView.mState)
+                && remainingSpan > 0) {
+            final int position = layoutState.mCurrentPosition;
+            final int spanSize = getSpanSize(position);
+            remainingSpan -= spanSize;
+            if (remainingSpan < 0) {
+                break;
+            }
+            mSetPositions[count] = position;
+            mSetSpanSizes[count] = spanSize;
+            mSetSpanIndices[count] = mSpanSizeLookup.getCachedSpanIndex(position, mSpanCount);
+            layoutState.mCurrentPosition += layoutState.mItemDirection;
+            count++;
+        }
+        if (count == 0) {
+            result.mFinished = true;
+            return;
+        }
+        // 一行的View一起获取, 需要完整绑定的合并成一次Adapter#onBindViewHolders
+        recycler.getViewsForPositions(mSetPositions, count, mSet);
+
+        int maxSize = 0;
+        for (int i = 0; i < count; i++) {
+            final View view = mSet[i];
+            if (mShouldReverseLayout
+                    == (layoutState.mLayoutDirection == LayoutState.LAYOUT_START)) {
+                addView(view);
+            } else {
+                addView(view, 0);
+            }
+            measureChildInSpan(view, mSetSpanIndices[i], mSetSpanSizes[i]);
+            final int size = mOrientationHelper.getDecoratedMeasurement(view);
+            if (size > maxSize) {
+                maxSize = size;
+            }
+        }
+        // 布局方向上MATCH_PARENT的子View和这一行最高的子View一样高
+        for (int i = 0; i < count; i++) {
+            final View view = mSet[i];
+            if (mOrientationHelper.getDecoratedMeasurement(view) != maxSize
+                    && isMatchParentInLayoutDirection(view)) {
+                measureChildToRowSize(view, mSetSpanIndices[i], mSetSpanSizes[i], maxSize);
+            }
+        }
+        result.mConsumed = maxSize;
+        // 一行的尺寸平分给这一行的item, 这样尺寸索引里每一行的和就是行高
+        final int sizePerItem = maxSize / count;
+        final int sizeRemainder = maxSize - sizePerItem * count;
+
+        int left = 0, right = 0, top = 0, bottom = 0;
+        if (mOrientation == VERTICAL) {
+            if (layoutState.mLayoutDirection == LayoutState.LAYOUT_START) {
+                bottom = layoutState.mOffset;
+                top = bottom - maxSize;
+            } else {
+                top = layoutState.mOffset;
+                bottom = top + maxSize;
+            }
+        } else {
+            if (layoutState.mLayoutDirection == LayoutState.LAYOUT_START) {
+                right = layoutState.mOffset;
+                left = right - maxSize;
+            } else {
+                left = layoutState.mOffset;
+                right = left + maxSize;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            final View view = mSet[i];
+            final int spanIndex = mSetSpanIndices[i];
+            if (mOrientation == VERTICAL) {
+                if (isLayoutRTL()) {
+                    right = getPaddingLeft() + mCachedBorders[mSpanCount - spanIndex];
+                    left = right - mOrientationHelper.getDecoratedMeasurementInOther(view);
+                } else {
+                    left = getPaddingLeft() + mCachedBorders[spanIndex];
+                    right = left + mOrientationHelper.getDecoratedMeasurementInOther(view);
+                }
+            } else {
+                top = getPaddingTop() + mCachedBorders[spanIndex];
+                bottom = top + mOrientationHelper.getDecoratedMeasurementInOther(view);
+            }
+            layoutDecoratedWithMargins(view, left, top, right, bottom);
+            final RecyclerView.LayoutParams params =
+                    (RecyclerView.LayoutParams) view.getLayoutParams();
+            if (params.isItemRemoved() || params.isItemChanged()) {
+                result.mIgnoreConsumed = true;
+            }
+            if (!layoutState.mIsPreLayout && !params.isItemRemoved()) {
+                mItemSizeIndex.record(getPosition(view),
+                        i == 0 ? sizePerItem + sizeRemainder : sizePerItem);
+            }
+            mSet[i] = null;
+        }
+    }
+
+    private boolean isMatchParentInLayoutDirection(View view) {
+        final ViewGroup.LayoutParams lp = view.getLayoutParams();
+        return (mOrientation == VERTICAL ? lp.height : lp.width)
+                == ViewGroup.LayoutParams.MATCH_PARENT;
+    }
+
+    /**
+     * 另一个方向上固定为span的宽度, 布局方向上按LayoutParams测量
+     */
+    private void measureChildInSpan(View view, int spanIndex, int spanSize) {
+        final RecyclerView.LayoutParams lp = (RecyclerView.LayoutParams) view.getLayoutParams();
+        final Rect decorInsets = getItemDecorInsetsForChild(view);
+        final int verticalInsets = decorInsets.top + decorInsets.bottom
+                + lp.topMargin + lp.bottomMargin;
+        final int horizontalInsets = decorInsets.left + decorInsets.right
+                + lp.leftMargin + lp.rightMargin;
+        final int availableSpaceInOther = getSpaceForSpanRange(spanIndex, spanSize);
+        final int wSpec;
+        final int hSpec;
+        if (mOrientation == VERTICAL) {
+            wSpec = getChildMeasureSpec(availableSpaceInOther, View.MeasureSpec.EXACTLY,
+                    horizontalInsets, lp.width, false);
+            hSpec = getChildMeasureSpec(mOrientationHelper.getTotalSpace(), getHeightMode(),
+                    verticalInsets, lp.height, true);
+        } else {
+            hSpec = getChildMeasureSpec(availableSpaceInOther, View.MeasureSpec.EXACTLY,
+                    verticalInsets, lp.height, false);
+            wSpec = getChildMeasureSpec(mOrientationHelper.getTotalSpace(), getWidthMode(),
+                    horizontalInsets, lp.width, true);
+        }
+        if (shouldMeasureChild(view, wSpec, hSpec, lp)) {
+            measureChildWithSpecs(view, wSpec, hSpec);
+        }
+    }
+
+    private void measureChildToRowSize(View view, int spanIndex, int spanSize, int rowSize) {
+        final RecyclerView.LayoutParams lp = (RecyclerView.LayoutParams) view.getLayoutParams();
+        final Rect decorInsets = getItemDecorInsetsForChild(view);
+        final int wSpec;
+        final int hSpec;
+        if (mOrientation == VERTICAL) {
+            wSpec = View.MeasureSpec.makeMeasureSpec(view.getMeasuredWidth(),
+                    View.MeasureSpec.EXACTLY);
+            hSpec = View.MeasureSpec.makeMeasureSpec(Math.max(0, rowSize - decorInsets.top
+                    - decorInsets.bottom - lp.topMargin - lp.bottomMargin),
+                    View.MeasureSpec.EXACTLY);
+        } else {
+            wSpec = View.MeasureSpec.makeMeasureSpec(Math.max(0, rowSize - decorInsets.left
+                    - decorInsets.right - lp.leftMargin - lp.rightMargin),
+                    View.MeasureSpec.EXACTLY);
+            hSpec = View.MeasureSpec.makeMeasureSpec(view.getMeasuredHeight(),
+                    View.MeasureSpec.EXACTLY);
+        }
+        view.measure(wSpec, hSpec);
+    }
+
+    /**
+     * 以行为单位预取, 行数由滑动速度估算
+     */
+    @Override
+    void collectPrefetchPositionsForLayoutState(RecyclerView.State state,
+                                                LayoutState layoutState,
+                                                LayoutPrefetchRegistry layoutPrefetchRegistry) {
+        final int items = computePrefetchItemCount();
+        final int rows = Math.max(1, (items + mSpanCount - 1) / mSpanCount);
+        final int rowSize = getAverageChildSize() * mSpanCount;
+        final int baseDistance = Math.max(0, layoutState.mScrollingOffset);
+        int position = layoutState.mCurrentPosition;
+        for (int row = 0; row < rows; row++) {
+            int remainingSpan = mSpanCount;
+            while (remainingSpan > 0 && position >= 0 && position < state.getItemCount()) {
+                final int spanSize = getSpanSize(position);
+                remainingSpan -= spanSize;
+                if (remainingSpan < 0) {
+                    break;
+                }
+                layoutPrefetchRegistry.addPosition(position, baseDistance + row * rowSize);
+                position += layoutState.mItemDirection;
+            }
+        }
+    }
+
+    /**
+     * item占用的span数量
+     * <p>
+     * span index和span group index的查询由检查点缓存加速: 每隔{@link #CHECKPOINT_INTERVAL}个位置,
+     * 保存"这个位置开始之前"的span index和行号, 查询时从最近的检查点向后最多走CHECKPOINT_INTERVAL步;
+     * 连续位置的查询(布局和滑动)直接从上一次的结果前进一步。
+     * 因为一个item的位置只取决于它之前的item, position处的变化只会让position之后的检查点失效。
+     */
+    public abstract static class SpanSizeLookup {
+        static final int CHECKPOINT_INTERVAL = 64;
+
+        private boolean mCacheSpanIndices = true;
+
+        //检查点k保存位置k * CHECKPOINT_INTERVAL之前的状态: 下一个item可以开始的span和行号
+        private int[] mCheckpointSpans = new int[16];
+        private int[] mCheckpointGroups = new int[16];
+        //有效的检查点数量, 检查点0总是(0, 0)
+        private int mValidCheckpoints = 1;
+        private int mCachedSpanCount = -1;
+
+        //上一次查询的结果, 连续查询时从这里前进
+        private int mLastPosition = -1;
+        private int mLastSpanIndex;
+        private int mLastGroupIndex;
+
+        //computeUpTo的结果
+        private int mResultSpanIndex;
+        private int mResultGroupIndex;
+
+        public abstract int getSpanSize(int position);
+
+        public void setSpanIndexCacheEnabled(boolean cacheSpanIndices) {
+            if (!cacheSpanIndices) {
+                invalidateSpanIndexCache();
+            }
+            mCacheSpanIndices = cacheSpanIndices;
+        }
+
+        public boolean isSpanIndexCacheEnabled() {
+            return mCacheSpanIndices;
+        }
+
+        /**
+         * 清空所有缓存
+         */
+        public void invalidateSpanIndexCache() {
+            mValidCheckpoints = 1;
+            mLastPosition = -1;
+        }
+
+        /**
+         * position及之后的缓存失效, 之前的检查点保留
+         */
+        public void invalidateSpanIndexCacheFrom(int position) {
+            if (position <= 0) {
+                invalidateSpanIndexCache();
+                return;
+            }
+            // 检查点k依赖[0, k * CHECKPOINT_INTERVAL)的item, k * CHECKPOINT_INTERVAL <= position的都还有效
+            mValidCheckpoints = Math.min(mValidCheckpoints, position / CHECKPOINT_INTERVAL + 1);
+            if (mLastPosition >= position) {
+                mLastPosition = -1;
+            }
+        }
+
+        /**
+         * position在行内的span index, 使用缓存
+         */
+        int getCachedSpanIndex(int position, int spanCount) {
+            if (!mCacheSpanIndices) {
+                return getSpanIndex(position, spanCount);
+            }
+            computeUpTo(position, spanCount);
+            return mResultSpanIndex;
+        }
+
+        /**
+         * position所在行的第一个位置, 最多向前查spanCount - 1个位置
+         */
+        int findRowStartPosition(int position, int spanCount) {
+            while (position > 0 && getCachedSpanIndex(position, spanCount) > 0) {
+                position--;
+            }
+            return position;
+        }
+
+        int getCachedSpanGroupIndex(int position, int spanCount) {
+            if (!mCacheSpanIndices) {
+                return getSpanGroupIndex(position, spanCount);
+            }
+            computeUpTo(position, spanCount);
+            return mResultGroupIndex;
+        }
+
+        /**
+         * position在行内的span index, 结果在[0, spanCount)之间
+         */
+        public int getSpanIndex(int position, int spanCount) {
+            computeFrom(0, 0, 0, position, spanCount);
+            return mResultSpanIndex;
+        }
+
+        /**
+         * position所在的行号
+         */
+        public int getSpanGroupIndex(int adapterPosition, int spanCount) {
+            computeFrom(0, 0, 0, adapterPosition, spanCount);
+            return mResultGroupIndex;
+        }
+
+        private void computeUpTo(int position, int spanCount) {
+            if (spanCount != mCachedSpanCount) {
+                invalidateSpanIndexCache();
+                mCachedSpanCount = spanCount;
+            }
+            if (position == mLastPosition) {
+                mResultSpanIndex = mLastSpanIndex;
+                mResultGroupIndex = mLastGroupIndex;
+                return;
+            }
+            if (position == mLastPosition + 1 && mLastPosition >= 0) {
+                // 从上一个位置前进一步
+                int span = mLastSpanIndex + clampedSpanSize(mLastPosition, spanCount);
+                int group = mLastGroupIndex;
+                if (span >= spanCount) {
+                    span = 0;
+                    group++;
+                }
+                placeItem(position, span, group, spanCount);
+            } else {
+                final int checkpoint = position / CHECKPOINT_INTERVAL;
+                ensureCheckpoints(checkpoint, spanCount);
+                computeFrom(checkpoint * CHECKPOINT_INTERVAL, mCheckpointSpans[checkpoint],
+                        mCheckpointGroups[checkpoint], position, spanCount);
+            }
+            mLastPosition = position;
+            mLastSpanIndex = mResultSpanIndex;
+            mLastGroupIndex = mResultGroupIndex;
+        }
+
+        /**
+         * 计算到检查点target为止的所有检查点
+         */
+        private void ensureCheckpoints(int target, int spanCount) {
+            if (target < mValidCheckpoints) {
+                return;
+            }
+            if (target >= mCheckpointSpans.length) {
+                final int capacity = Math.max(target + 1, mCheckpointSpans.length * 2);
+                mCheckpointSpans = Arrays.copyOf(mCheckpointSpans, capacity);
+                mCheckpointGroups = Arrays.copyOf(mCheckpointGroups, capacity);
+            }
+            mCheckpointSpans[0] = 0;
+            mCheckpointGroups[0] = 0;
+            for (int k = mValidCheckpoints; k <= target; k++) {
+                int span = mCheckpointSpans[k - 1];
+                int group = mCheckpointGroups[k - 1];
+                final int end = k * CHECKPOINT_INTERVAL;
+                for (int i = end - CHECKPOINT_INTERVAL; i < end; i++) {
+                    final int size = clampedSpanSize(i, spanCount);
+                    if (span + size > spanCount) {
+                        span = 0;
+                        group++;
+                    }
+                    span += size;
+                    if (span >= spanCount) {
+                        span = 0;
+                        group++;
+                    }
+                }
+                mCheckpointSpans[k] = span;
+                mCheckpointGroups[k] = group;
+            }
+            mValidCheckpoints = target + 1;
+        }
+
+        /**
+         * 从start之前的状态(span, group)开始, 计算position的span index和行号
+         */
+        private void computeFrom(int start, int span, int group, int position, int spanCount) {
+            for (int i = start; i < position; i++) {
+                final int size = clampedSpanSize(i, spanCount);
+                if (span + size > spanCount) {
+                    span = 0;
+                    group++;
+                }
+                span += size;
+                if (span >= spanCount) {
+                    span = 0;
+                    group++;
+                }
+            }
+            placeItem(position, span, group, spanCount);
+        }
+
+        //在(span, group)处放下position, 放不下时换行
+        private void placeItem(int position, int span, int group, int spanCount) {
+            if (span + clampedSpanSize(position, spanCount) > spanCount) {
+                span = 0;
+                group++;
+            }
+            mResultSpanIndex = span;
+            mResultGroupIndex = group;
+        }
+
+        private int clampedSpanSize(int position, int spanCount) {
+            return Math.min(getSpanSize(position), spanCount);
+        }
+    }
+
+    /**
+     * 每个item占用1个span
+     */
+    public static final class DefaultSpanSizeLookup extends SpanSizeLookup {
+        @Override
+        public int getSpanSize(int position) {
+            return 1;
+        }
+
+        @Override
+        int getCachedSpanIndex(int position, int spanCount) {
+            return position % spanCount;
+        }
+
+        @Override
+        int findRowStartPosition(int position, int spanCount) {
+            return position - position % spanCount;
+        }
+
+        @Override
+        int getCachedSpanGroupIndex(int position, int spanCount) {
+            return position / spanCount;
+        }
+
+        @Override
+        public int getSpanIndex(int position, int spanCount) {
+            return position % spanCount;
+        }
+
+        @Override
+        public int getSpanGroupIndex(int adapterPosition, int spanCount) {
+            return adapterPosition / spanCount;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.shuhnli.recyclerview_diy.layoutManager;
+
+import androidx.annotation.NonNull;
+
+import com.shuhnli.recyclerview_diy.utils.FenwickTree;
+
+/**
+ * 每个adapter位置在布局方向上的尺寸(包括decoration和margin), 用来精确计算滚动条
+ * <p>
+ * 测量过的位置记录实际尺寸, 没有测量过的按测量过的平均尺寸估算。实际尺寸和"是否测量过"分别存在两个
+ * {@link FenwickTree}里, 平均尺寸变化时不需要更新任何元素, 前缀和、总和以及按偏移量查找位置都是O(log n)。
+ * 在中间插入/删除位置需要O(n)重建, 每次notifyItemRange*只重建一次; 在末尾追加/删除不需要重建,
+ * 移动只修改被影响的那一段。
+ * <p>
+ * 所有item尺寸相同时(见{@link LayoutManager#setFixedItemSize(boolean)})设置{@link #setUniformSize(int)},
+ * 之后不再记录, 所有查询都直接按位置计算。
+ */
+final class ItemSizeIndex {
+    //保存状态时没有测量过的位置
+    static final int UNMEASURED = -1;
+
+    //测量过的尺寸, 没有测量过的是0
+    private final FenwickTree mSizes = new FenwickTree();
+    //测量过的是1, 没有测量过的是0
+    private final FenwickTree mMeasured = new FenwickTree();
+    //所有item相同的尺寸, 0表示不固定
+    private int mUniformSize;
+
+    int getItemCount() {
+        return mSizes.size();
+    }
+
+    /**
+     * 和adapter的item数量对齐, 新增的位置都没有测量过
+     */
+    void setItemCount(int itemCount) {
+        if (itemCount == mSizes.size()) {
+            return;
+        }
+        mSizes.resize(itemCount, 0);
+        mMeasured.resize(itemCount, 0);
+    }
+
+    void clear() {
+        mSizes.clear();
+        mMeasured.clear();
+    }
+
+    /**
+     * 所有item的尺寸都是size, 传0取消
+     */
+    void setUniformSize(int size) {
+        mUniformSize = Math.max(0, size);
+    }
+
+    int getUniformSize() {
+        return mUniformSize;
+    }
+
+    /**
+     * 记录position测量后的尺寸
+     */
+    void record(int position, int size) {
+        if (mUniformSize > 0) {
+            return;
+        }
+        if (position < 0 || position >= mSizes.size() || size < 0) {
+            return;
+        }
+        mSizes.set(position, size);
+        mMeasured.set(position, 1);
+    }
+
+    /**
+     * 一次记录很多位置的尺寸: sizes[i]不是{@link #UNMEASURED}时记录成位置i的尺寸, 其他位置不变。
+     * 重建一次, O(n)
+     */
+    void recordAll(@NonNull int[] sizes) {
+        if (mUniformSize > 0) {
+            return;
+        }
+        final int count = mSizes.size();
+        final int[] values = new int[count];
+        final int[] measured = new int[count];
+        for (int i = 0; i < count; i++) {
+            if (i < sizes.length && sizes[i] != UNMEASURED) {
+                values[i] = sizes[i];
+                measured[i] = 1;
+            } else {
+                values[i] = mSizes.get(i);
+                measured[i] = mMeasured.get(i);
+            }
+        }
+        mSizes.build(values, count);
+        mMeasured.build(measured, count);
+    }
+
+    boolean isMeasured(int position) {
+        return mMeasured.get(position) != 0;
+    }
+
+    void onItemsAdded(int positionStart, int itemCount) {
+        if (positionStart < 0 || positionStart > mSizes.size()) {
+            return;
+        }
+        mSizes.insert(positionStart, itemCount, 0);
+        mMeasured.insert(positionStart, itemCount, 0);
+    }
+
+    void onItemsRemoved(int positionStart, int itemCount) {
+        final int count = Math.min(itemCount, mSizes.size() - positionStart);
+        if (positionStart < 0 || count <= 0) {
+            return;
+        }
+        mSizes.remove(positionStart, count);
+        mMeasured.remove(positionStart, count);
+    }
+
+    /**
+     * [from, from + itemCount)移动到to开始的位置
+     */
+    void onItemsMoved(int from, int to, int itemCount) {
+        final int size = mSizes.size();
+        if (from < 0 || to < 0 || itemCount <= 0 || from + itemCount > size
+                || to + itemCount > size || from == to) {
+            return;
+        }
+        mSizes.move(from, to, itemCount);
+        mMeasured.move(from, to, itemCount);
+    }
+
+    /**
+     * 没有测量过的位置使用的尺寸: 测量过的平均值, 一个都没有测量过时是0
+     */
+    int getEstimatedSize() {
+        if (mUniformSize > 0) {
+            return mUniformSize;
+        }
+        final long measuredCount = mMeasured.total();
+        if (measuredCount == 0) {
+            return 0;
+        }
+        return (int) (mSizes.total() / measuredCount);
+    }
+
+    /**
+     * [0, position)的尺寸之和, 即position的起点距离内容开头的距离
+     */
+    long getOffsetOf(int position) {
+        final int end = Math.max(0, Math.min(position, mSizes.size()));
+        if (mUniformSize > 0) {
+            return (long) end * mUniformSize;
+        }
+        final long unmeasured = end - mMeasured.prefixSum(end);
+        return mSizes.prefixSum(end) + unmeasured * getEstimatedSize();
+    }
+
+    long getTotalSize() {
+        return getOffsetOf(mSizes.size());
+    }
+
+    /**
+     * offset落在的位置: 满足 getOffsetOf(p) <= offset 的最大p, 结果在[0, getItemCount() - 1]之间。
+     * 没有item时返回0
+     */
+    int findPositionAt(long offset) {
+        final int last = mSizes.size() - 1;
+        if (last <= 0 || offset < 0) {
+            return 0;
+        }
+        if (mUniformSize > 0) {
+            return (int) Math.min(last, offset / mUniformSize);
+        }
+        // 没有测量过的位置按平均值计算, 在两棵树上同时下降, O(log n)
+        return Math.min(last,
+                FenwickTree.findIndex(mSizes, mMeasured, getEstimatedSize(), offset));
+    }
+
+    /**
+     * 保存成数组, 没有测量过的是{@link #UNMEASURED}
+     */
+    @NonNull
+    int[] toArray() {
+        final int count = mSizes.size();
+        final int[] sizes = new int[count];
+        for (int i = 0; i < count; i++) {
+            sizes[i] = mMeasured.get(i) != 0 ? mSizes.get(i) : UNMEASURED;
+        }
+        return sizes;
+    }
+
+    void restore(@NonNull int[] sizes) {
+        final int count = sizes.length;
+        final int[] values = new int[count];
+        final int[] measured = new int[count];
+        for (int i = 0; i < count; i++) {
+            if (sizes[i] != UNMEASURED) {
+                values[i] = sizes[i];
+                measured[i] = 1;
+            }
+        }
+        mSizes.build(values, count);
+        mMeasured.build(measured, count);
+    }
+}
@@ -9,6 +9,8 @@ import android.os.Bundle;
 import android.os.Parcelable;
 import android.util.AttributeSet;
 import android.util.Log;
+import android.util.SparseArray;
+import android.util.SparseBooleanArray;
 import android.view.FocusFinder;
 import android.view.View;
 import android.view.ViewGroup;
@@ -19,6 +21,7 @@ import androidx.annotation.CallSuper;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.Px;
+import androidx.core.view.ViewCompat;
 
 
 import com.shuhnli.recyclerview_diy.childUtil.ChildHelper;
@@ -74,6 +77,16 @@ public abstract class LayoutManager {
                     view.getLayoutParams();
             return LayoutManager.this.getDecoratedRight(view) + params.rightMargin;
         }
+
+        @Override
+        public int getChildStartAt(int index) {
+            return getChildBounds().getStart(index, true);
+        }
+
+        @Override
+        public int getChildEndAt(int index) {
+            return getChildBounds().getEnd(index, true);
+        }
     };
 
     /**
@@ -110,12 +123,25 @@ public abstract class LayoutManager {
                     view.getLayoutParams();
             return LayoutManager.this.getDecoratedBottom(view) + params.bottomMargin;
         }
+
+        @Override
+        public int getChildStartAt(int index) {
+            return getChildBounds().getStart(index, false);
+        }
+
+        @Override
+        public int getChildEndAt(int index) {
+            return getChildBounds().getEnd(index, false);
+        }
     };
 
     //用于判断水平和竖直case下, 父子View边界的关系
     ViewBoundsCheck mHorizontalBoundCheck = new ViewBoundsCheck(mHorizontalBoundCheckCallback);
     ViewBoundsCheck mVerticalBoundCheck = new ViewBoundsCheck(mVerticalBoundCheckCallback);
 
+    //子View边界的快照, 见getChildBounds()
+    private final ChildBoundsSnapshot mChildBounds = new ChildBoundsSnapshot();
+
     @Nullable
     RecyclerView.SmoothScroller mSmoothScroller;
 
@@ -156,6 +182,17 @@ public abstract class LayoutManager {
     private int mWidthMode, mHeightMode;
     private int mWidth, mHeight;
 
+    //所有item尺寸都相同时, mFixedItemSizes中使用的key
+    private static final int ALL_VIEW_TYPES = Integer.MIN_VALUE;
+    //所有item的尺寸都相同
+    private boolean mAllItemSizesFixed;
+    //声明了固定尺寸的viewType
+    private final SparseBooleanArray mFixedSizeViewTypes = new SparseBooleanArray();
+    //固定尺寸的测量结果, key是viewType或ALL_VIEW_TYPES
+    private final SparseArray<FixedItemSize> mFixedItemSizes = new SparseArray<>();
+    //按adapter提供的测量key缓存的测量结果, 见Adapter#getMeasurementKey
+    private final ContentMeasurementCache mContentMeasurements = new ContentMeasurementCache();
+
 
     /**
      * Interface for LayoutManagers to request items to be prefetched, based on position, with
@@ -184,10 +221,13 @@ public abstract class LayoutManager {
         mHeight = recyclerView.getHeight();
         mWidthMode = View.MeasureSpec.EXACTLY;
         mHeightMode = View.MeasureSpec.EXACTLY;
+        mChildBounds.invalidate();
     }
 
     //设置测量模式
     void setMeasureSpecs(int wSpec, int hSpec) {
+        // 新的一次布局, decoration和margin都可能变化
+        mChildBounds.invalidate();
         mWidth = View.MeasureSpec.getSize(wSpec);
         mWidthMode = View.MeasureSpec.getMode(wSpec);
 
@@ -727,6 +767,7 @@ public abstract class LayoutManager {
         }
 
         final RecyclerView.LayoutParams lp = (RecyclerView.LayoutParams) child.getLayoutParams();
+        final int modCountBefore = mChildHelper.getModCount();
         //case1: 该View属于被回收的view
         if (holder.wasReturnedFromScrap() || holder.isScrap()) {
             if (holder.isScrap()) {
@@ -735,6 +776,7 @@ public abstract class LayoutManager {
                 holder.clearReturnedFromScrapFlag();
             }
             mChildHelper.attachViewToParent(child, index, child.getLayoutParams(), false);
+            onChildAdded(child, index, modCountBefore);
 
         } else if (child.getParent() == mRecyclerView) {
             //case2:该View属于一个正在使用的view (按照正常的case, 一般不会出现这种case)
@@ -753,6 +795,7 @@ public abstract class LayoutManager {
             }
         } else {
             mChildHelper.addView(child, index, false);
+            onChildAdded(child, index, modCountBefore);
             lp.mInsetsDirty = true;
             if (mSmoothScroller != null && mSmoothScroller.isRunning()) {
                 mSmoothScroller.onChildAttachedToWindow(child);
@@ -767,15 +810,27 @@ public abstract class LayoutManager {
         }
     }
 
+    //加入了一个不隐藏的子View, index为-1时加在最后, 同步更新子View边界的快照
+    private void onChildAdded(View child, int index, int modCountBefore) {
+        final int visibleIndex = index < 0 ? getChildCount() - 1 : index;
+        mChildBounds.onChildAdded(visibleIndex, child, modCountBefore,
+                mChildHelper.getModCount());
+    }
+
     //从当前附加的RecyclerView中移除一个View
     public void removeView(View child) {
+        final int index = mChildHelper.isHidden(child) ? -1 : mChildHelper.indexOfChild(child);
+        final int modCountBefore = mChildHelper.getModCount();
         mChildHelper.removeView(child);
+        mChildBounds.onChildRemoved(index, modCountBefore, mChildHelper.getModCount());
     }
 
     public void removeViewAt(int index) {
         final View child = getChildAt(index);
         if (child != null) {
+            final int modCountBefore = mChildHelper.getModCount();
             mChildHelper.removeViewAt(index);
+            mChildBounds.onChildRemoved(index, modCountBefore, mChildHelper.getModCount());
         }
     }
 
@@ -909,6 +964,23 @@ public abstract class LayoutManager {
         return mChildHelper != null ? mChildHelper.getChildAt(index) : null;
     }
 
+    /**
+     * 所有子View边界(包括ItemDecoration和margin)的快照, 按index查询
+     * <p>
+     * 通过{@link #addView(View)}/{@link #removeView(View)}等加入或移除子View、
+     * {@link #offsetChildrenHorizontal(int)}/{@link #offsetChildrenVertical(int)}平移时同步更新,
+     * 滑动中回收和填充不会重新生成; 重新摆放已有的子View、开始新的一次布局等其他修改之后才重新生成
+     */
+    ChildBoundsSnapshot getChildBounds() {
+        final int modCount = mChildHelper != null ? mChildHelper.getModCount() : 0;
+        if (!mChildBounds.isValid(modCount, getChildCount())) {
+            mChildBounds.build(this, modCount);
+        } else {
+            mChildBounds.updateStaleBounds(this);
+        }
+        return mChildBounds;
+    }
+
 
     public int getWidthMode() {
         return mWidthMode;
@@ -977,6 +1049,7 @@ public abstract class LayoutManager {
     public void offsetChildrenHorizontal(@Px int dx) {
         if (mRecyclerView != null) {
             mRecyclerView.offsetChildrenHorizontal(dx);
+            mChildBounds.offsetHorizontal(dx);
         }
     }
 
@@ -989,9 +1062,21 @@ public abstract class LayoutManager {
     public void offsetChildrenVertical(@Px int dy) {
         if (mRecyclerView != null) {
             mRecyclerView.offsetChildrenVertical(dy);
+            mChildBounds.offsetVertical(dy);
         }
     }
 
+    //单独平移一个子View
+    void offsetChildHorizontal(@NonNull View child, @Px int dx) {
+        child.offsetLeftAndRight(dx);
+        mChildBounds.invalidate();
+    }
+
+    void offsetChildVertical(@NonNull View child, @Px int dy) {
+        child.offsetTopAndBottom(dy);
+        mChildBounds.invalidate();
+    }
+
     /**
      * Flags a view so that it will not be scrapped or recycled.
      * <p>
@@ -1110,11 +1195,179 @@ public abstract class LayoutManager {
     }
 
 
+    /**
+     * 声明所有item的尺寸(包括ItemDecoration的偏移)都相同, 和viewType、位置、绑定的数据都无关
+     * <p>
+     * 之后每个MeasureSpec只测量一次: 已经按这个MeasureSpec测量过的子View重新绑定后不再测量,
+     * ItemDecoration的偏移也直接复用; {@link LinearLayoutManager}的滚动条和跳转按位置直接计算。
+     */
+    public void setFixedItemSize(boolean fixed) {
+        if (mAllItemSizesFixed == fixed) {
+            return;
+        }
+        mAllItemSizesFixed = fixed;
+        mFixedItemSizes.clear();
+        onFixedItemSizeModeChanged();
+        requestLayout();
+    }
+
+    /**
+     * 固定尺寸的声明发生了变化
+     */
+    void onFixedItemSizeModeChanged() {
+    }
+
+    /**
+     * 声明viewType的item尺寸(包括ItemDecoration的偏移)都相同, 效果同{@link #setFixedItemSize(boolean)},
+     * 只是限定在一种viewType
+     */
+    public void setFixedItemSize(int viewType, boolean fixed) {
+        if (fixed) {
+            mFixedSizeViewTypes.put(viewType, true);
+        } else {
+            mFixedSizeViewTypes.delete(viewType);
+        }
+        mFixedItemSizes.remove(viewType);
+        onFixedItemSizeModeChanged();
+        requestLayout();
+    }
+
+    //是否声明了所有item的尺寸都相同
+    public boolean hasFixedItemSize() {
+        return mAllItemSizesFixed;
+    }
+
+    public boolean isItemSizeFixed(int viewType) {
+        return mAllItemSizesFixed || mFixedSizeViewTypes.get(viewType);
+    }
+
+    /**
+     * child所属的固定尺寸记录, 没有声明固定尺寸时返回null
+     */
+    @Nullable
+    private FixedItemSize getFixedItemSize(View child) {
+        if (!mAllItemSizesFixed && mFixedSizeViewTypes.size() == 0) {
+            return null;
+        }
+        final int key;
+        if (mAllItemSizesFixed) {
+            key = ALL_VIEW_TYPES;
+        } else {
+            key = getItemViewType(child);
+            if (!mFixedSizeViewTypes.get(key)) {
+                return null;
+            }
+        }
+        FixedItemSize size = mFixedItemSizes.get(key);
+        if (size == null) {
+            size = new FixedItemSize();
+            mFixedItemSizes.put(key, size);
+        }
+        return size;
+    }
+
+    /**
+     * 子View的ItemDecoration偏移; 固定尺寸的item直接复用之前的结果, 不再询问每个ItemDecoration
+     */
+    Rect getItemDecorInsetsForChild(View child) {
+        final FixedItemSize fixed = getFixedItemSize(child);
+        if (fixed != null && fixed.mValid) {
+            final RecyclerView.LayoutParams lp =
+                    (RecyclerView.LayoutParams) child.getLayoutParams();
+            if (lp.mInsetsDirty) {
+                lp.mDecorInsets.set(fixed.mInsets);
+                lp.mInsetsDirty = false;
+            }
+        }
+        return mRecyclerView.getItemDecorInsetsForChild(child);
+    }
+
+    /**
+     * 子View测量之后调用, 记录固定尺寸的item在这个MeasureSpec下的结果
+     */
+    void onChildMeasured(View child, int widthSpec, int heightSpec) {
+        final FixedItemSize fixed = getFixedItemSize(child);
+        if (fixed == null || (fixed.mValid && fixed.mWidthSpec == widthSpec
+                && fixed.mHeightSpec == heightSpec)) {
+            return;
+        }
+        final RecyclerView.LayoutParams lp = (RecyclerView.LayoutParams) child.getLayoutParams();
+        fixed.mWidthSpec = widthSpec;
+        fixed.mHeightSpec = heightSpec;
+        fixed.mMeasuredWidth = child.getMeasuredWidth();
+        fixed.mMeasuredHeight = child.getMeasuredHeight();
+        fixed.mInsets.set(lp.mDecorInsets);
+        fixed.mValid = true;
+    }
+
+    /**
+     * 按MeasureSpec测量子View并记录结果
+     * <p>
+     * adapter提供了测量key({@link Adapter#getMeasurementKey(int)})并且缓存里有相同viewType、
+     * 相同MeasureSpec、相同key的结果时, 直接按缓存的尺寸以EXACTLY测量, 子View不需要再计算自己的尺寸
+     */
+    void measureChildWithSpecs(View child, int widthSpec, int heightSpec) {
+        final RecyclerView.LayoutParams lp = (RecyclerView.LayoutParams) child.getLayoutParams();
+        final long key = getMeasurementKey(lp);
+        final FixedItemSize fixed = getFixedItemSize(child);
+        if (fixed != null && fixed.hasSpecs(widthSpec, heightSpec)) {
+            // 固定尺寸已经知道, 按这个尺寸以EXACTLY测量, 子View只需要重新布局自己的内容
+            child.measure(
+                    View.MeasureSpec.makeMeasureSpec(fixed.mMeasuredWidth, View.MeasureSpec.EXACTLY),
+                    View.MeasureSpec.makeMeasureSpec(fixed.mMeasuredHeight, View.MeasureSpec.EXACTLY));
+            lp.mMeasuredContentKey = key;
+            return;
+        }
+        if (key == RecyclerView.NO_ID) {
+            child.measure(widthSpec, heightSpec);
+        } else {
+            final int viewType = getItemViewType(child);
+            final long cached = mContentMeasurements.get(viewType, widthSpec, heightSpec, key);
+            if (cached != ContentMeasurementCache.MISS) {
+                child.measure(
+                        View.MeasureSpec.makeMeasureSpec(ContentMeasurementCache.unpackWidth(cached),
+                                View.MeasureSpec.EXACTLY),
+                        View.MeasureSpec.makeMeasureSpec(ContentMeasurementCache.unpackHeight(cached),
+                                View.MeasureSpec.EXACTLY));
+            } else {
+                child.measure(widthSpec, heightSpec);
+                mContentMeasurements.put(viewType, widthSpec, heightSpec, key,
+                        child.getMeasuredWidth(), child.getMeasuredHeight());
+            }
+        }
+        lp.mMeasuredContentKey = key;
+        onChildMeasured(child, widthSpec, heightSpec);
+    }
+
+    //子View绑定内容的测量key, 关闭了测量缓存时是NO_ID
+    private long getMeasurementKey(RecyclerView.LayoutParams lp) {
+        if (!mMeasurementCacheEnabled || lp.mViewHolder == null) {
+            return RecyclerView.NO_ID;
+        }
+        return lp.mViewHolder.getMeasurementKey();
+    }
+
+    /**
+     * 子View上一次按相同的测量key测量过, 并且当前尺寸就是这个key在这个MeasureSpec下的结果
+     */
+    private boolean isContentMeasurementUpToDate(View child, int widthSpec, int heightSpec,
+                                                 RecyclerView.LayoutParams lp) {
+        final long key = getMeasurementKey(lp);
+        if (key == RecyclerView.NO_ID || lp.mMeasuredContentKey != key) {
+            return false;
+        }
+        final long cached = mContentMeasurements.get(getItemViewType(child), widthSpec, heightSpec,
+                key);
+        return cached != ContentMeasurementCache.MISS
+                && ContentMeasurementCache.unpackWidth(cached) == child.getMeasuredWidth()
+                && ContentMeasurementCache.unpackHeight(cached) == child.getMeasuredHeight();
+    }
+
     //测量子view
     public void measureChild(@NonNull View child, int widthUsed, int heightUsed) {
         final RecyclerView.LayoutParams lp = (RecyclerView.LayoutParams) child.getLayoutParams();
 
-        final Rect insets = mRecyclerView.getItemDecorInsetsForChild(child);
+        final Rect insets = getItemDecorInsetsForChild(child);
         widthUsed += insets.left + insets.right;
         heightUsed += insets.top + insets.bottom;
         final int widthSpec = getChildMeasureSpec(getWidth(), getWidthMode(),
@@ -1124,7 +1377,7 @@ public abstract class LayoutManager {
                 getPaddingTop() + getPaddingBottom() + heightUsed, lp.height,
                 canScrollVertically());
         if (shouldMeasureChild(child, widthSpec, heightSpec, lp)) {
-            child.measure(widthSpec, heightSpec);
+            measureChildWithSpecs(child, widthSpec, heightSpec);
         }
     }
 
@@ -1139,6 +1392,17 @@ public abstract class LayoutManager {
      * measure this View or not.
      */
     boolean shouldMeasureChild(View child, int widthSpec, int heightSpec, RecyclerView.LayoutParams lp) {
+        final FixedItemSize fixed = getFixedItemSize(child);
+        if (fixed != null && !child.isLayoutRequested()
+                && fixed.matches(child, widthSpec, heightSpec)) {
+            // 声明了固定尺寸, 重新绑定不会改变尺寸; 请求了布局的子View仍然要测量, 见measureChildWithSpecs
+            return false;
+        }
+        if (!child.isLayoutRequested()
+                && isContentMeasurementUpToDate(child, widthSpec, heightSpec, lp)) {
+            // 内容没有变化, 上次的测量结果仍然有效
+            return false;
+        }
         return child.isLayoutRequested()
                 || !mMeasurementCacheEnabled
                 || !isMeasurementUpToDate(child.getWidth(), widthSpec, lp.width)
@@ -1167,6 +1431,9 @@ public abstract class LayoutManager {
      */
     public void setMeasurementCacheEnabled(boolean measurementCacheEnabled) {
         mMeasurementCacheEnabled = measurementCacheEnabled;
+        if (!measurementCacheEnabled) {
+            mContentMeasurements.clear();
+        }
     }
 
     private static boolean isMeasurementUpToDate(int childSize, int spec, int dimension) {
@@ -1201,7 +1468,7 @@ public abstract class LayoutManager {
     public void measureChildWithMargins(@NonNull View child, int widthUsed, int heightUsed) {
         final RecyclerView.LayoutParams lp = (RecyclerView.LayoutParams) child.getLayoutParams();
 
-        final Rect insets = mRecyclerView.getItemDecorInsetsForChild(child);
+        final Rect insets = getItemDecorInsetsForChild(child);
         widthUsed += insets.left + insets.right;
         heightUsed += insets.top + insets.bottom;
 
@@ -1214,7 +1481,7 @@ public abstract class LayoutManager {
                         + lp.topMargin + lp.bottomMargin + heightUsed, lp.height,
                 canScrollVertically());
         if (shouldMeasureChild(child, widthSpec, heightSpec, lp)) {
-            child.measure(widthSpec, heightSpec);
+            measureChildWithSpecs(child, widthSpec, heightSpec);
         }
     }
 
@@ -1357,6 +1624,59 @@ public abstract class LayoutManager {
         out.offset(child.getLeft(), child.getTop());
     }
 
+    /**
+     * 请求RecyclerView重新布局
+     */
+    public void requestLayout() {
+        if (mRecyclerView != null) {
+            mRecyclerView.requestLayout();
+        }
+    }
+
+    /**
+     * RecyclerView的布局方向, {@link ViewCompat#LAYOUT_DIRECTION_LTR}或{@link ViewCompat#LAYOUT_DIRECTION_RTL}
+     */
+    public int getLayoutDirection() {
+        return mRecyclerView != null ? ViewCompat.getLayoutDirection(mRecyclerView)
+                : ViewCompat.LAYOUT_DIRECTION_LTR;
+    }
+
+    /**
+     * 子View在布局中的位置
+     */
+    public int getPosition(@NonNull View view) {
+        return ((RecyclerView.LayoutParams) view.getLayoutParams()).getViewLayoutPosition();
+    }
+
+    /**
+     * 测量宽度加上ItemDecoration的宽度
+     */
+    public int getDecoratedMeasuredWidth(@NonNull View child) {
+        final Rect insets = ((RecyclerView.LayoutParams) child.getLayoutParams()).mDecorInsets;
+        return child.getMeasuredWidth() + insets.left + insets.right;
+    }
+
+    /**
+     * 测量高度加上ItemDecoration的高度
+     */
+    public int getDecoratedMeasuredHeight(@NonNull View child) {
+        final Rect insets = ((RecyclerView.LayoutParams) child.getLayoutParams()).mDecorInsets;
+        return child.getMeasuredHeight() + insets.top + insets.bottom;
+    }
+
+    /**
+     * 摆放子View, left/top/right/bottom包括ItemDecoration和margin
+     */
+    public void layoutDecoratedWithMargins(@NonNull View child, int left, int top, int right,
+                                           int bottom) {
+        final RecyclerView.LayoutParams lp = (RecyclerView.LayoutParams) child.getLayoutParams();
+        final Rect insets = lp.mDecorInsets;
+        mChildBounds.onChildLaidOut(child);
+        child.layout(left + insets.left + lp.leftMargin, top + insets.top + lp.topMargin,
+                right - insets.right - lp.rightMargin,
+                bottom - insets.bottom - lp.bottomMargin);
+    }
+
     /**
      * Returns the bounds of the view including its decoration and margins.
      *
@@ -1742,6 +2062,8 @@ public abstract class LayoutManager {
      *                   {@code null}.
      */
     public void onAdapterChanged(@Nullable Adapter oldAdapter, @Nullable Adapter newAdapter) {
+        // 测量key只在同一个adapter里有意义
+        mContentMeasurements.clear();
     }
 
     /**
@@ -1813,6 +2135,19 @@ public abstract class LayoutManager {
         onItemsUpdated(recyclerView, positionStart, itemCount);
     }
 
+    /**
+     * 只有可见item的内容变化(没有增删和移动)时, RecyclerView先调用这里, 让LayoutManager原地更新变化的子View,
+     * 不走完整的布局流程。需要更新的子View满足{@link RecyclerView.LayoutParams#viewNeedsUpdate()}。
+     * 有ItemAnimator时只有局部更新(带payload)才会调用这里, 见{@link RecyclerView#setItemAnimator}
+     * 变化的item类型或稳定id改变时也不会调用, 这里可以直接重新绑定原来的ViewHolder
+     *
+     * @return 是否已经处理完, 返回false时RecyclerView照常完整布局
+     */
+    public boolean relayoutUpdatedChildren(@NonNull Recycler recycler,
+                                           @NonNull RecyclerView.State state) {
+        return false;
+    }
+
     /**
      * Called when an item is moved withing the adapter.
      * <p>
@@ -2382,4 +2717,28 @@ public abstract class LayoutManager {
          */
         public boolean stackFromEnd;
     }
+
+    /**
+     * 固定尺寸的item在某个MeasureSpec下的测量结果
+     */
+    static final class FixedItemSize {
+        boolean mValid;
+        int mWidthSpec;
+        int mHeightSpec;
+        int mMeasuredWidth;
+        int mMeasuredHeight;
+        final Rect mInsets = new Rect();
+
+        //已经知道这个MeasureSpec下的尺寸
+        boolean hasSpecs(int widthSpec, int heightSpec) {
+            return mValid && mWidthSpec == widthSpec && mHeightSpec == heightSpec;
+        }
+
+        //child已经按这个MeasureSpec测量过
+        boolean matches(View child, int widthSpec, int heightSpec) {
+            return hasSpecs(widthSpec, heightSpec)
+                    && child.getMeasuredWidth() == mMeasuredWidth
+                    && child.getMeasuredHeight() == mMeasuredHeight;
+        }
+    }
 }
@@ -19,6 +19,8 @@ public class LayoutParams extends ViewGroup.MarginLayoutParams {
     public ViewHolder mViewHolder;
     final Rect mDecorInsets = new Rect();
     boolean mInsetsDirty = true;
+    //当前测量结果对应的内容测量key, 见Adapter#getMeasurementKey
+    long mMeasuredContentKey = RecyclerView.NO_ID;
     // Flag is set to true if the view is bound while it is detached from RV.
     // In this case, we need to manually call invalidate after view is added to guarantee that
     // invalidation is populated through the View hierarchy
@@ -0,0 +1,1565 @@
+package com.shuhnli.recyclerview_diy.layoutManager;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.util.SparseIntArray;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.view.ViewCompat;
+
+import com.shuhnli.recyclerview_diy.recyclerview.Adapter;
+import com.shuhnli.recyclerview_diy.recyclerview.Recycler;
+import com.shuhnli.recyclerview_diy.recyclerview.RecyclerView;
+
+/**
+ * 线性布局, 支持水平/竖直方向、反向布局和从底部开始堆叠
+ * <p>
+ * 布局从一个锚点(anchor)开始, 先向一个方向填充满可用空间, 再向另一个方向填充;
+ * 滑动时只在滑动方向上补充新的子View, 并回收滑出屏幕的子View。
+ * <p>
+ * 预取: 滑动时{@link #collectAdjacentPrefetchPositions}报告即将进入屏幕的位置,
+ * 报告的数量根据滑动速度估算: 按当前速度在lookahead时间内会滑过多少个item, 就预取多少个。
+ */
+public class LinearLayoutManager extends LayoutManager {
+    private static final String TAG = "LinearLayoutManager";
+
+    public static final int HORIZONTAL = RecyclerView.HORIZONTAL;
+    public static final int VERTICAL = RecyclerView.VERTICAL;
+
+    public static final int INVALID_OFFSET = Integer.MIN_VALUE;
+
+    //默认的预取时间窗口: 按当前速度预取这段时间内会出现的item
+    private static final long DEFAULT_PREFETCH_LOOKAHEAD_MS = 50;
+    private static final int DEFAULT_MAX_PREFETCH_ITEMS = 4;
+    //两次滑动间隔超过这个时间时认为是新的一次滑动, 速度重新计算
+    private static final long VELOCITY_RESET_NS = 100_000_000L;
+    //item数量超过这个值时不保存尺寸索引, 避免超出Parcel的大小限制
+    private static final int MAX_SAVED_ITEM_SIZES = 10_000;
+
+    int mOrientation = VERTICAL;
+
+    //布局时的状态, 第一次使用时创建
+    private LayoutState mLayoutState;
+
+    OrientationHelper mOrientationHelper;
+
+    private boolean mLastStackFromEnd;
+
+    private boolean mReverseLayout = false;
+
+    //实际是否反向: 考虑了RTL之后的mReverseLayout
+    boolean mShouldReverseLayout = false;
+
+    private boolean mStackFromEnd = false;
+
+    //等待滑动到的位置, 在下一次布局时生效
+    int mPendingScrollPosition = RecyclerView.NO_POSITION;
+    int mPendingScrollPositionOffset = INVALID_OFFSET;
+
+    SavedState mPendingSavedState = null;
+
+    final AnchorInfo mAnchorInfo = new AnchorInfo();
+
+    private final LayoutChunkResult mLayoutChunkResult = new LayoutChunkResult();
+
+    //每个位置的尺寸, 用来计算滚动条
+    final ItemSizeIndex mItemSizeIndex = new ItemSizeIndex();
+
+    //声明了固定尺寸的viewType已经知道的尺寸, 见applyFixedTypeSizes
+    private final SparseIntArray mFixedTypeSizes = new SparseIntArray();
+    //数据变化后还没有写入固定尺寸的位置
+    private final PendingPositionRanges mFixedTypePending = new PendingPositionRanges();
+
+    //RecyclerView本身被嵌套预取时, 初始预取的item数量
+    private int mInitialPrefetchItemCount = 2;
+
+    private long mPrefetchLookaheadMs = DEFAULT_PREFETCH_LOOKAHEAD_MS;
+    private int mMaxPrefetchItems = DEFAULT_MAX_PREFETCH_ITEMS;
+
+    //滑动速度估计, 像素/秒, 带方向
+    private float mScrollVelocity;
+    private long mLastScrollTimeNs;
+
+    public LinearLayoutManager(Context context) {
+        this(context, VERTICAL, false);
+    }
+
+    /**
+     * @param orientation   {@link #HORIZONTAL}或{@link #VERTICAL}
+     * @param reverseLayout 为true时从末尾向开头布局
+     */
+    public LinearLayoutManager(Context context, int orientation, boolean reverseLayout) {
+        setOrientation(orientation);
+        setReverseLayout(reverseLayout);
+    }
+
+    @Override
+    public boolean isAutoMeasureEnabled() {
+        return true;
+    }
+
+    @Override
+    public RecyclerView.LayoutParams generateDefaultLayoutParams() {
+        return new RecyclerView.LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT,
+                ViewGroup.LayoutParams.WRAP_CONTENT);
+    }
+
+    @Override
+    public Parcelable onSaveInstanceState() {
+        if (mPendingSavedState != null) {
+            return new SavedState(mPendingSavedState);
+        }
+        final SavedState state = new SavedState();
+        if (getChildCount() > 0) {
+            ensureLayoutState();
+            final boolean didLayoutFromEnd = mLastStackFromEnd ^ mShouldReverseLayout;
+            state.mAnchorLayoutFromEnd = didLayoutFromEnd;
+            if (didLayoutFromEnd) {
+                final View refChild = getChildClosestToEnd();
+                state.mAnchorOffset = mOrientationHelper.getEndAfterPadding()
+                        - mOrientationHelper.getDecoratedEnd(refChild);
+                state.mAnchorPosition = getPosition(refChild);
+            } else {
+                final View refChild = getChildClosestToStart();
+                state.mAnchorPosition = getPosition(refChild);
+                state.mAnchorOffset = mOrientationHelper.getDecoratedStart(refChild)
+                        - mOrientationHelper.getStartAfterPadding();
+            }
+        } else {
+            state.invalidateAnchor();
+        }
+        if (mItemSizeIndex.getItemCount() <= MAX_SAVED_ITEM_SIZES) {
+            state.mItemSizes = mItemSizeIndex.toArray();
+        }
+        return state;
+    }
+
+    @Override
+    public void onRestoreInstanceState(Parcelable state) {
+        if (state instanceof SavedState) {
+            mPendingSavedState = (SavedState) state;
+            if (mPendingScrollPosition != RecyclerView.NO_POSITION) {
+                mPendingSavedState.invalidateAnchor();
+            }
+            if (mPendingSavedState.mItemSizes != null) {
+                mItemSizeIndex.restore(mPendingSavedState.mItemSizes);
+            }
+            requestLayout();
+        }
+    }
+
+    @Override
+    public boolean canScrollHorizontally() {
+        return mOrientation == HORIZONTAL;
+    }
+
+    @Override
+    public boolean canScrollVertically() {
+        return mOrientation == VERTICAL;
+    }
+
+    /**
+     * 从末尾开始堆叠: item不足一屏时贴着底部(或右边)显示
+     */
+    public void setStackFromEnd(boolean stackFromEnd) {
+        if (mStackFromEnd == stackFromEnd) {
+            return;
+        }
+        mStackFromEnd = stackFromEnd;
+        requestLayout();
+    }
+
+    public boolean getStackFromEnd() {
+        return mStackFromEnd;
+    }
+
+    public int getOrientation() {
+        return mOrientation;
+    }
+
+    public void setOrientation(int orientation) {
+        if (orientation != HORIZONTAL && orientation != VERTICAL) {
+            throw new IllegalArgumentException("invalid orientation:" + orientation);
+        }
+        if (orientation != mOrientation || mOrientationHelper == null) {
+            mOrientationHelper = OrientationHelper.createOrientationHelper(this, orientation);
+            mAnchorInfo.mOrientationHelper = mOrientationHelper;
+            mOrientation = orientation;
+            requestLayout();
+        }
+    }
+
+    public boolean getReverseLayout() {
+        return mReverseLayout;
+    }
+
+    public void setReverseLayout(boolean reverseLayout) {
+        if (reverseLayout == mReverseLayout) {
+            return;
+        }
+        mReverseLayout = reverseLayout;
+        requestLayout();
+    }
+
+    /**
+     * 水平布局在RTL时方向相反
+     */
+    private void resolveShouldLayoutReverse() {
+        if (mOrientation == VERTICAL || !isLayoutRTL()) {
+            mShouldReverseLayout = mReverseLayout;
+        } else {
+            mShouldReverseLayout = !mReverseLayout;
+        }
+    }
+
+    boolean isLayoutRTL() {
+        return getLayoutDirection() == ViewCompat.LAYOUT_DIRECTION_RTL;
+    }
+
+    /**
+     * 设置预取的时间窗口: 滑动时按当前速度预取lookaheadMs内会进入屏幕的item, 最多maxItems个
+     */
+    public void setPrefetchLookahead(long lookaheadMs, int maxItems) {
+        if (lookaheadMs < 0 || maxItems < 1) {
+            throw new IllegalArgumentException("lookaheadMs must be >= 0 and maxItems >= 1");
+        }
+        mPrefetchLookaheadMs = lookaheadMs;
+        mMaxPrefetchItems = maxItems;
+    }
+
+    /**
+     * 嵌套在另一个RecyclerView中时, 即将进入屏幕前预取的item数量
+     */
+    public void setInitialPrefetchItemCount(int itemCount) {
+        mInitialPrefetchItemCount = itemCount;
+    }
+
+    public int getInitialPrefetchItemCount() {
+        return mInitialPrefetchItemCount;
+    }
+
+    @Override
+    public void onLayoutChildren(Recycler recycler, RecyclerView.State state) {
+        // 1. 找到锚点
+        // 2. 从锚点向两个方向填充
+        // 3. 消除首尾的空白
+        if (mPendingSavedState != null || mPendingScrollPosition != RecyclerView.NO_POSITION) {
+            if (state.getItemCount() == 0) {
+                removeAndRecycleAllViews(recycler);
+                return;
+            }
+        }
+        if (mPendingSavedState != null && mPendingSavedState.hasValidAnchor()) {
+            mPendingScrollPosition = mPendingSavedState.mAnchorPosition;
+        }
+        if (!state.isPreLayout()) {
+            // 没有收到通知的数据变化(比如恢复状态之后数量变了)只能按数量对齐
+            mItemSizeIndex.setItemCount(state.getItemCount());
+            if (!mFixedTypePending.isEmpty()) {
+                applyPendingFixedTypeSizes();
+            }
+        }
+
+        ensureLayoutState();
+        mLayoutState.mRecycle = false;
+        resolveShouldLayoutReverse();
+
+        if (!mAnchorInfo.mValid || mPendingScrollPosition != RecyclerView.NO_POSITION
+                || mPendingSavedState != null) {
+            mAnchorInfo.reset();
+            mAnchorInfo.mLayoutFromEnd = mShouldReverseLayout ^ mStackFromEnd;
+            updateAnchorInfoForLayout(state, mAnchorInfo);
+            mAnchorInfo.mValid = true;
+        }
+        final int firstLayoutItemDirection = mAnchorInfo.mLayoutFromEnd
+                ? (mShouldReverseLayout ? LayoutState.ITEM_DIRECTION_TAIL
+                : LayoutState.ITEM_DIRECTION_HEAD)
+                : (mShouldReverseLayout ? LayoutState.ITEM_DIRECTION_HEAD
+                : LayoutState.ITEM_DIRECTION_TAIL);
+        onAnchorReady(recycler, state, mAnchorInfo, firstLayoutItemDirection);
+
+        detachAndScrapAttachedViews(recycler);
+        mLayoutState.mInfinite = resolveIsInfinite();
+        mLayoutState.mIsPreLayout = state.isPreLayout();
+
+        int startOffset;
+        int endOffset;
+        if (mAnchorInfo.mLayoutFromEnd) {
+            // 先向开头填充
+            updateLayoutStateToFillStart(mAnchorInfo);
+            fill(recycler, mLayoutState, state);
+            startOffset = mLayoutState.mOffset;
+            final int firstElement = mLayoutState.mCurrentPosition;
+            int extraForEnd = 0;
+            if (mLayoutState.mAvailable > 0) {
+                extraForEnd = mLayoutState.mAvailable;
+            }
+            // 再向末尾填充
+            updateLayoutStateToFillEnd(mAnchorInfo);
+            mLayoutState.mExtraFillSpace = extraForEnd;
+            mLayoutState.mCurrentPosition += mLayoutState.mItemDirection;
+            fill(recycler, mLayoutState, state);
+            endOffset = mLayoutState.mOffset;
+
+            if (mLayoutState.mAvailable > 0) {
+                // 末尾的item不够填满, 用剩下的空间继续向开头填充
+                final int extraForStart = mLayoutState.mAvailable;
+                updateLayoutStateToFillStart(firstElement, startOffset);
+                mLayoutState.mExtraFillSpace = extraForStart;
+                fill(recycler, mLayoutState, state);
+                startOffset = mLayoutState.mOffset;
+            }
+        } else {
+            // 先向末尾填充
+            updateLayoutStateToFillEnd(mAnchorInfo);
+            fill(recycler, mLayoutState, state);
+            endOffset = mLayoutState.mOffset;
+            final int lastElement = mLayoutState.mCurrentPosition;
+            int extraForStart = 0;
+            if (mLayoutState.mAvailable > 0) {
+                extraForStart = mLayoutState.mAvailable;
+            }
+            // 再向开头填充
+            updateLayoutStateToFillStart(mAnchorInfo);
+            mLayoutState.mExtraFillSpace = extraForStart;
+            mLayoutState.mCurrentPosition += mLayoutState.mItemDirection;
+            fill(recycler, mLayoutState, state);
+            startOffset = mLayoutState.mOffset;
+
+            if (mLayoutState.mAvailable > 0) {
+                final int extraForEnd = mLayoutState.mAvailable;
+                updateLayoutStateToFillEnd(lastElement, endOffset);
+                mLayoutState.mExtraFillSpace = extraForEnd;
+                fill(recycler, mLayoutState, state);
+                endOffset = mLayoutState.mOffset;
+            }
+        }
+
+        // 首尾有空白时整体平移, 先处理布局开始的那一端
+        if (getChildCount() > 0) {
+            if (mShouldReverseLayout ^ mStackFromEnd) {
+                int fixOffset = fixLayoutEndGap(endOffset, recycler, state, true);
+                startOffset += fixOffset;
+                endOffset += fixOffset;
+                fixOffset = fixLayoutStartGap(startOffset, recycler, state, false);
+                startOffset += fixOffset;
+                endOffset += fixOffset;
+            } else {
+                int fixOffset = fixLayoutStartGap(startOffset, recycler, state, true);
+                startOffset += fixOffset;
+                endOffset += fixOffset;
+                fixOffset = fixLayoutEndGap(endOffset, recycler, state, false);
+                startOffset += fixOffset;
+                endOffset += fixOffset;
+            }
+        }
+        if (!state.isPreLayout()) {
+            mOrientationHelper.onLayoutComplete();
+        } else {
+            mAnchorInfo.reset();
+        }
+        mLastStackFromEnd = mStackFromEnd;
+    }
+
+    /**
+     * 锚点确定之后、开始填充之前调用, 子类可以调整锚点(比如网格布局需要锚点在一行的开头)
+     *
+     * @param firstLayoutItemDirection 第一次填充时遍历adapter的方向
+     */
+    void onAnchorReady(Recycler recycler, RecyclerView.State state, AnchorInfo anchorInfo,
+                       int firstLayoutItemDirection) {
+    }
+
+    @Override
+    public void onLayoutCompleted(RecyclerView.State state) {
+        super.onLayoutCompleted(state);
+        mPendingSavedState = null;
+        mPendingScrollPosition = RecyclerView.NO_POSITION;
+        mPendingScrollPositionOffset = INVALID_OFFSET;
+        mAnchorInfo.reset();
+    }
+
+    /**
+     * 只有可见item的内容变化时原地更新: 重新绑定、测量变化的item, 把它后面的子View按尺寸差平移,
+     * 没有变化的子View不需要detach/scrap再重新添加。平移后超出屏幕的子View回收, 空出来的地方继续填充
+     * <p>
+     * 正向布局时变化的item开头不动、向末尾伸缩; 反向布局时末尾不动、向开头伸缩
+     */
+    @Override
+    public boolean relayoutUpdatedChildren(Recycler recycler, RecyclerView.State state) {
+        final int childCount = getChildCount();
+        if (childCount == 0 || state.isPreLayout() || mStackFromEnd || mPendingSavedState != null
+                || mPendingScrollPosition != RecyclerView.NO_POSITION || resolveIsInfinite()) {
+            return false;
+        }
+        for (int i = 0; i < childCount; i++) {
+            final RecyclerView.LayoutParams lp =
+                    (RecyclerView.LayoutParams) getChildAt(i).getLayoutParams();
+            if (lp.isItemRemoved() || lp.isViewInvalid()) {
+                return false;
+            }
+        }
+        ensureLayoutState();
+        // 子View按布局方向排列, 变化的item之后的子View累计平移shift
+        int shift = 0;
+        for (int i = 0; i < childCount; i++) {
+            final View child = getChildAt(i);
+            if (shift != 0) {
+                mOrientationHelper.offsetChild(child, shift);
+            }
+            final RecyclerView.LayoutParams lp = (RecyclerView.LayoutParams) child.getLayoutParams();
+            if (!lp.viewNeedsUpdate()) {
+                continue;
+            }
+            final int start = mOrientationHelper.getDecoratedStart(child);
+            final int end = mOrientationHelper.getDecoratedEnd(child);
+            recycler.bindViewToPosition(child, getPosition(child));
+            measureChildWithMargins(child, 0, 0);
+            final int size = mOrientationHelper.getDecoratedMeasurement(child);
+            if (mShouldReverseLayout) {
+                layoutChildAlong(child, end - size, end);
+                shift -= size - (end - start);
+            } else {
+                layoutChildAlong(child, start, start + size);
+                shift += size - (end - start);
+            }
+            recordItemSize(child, size);
+        }
+        if (shift != 0) {
+            fillAfterRelayout(recycler, state);
+        }
+        return true;
+    }
+
+    /**
+     * 原地更新改变了尺寸之后, 处理被平移的那一端: 回收完全移出去的子View, 填充空出来的空间,
+     * 没有更多item时和完整布局一样消除空白
+     */
+    private void fillAfterRelayout(Recycler recycler, RecyclerView.State state) {
+        mLayoutState.mRecycle = false;
+        mLayoutState.mIsPreLayout = false;
+        if (mShouldReverseLayout) {
+            recycleViewsFromStart(recycler, 0);
+            updateLayoutState(LayoutState.LAYOUT_START, 0, false, state);
+        } else {
+            recycleViewsFromEnd(recycler, 0);
+            updateLayoutState(LayoutState.LAYOUT_END, 0, false, state);
+        }
+        // mScrollingOffset是子View超出的距离, 负数表示空出来的空间; 和滑动一样也填充padding的区域
+        mLayoutState.mAvailable = -mLayoutState.mScrollingOffset;
+        mLayoutState.mScrollingOffset = LayoutState.SCROLLING_OFFSET_NaN;
+        fill(recycler, mLayoutState, state);
+        if (mShouldReverseLayout) {
+            fixLayoutStartGap(mOrientationHelper.getDecoratedStart(getChildClosestToStart()),
+                    recycler, state, false);
+        } else {
+            fixLayoutEndGap(mOrientationHelper.getDecoratedEnd(getChildClosestToEnd()),
+                    recycler, state, false);
+        }
+    }
+
+    private void updateAnchorInfoForLayout(RecyclerView.State state, AnchorInfo anchorInfo) {
+        if (updateAnchorFromPendingData(state, anchorInfo)) {
+            return;
+        }
+        if (updateAnchorFromChildren(state, anchorInfo)) {
+            return;
+        }
+        anchorInfo.assignCoordinateFromPadding();
+        anchorInfo.mPosition = mStackFromEnd ? state.getItemCount() - 1 : 0;
+    }
+
+    /**
+     * 用已有的子View作为锚点, 保持当前的滑动位置
+     */
+    private boolean updateAnchorFromChildren(RecyclerView.State state, AnchorInfo anchorInfo) {
+        if (getChildCount() == 0) {
+            return false;
+        }
+        final View referenceChild = anchorInfo.mLayoutFromEnd
+                ? findReferenceChild(getChildCount() - 1, -1, state.getItemCount())
+                : findReferenceChild(0, getChildCount(), state.getItemCount());
+        if (referenceChild == null) {
+            return false;
+        }
+        anchorInfo.assignFromView(referenceChild, getPosition(referenceChild));
+        return true;
+    }
+
+    /**
+     * 在[start, end)中找第一个没有被移除、位置有效的子View, 优先选择在可见范围内的
+     */
+    @Nullable
+    private View findReferenceChild(int start, int end, int itemCount) {
+        final int boundsStart = mOrientationHelper.getStartAfterPadding();
+        final int boundsEnd = mOrientationHelper.getEndAfterPadding();
+        final int diff = end > start ? 1 : -1;
+        View outOfBoundsMatch = null;
+        for (int i = start; i != end; i += diff) {
+            final View view = getChildAt(i);
+            final int position = getPosition(view);
+            if (position < 0 || position >= itemCount) {
+                continue;
+            }
+            if (((RecyclerView.LayoutParams) view.getLayoutParams()).isItemRemoved()) {
+                continue;
+            }
+            if (mOrientationHelper.getDecoratedStartAt(i) >= boundsEnd
+                    || mOrientationHelper.getDecoratedEndAt(i) < boundsStart) {
+                if (outOfBoundsMatch == null) {
+                    outOfBoundsMatch = view;
+                }
+            } else {
+                return view;
+            }
+        }
+        return outOfBoundsMatch;
+    }
+
+    /**
+     * 使用scrollToPosition或恢复的状态作为锚点
+     */
+    private boolean updateAnchorFromPendingData(RecyclerView.State state, AnchorInfo anchorInfo) {
+        if (state.isPreLayout() || mPendingScrollPosition == RecyclerView.NO_POSITION) {
+            return false;
+        }
+        if (mPendingScrollPosition < 0 || mPendingScrollPosition >= state.getItemCount()) {
+            mPendingScrollPosition = RecyclerView.NO_POSITION;
+            mPendingScrollPositionOffset = INVALID_OFFSET;
+            return false;
+        }
+        anchorInfo.mPosition = mPendingScrollPosition;
+        if (mPendingSavedState != null && mPendingSavedState.hasValidAnchor()) {
+            anchorInfo.mLayoutFromEnd = mPendingSavedState.mAnchorLayoutFromEnd;
+            if (anchorInfo.mLayoutFromEnd) {
+                anchorInfo.mCoordinate = mOrientationHelper.getEndAfterPadding()
+                        - mPendingSavedState.mAnchorOffset;
+            } else {
+                anchorInfo.mCoordinate = mOrientationHelper.getStartAfterPadding()
+                        + mPendingSavedState.mAnchorOffset;
+            }
+            return true;
+        }
+        if (mPendingScrollPositionOffset == INVALID_OFFSET) {
+            final View child = findViewByPosition(mPendingScrollPosition);
+            if (child != null) {
+                final int childSize = mOrientationHelper.getDecoratedMeasurement(child);
+                if (childSize > mOrientationHelper.getTotalSpace()) {
+                    // item比可见区域还大, 对齐开头
+                    anchorInfo.assignCoordinateFromPadding();
+                    return true;
+                }
+                final int startGap = mOrientationHelper.getDecoratedStart(child)
+                        - mOrientationHelper.getStartAfterPadding();
+                if (startGap < 0) {
+                    anchorInfo.mCoordinate = mOrientationHelper.getStartAfterPadding();
+                    anchorInfo.mLayoutFromEnd = false;
+                    return true;
+                }
+                final int endGap = mOrientationHelper.getEndAfterPadding()
+                        - mOrientationHelper.getDecoratedEnd(child);
+                if (endGap < 0) {
+                    anchorInfo.mCoordinate = mOrientationHelper.getEndAfterPadding();
+                    anchorInfo.mLayoutFromEnd = true;
+                    return true;
+                }
+                // 已经完全可见, 保持不动
+                anchorInfo.mCoordinate = anchorInfo.mLayoutFromEnd
+                        ? mOrientationHelper.getDecoratedEnd(child)
+                        : mOrientationHelper.getDecoratedStart(child);
+            } else {
+                // 不可见时, 目标在当前内容之前就对齐开头, 否则对齐末尾
+                if (getChildCount() > 0) {
+                    final int position = getPosition(getChildAt(0));
+                    anchorInfo.mLayoutFromEnd =
+                            (mPendingScrollPosition < position) == mShouldReverseLayout;
+                }
+                anchorInfo.assignCoordinateFromPadding();
+            }
+            return true;
+        }
+        anchorInfo.mLayoutFromEnd = mShouldReverseLayout;
+        if (mShouldReverseLayout) {
+            anchorInfo.mCoordinate = mOrientationHelper.getEndAfterPadding()
+                    - mPendingScrollPositionOffset;
+        } else {
+            anchorInfo.mCoordinate = mOrientationHelper.getStartAfterPadding()
+                    + mPendingScrollPositionOffset;
+        }
+        return true;
+    }
+
+    /**
+     * 末尾有空白时向末尾平移
+     *
+     * @return 平移的距离
+     */
+    private int fixLayoutEndGap(int endOffset, Recycler recycler, RecyclerView.State state,
+                                boolean canOffsetChildren) {
+        int gap = mOrientationHelper.getEndAfterPadding() - endOffset;
+        int fixOffset;
+        if (gap > 0) {
+            fixOffset = -scrollBy(-gap, recycler, state);
+        } else {
+            return 0;
+        }
+        endOffset += fixOffset;
+        if (canOffsetChildren) {
+            gap = mOrientationHelper.getEndAfterPadding() - endOffset;
+            if (gap > 0) {
+                mOrientationHelper.offsetChildren(gap);
+                return gap + fixOffset;
+            }
+        }
+        return fixOffset;
+    }
+
+    /**
+     * 开头有空白时向开头平移
+     *
+     * @return 平移的距离
+     */
+    private int fixLayoutStartGap(int startOffset, Recycler recycler, RecyclerView.State state,
+                                  boolean canOffsetChildren) {
+        int gap = startOffset - mOrientationHelper.getStartAfterPadding();
+        int fixOffset;
+        if (gap > 0) {
+            fixOffset = -scrollBy(gap, recycler, state);
+        } else {
+            return 0;
+        }
+        startOffset += fixOffset;
+        if (canOffsetChildren) {
+            gap = startOffset - mOrientationHelper.getStartAfterPadding();
+            if (gap > 0) {
+                mOrientationHelper.offsetChildren(-gap);
+                return fixOffset - gap;
+            }
+        }
+        return fixOffset;
+    }
+
+    private void updateLayoutStateToFillEnd(AnchorInfo anchorInfo) {
+        updateLayoutStateToFillEnd(anchorInfo.mPosition, anchorInfo.mCoordinate);
+    }
+
+    private void updateLayoutStateToFillEnd(int itemPosition, int offset) {
+        mLayoutState.mAvailable = mOrientationHelper.getEndAfterPadding() - offset;
+        mLayoutState.mItemDirection = mShouldReverseLayout ? LayoutState.ITEM_DIRECTION_HEAD
+                : LayoutState.ITEM_DIRECTION_TAIL;
+        mLayoutState.mCurrentPosition = itemPosition;
+        mLayoutState.mLayoutDirection = LayoutState.LAYOUT_END;
+        mLayoutState.mOffset = offset;
+        mLayoutState.mScrollingOffset = LayoutState.SCROLLING_OFFSET_NaN;
+        mLayoutState.mExtraFillSpace = 0;
+    }
+
+    private void updateLayoutStateToFillStart(AnchorInfo anchorInfo) {
+        updateLayoutStateToFillStart(anchorInfo.mPosition, anchorInfo.mCoordinate);
+    }
+
+    private void updateLayoutStateToFillStart(int itemPosition, int offset) {
+        mLayoutState.mAvailable = offset - mOrientationHelper.getStartAfterPadding();
+        mLayoutState.mCurrentPosition = itemPosition;
+        mLayoutState.mItemDirection = mShouldReverseLayout ? LayoutState.ITEM_DIRECTION_TAIL
+                : LayoutState.ITEM_DIRECTION_HEAD;
+        mLayoutState.mLayoutDirection = LayoutState.LAYOUT_START;
+        mLayoutState.mOffset = offset;
+        mLayoutState.mScrollingOffset = LayoutState.SCROLLING_OFFSET_NaN;
+        mLayoutState.mExtraFillSpace = 0;
+    }
+
+    void ensureLayoutState() {
+        if (mLayoutState == null) {
+            mLayoutState = new LayoutState();
+        }
+    }
+
+    /**
+     * 尺寸不受限制时(比如wrap_content的方向上)需要布局所有item
+     */
+    boolean resolveIsInfinite() {
+        return mOrientationHelper.getMode() == View.MeasureSpec.UNSPECIFIED
+                && mOrientationHelper.getEnd() == 0;
+    }
+
+    @Override
+    public void scrollToPosition(int position) {
+        mPendingScrollPosition = position;
+        mPendingScrollPositionOffset = INVALID_OFFSET;
+        if (mPendingSavedState != null) {
+            mPendingSavedState.invalidateAnchor();
+        }
+        requestLayout();
+    }
+
+    /**
+     * 滑动到position, 并让它距离开头(反向布局时是末尾)offset像素
+     */
+    public void scrollToPositionWithOffset(int position, int offset) {
+        mPendingScrollPosition = position;
+        mPendingScrollPositionOffset = offset;
+        if (mPendingSavedState != null) {
+            mPendingSavedState.invalidateAnchor();
+        }
+        requestLayout();
+    }
+
+    /**
+     * 滑动到距离内容开头offset像素的位置(和{@link #computeVerticalScrollOffset}使用同一个坐标),
+     * 一次布局完成, 不需要先布局中间的item
+     * <p>
+     * 目标位置通过{@link ItemSizeIndex}查找, 没有测量过的item按平均尺寸估算
+     */
+    public void scrollToOffset(long offset) {
+        final int itemCount = mItemSizeIndex.getItemCount();
+        if (itemCount == 0) {
+            return;
+        }
+        final long total = mItemSizeIndex.getTotalSize();
+        final long target = Math.max(0,
+                Math.min(offset, total - mOrientationHelper.getTotalSpace()));
+        // 反向布局时内容开头是最后一个item, 换算成从第一个item开始的坐标, 锚定可见区域的末尾
+        final long forward = mShouldReverseLayout
+                ? Math.max(0, total - target - mOrientationHelper.getTotalSpace()) : target;
+        final int position = findPositionAtOffset(forward);
+        scrollToPositionWithOffset(position,
+                (int) (mItemSizeIndex.getOffsetOf(position) - forward));
+    }
+
+    /**
+     * 从第一个item开始offset像素处作为锚点的位置, 偏移量从这个位置的开头算起
+     */
+    int findPositionAtOffset(long offset) {
+        return mItemSizeIndex.findPositionAt(offset);
+    }
+
+    /**
+     * 带动画地滑动到距离内容开头offset像素的位置, 距离由尺寸索引直接算出
+     */
+    public void smoothScrollToOffset(long offset) {
+        if (mRecyclerView == null || getChildCount() == 0) {
+            return;
+        }
+        final long total = mItemSizeIndex.getTotalSize();
+        final long target = Math.max(0,
+                Math.min(offset, total - mOrientationHelper.getTotalSpace()));
+        smoothScrollByDistance(target - computeScrollOffset(mRecyclerView.mState));
+    }
+
+    /**
+     * position不可见时滑动到刚好可见: 在前面就对齐开头, 在后面就对齐末尾。
+     * 距离由尺寸索引直接算出, 只需要一次smoothScrollBy
+     */
+    @Override
+    public void smoothScrollToPosition(RecyclerView recyclerView, RecyclerView.State state,
+                                       int position) {
+        if (position < 0 || position >= mItemSizeIndex.getItemCount() || getChildCount() == 0) {
+            return;
+        }
+        final long total = mItemSizeIndex.getTotalSize();
+        final long itemStart = mShouldReverseLayout
+                ? total - mItemSizeIndex.getOffsetOf(position + 1)
+                : mItemSizeIndex.getOffsetOf(position);
+        final long itemEnd = mShouldReverseLayout
+                ? total - mItemSizeIndex.getOffsetOf(position)
+                : mItemSizeIndex.getOffsetOf(position + 1);
+        final long viewportStart = computeScrollOffset(state);
+        final long viewportEnd = viewportStart + mOrientationHelper.getTotalSpace();
+        if (itemStart < viewportStart) {
+            smoothScrollByDistance(itemStart - viewportStart);
+        } else if (itemEnd > viewportEnd) {
+            smoothScrollByDistance(Math.min(itemEnd - viewportEnd, itemStart - viewportStart));
+        }
+    }
+
+    private void smoothScrollByDistance(long distance) {
+        final int delta = (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, distance));
+        if (delta == 0) {
+            return;
+        }
+        if (mOrientation == HORIZONTAL) {
+            mRecyclerView.smoothScrollBy(delta, 0);
+        } else {
+            mRecyclerView.smoothScrollBy(0, delta);
+        }
+    }
+
+    @Override
+    public int scrollHorizontallyBy(int dx, Recycler recycler, RecyclerView.State state) {
+        if (mOrientation == VERTICAL) {
+            return 0;
+        }
+        return scrollByAndTrackVelocity(dx, recycler, state);
+    }
+
+    @Override
+    public int scrollVerticallyBy(int dy, Recycler recycler, RecyclerView.State state) {
+        if (mOrientation == HORIZONTAL) {
+            return 0;
+        }
+        return scrollByAndTrackVelocity(dy, recycler, state);
+    }
+
+    private int scrollByAndTrackVelocity(int delta, Recycler recycler, RecyclerView.State state) {
+        final int scrolled = scrollBy(delta, recycler, state);
+        // 只统计拖动和fling的速度; 布局时修正空白、程序触发的滑动不能影响预取距离
+        if (mRecyclerView != null
+                && mRecyclerView.getScrollState() != RecyclerView.SCROLL_STATE_IDLE) {
+            trackScrollVelocity(scrolled);
+        }
+        return scrolled;
+    }
+
+    int scrollBy(int delta, Recycler recycler, RecyclerView.State state) {
+        if (getChildCount() == 0 || delta == 0) {
+            return 0;
+        }
+        ensureLayoutState();
+        mLayoutState.mRecycle = true;
+        final int layoutDirection = delta > 0 ? LayoutState.LAYOUT_END : LayoutState.LAYOUT_START;
+        final int absDelta = Math.abs(delta);
+        updateLayoutState(layoutDirection, absDelta, true, state);
+        final int consumed = mLayoutState.mScrollingOffset
+                + fill(recycler, mLayoutState, state);
+        if (consumed < 0) {
+            return 0;
+        }
+        final int scrolled = absDelta > consumed ? layoutDirection * consumed : delta;
+        mOrientationHelper.offsetChildren(-scrolled);
+        mLayoutState.mLastScrollDelta = scrolled;
+        return scrolled;
+    }
+
+    /**
+     * 根据连续两次滑动的距离和时间间隔估算速度, 用指数移动平均平滑
+     */
+    private void trackScrollVelocity(int scrolled) {
+        final long now = System.nanoTime();
+        final long elapsed = now - mLastScrollTimeNs;
+        mLastScrollTimeNs = now;
+        if (elapsed <= 0 || elapsed > VELOCITY_RESET_NS) {
+            mScrollVelocity = 0;
+            return;
+        }
+        final float velocity = scrolled * 1_000_000_000f / elapsed;
+        mScrollVelocity = mScrollVelocity == 0 ? velocity : mScrollVelocity * 0.6f + velocity * 0.4f;
+    }
+
+    /**
+     * 根据子View(滑动方向上的)最后一个/第一个子View, 设置向layoutDirection方向填充时的状态
+     *
+     * @param canUseExistingSpace 已经在屏幕外的部分是否可以算作可用空间
+     */
+    private void updateLayoutState(int layoutDirection, int requiredSpace,
+                                   boolean canUseExistingSpace, RecyclerView.State state) {
+        mLayoutState.mInfinite = resolveIsInfinite();
+        mLayoutState.mLayoutDirection = layoutDirection;
+        mLayoutState.mExtraFillSpace = 0;
+        int scrollingOffset;
+        if (layoutDirection == LayoutState.LAYOUT_END) {
+            mLayoutState.mExtraFillSpace += mOrientationHelper.getEndPadding();
+            final View child = getChildClosestToEnd();
+            mLayoutState.mItemDirection = mShouldReverseLayout ? LayoutState.ITEM_DIRECTION_HEAD
+                    : LayoutState.ITEM_DIRECTION_TAIL;
+            mLayoutState.mCurrentPosition = getPosition(child) + mLayoutState.mItemDirection;
+            mLayoutState.mOffset = mOrientationHelper.getDecoratedEnd(child);
+            // 不添加新的子View就可以滑动的距离
+            scrollingOffset = mOrientationHelper.getDecoratedEnd(child)
+                    - mOrientationHelper.getEndAfterPadding();
+        } else {
+            final View child = getChildClosestToStart();
+            mLayoutState.mExtraFillSpace += mOrientationHelper.getStartAfterPadding();
+            mLayoutState.mItemDirection = mShouldReverseLayout ? LayoutState.ITEM_DIRECTION_TAIL
+                    : LayoutState.ITEM_DIRECTION_HEAD;
+            mLayoutState.mCurrentPosition = getPosition(child) + mLayoutState.mItemDirection;
+            mLayoutState.mOffset = mOrientationHelper.getDecoratedStart(child);
+            scrollingOffset = -mOrientationHelper.getDecoratedStart(child)
+                    + mOrientationHelper.getStartAfterPadding();
+        }
+        mLayoutState.mAvailable = requiredSpace;
+        if (canUseExistingSpace) {
+            mLayoutState.mAvailable -= scrollingOffset;
+        }
+        mLayoutState.mScrollingOffset = scrollingOffset;
+    }
+
+    /**
+     * 用子View填充layoutState描述的空间
+     *
+     * @return 填充使用的像素
+     */
+    int fill(Recycler recycler, LayoutState layoutState, RecyclerView.State state) {
+        final int start = layoutState.mAvailable;
+        if (layoutState.mScrollingOffset != LayoutState.SCROLLING_OFFSET_NaN) {
+            if (layoutState.mAvailable < 0) {
+                layoutState.mScrollingOffset += layoutState.mAvailable;
+            }
+            recycleByLayoutState(recycler, layoutState);
+        }
+        int remainingSpace = layoutState.mAvailable + layoutState.mExtraFillSpace;
+        final LayoutChunkResult layoutChunkResult = mLayoutChunkResult;
+        while ((layoutState.mInfinite || remainingSpace > 0) && layoutState.hasMore(state)) {
+            layoutChunkResult.resetInternal();
+            layoutChunk(recycler, layoutState, layoutChunkResult);
+            if (layoutChunkResult.mFinished) {
+                break;
+            }
+            layoutState.mOffset += layoutChunkResult.mConsumed * layoutState.mLayoutDirection;
+            // pre-layout时被移除的item不占用空间, 这样可以多布局出将要出现的item
+            if (!layoutChunkResult.mIgnoreConsumed || !state.isPreLayout()) {
+                layoutState.mAvailable -= layoutChunkResult.mConsumed;
+                remainingSpace -= layoutChunkResult.mConsumed;
+            }
+            if (layoutState.mScrollingOffset != LayoutState.SCROLLING_OFFSET_NaN) {
+                layoutState.mScrollingOffset += layoutChunkResult.mConsumed;
+                if (layoutState.mAvailable < 0) {
+                    layoutState.mScrollingOffset += layoutState.mAvailable;
+                }
+                recycleByLayoutState(recycler, layoutState);
+            }
+        }
+        return start - layoutState.mAvailable;
+    }
+
+    /**
+     * 添加并摆放一个子View
+     */
+    void layoutChunk(Recycler recycler, LayoutState layoutState, LayoutChunkResult result) {
+        final View view = layoutState.next(recycler);
+        if (view == null) {
+            result.mFinished = true;
+            return;
+        }
+        final RecyclerView.LayoutParams params = (RecyclerView.LayoutParams) view.getLayoutParams();
+        if (mShouldReverseLayout == (layoutState.mLayoutDirection == LayoutState.LAYOUT_START)) {
+            addView(view);
+        } else {
+            addView(view, 0);
+        }
+        measureChildWithMargins(view, 0, 0);
+        result.mConsumed = mOrientationHelper.getDecoratedMeasurement(view);
+        if (layoutState.mLayoutDirection == LayoutState.LAYOUT_START) {
+            layoutChildAlong(view, layoutState.mOffset - result.mConsumed, layoutState.mOffset);
+        } else {
+            layoutChildAlong(view, layoutState.mOffset, layoutState.mOffset + result.mConsumed);
+        }
+        if (params.isItemRemoved() || params.isItemChanged()) {
+            result.mIgnoreConsumed = true;
+        }
+        if (!layoutState.mIsPreLayout && !params.isItemRemoved()) {
+            recordItemSize(view, result.mConsumed);
+        }
+    }
+
+    /**
+     * 在布局方向上把子View摆放在[start, end), 另一个方向上靠着开头的padding(RTL时靠着右边)
+     */
+    private void layoutChildAlong(View view, int start, int end) {
+        int left, top, right, bottom;
+        if (mOrientation == VERTICAL) {
+            if (isLayoutRTL()) {
+                right = getWidth() - getPaddingRight();
+                left = right - mOrientationHelper.getDecoratedMeasurementInOther(view);
+            } else {
+                left = getPaddingLeft();
+                right = left + mOrientationHelper.getDecoratedMeasurementInOther(view);
+            }
+            top = start;
+            bottom = end;
+        } else {
+            top = getPaddingTop();
+            bottom = top + mOrientationHelper.getDecoratedMeasurementInOther(view);
+            left = start;
+            right = end;
+        }
+        layoutDecoratedWithMargins(view, left, top, right, bottom);
+    }
+
+    private void recordItemSize(View view, int size) {
+        if (hasFixedItemSize()) {
+            // 所有item尺寸相同, 位置和滚动条直接按位置计算; 只在第一次布局或尺寸变化时设置
+            if (mItemSizeIndex.getUniformSize() != size) {
+                mItemSizeIndex.setUniformSize(size);
+            }
+        } else {
+            mItemSizeIndex.record(getPosition(view), size);
+            final int viewType = getItemViewType(view);
+            if (isItemSizeFixed(viewType) && mFixedTypeSizes.get(viewType, -1) != size) {
+                // 这种viewType的尺寸都相同, 尺寸第一次知道或者变化时一次写入所有同类型的位置
+                mFixedTypeSizes.put(viewType, size);
+                applyFixedTypeSizes();
+            }
+        }
+    }
+
+    /**
+     * 按位置查询viewType, 把固定尺寸的viewType已知的尺寸写入尺寸索引, 没有布局过的位置也能精确计算。
+     * 遍历一次adapter, O(n), 只在某种viewType的尺寸第一次知道或者变化、以及数据整体变化之后调用
+     */
+    private void applyFixedTypeSizes() {
+        mFixedTypePending.clear();
+        final Adapter adapter = mRecyclerView != null ? mRecyclerView.getAdapter() : null;
+        if (adapter == null || mFixedTypeSizes.size() == 0) {
+            return;
+        }
+        final int count = Math.min(mItemSizeIndex.getItemCount(), adapter.getItemCount());
+        final int[] sizes = new int[count];
+        for (int i = 0; i < count; i++) {
+            sizes[i] = mFixedTypeSizes.get(adapter.getItemViewType(i), ItemSizeIndex.UNMEASURED);
+        }
+        mItemSizeIndex.recordAll(sizes);
+    }
+
+    /**
+     * 只写入数据变化后新加入或变化的位置, 代价和变化的item数量相关
+     */
+    private void applyPendingFixedTypeSizes() {
+        if (mFixedTypePending.isAll()) {
+            applyFixedTypeSizes();
+            return;
+        }
+        final Adapter adapter = mRecyclerView != null ? mRecyclerView.getAdapter() : null;
+        if (adapter != null && mFixedTypeSizes.size() > 0) {
+            final int count = Math.min(mItemSizeIndex.getItemCount(), adapter.getItemCount());
+            for (int r = 0; r < mFixedTypePending.size(); r++) {
+                final int end = Math.min(mFixedTypePending.getEnd(r), count);
+                for (int i = mFixedTypePending.getStart(r); i < end; i++) {
+                    final int size = mFixedTypeSizes.get(adapter.getItemViewType(i),
+                            ItemSizeIndex.UNMEASURED);
+                    if (size != ItemSizeIndex.UNMEASURED) {
+                        mItemSizeIndex.record(i, size);
+                    }
+                }
+            }
+        }
+        mFixedTypePending.clear();
+    }
+
+    @Override
+    void onFixedItemSizeModeChanged() {
+        // 取消固定尺寸之后重新按位置记录
+        mItemSizeIndex.setUniformSize(0);
+        mFixedTypeSizes.clear();
+        mFixedTypePending.clear();
+    }
+
+    //[positionStart, positionStart + itemCount)新加入或者变化了, 下一次布局时写入固定尺寸
+    private void invalidateFixedTypeSizes(int positionStart, int itemCount) {
+        if (mFixedTypeSizes.size() > 0) {
+            mFixedTypePending.add(positionStart, itemCount);
+        }
+    }
+
+    private void recycleByLayoutState(Recycler recycler, LayoutState layoutState) {
+        if (!layoutState.mRecycle || layoutState.mInfinite) {
+            return;
+        }
+        if (layoutState.mLayoutDirection == LayoutState.LAYOUT_START) {
+            recycleViewsFromEnd(recycler, layoutState.mScrollingOffset);
+        } else {
+            recycleViewsFromStart(recycler, layoutState.mScrollingOffset);
+        }
+    }
+
+    /**
+     * 回收[startIndex, endIndex)之间的子View(endIndex可以小于startIndex)
+     */
+    private void recycleChildren(Recycler recycler, int startIndex, int endIndex) {
+        if (startIndex == endIndex) {
+            return;
+        }
+        if (endIndex > startIndex) {
+            for (int i = endIndex - 1; i >= startIndex; i--) {
+                removeAndRecycleViewAt(i, recycler);
+            }
+        } else {
+            for (int i = startIndex; i > endIndex; i--) {
+                removeAndRecycleViewAt(i, recycler);
+            }
+        }
+    }
+
+    /**
+     * 向末尾滑动时, 回收开头滑出屏幕的子View
+     *
+     * @param scrollingOffset 滑动后开头超出的距离
+     */
+    private void recycleViewsFromStart(Recycler recycler, int scrollingOffset) {
+        if (scrollingOffset < 0) {
+            return;
+        }
+        final int limit = scrollingOffset;
+        final int childCount = getChildCount();
+        if (mShouldReverseLayout) {
+            for (int i = childCount - 1; i >= 0; i--) {
+                if (mOrientationHelper.getDecoratedEndAt(i) > limit) {
+                    recycleChildren(recycler, childCount - 1, i);
+                    return;
+                }
+            }
+        } else {
+            for (int i = 0; i < childCount; i++) {
+                if (mOrientationHelper.getDecoratedEndAt(i) > limit) {
+                    recycleChildren(recycler, 0, i);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 向开头滑动时, 回收末尾滑出屏幕的子View
+     */
+    private void recycleViewsFromEnd(Recycler recycler, int scrollingOffset) {
+        if (scrollingOffset < 0) {
+            return;
+        }
+        final int childCount = getChildCount();
+        final int limit = mOrientationHelper.getEnd() - scrollingOffset;
+        if (mShouldReverseLayout) {
+            for (int i = 0; i < childCount; i++) {
+                if (mOrientationHelper.getDecoratedStartAt(i) < limit) {
+                    recycleChildren(recycler, 0, i);
+                    return;
+                }
+            }
+        } else {
+            for (int i = childCount - 1; i >= 0; i--) {
+                if (mOrientationHelper.getDecoratedStartAt(i) < limit) {
+                    recycleChildren(recycler, childCount - 1, i);
+                    return;
+                }
+            }
+        }
+    }
+
+    //布局上最靠近开头的子View
+    View getChildClosestToStart() {
+        return getChildAt(mShouldReverseLayout ? getChildCount() - 1 : 0);
+    }
+
+    //布局上最靠近末尾的子View
+    View getChildClosestToEnd() {
+        return getChildAt(mShouldReverseLayout ? 0 : getChildCount() - 1);
+    }
+
+    @Override
+    public void collectAdjacentPrefetchPositions(int dx, int dy, RecyclerView.State state,
+                                                 LayoutPrefetchRegistry layoutPrefetchRegistry) {
+        final int delta = (mOrientation == HORIZONTAL) ? dx : dy;
+        if (getChildCount() == 0 || delta == 0) {
+            return;
+        }
+        ensureLayoutState();
+        final int layoutDirection = delta > 0 ? LayoutState.LAYOUT_END : LayoutState.LAYOUT_START;
+        final int absDelta = Math.abs(delta);
+        updateLayoutState(layoutDirection, absDelta, true, state);
+        collectPrefetchPositionsForLayoutState(state, mLayoutState, layoutPrefetchRegistry);
+    }
+
+    /**
+     * 从layoutState的下一个位置开始, 按速度估算的数量报告预取位置,
+     * 距离是每个位置进入屏幕前还需要滑动的像素
+     */
+    void collectPrefetchPositionsForLayoutState(RecyclerView.State state,
+                                                LayoutState layoutState,
+                                                LayoutPrefetchRegistry layoutPrefetchRegistry) {
+        final int count = computePrefetchItemCount();
+        final int itemSize = getAverageChildSize();
+        final int baseDistance = Math.max(0, layoutState.mScrollingOffset);
+        int position = layoutState.mCurrentPosition;
+        for (int i = 0; i < count; i++) {
+            if (position < 0 || position >= state.getItemCount()) {
+                break;
+            }
+            layoutPrefetchRegistry.addPosition(position, baseDistance + i * itemSize);
+            position += layoutState.mItemDirection;
+        }
+    }
+
+    /**
+     * 至少预取1个; 按当前速度在lookahead时间内会滑过多少个item就预取多少个, 不超过mMaxPrefetchItems
+     */
+    int computePrefetchItemCount() {
+        final int itemSize = getAverageChildSize();
+        if (itemSize <= 0 || mScrollVelocity == 0) {
+            return 1;
+        }
+        final float distance = Math.abs(mScrollVelocity) * mPrefetchLookaheadMs / 1000f;
+        final int count = (int) Math.ceil(distance / itemSize);
+        return Math.max(1, Math.min(mMaxPrefetchItems, count));
+    }
+
+    //当前子View在布局方向上的平均尺寸
+    int getAverageChildSize() {
+        final int childCount = getChildCount();
+        if (childCount == 0) {
+            return 0;
+        }
+        final int laidOut = mOrientationHelper.getDecoratedEnd(getChildClosestToEnd())
+                - mOrientationHelper.getDecoratedStart(getChildClosestToStart());
+        return Math.max(0, laidOut / childCount);
+    }
+
+    @Override
+    public void collectInitialPrefetchPositions(int adapterItemCount,
+                                                LayoutPrefetchRegistry layoutPrefetchRegistry) {
+        final boolean fromEnd;
+        final int anchorPos;
+        if (mPendingSavedState != null && mPendingSavedState.hasValidAnchor()) {
+            fromEnd = mPendingSavedState.mAnchorLayoutFromEnd;
+            anchorPos = mPendingSavedState.mAnchorPosition;
+        } else {
+            resolveShouldLayoutReverse();
+            fromEnd = mShouldReverseLayout;
+            if (mPendingScrollPosition == RecyclerView.NO_POSITION) {
+                anchorPos = fromEnd ? adapterItemCount - 1 : 0;
+            } else {
+                anchorPos = mPendingScrollPosition;
+            }
+        }
+        final int direction = fromEnd ? LayoutState.ITEM_DIRECTION_HEAD
+                : LayoutState.ITEM_DIRECTION_TAIL;
+        int targetPos = anchorPos;
+        for (int i = 0; i < mInitialPrefetchItemCount; i++) {
+            if (targetPos < 0 || targetPos >= adapterItemCount) {
+                break;
+            }
+            layoutPrefetchRegistry.addPosition(targetPos, 0);
+            targetPos += direction;
+        }
+    }
+
+    @Override
+    public void onItemsAdded(@NonNull RecyclerView recyclerView, int positionStart,
+                             int itemCount) {
+        mItemSizeIndex.onItemsAdded(positionStart, itemCount);
+        mFixedTypePending.onItemsAdded(positionStart, itemCount);
+        invalidateFixedTypeSizes(positionStart, itemCount);
+    }
+
+    @Override
+    public void onItemsUpdated(@NonNull RecyclerView recyclerView, int positionStart,
+                               int itemCount) {
+        // viewType可能变了
+        invalidateFixedTypeSizes(positionStart, itemCount);
+    }
+
+    @Override
+    public void onItemsRemoved(@NonNull RecyclerView recyclerView, int positionStart,
+                               int itemCount) {
+        mItemSizeIndex.onItemsRemoved(positionStart, itemCount);
+        mFixedTypePending.onItemsRemoved(positionStart, itemCount);
+    }
+
+    @Override
+    public void onItemsMoved(@NonNull RecyclerView recyclerView, int from, int to,
+                             int itemCount) {
+        mItemSizeIndex.onItemsMoved(from, to, itemCount);
+        mFixedTypePending.onItemsMoved(from, to, itemCount);
+    }
+
+    @Override
+    public void onItemsChanged(@NonNull RecyclerView recyclerView) {
+        // 所有位置都可能变化, 尺寸重新测量
+        mItemSizeIndex.clear();
+        if (mFixedTypeSizes.size() > 0) {
+            mFixedTypePending.markAll();
+        }
+    }
+
+    @Override
+    public int computeHorizontalScrollOffset(@NonNull RecyclerView.State state) {
+        return computeScrollOffset(state);
+    }
+
+    @Override
+    public int computeVerticalScrollOffset(@NonNull RecyclerView.State state) {
+        return computeScrollOffset(state);
+    }
+
+    @Override
+    public int computeHorizontalScrollExtent(@NonNull RecyclerView.State state) {
+        return computeScrollExtent(state);
+    }
+
+    @Override
+    public int computeVerticalScrollExtent(@NonNull RecyclerView.State state) {
+        return computeScrollExtent(state);
+    }
+
+    @Override
+    public int computeHorizontalScrollRange(@NonNull RecyclerView.State state) {
+        return computeScrollRange(state);
+    }
+
+    @Override
+    public int computeVerticalScrollRange(@NonNull RecyclerView.State state) {
+        return computeScrollRange(state);
+    }
+
+    /**
+     * 滚动条位置: 开头子View之前所有item的尺寸之和, 再加上它超出的部分
+     * <p>
+     * 尺寸来自{@link ItemSizeIndex}, 测量过的是实际尺寸, 其余按平均尺寸估算
+     */
+    private int computeScrollOffset(RecyclerView.State state) {
+        if (getChildCount() == 0 || state.getItemCount() == 0) {
+            return 0;
+        }
+        final View startChild = getChildClosestToStart();
+        final int position = getPosition(startChild);
+        final long sizeBefore = mShouldReverseLayout
+                ? mItemSizeIndex.getTotalSize() - mItemSizeIndex.getOffsetOf(position + 1)
+                : mItemSizeIndex.getOffsetOf(position);
+        final long offset = sizeBefore + mOrientationHelper.getStartAfterPadding()
+                - mOrientationHelper.getDecoratedStart(startChild);
+        return (int) Math.max(0, Math.min(Integer.MAX_VALUE, offset));
+    }
+
+    private int computeScrollExtent(RecyclerView.State state) {
+        if (getChildCount() == 0 || state.getItemCount() == 0) {
+            return 0;
+        }
+        final int laidOutArea = mOrientationHelper.getDecoratedEnd(getChildClosestToEnd())
+                - mOrientationHelper.getDecoratedStart(getChildClosestToStart());
+        return Math.min(mOrientationHelper.getTotalSpace(), laidOutArea);
+    }
+
+    private int computeScrollRange(RecyclerView.State state) {
+        if (getChildCount() == 0 || state.getItemCount() == 0) {
+            return 0;
+        }
+        return (int) Math.min(Integer.MAX_VALUE, mItemSizeIndex.getTotalSize());
+    }
+
+    /**
+     * 第一个可见(包括部分可见)的item的位置, 没有时返回{@link RecyclerView#NO_POSITION}
+     */
+    public int findFirstVisibleItemPosition() {
+        final View child = findOneVisibleChild(0, getChildCount(), false, true);
+        return child == null ? RecyclerView.NO_POSITION : getPosition(child);
+    }
+
+    public int findFirstCompletelyVisibleItemPosition() {
+        final View child = findOneVisibleChild(0, getChildCount(), true, false);
+        return child == null ? RecyclerView.NO_POSITION : getPosition(child);
+    }
+
+    public int findLastVisibleItemPosition() {
+        final View child = findOneVisibleChild(getChildCount() - 1, -1, false, true);
+        return child == null ? RecyclerView.NO_POSITION : getPosition(child);
+    }
+
+    public int findLastCompletelyVisibleItemPosition() {
+        final View child = findOneVisibleChild(getChildCount() - 1, -1, true, false);
+        return child == null ? RecyclerView.NO_POSITION : getPosition(child);
+    }
+
+    /**
+     * 通过ViewBoundsCheck在[fromIndex, toIndex)中查找可见的子View, 子View排好序时O(log n)
+     *
+     * @param completelyVisible    是否要求完全可见
+     * @param acceptPartiallyVisible 找不到完全可见的子View时是否接受部分可见的
+     */
+    View findOneVisibleChild(int fromIndex, int toIndex, boolean completelyVisible,
+                             boolean acceptPartiallyVisible) {
+        @ViewBoundsCheck.ViewBounds int preferredBoundsFlag;
+        @ViewBoundsCheck.ViewBounds int acceptableBoundsFlag = 0;
+        if (completelyVisible) {
+            preferredBoundsFlag = (ViewBoundsCheck.FLAG_CVS_GT_PVS | ViewBoundsCheck.FLAG_CVS_EQ_PVS
+                    | ViewBoundsCheck.FLAG_CVE_LT_PVE | ViewBoundsCheck.FLAG_CVE_EQ_PVE);
+        } else {
+            preferredBoundsFlag = (ViewBoundsCheck.FLAG_CVS_LT_PVE
+                    | ViewBoundsCheck.FLAG_CVE_GT_PVS);
+        }
+        if (acceptPartiallyVisible) {
+            acceptableBoundsFlag = (ViewBoundsCheck.FLAG_CVS_LT_PVE
+                    | ViewBoundsCheck.FLAG_CVE_GT_PVS);
+        }
+        final ViewBoundsCheck boundsCheck = (mOrientation == HORIZONTAL)
+                ? mHorizontalBoundCheck : mVerticalBoundCheck;
+        if (areChildrenSortedAlongLayout()) {
+            // 子View沿布局方向排好序, 可以二分查找
+            return boundsCheck.findOneViewWithinBoundFlagsSorted(fromIndex, toIndex,
+                    preferredBoundsFlag, acceptableBoundsFlag);
+        }
+        return boundsCheck.findOneViewWithinBoundFlags(fromIndex, toIndex, preferredBoundsFlag,
+                acceptableBoundsFlag);
+    }
+
+    /**
+     * 子View的start和end是否都沿布局方向单调排列, 是时{@link #findOneVisibleChild}使用二分查找。
+     * 一行放多个子View的子类(例如{@link GridLayoutManager})要返回false
+     */
+    boolean areChildrenSortedAlongLayout() {
+        return true;
+    }
+
+    /**
+     * 填充时的临时状态
+     */
+    static class LayoutState {
+        static final int LAYOUT_START = -1;
+        static final int LAYOUT_END = 1;
+        static final int INVALID_LAYOUT = Integer.MIN_VALUE;
+        static final int ITEM_DIRECTION_HEAD = -1;
+        static final int ITEM_DIRECTION_TAIL = 1;
+        static final int SCROLLING_OFFSET_NaN = Integer.MIN_VALUE;
+
+        //滑动时为true, 填充的同时回收滑出屏幕的子View
+        boolean mRecycle = true;
+        //下一个子View摆放的位置
+        int mOffset;
+        //还需要填充的像素
+        int mAvailable;
+        //下一个要布局的adapter位置
+        int mCurrentPosition;
+        //遍历adapter的方向
+        int mItemDirection;
+        //填充的方向
+        int mLayoutDirection;
+        //滑动时, 不添加新的子View就可以滑动的距离
+        int mScrollingOffset;
+        //除了mAvailable之外额外填充的像素(padding区域等)
+        int mExtraFillSpace = 0;
+        boolean mIsPreLayout = false;
+        int mLastScrollDelta;
+        //尺寸不受限制, 需要布局所有item
+        boolean mInfinite;
+
+        boolean hasMore(RecyclerView.State state) {
+            return mCurrentPosition >= 0 && mCurrentPosition < state.getItemCount();
+        }
+
+        View next(Recycler recycler) {
+            final View view = recycler.getViewForPosition(mCurrentPosition);
+            mCurrentPosition += mItemDirection;
+            return view;
+        }
+    }
+
+    /**
+     * 布局的锚点: 从mPosition处的item开始, 它的边缘在mCoordinate
+     */
+    static class AnchorInfo {
+        OrientationHelper mOrientationHelper;
+        int mPosition;
+        int mCoordinate;
+        //为true时mCoordinate是item的末尾, 从末尾向开头布局
+        boolean mLayoutFromEnd;
+        boolean mValid;
+
+        AnchorInfo() {
+            reset();
+        }
+
+        void reset() {
+            mPosition = RecyclerView.NO_POSITION;
+            mCoordinate = INVALID_OFFSET;
+            mLayoutFromEnd = false;
+            mValid = false;
+        }
+
+        void assignCoordinateFromPadding() {
+            mCoordinate = mLayoutFromEnd
+                    ? mOrientationHelper.getEndAfterPadding()
+                    : mOrientationHelper.getStartAfterPadding();
+        }
+
+        void assignFromView(View child, int position) {
+            if (mLayoutFromEnd) {
+                mCoordinate = mOrientationHelper.getDecoratedEnd(child);
+            } else {
+                mCoordinate = mOrientationHelper.getDecoratedStart(child);
+            }
+            mPosition = position;
+        }
+
+        @Override
+        public String toString() {
+            return "AnchorInfo{mPosition=" + mPosition + ", mCoordinate=" + mCoordinate
+                    + ", mLayoutFromEnd=" + mLayoutFromEnd + ", mValid=" + mValid + '}';
+        }
+    }
+
+    protected static class LayoutChunkResult {
+        public int mConsumed;
+        public boolean mFinished;
+        public boolean mIgnoreConsumed;
+
+        void resetInternal() {
+            mConsumed = 0;
+            mFinished = false;
+            mIgnoreConsumed = false;
+        }
+    }
+
+    /**
+     * 保存的滑动位置
+     */
+    @SuppressLint("BanParcelableUsage")
+    public static class SavedState implements Parcelable {
+        int mAnchorPosition;
+        int mAnchorOffset;
+        boolean mAnchorLayoutFromEnd;
+        //每个位置的尺寸, item太多时是null
+        int[] mItemSizes;
+
+        public SavedState() {
+        }
+
+        SavedState(Parcel in) {
+            mAnchorPosition = in.readInt();
+            mAnchorOffset = in.readInt();
+            mAnchorLayoutFromEnd = in.readInt() == 1;
+            mItemSizes = in.createIntArray();
+        }
+
+        public SavedState(SavedState other) {
+            mAnchorPosition = other.mAnchorPosition;
+            mAnchorOffset = other.mAnchorOffset;
+            mAnchorLayoutFromEnd = other.mAnchorLayoutFromEnd;
+            mItemSizes = other.mItemSizes;
+        }
+
+        boolean hasValidAnchor() {
+            return mAnchorPosition >= 0;
+        }
+
+        void invalidateAnchor() {
+            mAnchorPosition = RecyclerView.NO_POSITION;
+        }
+
+        @Override
+        public int describeContents() {
+            return 0;
+        }
+
+        @Override
+        public void writeToParcel(Parcel dest, int flags) {
+            dest.writeInt(mAnchorPosition);
+            dest.writeInt(mAnchorOffset);
+            dest.writeInt(mAnchorLayoutFromEnd ? 1 : 0);
+            dest.writeIntArray(mItemSizes);
+        }
+
+        public static final Creator<SavedState> CREATOR = new Creator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(Parcel in) {
+                return new SavedState(in);
+            }
+
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
+    }
+}
@@ -0,0 +1,279 @@
+package com.shuhnli.recyclerview_diy.layoutManager;
+
+import android.view.View;
+
+import androidx.annotation.NonNull;
+
+import com.shuhnli.recyclerview_diy.recyclerview.RecyclerView;
+
+/**
+ * 把水平和竖直方向上的尺寸计算统一成"start/end"的形式, 布局代码不需要区分方向
+ * <p>
+ * 所有decorated尺寸都包含ItemDecoration和margin
+ */
+public abstract class OrientationHelper {
+    private static final int INVALID_SIZE = Integer.MIN_VALUE;
+
+    public static final int HORIZONTAL = RecyclerView.HORIZONTAL;
+    public static final int VERTICAL = RecyclerView.VERTICAL;
+
+    protected final LayoutManager mLayoutManager;
+
+    //上一次布局完成时的可用空间, 用来判断RecyclerView的尺寸是否变化
+    private int mLastTotalSpace = INVALID_SIZE;
+
+    private OrientationHelper(LayoutManager layoutManager) {
+        mLayoutManager = layoutManager;
+    }
+
+    /**
+     * 布局完成时调用, 记录当前的可用空间
+     */
+    public void onLayoutComplete() {
+        mLastTotalSpace = getTotalSpace();
+    }
+
+    /**
+     * 和上一次布局相比可用空间的变化
+     */
+    public int getTotalSpaceChange() {
+        return INVALID_SIZE == mLastTotalSpace ? 0 : getTotalSpace() - mLastTotalSpace;
+    }
+
+    //子View的起点(包括decoration和margin)
+    public abstract int getDecoratedStart(View view);
+
+    //子View的终点(包括decoration和margin)
+    public abstract int getDecoratedEnd(View view);
+
+    //第index个子View的起点, 从LayoutManager的子View边界快照读取
+    public abstract int getDecoratedStartAt(int index);
+
+    //第index个子View的终点, 从LayoutManager的子View边界快照读取
+    public abstract int getDecoratedEndAt(int index);
+
+    //子View在布局方向上占用的空间
+    public abstract int getDecoratedMeasurement(View view);
+
+    //子View在另一个方向上占用的空间
+    public abstract int getDecoratedMeasurementInOther(View view);
+
+    //起点的padding
+    public abstract int getStartAfterPadding();
+
+    //终点减去padding
+    public abstract int getEndAfterPadding();
+
+    //RecyclerView在布局方向上的尺寸
+    public abstract int getEnd();
+
+    public abstract int getEndPadding();
+
+    //布局方向上可以摆放子View的空间
+    public abstract int getTotalSpace();
+
+    public abstract void offsetChildren(int amount);
+
+    //只平移一个子View
+    public abstract void offsetChild(View view, int amount);
+
+    //布局方向上的MeasureSpec mode
+    public abstract int getMode();
+
+    //另一个方向上的MeasureSpec mode
+    public abstract int getModeInOther();
+
+    @NonNull
+    public static OrientationHelper createOrientationHelper(@NonNull LayoutManager layoutManager,
+                                                            int orientation) {
+        switch (orientation) {
+            case HORIZONTAL:
+                return createHorizontalHelper(layoutManager);
+            case VERTICAL:
+                return createVerticalHelper(layoutManager);
+        }
+        throw new IllegalArgumentException("invalid orientation");
+    }
+
+    @NonNull
+    public static OrientationHelper createHorizontalHelper(@NonNull LayoutManager layoutManager) {
+        return new OrientationHelper(layoutManager) {
+            @Override
+            public int getEndAfterPadding() {
+                return mLayoutManager.getWidth() - mLayoutManager.getPaddingRight();
+            }
+
+            @Override
+            public int getEnd() {
+                return mLayoutManager.getWidth();
+            }
+
+            @Override
+            public void offsetChildren(int amount) {
+                mLayoutManager.offsetChildrenHorizontal(amount);
+            }
+
+            @Override
+            public void offsetChild(View view, int amount) {
+                mLayoutManager.offsetChildHorizontal(view, amount);
+            }
+
+            @Override
+            public int getStartAfterPadding() {
+                return mLayoutManager.getPaddingLeft();
+            }
+
+            @Override
+            public int getDecoratedMeasurement(View view) {
+                final RecyclerView.LayoutParams params =
+                        (RecyclerView.LayoutParams) view.getLayoutParams();
+                return mLayoutManager.getDecoratedMeasuredWidth(view) + params.leftMargin
+                        + params.rightMargin;
+            }
+
+            @Override
+            public int getDecoratedMeasurementInOther(View view) {
+                final RecyclerView.LayoutParams params =
+                        (RecyclerView.LayoutParams) view.getLayoutParams();
+                return mLayoutManager.getDecoratedMeasuredHeight(view) + params.topMargin
+                        + params.bottomMargin;
+            }
+
+            @Override
+            public int getDecoratedEnd(View view) {
+                final RecyclerView.LayoutParams params =
+                        (RecyclerView.LayoutParams) view.getLayoutParams();
+                return mLayoutManager.getDecoratedRight(view) + params.rightMargin;
+            }
+
+            @Override
+            public int getDecoratedStart(View view) {
+                final RecyclerView.LayoutParams params =
+                        (RecyclerView.LayoutParams) view.getLayoutParams();
+                return mLayoutManager.getDecoratedLeft(view) - params.leftMargin;
+            }
+
+            @Override
+            public int getDecoratedStartAt(int index) {
+                return mLayoutManager.getChildBounds().getStart(index, true);
+            }
+
+            @Override
+            public int getDecoratedEndAt(int index) {
+                return mLayoutManager.getChildBounds().getEnd(index, true);
+            }
+
+            @Override
+            public int getTotalSpace() {
+                return mLayoutManager.getWidth() - mLayoutManager.getPaddingLeft()
+                        - mLayoutManager.getPaddingRight();
+            }
+
+            @Override
+            public int getEndPadding() {
+                return mLayoutManager.getPaddingRight();
+            }
+
+            @Override
+            public int getMode() {
+                return mLayoutManager.getWidthMode();
+            }
+
+            @Override
+            public int getModeInOther() {
+                return mLayoutManager.getHeightMode();
+            }
+        };
+    }
+
+    @NonNull
+    public static OrientationHelper createVerticalHelper(@NonNull LayoutManager layoutManager) {
+        return new OrientationHelper(layoutManager) {
+            @Override
+            public int getEndAfterPadding() {
+                return mLayoutManager.getHeight() - mLayoutManager.getPaddingBottom();
+            }
+
+            @Override
+            public int getEnd() {
+                return mLayoutManager.getHeight();
+            }
+
+            @Override
+            public void offsetChildren(int amount) {
+                mLayoutManager.offsetChildrenVertical(amount);
+            }
+
+            @Override
+            public void offsetChild(View view, int amount) {
+                mLayoutManager.offsetChildVertical(view, amount);
+            }
+
+            @Override
+            public int getStartAfterPadding() {
+                return mLayoutManager.getPaddingTop();
+            }
+
+            @Override
+            public int getDecoratedMeasurement(View view) {
+                final RecyclerView.LayoutParams params =
+                        (RecyclerView.LayoutParams) view.getLayoutParams();
+                return mLayoutManager.getDecoratedMeasuredHeight(view) + params.topMargin
+                        + params.bottomMargin;
+            }
+
+            @Override
+            public int getDecoratedMeasurementInOther(View view) {
+                final RecyclerView.LayoutParams params =
+                        (RecyclerView.LayoutParams) view.getLayoutParams();
+                return mLayoutManager.getDecoratedMeasuredWidth(view) + params.leftMargin
+                        + params.rightMargin;
+            }
+
+            @Override
+            public int getDecoratedEnd(View view) {
+                final RecyclerView.LayoutParams params =
+                        (RecyclerView.LayoutParams) view.getLayoutParams();
+                return mLayoutManager.getDecoratedBottom(view) + params.bottomMargin;
+            }
+
+            @Override
+            public int getDecoratedStart(View view) {
+                final RecyclerView.LayoutParams params =
+                        (RecyclerView.LayoutParams) view.getLayoutParams();
+                return mLayoutManager.getDecoratedTop(view) - params.topMargin;
+            }
+
+            @Override
+            public int getDecoratedStartAt(int index) {
+                return mLayoutManager.getChildBounds().getStart(index, false);
+            }
+
+            @Override
+            public int getDecoratedEndAt(int index) {
+                return mLayoutManager.getChildBounds().getEnd(index, false);
+            }
+
+            @Override
+            public int getTotalSpace() {
+                return mLayoutManager.getHeight() - mLayoutManager.getPaddingTop()
+                        - mLayoutManager.getPaddingBottom();
+            }
+
+            @Override
+            public int getEndPadding() {
+                return mLayoutManager.getPaddingBottom();
+            }
+
+            @Override
+            public int getMode() {
+                return mLayoutManager.getHeightMode();
+            }
+
+            @Override
+            public int getModeInOther() {
+                return mLayoutManager.getWidthMode();
+            }
+        };
+    }
+}
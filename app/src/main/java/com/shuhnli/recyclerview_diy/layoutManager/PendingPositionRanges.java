@@ -0,0 +1,127 @@
+package com.shuhnli.recyclerview_diy.layoutManager;
+
+/**
+ * 等待处理的adapter位置区间[start, end), 之后的增删和移动会同步平移这些区间
+ * <p>
+ * 数据变化的通知只记下变化的位置, 下一次布局时只处理这些位置, 代价和变化的数量相关, 和item总数无关。
+ * 区间太多或者数据整体变化时不再分区间记录, 由调用者处理全部位置。
+ */
+final class PendingPositionRanges {
+    private static final int MAX_RANGES = 16;
+
+    private final int[] mStarts = new int[MAX_RANGES];
+    private final int[] mEnds = new int[MAX_RANGES];
+    private int mCount;
+    //需要处理全部位置
+    private boolean mAll;
+
+    boolean isEmpty() {
+        return !mAll && mCount == 0;
+    }
+
+    boolean isAll() {
+        return mAll;
+    }
+
+    int size() {
+        return mCount;
+    }
+
+    int getStart(int index) {
+        return mStarts[index];
+    }
+
+    int getEnd(int index) {
+        return mEnds[index];
+    }
+
+    void markAll() {
+        mAll = true;
+        mCount = 0;
+    }
+
+    void clear() {
+        mAll = false;
+        mCount = 0;
+    }
+
+    /**
+     * 记录[start, start + count), 和已有区间重叠或相邻时合并
+     */
+    void add(int start, int count) {
+        if (mAll || count <= 0) {
+            return;
+        }
+        final int end = start + count;
+        for (int i = 0; i < mCount; i++) {
+            if (start <= mEnds[i] && end >= mStarts[i]) {
+                mStarts[i] = Math.min(mStarts[i], start);
+                mEnds[i] = Math.max(mEnds[i], end);
+                return;
+            }
+        }
+        if (mCount == MAX_RANGES) {
+            markAll();
+            return;
+        }
+        mStarts[mCount] = start;
+        mEnds[mCount] = end;
+        mCount++;
+    }
+
+    /**
+     * 在positionStart处插入了itemCount个位置, 插在区间中间时区间跟着变长
+     */
+    void onItemsAdded(int positionStart, int itemCount) {
+        for (int i = 0; i < mCount; i++) {
+            if (mStarts[i] >= positionStart) {
+                mStarts[i] += itemCount;
+            }
+            if (mEnds[i] > positionStart) {
+                mEnds[i] += itemCount;
+            }
+        }
+    }
+
+    /**
+     * 删除了[positionStart, positionStart + itemCount), 完全被删除的区间丢弃
+     */
+    void onItemsRemoved(int positionStart, int itemCount) {
+        int kept = 0;
+        for (int i = 0; i < mCount; i++) {
+            final int start = offsetForRemoval(mStarts[i], positionStart, itemCount);
+            final int end = offsetForRemoval(mEnds[i], positionStart, itemCount);
+            if (start < end) {
+                mStarts[kept] = start;
+                mEnds[kept] = end;
+                kept++;
+            }
+        }
+        mCount = kept;
+    }
+
+    /**
+     * 从from移动了itemCount个位置到to, 被移动的位置里有待处理的时, 整个目标区间都记录下来
+     */
+    void onItemsMoved(int from, int to, int itemCount) {
+        boolean pendingMoved = false;
+        for (int i = 0; i < mCount; i++) {
+            if (mStarts[i] < from + itemCount && mEnds[i] > from) {
+                pendingMoved = true;
+                break;
+            }
+        }
+        onItemsRemoved(from, itemCount);
+        onItemsAdded(to, itemCount);
+        if (pendingMoved) {
+            add(to, itemCount);
+        }
+    }
+
+    private static int offsetForRemoval(int position, int positionStart, int itemCount) {
+        if (position <= positionStart) {
+            return position;
+        }
+        return Math.max(positionStart, position - itemCount);
+    }
+}
@@ -0,0 +1,1454 @@
+package com.shuhnli.recyclerview_diy.layoutManager;
+
+import android.graphics.Rect;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.view.ViewCompat;
+
+import com.shuhnli.recyclerview_diy.recyclerview.Recycler;
+import com.shuhnli.recyclerview_diy.recyclerview.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * 瀑布流布局: 分成mSpanCount列(水平布局时是行), 每个item放进当前最短的一列
+ * <p>
+ * 每个位置分配到的span记录在{@link SpanLookup}里(一个int数组), 向开头滑动时按记录放回原来的span,
+ * 数据变化时只平移/清除受影响的那一段。填充时用{@link SpanHeap}(以span的边缘为key的最小堆)选出最短的span,
+ * 每放一个item只需要调整一次堆。
+ * <p>
+ * 每个span各自回收滑出的子View, 一个很长的item不会挡住其他span的回收, 所以布局中的位置不一定连续:
+ * 填充时跳过在自己的span中已经布局的位置。
+ * <p>
+ * 向开头填充时使用的是之前的分配, item尺寸变化后可能在开头留下空白。停止滑动时只比较各个span的起始线
+ * (O(spanCount))判断是否有空白, 有空白时清空分配重新布局。
+ */
+public class StaggeredGridLayoutManager extends LayoutManager {
+    public static final int HORIZONTAL = RecyclerView.HORIZONTAL;
+    public static final int VERTICAL = RecyclerView.VERTICAL;
+
+    static final int INVALID_LINE = Integer.MIN_VALUE;
+
+    //分配数量超过这个值时不保存, 避免超出Parcel的大小限制
+    private static final int MAX_SAVED_SPAN_LOOKUP = 10_000;
+
+    private int mSpanCount = -1;
+
+    Span[] mSpans;
+
+    //布局方向和另一个方向
+    @NonNull
+    OrientationHelper mPrimaryOrientation;
+    @NonNull
+    OrientationHelper mSecondaryOrientation;
+
+    private int mOrientation;
+
+    private boolean mReverseLayout = false;
+
+    //实际是否反向: 考虑了RTL之后的mReverseLayout
+    boolean mShouldReverseLayout = false;
+
+    //每个span在另一个方向上的尺寸
+    private int mSizePerSpan;
+
+    final SpanLookup mSpanLookup = new SpanLookup();
+
+    private final SpanHeap mSpanHeap = new SpanHeap();
+
+    private final LayoutState mLayoutState = new LayoutState();
+
+    //重新布局时每个span的线和锚点所在的span, 见findAnchorPosition
+    private int[] mAnchorLines;
+    private int mAnchorSpanIndex;
+
+    //等待滑动到的位置, 在下一次布局时生效
+    int mPendingScrollPosition = RecyclerView.NO_POSITION;
+    int mPendingScrollPositionOffset = INVALID_LINE;
+
+    SavedState mPendingSavedState = null;
+
+    //向开头填充时用了之前的分配, 或者数据变化了, 可能出现空白, 需要检查
+    private boolean mGapCheckPending;
+
+    //下一次布局时所有span从锚点的同一条线开始
+    private boolean mAlignSpansOnNextLayout;
+
+    private int[] mPrefetchDistances;
+
+    //检查空白时每个span分配到的最小位置, 见hasGapsToFix
+    private int[] mFirstAssignedPositions;
+
+    private final Runnable mCheckForGapsRunnable = new Runnable() {
+        @Override
+        public void run() {
+            checkForGaps();
+        }
+    };
+
+    /**
+     * @param spanCount   列数(水平布局时是行数)
+     * @param orientation {@link #HORIZONTAL}或{@link #VERTICAL}
+     */
+    public StaggeredGridLayoutManager(int spanCount, int orientation) {
+        setOrientation(orientation);
+        setSpanCount(spanCount);
+    }
+
+    @Override
+    public boolean isAutoMeasureEnabled() {
+        return true;
+    }
+
+    @Override
+    public RecyclerView.LayoutParams generateDefaultLayoutParams() {
+        if (mOrientation == HORIZONTAL) {
+            return new RecyclerView.LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT,
+                    ViewGroup.LayoutParams.MATCH_PARENT);
+        } else {
+            return new RecyclerView.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
+                    ViewGroup.LayoutParams.WRAP_CONTENT);
+        }
+    }
+
+    @Override
+    public Parcelable onSaveInstanceState() {
+        if (mPendingSavedState != null) {
+            return new SavedState(mPendingSavedState);
+        }
+        final SavedState state = new SavedState();
+        state.mReverseLayout = mReverseLayout;
+        state.mSpanCount = mSpanCount;
+        final boolean saveLookup = mSpanLookup.mSize <= MAX_SAVED_SPAN_LOOKUP;
+        if (saveLookup) {
+            state.mSpanLookup = mSpanLookup.toArray();
+        }
+        final int anchorPosition = getChildCount() > 0
+                ? findAnchorPosition(getItemCount(), mShouldReverseLayout)
+                : RecyclerView.NO_POSITION;
+        if (anchorPosition != RecyclerView.NO_POSITION) {
+            state.mAnchorPosition = anchorPosition;
+            state.mAnchorOffset = toAnchorOffset(mAnchorLines[mAnchorSpanIndex]);
+            // 没有保存分配时恢复出来的span和现在不同, 每个span的线也就没有意义
+            if (saveLookup) {
+                state.mSpanOffsets = new int[mSpanCount];
+                for (int i = 0; i < mSpanCount; i++) {
+                    state.mSpanOffsets[i] = mAnchorLines[i] == INVALID_LINE
+                            ? INVALID_LINE : toAnchorOffset(mAnchorLines[i]);
+                }
+            }
+        } else {
+            state.invalidateAnchor();
+        }
+        return state;
+    }
+
+    @Override
+    public void onRestoreInstanceState(Parcelable state) {
+        if (state instanceof SavedState) {
+            mPendingSavedState = (SavedState) state;
+            mReverseLayout = mPendingSavedState.mReverseLayout;
+            if (mPendingScrollPosition != RecyclerView.NO_POSITION) {
+                mPendingSavedState.invalidateAnchor();
+            }
+            if (mPendingSavedState.mSpanCount == mSpanCount
+                    && mPendingSavedState.mSpanLookup != null) {
+                mSpanLookup.restore(mPendingSavedState.mSpanLookup);
+            } else {
+                mPendingSavedState.mSpanOffsets = null;
+            }
+            requestLayout();
+        }
+    }
+
+    @Override
+    public boolean canScrollHorizontally() {
+        return mOrientation == HORIZONTAL;
+    }
+
+    @Override
+    public boolean canScrollVertically() {
+        return mOrientation == VERTICAL;
+    }
+
+    public int getSpanCount() {
+        return mSpanCount;
+    }
+
+    /**
+     * 修改span数量会清空所有分配
+     */
+    public void setSpanCount(int spanCount) {
+        if (spanCount == mSpanCount) {
+            return;
+        }
+        if (spanCount < 1) {
+            throw new IllegalArgumentException("Span count should be at least 1. Provided "
+                    + spanCount);
+        }
+        mSpanCount = spanCount;
+        mSpans = new Span[mSpanCount];
+        for (int i = 0; i < mSpanCount; i++) {
+            mSpans[i] = new Span(i);
+        }
+        mAnchorLines = new int[mSpanCount];
+        mSpanLookup.clear();
+        mAlignSpansOnNextLayout = true;
+        requestLayout();
+    }
+
+    public int getOrientation() {
+        return mOrientation;
+    }
+
+    public void setOrientation(int orientation) {
+        if (orientation != HORIZONTAL && orientation != VERTICAL) {
+            throw new IllegalArgumentException("invalid orientation:" + orientation);
+        }
+        if (mPrimaryOrientation != null && orientation == mOrientation) {
+            return;
+        }
+        mOrientation = orientation;
+        mPrimaryOrientation = OrientationHelper.createOrientationHelper(this, mOrientation);
+        mSecondaryOrientation = OrientationHelper.createOrientationHelper(this,
+                1 - mOrientation);
+        requestLayout();
+    }
+
+    public boolean getReverseLayout() {
+        return mReverseLayout;
+    }
+
+    /**
+     * 反向布局: 第一个item在末尾(垂直布局时是底部), 分配不变
+     */
+    public void setReverseLayout(boolean reverseLayout) {
+        if (reverseLayout == mReverseLayout) {
+            return;
+        }
+        mReverseLayout = reverseLayout;
+        if (mPendingSavedState != null) {
+            mPendingSavedState.mReverseLayout = reverseLayout;
+        }
+        requestLayout();
+    }
+
+    /**
+     * 水平布局在RTL时方向相反
+     */
+    private void resolveShouldLayoutReverse() {
+        if (mOrientation == VERTICAL || !isLayoutRTL()) {
+            mShouldReverseLayout = mReverseLayout;
+        } else {
+            mShouldReverseLayout = !mReverseLayout;
+        }
+    }
+
+    boolean isLayoutRTL() {
+        return getLayoutDirection() == ViewCompat.LAYOUT_DIRECTION_RTL;
+    }
+
+    @Override
+    public void scrollToPosition(int position) {
+        mPendingScrollPosition = position;
+        mPendingScrollPositionOffset = INVALID_LINE;
+        if (mPendingSavedState != null) {
+            mPendingSavedState.invalidateAnchor();
+        }
+        requestLayout();
+    }
+
+    /**
+     * 滑动到position, 并让它距离开头(反向布局时是末尾)offset像素
+     */
+    public void scrollToPositionWithOffset(int position, int offset) {
+        mPendingScrollPosition = position;
+        mPendingScrollPositionOffset = offset;
+        if (mPendingSavedState != null) {
+            mPendingSavedState.invalidateAnchor();
+        }
+        requestLayout();
+    }
+
+    @Override
+    public void onLayoutChildren(Recycler recycler, RecyclerView.State state) {
+        // 1. 找到锚点, 确定每个span的起始线(反向布局时是末尾线)
+        // 2. 从锚点向两个方向填充
+        // 3. 消除首尾的空白
+        final int itemCount = state.getItemCount();
+        if (itemCount == 0) {
+            removeAndRecycleAllViews(recycler);
+            for (Span span : mSpans) {
+                span.clear();
+            }
+            mSpanLookup.clear();
+            return;
+        }
+        final boolean lastLayoutReversed = mShouldReverseLayout;
+        resolveShouldLayoutReverse();
+        mSizePerSpan = mSecondaryOrientation.getTotalSpace() / mSpanCount;
+        if (mPendingScrollPosition >= itemCount) {
+            mPendingScrollPosition = RecyclerView.NO_POSITION;
+        }
+
+        final int startAfterPadding = mPrimaryOrientation.getStartAfterPadding();
+        final int endAfterPadding = mPrimaryOrientation.getEndAfterPadding();
+        int anchorPosition = 0;
+        int anchorLine = mShouldReverseLayout ? endAfterPadding : startAfterPadding;
+        boolean alignSpans = true;
+        if (mPendingScrollPosition != RecyclerView.NO_POSITION) {
+            anchorPosition = mPendingScrollPosition;
+            if (mPendingScrollPositionOffset != INVALID_LINE) {
+                anchorLine = fromAnchorOffset(mPendingScrollPositionOffset);
+            }
+        } else if (mPendingSavedState != null && mPendingSavedState.hasValidAnchor()
+                && mPendingSavedState.mAnchorPosition < itemCount) {
+            anchorPosition = mPendingSavedState.mAnchorPosition;
+            anchorLine = fromAnchorOffset(mPendingSavedState.mAnchorOffset);
+            final int[] spanOffsets = mPendingSavedState.mSpanOffsets;
+            if (spanOffsets != null) {
+                alignSpans = false;
+                for (int i = 0; i < mSpanCount; i++) {
+                    mAnchorLines[i] = spanOffsets[i] == INVALID_LINE
+                            ? anchorLine : fromAnchorOffset(spanOffsets[i]);
+                }
+            }
+        } else if (getChildCount() > 0) {
+            // 现有的子View是按上一次的方向布局的
+            final int position = findAnchorPosition(itemCount, lastLayoutReversed);
+            if (position != RecyclerView.NO_POSITION) {
+                anchorPosition = position;
+                if (lastLayoutReversed == mShouldReverseLayout) {
+                    anchorLine = mAnchorLines[mAnchorSpanIndex];
+                    // 保留每个span原来的线, 重新布局后错落的形状不变
+                    alignSpans = mAlignSpansOnNextLayout;
+                    for (int i = 0; i < mSpanCount; i++) {
+                        if (mAnchorLines[i] == INVALID_LINE) {
+                            mAnchorLines[i] = anchorLine;
+                        }
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < mSpanCount; i++) {
+            final Span span = mSpans[i];
+            span.clear();
+            span.setLine(alignSpans ? anchorLine : mAnchorLines[i]);
+        }
+        mAlignSpansOnNextLayout = false;
+        detachAndScrapAttachedViews(recycler);
+
+        // 锚点及之后的位置填向锚点的另一边, 之前的位置填向锚点这一边
+        final boolean infinite = resolveIsInfinite();
+        mLayoutState.mInfinite = infinite;
+        mLayoutState.mLayoutDirection = mShouldReverseLayout
+                ? LayoutState.LAYOUT_START : LayoutState.LAYOUT_END;
+        mLayoutState.mItemDirection = LayoutState.ITEM_DIRECTION_TAIL;
+        mLayoutState.mCurrentPosition = anchorPosition;
+        mLayoutState.mTargetLine = mShouldReverseLayout ? startAfterPadding : endAfterPadding;
+        mLayoutState.mAvailable = 0;
+        fill(recycler, state);
+
+        mLayoutState.mInfinite = infinite;
+        mLayoutState.mLayoutDirection = mShouldReverseLayout
+                ? LayoutState.LAYOUT_END : LayoutState.LAYOUT_START;
+        mLayoutState.mItemDirection = LayoutState.ITEM_DIRECTION_HEAD;
+        mLayoutState.mCurrentPosition = anchorPosition - 1;
+        mLayoutState.mTargetLine = mShouldReverseLayout ? endAfterPadding : startAfterPadding;
+        mLayoutState.mAvailable = 0;
+        fill(recycler, state);
+
+        // 第一个item所在的一边最后处理, 两边都有空白时它贴边
+        if (getChildCount() > 0) {
+            if (mShouldReverseLayout) {
+                fixStartGap(recycler, state);
+                fixEndGap(recycler, state);
+            } else {
+                fixEndGap(recycler, state);
+                fixStartGap(recycler, state);
+            }
+        }
+        mPendingScrollPosition = RecyclerView.NO_POSITION;
+        mPendingScrollPositionOffset = INVALID_LINE;
+        if (mGapCheckPending && mRecyclerView != null) {
+            removeCallbacks(mCheckForGapsRunnable);
+            ViewCompat.postOnAnimation(mRecyclerView, mCheckForGapsRunnable);
+        }
+    }
+
+    @Override
+    public void onLayoutCompleted(RecyclerView.State state) {
+        super.onLayoutCompleted(state);
+        mPendingScrollPosition = RecyclerView.NO_POSITION;
+        mPendingScrollPositionOffset = INVALID_LINE;
+        mPendingSavedState = null;
+    }
+
+    //锚点一边的线和它到边缘的距离互相转换, 正向时是开头, 反向时是末尾
+    private int toAnchorOffset(int line) {
+        return mShouldReverseLayout ? mPrimaryOrientation.getEndAfterPadding() - line
+                : line - mPrimaryOrientation.getStartAfterPadding();
+    }
+
+    private int fromAnchorOffset(int offset) {
+        return mShouldReverseLayout ? mPrimaryOrientation.getEndAfterPadding() - offset
+                : mPrimaryOrientation.getStartAfterPadding() + offset;
+    }
+
+    /**
+     * 重新布局的锚点: 每个span中最小的有效位置里最大的一个
+     * <p>
+     * span各自回收了开头的子View, 锚点之前的位置可能已经不在布局中, 从锚点开始的位置都还在。
+     * 每个span从它第一个不小于锚点的子View开始(线记录在mAnchorLines里), 重新填充后现有item的位置不变。
+     *
+     * @param reversed 现有子View是否是反向布局的
+     * @return 锚点位置, 没有有效的子View时是{@link RecyclerView#NO_POSITION}
+     */
+    private int findAnchorPosition(int itemCount, boolean reversed) {
+        int anchorPosition = RecyclerView.NO_POSITION;
+        for (int i = 0; i < mSpanCount; i++) {
+            final int position = mSpans[i].getMinValidPosition(itemCount);
+            if (position > anchorPosition) {
+                anchorPosition = position;
+                mAnchorSpanIndex = i;
+            }
+        }
+        if (anchorPosition == RecyclerView.NO_POSITION) {
+            return anchorPosition;
+        }
+        for (int i = 0; i < mSpanCount; i++) {
+            mAnchorLines[i] = mSpans[i].getLineFrom(anchorPosition, itemCount, reversed);
+        }
+        return anchorPosition;
+    }
+
+    //内容没有到达末尾时往回滑动
+    private void fixEndGap(Recycler recycler, RecyclerView.State state) {
+        final int gap = mPrimaryOrientation.getEndAfterPadding()
+                - getMaxEnd(mPrimaryOrientation.getEndAfterPadding());
+        if (gap > 0) {
+            scrollBy(-gap, recycler, state);
+        }
+    }
+
+    //内容没有从开头开始时往前滑动
+    private void fixStartGap(Recycler recycler, RecyclerView.State state) {
+        final int gap = getMinStart(mPrimaryOrientation.getStartAfterPadding())
+                - mPrimaryOrientation.getStartAfterPadding();
+        if (gap > 0) {
+            scrollBy(gap, recycler, state);
+        }
+    }
+
+    /**
+     * 尺寸不受限制时(比如wrap_content的方向上)需要布局所有item
+     */
+    boolean resolveIsInfinite() {
+        return mPrimaryOrientation.getMode() == View.MeasureSpec.UNSPECIFIED
+                && mPrimaryOrientation.getEnd() == 0;
+    }
+
+    @Override
+    public int scrollHorizontallyBy(int dx, Recycler recycler, RecyclerView.State state) {
+        return scrollBy(dx, recycler, state);
+    }
+
+    @Override
+    public int scrollVerticallyBy(int dy, Recycler recycler, RecyclerView.State state) {
+        return scrollBy(dy, recycler, state);
+    }
+
+    int scrollBy(int delta, Recycler recycler, RecyclerView.State state) {
+        if (getChildCount() == 0 || delta == 0) {
+            return 0;
+        }
+        prepareLayoutStateForDelta(delta, state);
+        final int consumed = fill(recycler, state);
+        final int absDelta = Math.abs(delta);
+        final int scrolled = absDelta <= consumed ? delta : (delta < 0 ? -consumed : consumed);
+        offsetChildren(-scrolled);
+        if (scrolled > 0) {
+            recycleFromStart(recycler, mPrimaryOrientation.getStartAfterPadding());
+        } else if (scrolled < 0) {
+            recycleFromEnd(recycler, mPrimaryOrientation.getEndAfterPadding());
+        }
+        return scrolled;
+    }
+
+    private void offsetChildren(int amount) {
+        mPrimaryOrientation.offsetChildren(amount);
+        for (Span span : mSpans) {
+            span.onOffset(amount);
+        }
+    }
+
+    /**
+     * 从子View的开头或末尾继续, 向delta的方向填充|delta|像素
+     */
+    private void prepareLayoutStateForDelta(int delta, RecyclerView.State state) {
+        final int absDelta = Math.abs(delta);
+        mLayoutState.mInfinite = resolveIsInfinite();
+        mLayoutState.mAvailable = absDelta;
+        if (delta > 0) {
+            mLayoutState.mLayoutDirection = LayoutState.LAYOUT_END;
+            mLayoutState.mTargetLine = mPrimaryOrientation.getEndAfterPadding() + absDelta;
+        } else {
+            mLayoutState.mLayoutDirection = LayoutState.LAYOUT_START;
+            mLayoutState.mTargetLine = mPrimaryOrientation.getStartAfterPadding() - absDelta;
+        }
+        if ((delta > 0) != mShouldReverseLayout) {
+            mLayoutState.mItemDirection = LayoutState.ITEM_DIRECTION_TAIL;
+            mLayoutState.mCurrentPosition = getNextTailPosition();
+        } else {
+            mLayoutState.mItemDirection = LayoutState.ITEM_DIRECTION_HEAD;
+            mLayoutState.mCurrentPosition = getNextHeadPosition();
+        }
+    }
+
+    //所有子View中最小的位置, 子View不一定按位置排列
+    int getFirstChildPosition() {
+        int position = Integer.MAX_VALUE;
+        for (Span span : mSpans) {
+            if (!span.mViews.isEmpty()) {
+                position = Math.min(position, span.getMinPosition());
+            }
+        }
+        return position == Integer.MAX_VALUE ? 0 : position;
+    }
+
+    int getLastChildPosition() {
+        int position = RecyclerView.NO_POSITION;
+        for (Span span : mSpans) {
+            if (!span.mViews.isEmpty()) {
+                position = Math.max(position, span.getMaxPosition());
+            }
+        }
+        return position == RecyclerView.NO_POSITION ? 0 : position;
+    }
+
+    /**
+     * 向位置增大的方向填充时的第一个位置: 各个span最大位置中最小的一个之后。
+     * 再往后的位置有一部分还在各自的span中, 填充时跳过。
+     */
+    private int getNextTailPosition() {
+        int position = Integer.MAX_VALUE;
+        for (Span span : mSpans) {
+            if (!span.mViews.isEmpty()) {
+                position = Math.min(position, span.getMaxPosition() + 1);
+            }
+        }
+        return position == Integer.MAX_VALUE ? 0 : position;
+    }
+
+    //向位置减小的方向填充时的第一个位置: 各个span最小位置中最大的一个之前
+    private int getNextHeadPosition() {
+        int position = RecyclerView.NO_POSITION;
+        for (Span span : mSpans) {
+            if (!span.mViews.isEmpty()) {
+                position = Math.max(position, span.getMinPosition() - 1);
+            }
+        }
+        return position;
+    }
+
+    /**
+     * 按itemDirection填充时position是否需要布局: 没有分配span, 或者在它的span中现有子View的这一侧之外
+     */
+    private boolean needsLayout(int position, int itemDirection) {
+        final int spanIndex = mSpanLookup.getSpan(position);
+        if (spanIndex == SpanLookup.INVALID_SPAN || spanIndex >= mSpanCount) {
+            return true;
+        }
+        final Span span = mSpans[spanIndex];
+        if (span.mViews.isEmpty()) {
+            return true;
+        }
+        return itemDirection == LayoutState.ITEM_DIRECTION_TAIL
+                ? position > span.getMaxPosition() : position < span.getMinPosition();
+    }
+
+    /**
+     * 按mLayoutState填充, 直到每个span都到达目标线或者没有更多item
+     *
+     * @return 填充出来的、可以用于滑动的像素
+     */
+    private int fill(Recycler recycler, RecyclerView.State state) {
+        final LayoutState layoutState = mLayoutState;
+        final boolean toEnd = layoutState.mLayoutDirection == LayoutState.LAYOUT_END;
+        final boolean towardTail = layoutState.mItemDirection == LayoutState.ITEM_DIRECTION_TAIL;
+        final int defaultLine = toEnd ? mPrimaryOrientation.getStartAfterPadding()
+                : mPrimaryOrientation.getEndAfterPadding();
+        // 向末尾填充时key是span的末尾, 最小的最短; 向开头时key是起点取负, 最小的起点最靠后
+        mSpanHeap.reset(mSpanCount);
+        for (Span span : mSpans) {
+            mSpanHeap.add(span.mIndex, toEnd ? span.getEndLine(defaultLine)
+                    : -span.getStartLine(defaultLine));
+        }
+        final int targetKey = toEnd ? layoutState.mTargetLine : -layoutState.mTargetLine;
+        while (layoutState.hasMore(state)
+                && (layoutState.mInfinite || mSpanHeap.peekKey() < targetKey)) {
+            final int position = layoutState.mCurrentPosition;
+            if (!needsLayout(position, layoutState.mItemDirection)) {
+                layoutState.mCurrentPosition += layoutState.mItemDirection;
+                continue;
+            }
+            final View view = layoutState.next(recycler);
+            int spanIndex = mSpanLookup.getSpan(position);
+            if (spanIndex == SpanLookup.INVALID_SPAN || spanIndex >= mSpanCount) {
+                spanIndex = mSpanHeap.peek();
+                mSpanLookup.setSpan(position, spanIndex);
+            } else if (!towardTail) {
+                // 按之前的分配放回去, item尺寸可能已经变了
+                mGapCheckPending = true;
+            }
+            final Span span = mSpans[spanIndex];
+            if (toEnd) {
+                addView(view);
+            } else {
+                addView(view, 0);
+            }
+            measureChildInSpan(view);
+            final int size = mPrimaryOrientation.getDecoratedMeasurement(view);
+            if (toEnd) {
+                final int start = span.getEndLine(defaultLine);
+                layoutInSpan(view, spanIndex, start, start + size);
+                span.appendToSpan(view);
+                mSpanHeap.update(spanIndex, span.getEndLine(defaultLine));
+            } else {
+                final int end = span.getStartLine(defaultLine);
+                layoutInSpan(view, spanIndex, end - size, end);
+                span.prependToSpan(view);
+                mSpanHeap.update(spanIndex, -span.getStartLine(defaultLine));
+            }
+        }
+        final int diff;
+        if (toEnd) {
+            diff = getMaxEnd(mPrimaryOrientation.getEndAfterPadding())
+                    - mPrimaryOrientation.getEndAfterPadding();
+        } else {
+            diff = mPrimaryOrientation.getStartAfterPadding()
+                    - getMinStart(mPrimaryOrientation.getStartAfterPadding());
+        }
+        return diff > 0 ? Math.min(layoutState.mAvailable, diff) : 0;
+    }
+
+    /**
+     * 另一个方向上固定为span的尺寸, 布局方向上按LayoutParams测量
+     */
+    private void measureChildInSpan(View view) {
+        final RecyclerView.LayoutParams lp = (RecyclerView.LayoutParams) view.getLayoutParams();
+        final Rect decorInsets = getItemDecorInsetsForChild(view);
+        final int verticalInsets = decorInsets.top + decorInsets.bottom
+                + lp.topMargin + lp.bottomMargin;
+        final int horizontalInsets = decorInsets.left + decorInsets.right
+                + lp.leftMargin + lp.rightMargin;
+        final int wSpec;
+        final int hSpec;
+        if (mOrientation == VERTICAL) {
+            wSpec = getChildMeasureSpec(mSizePerSpan, View.MeasureSpec.EXACTLY,
+                    horizontalInsets, lp.width, false);
+            hSpec = getChildMeasureSpec(mPrimaryOrientation.getTotalSpace(),
+                    mPrimaryOrientation.getMode(), verticalInsets, lp.height, true);
+        } else {
+            hSpec = getChildMeasureSpec(mSizePerSpan, View.MeasureSpec.EXACTLY,
+                    verticalInsets, lp.height, false);
+            wSpec = getChildMeasureSpec(mPrimaryOrientation.getTotalSpace(),
+                    mPrimaryOrientation.getMode(), horizontalInsets, lp.width, true);
+        }
+        if (shouldMeasureChild(view, wSpec, hSpec, lp)) {
+            measureChildWithSpecs(view, wSpec, hSpec);
+        }
+    }
+
+    /**
+     * 把子View放到spanIndex这一列, 布局方向上的范围是[start, end)
+     */
+    private void layoutInSpan(View view, int spanIndex, int start, int end) {
+        final int otherSize = mSecondaryOrientation.getDecoratedMeasurement(view);
+        final int otherStart;
+        if (mOrientation == VERTICAL && isLayoutRTL()) {
+            otherStart = mSecondaryOrientation.getEndAfterPadding()
+                    - spanIndex * mSizePerSpan - otherSize;
+        } else {
+            otherStart = mSecondaryOrientation.getStartAfterPadding() + spanIndex * mSizePerSpan;
+        }
+        if (mOrientation == VERTICAL) {
+            layoutDecoratedWithMargins(view, otherStart, start, otherStart + otherSize, end);
+        } else {
+            layoutDecoratedWithMargins(view, start, otherStart, end, otherStart + otherSize);
+        }
+    }
+
+    /**
+     * 向末尾滑动后, 每个span各自回收开头完全滑出line的子View; 每个span至少保留一个, 用来确定它的边缘
+     */
+    private void recycleFromStart(Recycler recycler, int line) {
+        for (Span span : mSpans) {
+            while (span.mViews.size() > 1
+                    && mPrimaryOrientation.getDecoratedEnd(span.mViews.get(0)) <= line) {
+                final View child = span.mViews.get(0);
+                span.popStart();
+                removeAndRecycleView(child, recycler);
+            }
+        }
+    }
+
+    /**
+     * 向开头滑动后, 每个span各自回收末尾完全滑出line的子View
+     */
+    private void recycleFromEnd(Recycler recycler, int line) {
+        for (Span span : mSpans) {
+            while (span.mViews.size() > 1 && mPrimaryOrientation.getDecoratedStart(
+                    span.mViews.get(span.mViews.size() - 1)) >= line) {
+                final View child = span.mViews.get(span.mViews.size() - 1);
+                span.popEnd();
+                removeAndRecycleView(child, recycler);
+            }
+        }
+    }
+
+    //所有span中最靠后的末尾
+    private int getMaxEnd(int defaultLine) {
+        int maxEnd = mSpans[0].getEndLine(defaultLine);
+        for (int i = 1; i < mSpanCount; i++) {
+            maxEnd = Math.max(maxEnd, mSpans[i].getEndLine(defaultLine));
+        }
+        return maxEnd;
+    }
+
+    //所有span中最靠前的起点
+    private int getMinStart(int defaultLine) {
+        int minStart = mSpans[0].getStartLine(defaultLine);
+        for (int i = 1; i < mSpanCount; i++) {
+            minStart = Math.min(minStart, mSpans[i].getStartLine(defaultLine));
+        }
+        return minStart;
+    }
+
+    @Override
+    public void onScrollStateChanged(int state) {
+        if (state == RecyclerView.SCROLL_STATE_IDLE) {
+            checkForGaps();
+        }
+    }
+
+    /**
+     * 有空白时清空分配并重新布局
+     *
+     * @return 是否需要重新布局
+     */
+    boolean checkForGaps() {
+        if (!mGapCheckPending || getChildCount() == 0) {
+            return false;
+        }
+        mGapCheckPending = false;
+        if (!hasGapsToFix()) {
+            return false;
+        }
+        mSpanLookup.clear();
+        mAlignSpansOnNextLayout = true;
+        requestSimpleAnimationsInNextLayout();
+        requestLayout();
+        return true;
+    }
+
+    /**
+     * 只有第一个item已经布局出来时才会看到空白(否则向开头填充会一直补到每个span都填满),
+     * 这时各个span在第一个item那一边(反向布局时是末尾)的线应该相同。只比较span的线, 不用遍历子View。
+     * <p>
+     * 按span回收时, 某个span开头的几个item可能已经回收了, 而第一个item还在别的span里: 这样的span
+     * 向开头还有分配过的位置, 滑回去时会按原来的分配补上, 不算空白, 不参与比较。
+     * 查找分配只扫描到最后一个子View的位置, 和可见item的数量相关。
+     */
+    boolean hasGapsToFix() {
+        if (getFirstChildPosition() != 0) {
+            return false;
+        }
+        if (mFirstAssignedPositions == null || mFirstAssignedPositions.length != mSpanCount) {
+            mFirstAssignedPositions = new int[mSpanCount];
+        }
+        mSpanLookup.findFirstPositions(mFirstAssignedPositions, getLastChildPosition() + 1);
+        final int defaultLine = mShouldReverseLayout ? mPrimaryOrientation.getEndAfterPadding()
+                : mPrimaryOrientation.getStartAfterPadding();
+        boolean hasFirstLine = false;
+        int firstLine = 0;
+        for (int i = 0; i < mSpanCount; i++) {
+            final Span span = mSpans[i];
+            final int firstAssigned = mFirstAssignedPositions[i];
+            if (span.mViews.isEmpty()) {
+                if (firstAssigned == RecyclerView.NO_POSITION && getItemCount() > i) {
+                    return true;
+                }
+                continue;
+            }
+            if (firstAssigned != RecyclerView.NO_POSITION
+                    && firstAssigned < span.getMinPosition()) {
+                continue;
+            }
+            final int line = mShouldReverseLayout ? span.getEndLine(defaultLine)
+                    : span.getStartLine(defaultLine);
+            if (!hasFirstLine) {
+                hasFirstLine = true;
+                firstLine = line;
+            } else if (line != firstLine) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void onItemsAdded(@NonNull RecyclerView recyclerView, int positionStart,
+                             int itemCount) {
+        mSpanLookup.offsetForAddition(positionStart, itemCount);
+        mGapCheckPending = true;
+    }
+
+    @Override
+    public void onItemsRemoved(@NonNull RecyclerView recyclerView, int positionStart,
+                               int itemCount) {
+        mSpanLookup.offsetForRemoval(positionStart, itemCount);
+        mGapCheckPending = true;
+    }
+
+    @Override
+    public void onItemsUpdated(@NonNull RecyclerView recyclerView, int positionStart,
+                               int itemCount) {
+        // 分配不变, 但尺寸可能变化
+        mGapCheckPending = true;
+    }
+
+    @Override
+    public void onItemsMoved(@NonNull RecyclerView recyclerView, int from, int to,
+                             int itemCount) {
+        mSpanLookup.offsetForRemoval(from, itemCount);
+        mSpanLookup.offsetForAddition(to, itemCount);
+        mGapCheckPending = true;
+    }
+
+    @Override
+    public void onItemsChanged(@NonNull RecyclerView recyclerView) {
+        mSpanLookup.clear();
+        mAlignSpansOnNextLayout = true;
+    }
+
+    @Override
+    public void collectAdjacentPrefetchPositions(int dx, int dy, RecyclerView.State state,
+                                                 LayoutPrefetchRegistry layoutPrefetchRegistry) {
+        final int delta = (mOrientation == HORIZONTAL) ? dx : dy;
+        if (getChildCount() == 0 || delta == 0) {
+            return;
+        }
+        prepareLayoutStateForDelta(delta, state);
+        if (mPrefetchDistances == null || mPrefetchDistances.length != mSpanCount) {
+            mPrefetchDistances = new int[mSpanCount];
+        }
+        // 每个span还要滑动多远才需要下一个item, 由近到远对应接下来的位置
+        final boolean toEnd = mLayoutState.mLayoutDirection == LayoutState.LAYOUT_END;
+        for (int i = 0; i < mSpanCount; i++) {
+            final Span span = mSpans[i];
+            mPrefetchDistances[i] = toEnd
+                    ? span.getEndLine(mPrimaryOrientation.getStartAfterPadding())
+                    - mPrimaryOrientation.getEndAfterPadding()
+                    : mPrimaryOrientation.getStartAfterPadding()
+                    - span.getStartLine(mPrimaryOrientation.getEndAfterPadding());
+        }
+        Arrays.sort(mPrefetchDistances, 0, mSpanCount);
+        int i = 0;
+        while (i < mSpanCount && mLayoutState.hasMore(state)) {
+            final int position = mLayoutState.mCurrentPosition;
+            if (needsLayout(position, mLayoutState.mItemDirection)) {
+                layoutPrefetchRegistry.addPosition(position,
+                        Math.max(0, mPrefetchDistances[i]));
+                i++;
+            }
+            mLayoutState.mCurrentPosition += mLayoutState.mItemDirection;
+        }
+    }
+
+    /**
+     * 每个span中第一个可见(包括部分可见)的item的位置, 没有时是{@link RecyclerView#NO_POSITION}
+     */
+    public int[] findFirstVisibleItemPositions(@Nullable int[] into) {
+        into = ensurePositionsArray(into);
+        for (int i = 0; i < mSpanCount; i++) {
+            into[i] = mSpans[i].findVisibleItemPosition(!mShouldReverseLayout);
+        }
+        return into;
+    }
+
+    /**
+     * 每个span中最后一个可见(包括部分可见)的item的位置, 没有时是{@link RecyclerView#NO_POSITION}
+     */
+    public int[] findLastVisibleItemPositions(@Nullable int[] into) {
+        into = ensurePositionsArray(into);
+        for (int i = 0; i < mSpanCount; i++) {
+            into[i] = mSpans[i].findVisibleItemPosition(mShouldReverseLayout);
+        }
+        return into;
+    }
+
+    private int[] ensurePositionsArray(@Nullable int[] into) {
+        if (into == null) {
+            return new int[mSpanCount];
+        }
+        if (into.length < mSpanCount) {
+            throw new IllegalArgumentException("Provided int[]'s size must be more than or equal"
+                    + " to span count. Expected:" + mSpanCount + ", array size:" + into.length);
+        }
+        return into;
+    }
+
+    @Override
+    public int computeHorizontalScrollOffset(@NonNull RecyclerView.State state) {
+        return computeScrollOffset(state);
+    }
+
+    @Override
+    public int computeVerticalScrollOffset(@NonNull RecyclerView.State state) {
+        return computeScrollOffset(state);
+    }
+
+    @Override
+    public int computeHorizontalScrollExtent(@NonNull RecyclerView.State state) {
+        return computeScrollExtent(state);
+    }
+
+    @Override
+    public int computeVerticalScrollExtent(@NonNull RecyclerView.State state) {
+        return computeScrollExtent(state);
+    }
+
+    @Override
+    public int computeHorizontalScrollRange(@NonNull RecyclerView.State state) {
+        return computeScrollRange(state);
+    }
+
+    @Override
+    public int computeVerticalScrollRange(@NonNull RecyclerView.State state) {
+        return computeScrollRange(state);
+    }
+
+    //子View占用的总长度
+    private int getLaidOutArea() {
+        return getMaxEnd(mPrimaryOrientation.getStartAfterPadding())
+                - getMinStart(mPrimaryOrientation.getStartAfterPadding());
+    }
+
+    /**
+     * 滚动条位置: 开头之前的item数量乘以每个item平均占用的长度, 再加上开头超出的部分。
+     * 反向布局时开头之前的是位置更大的item。
+     */
+    private int computeScrollOffset(RecyclerView.State state) {
+        if (getChildCount() == 0 || state.getItemCount() == 0) {
+            return 0;
+        }
+        final int firstPosition = getFirstChildPosition();
+        final int lastPosition = getLastChildPosition();
+        final int itemRange = lastPosition - firstPosition + 1;
+        final int itemsBefore = mShouldReverseLayout
+                ? state.getItemCount() - lastPosition - 1 : firstPosition;
+        final float avgSizePerItem = (float) getLaidOutArea() / itemRange;
+        return Math.round(itemsBefore * avgSizePerItem
+                + (mPrimaryOrientation.getStartAfterPadding()
+                - getMinStart(mPrimaryOrientation.getStartAfterPadding())));
+    }
+
+    private int computeScrollExtent(RecyclerView.State state) {
+        if (getChildCount() == 0 || state.getItemCount() == 0) {
+            return 0;
+        }
+        return Math.min(mPrimaryOrientation.getTotalSpace(), getLaidOutArea());
+    }
+
+    private int computeScrollRange(RecyclerView.State state) {
+        if (getChildCount() == 0 || state.getItemCount() == 0) {
+            return 0;
+        }
+        final int itemRange = getLastChildPosition() - getFirstChildPosition() + 1;
+        return (int) ((float) getLaidOutArea() / itemRange * state.getItemCount());
+    }
+
+    /**
+     * 一列(水平布局时是一行)子View, 按布局方向从开头到末尾排列(反向布局时adapter位置从大到小)
+     * <p>
+     * 起始线和末尾线会缓存下来, 添加/移除两端的子View时只让对应的一端失效
+     */
+    class Span {
+        final ArrayList<View> mViews = new ArrayList<>();
+        int mCachedStart = INVALID_LINE;
+        int mCachedEnd = INVALID_LINE;
+        final int mIndex;
+
+        Span(int index) {
+            mIndex = index;
+        }
+
+        int getStartLine(int defaultLine) {
+            if (mCachedStart != INVALID_LINE) {
+                return mCachedStart;
+            }
+            if (mViews.isEmpty()) {
+                return defaultLine;
+            }
+            mCachedStart = mPrimaryOrientation.getDecoratedStart(mViews.get(0));
+            return mCachedStart;
+        }
+
+        int getEndLine(int defaultLine) {
+            if (mCachedEnd != INVALID_LINE) {
+                return mCachedEnd;
+            }
+            if (mViews.isEmpty()) {
+                return defaultLine;
+            }
+            mCachedEnd = mPrimaryOrientation.getDecoratedEnd(mViews.get(mViews.size() - 1));
+            return mCachedEnd;
+        }
+
+        //两端的子View分别是最小和最大的位置, 不需要知道方向; span不能是空的
+        int getMinPosition() {
+            return Math.min(getPosition(mViews.get(0)),
+                    getPosition(mViews.get(mViews.size() - 1)));
+        }
+
+        int getMaxPosition() {
+            return Math.max(getPosition(mViews.get(0)),
+                    getPosition(mViews.get(mViews.size() - 1)));
+        }
+
+        /**
+         * 没有被移除、也没有超出itemCount的子View中最小的位置, 没有时是{@link RecyclerView#NO_POSITION}
+         */
+        int getMinValidPosition(int itemCount) {
+            int minPosition = RecyclerView.NO_POSITION;
+            for (int i = 0; i < mViews.size(); i++) {
+                final View view = mViews.get(i);
+                final int position = getPosition(view);
+                if (isValid(view, position, itemCount)
+                        && (minPosition == RecyclerView.NO_POSITION || position < minPosition)) {
+                    minPosition = position;
+                }
+            }
+            return minPosition;
+        }
+
+        /**
+         * 从position开始重新布局时这个span的线: 第一个位置不小于position的有效子View的起始线(反向时是末尾线);
+         * 没有这样的子View时从另一端接着布局, span是空的时返回INVALID_LINE
+         */
+        int getLineFrom(int position, int itemCount, boolean reversed) {
+            final int size = mViews.size();
+            if (size == 0) {
+                return INVALID_LINE;
+            }
+            for (int i = 0; i < size; i++) {
+                final View view = mViews.get(reversed ? size - 1 - i : i);
+                final int viewPosition = getPosition(view);
+                if (isValid(view, viewPosition, itemCount) && viewPosition >= position) {
+                    return reversed ? mPrimaryOrientation.getDecoratedEnd(view)
+                            : mPrimaryOrientation.getDecoratedStart(view);
+                }
+            }
+            return reversed ? getStartLine(INVALID_LINE) : getEndLine(INVALID_LINE);
+        }
+
+        private boolean isValid(View view, int position, int itemCount) {
+            final RecyclerView.LayoutParams lp =
+                    (RecyclerView.LayoutParams) view.getLayoutParams();
+            return !lp.isItemRemoved() && position >= 0 && position < itemCount;
+        }
+
+        /**
+         * 从开头(fromStart)或末尾开始第一个可见(包括部分可见)的子View的位置
+         */
+        int findVisibleItemPosition(boolean fromStart) {
+            final int start = mPrimaryOrientation.getStartAfterPadding();
+            final int end = mPrimaryOrientation.getEndAfterPadding();
+            final int size = mViews.size();
+            for (int i = 0; i < size; i++) {
+                final View view = mViews.get(fromStart ? i : size - 1 - i);
+                if (mPrimaryOrientation.getDecoratedStart(view) < end
+                        && mPrimaryOrientation.getDecoratedEnd(view) > start) {
+                    return getPosition(view);
+                }
+            }
+            return RecyclerView.NO_POSITION;
+        }
+
+        //子View已经布局在起始线之前
+        void prependToSpan(View view) {
+            mViews.add(0, view);
+            mCachedStart = INVALID_LINE;
+            if (mViews.size() == 1) {
+                mCachedEnd = INVALID_LINE;
+            }
+        }
+
+        //子View已经布局在末尾线之后
+        void appendToSpan(View view) {
+            mViews.add(view);
+            mCachedEnd = INVALID_LINE;
+            if (mViews.size() == 1) {
+                mCachedStart = INVALID_LINE;
+            }
+        }
+
+        void popStart() {
+            mViews.remove(0);
+            mCachedStart = INVALID_LINE;
+            if (mViews.isEmpty()) {
+                mCachedEnd = INVALID_LINE;
+            }
+        }
+
+        void popEnd() {
+            mViews.remove(mViews.size() - 1);
+            mCachedEnd = INVALID_LINE;
+            if (mViews.isEmpty()) {
+                mCachedStart = INVALID_LINE;
+            }
+        }
+
+        //空的span从line开始布局
+        void setLine(int line) {
+            mCachedStart = mCachedEnd = line;
+        }
+
+        void clear() {
+            mViews.clear();
+            mCachedStart = INVALID_LINE;
+            mCachedEnd = INVALID_LINE;
+        }
+
+        void onOffset(int amount) {
+            if (mCachedStart != INVALID_LINE) {
+                mCachedStart += amount;
+            }
+            if (mCachedEnd != INVALID_LINE) {
+                mCachedEnd += amount;
+            }
+        }
+    }
+
+    /**
+     * 每个adapter位置分配到的span, 没有分配时是{@link #INVALID_SPAN}
+     * <p>
+     * 数据存在一个int数组里, [mSize, 数组长度)之间总是INVALID_SPAN。
+     * 插入/删除时只移动变化位置之后的部分。
+     */
+    static class SpanLookup {
+        static final int INVALID_SPAN = -1;
+        private static final int MIN_SIZE = 10;
+
+        int[] mData;
+        //最后一个可能有分配的位置 + 1
+        int mSize;
+
+        int getSpan(int position) {
+            if (position < 0 || position >= mSize) {
+                return INVALID_SPAN;
+            }
+            return mData[position];
+        }
+
+        void setSpan(int position, int span) {
+            ensureCapacity(position + 1);
+            mData[position] = span;
+            if (position >= mSize) {
+                mSize = position + 1;
+            }
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (mData == null) {
+                mData = new int[Math.max(capacity, MIN_SIZE)];
+                Arrays.fill(mData, INVALID_SPAN);
+            } else if (capacity > mData.length) {
+                final int oldLength = mData.length;
+                mData = Arrays.copyOf(mData, Math.max(capacity, oldLength * 2));
+                Arrays.fill(mData, oldLength, mData.length, INVALID_SPAN);
+            }
+        }
+
+        /**
+         * position及之后的分配失效
+         */
+        void invalidateAfter(int position) {
+            if (position < 0) {
+                position = 0;
+            }
+            if (position >= mSize) {
+                return;
+            }
+            Arrays.fill(mData, position, mSize, INVALID_SPAN);
+            mSize = position;
+        }
+
+        void clear() {
+            invalidateAfter(0);
+        }
+
+        /**
+         * 每个span在[0, end)中分配到的最小位置, 没有时是{@link RecyclerView#NO_POSITION}
+         *
+         * @param firstPositions 长度是span的数量
+         */
+        void findFirstPositions(int[] firstPositions, int end) {
+            Arrays.fill(firstPositions, RecyclerView.NO_POSITION);
+            int remaining = firstPositions.length;
+            end = Math.min(end, mSize);
+            for (int position = 0; position < end && remaining > 0; position++) {
+                final int span = mData[position];
+                if (span >= 0 && span < firstPositions.length
+                        && firstPositions[span] == RecyclerView.NO_POSITION) {
+                    firstPositions[span] = position;
+                    remaining--;
+                }
+            }
+        }
+
+        int[] toArray() {
+            return mData == null ? new int[0] : Arrays.copyOf(mData, mSize);
+        }
+
+        //用保存的分配替换现在的
+        void restore(@NonNull int[] spans) {
+            clear();
+            if (spans.length == 0) {
+                return;
+            }
+            ensureCapacity(spans.length);
+            System.arraycopy(spans, 0, mData, 0, spans.length);
+            mSize = spans.length;
+        }
+
+        /**
+         * 在positionStart处插入itemCount个没有分配的位置
+         */
+        void offsetForAddition(int positionStart, int itemCount) {
+            if (positionStart >= mSize || itemCount <= 0) {
+                return;
+            }
+            ensureCapacity(mSize + itemCount);
+            System.arraycopy(mData, positionStart, mData, positionStart + itemCount,
+                    mSize - positionStart);
+            Arrays.fill(mData, positionStart, positionStart + itemCount, INVALID_SPAN);
+            mSize += itemCount;
+        }
+
+        /**
+         * 删除[positionStart, positionStart + itemCount)的分配, 之后的前移
+         */
+        void offsetForRemoval(int positionStart, int itemCount) {
+            if (positionStart >= mSize || itemCount <= 0) {
+                return;
+            }
+            final int end = Math.min(positionStart + itemCount, mSize);
+            System.arraycopy(mData, end, mData, positionStart, mSize - end);
+            final int newSize = mSize - (end - positionStart);
+            Arrays.fill(mData, newSize, mSize, INVALID_SPAN);
+            mSize = newSize;
+        }
+    }
+
+    /**
+     * span的最小堆, key相同时下标小的在前
+     * <p>
+     * 记录了每个span在堆中的下标, 修改某个span的key之后只需要向上或向下调整一次
+     */
+    static class SpanHeap {
+        private int[] mHeap = new int[0];
+        //span在mHeap中的下标
+        private int[] mIndexOf = new int[0];
+        private int[] mKeys = new int[0];
+        private int mSize;
+
+        void reset(int spanCount) {
+            if (mHeap.length != spanCount) {
+                mHeap = new int[spanCount];
+                mIndexOf = new int[spanCount];
+                mKeys = new int[spanCount];
+            }
+            mSize = 0;
+        }
+
+        void add(int span, int key) {
+            mKeys[span] = key;
+            mHeap[mSize] = span;
+            mIndexOf[span] = mSize;
+            siftUp(mSize++);
+        }
+
+        //key最小的span
+        int peek() {
+            return mHeap[0];
+        }
+
+        int peekKey() {
+            return mKeys[mHeap[0]];
+        }
+
+        void update(int span, int key) {
+            final int oldKey = mKeys[span];
+            mKeys[span] = key;
+            if (key < oldKey) {
+                siftUp(mIndexOf[span]);
+            } else {
+                siftDown(mIndexOf[span]);
+            }
+        }
+
+        private boolean less(int spanA, int spanB) {
+            final int keyA = mKeys[spanA];
+            final int keyB = mKeys[spanB];
+            return keyA < keyB || (keyA == keyB && spanA < spanB);
+        }
+
+        private void siftUp(int index) {
+            final int span = mHeap[index];
+            while (index > 0) {
+                final int parent = (index - 1) >>> 1;
+                final int parentSpan = mHeap[parent];
+                if (!less(span, parentSpan)) {
+                    break;
+                }
+                mHeap[index] = parentSpan;
+                mIndexOf[parentSpan] = index;
+                index = parent;
+            }
+            mHeap[index] = span;
+            mIndexOf[span] = index;
+        }
+
+        private void siftDown(int index) {
+            final int span = mHeap[index];
+            while (true) {
+                int child = index * 2 + 1;
+                if (child >= mSize) {
+                    break;
+                }
+                if (child + 1 < mSize && less(mHeap[child + 1], mHeap[child])) {
+                    child++;
+                }
+                final int childSpan = mHeap[child];
+                if (!less(childSpan, span)) {
+                    break;
+                }
+                mHeap[index] = childSpan;
+                mIndexOf[childSpan] = index;
+                index = child;
+            }
+            mHeap[index] = span;
+            mIndexOf[span] = index;
+        }
+    }
+
+    /**
+     * 填充时的状态
+     */
+    static class LayoutState {
+        static final int LAYOUT_START = -1;
+        static final int LAYOUT_END = 1;
+        static final int ITEM_DIRECTION_HEAD = -1;
+        static final int ITEM_DIRECTION_TAIL = 1;
+
+        //下一个要布局的adapter位置
+        int mCurrentPosition;
+        //遍历adapter的方向
+        int mItemDirection;
+        //填充的方向
+        int mLayoutDirection;
+        //每个span都要填充到这条线
+        int mTargetLine;
+        //滑动时请求的距离, 填充的结果不会超过它
+        int mAvailable;
+        //尺寸不受限制, 需要布局所有item
+        boolean mInfinite;
+
+        boolean hasMore(RecyclerView.State state) {
+            return mCurrentPosition >= 0 && mCurrentPosition < state.getItemCount();
+        }
+
+        View next(Recycler recycler) {
+            final View view = recycler.getViewForPosition(mCurrentPosition);
+            mCurrentPosition += mItemDirection;
+            return view;
+        }
+    }
+
+    public static class SavedState implements Parcelable {
+        int mAnchorPosition;
+        //锚点所在span的线到锚点那一边(反向布局时是末尾)的距离
+        int mAnchorOffset;
+        //每个span的线到锚点那一边的距离, 空的span是INVALID_LINE; 没有保存分配时是null
+        int[] mSpanOffsets;
+        int mSpanCount;
+        //每个位置分配到的span, item太多时是null
+        int[] mSpanLookup;
+        boolean mReverseLayout;
+
+        public SavedState() {
+        }
+
+        SavedState(Parcel in) {
+            mAnchorPosition = in.readInt();
+            mAnchorOffset = in.readInt();
+            mSpanOffsets = in.createIntArray();
+            mSpanCount = in.readInt();
+            mSpanLookup = in.createIntArray();
+            mReverseLayout = in.readInt() == 1;
+        }
+
+        public SavedState(SavedState other) {
+            mAnchorPosition = other.mAnchorPosition;
+            mAnchorOffset = other.mAnchorOffset;
+            mSpanOffsets = other.mSpanOffsets;
+            mSpanCount = other.mSpanCount;
+            mSpanLookup = other.mSpanLookup;
+            mReverseLayout = other.mReverseLayout;
+        }
+
+        boolean hasValidAnchor() {
+            return mAnchorPosition >= 0;
+        }
+
+        void invalidateAnchor() {
+            mAnchorPosition = RecyclerView.NO_POSITION;
+            mSpanOffsets = null;
+        }
+
+        @Override
+        public int describeContents() {
+            return 0;
+        }
+
+        @Override
+        public void writeToParcel(Parcel dest, int flags) {
+            dest.writeInt(mAnchorPosition);
+            dest.writeInt(mAnchorOffset);
+            dest.writeIntArray(mSpanOffsets);
+            dest.writeInt(mSpanCount);
+            dest.writeIntArray(mSpanLookup);
+            dest.writeInt(mReverseLayout ? 1 : 0);
+        }
+
+        public static final Creator<SavedState> CREATOR = new Creator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(Parcel in) {
+                return new SavedState(in);
+            }
+
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
+    }
+}
@@ -68,6 +68,11 @@ public class ViewBoundsCheck {
     final Callback mCallback;
     BoundFlags mBoundFlags;
 
+    //findOneViewWithinBoundFlagsSorted查找过程中的状态, 避免分配对象
+    private int mSortedLow, mSortedHigh;
+    private boolean mSortedAscending;
+    private int mRangeStart, mRangeEnd;
+
     /**
      * The set of flags that can be passed for checking the view boundary conditions.
      * CVS in the flag name indicates the child view, and PV indicates the parent view.\
@@ -167,29 +172,165 @@ public class ViewBoundsCheck {
         final int start = mCallback.getParentStart();
         final int end = mCallback.getParentEnd();
         final int next = toIndex > fromIndex ? 1 : -1;
-        View acceptableMatch = null;
+        int acceptableMatch = -1;
         for (int i = fromIndex; i != toIndex; i += next) {
-            final View child = mCallback.getChildAt(i);
-            final int childStart = mCallback.getChildStart(child);
-            final int childEnd = mCallback.getChildEnd(child);
+            final int childStart = mCallback.getChildStartAt(i);
+            final int childEnd = mCallback.getChildEndAt(i);
             mBoundFlags.setBounds(start, end, childStart, childEnd);
             if (preferredBoundFlags != 0) {
                 mBoundFlags.resetFlags();
                 mBoundFlags.addFlags(preferredBoundFlags);
                 if (mBoundFlags.boundsMatch()) {
                     // found a perfect match
-                    return child;
+                    return mCallback.getChildAt(i);
                 }
             }
             if (acceptableBoundFlags != 0) {
                 mBoundFlags.resetFlags();
                 mBoundFlags.addFlags(acceptableBoundFlags);
                 if (mBoundFlags.boundsMatch()) {
-                    acceptableMatch = child;
+                    acceptableMatch = i;
                 }
             }
         }
-        return acceptableMatch;
+        return acceptableMatch == -1 ? null : mCallback.getChildAt(acceptableMatch);
+    }
+
+    /**
+     * 和{@link #findOneViewWithinBoundFlags(int, int, int, int)}结果相同, 但要求[fromIndex, toIndex)中的
+     * 子View沿检查的方向排好序(start和end都随index单调递增或单调递减), 例如线性和网格布局的滚动方向。
+     * <p>
+     * 子View排好序时, 每一组比较(例如"子View的start >= 父View的start")满足条件的子View都是连续的一段,
+     * 二分查找出每一组的区间再求交集, 只需要O(log n)次{@link Callback#getChildStartAt(int)}/
+     * {@link Callback#getChildEndAt(int)}。某一组只允许"大于或小于"时区间不连续, 退回到逐个检查。
+     * <p>
+     * ItemDecoration的偏移等原因可能让子View并没有排好序: 两端的start和end变化方向不一致, 或者找到的子View
+     * 不满足条件、遍历顺序上相邻的那个也满足条件时, 同样退回到逐个检查
+     */
+    @Nullable
+    public View findOneViewWithinBoundFlagsSorted(int fromIndex, int toIndex,
+                                                  @ViewBounds int preferredBoundFlags,
+                                                  @ViewBounds int acceptableBoundFlags) {
+        if (fromIndex == toIndex) {
+            return null;
+        }
+        if (!isContiguous(preferredBoundFlags) || !isContiguous(acceptableBoundFlags)) {
+            return findOneViewWithinBoundFlags(fromIndex, toIndex, preferredBoundFlags,
+                    acceptableBoundFlags);
+        }
+        final boolean forward = toIndex > fromIndex;
+        final int low = forward ? fromIndex : toIndex + 1;
+        final int high = forward ? toIndex - 1 : fromIndex;
+        mSortedLow = low;
+        mSortedHigh = high;
+        final int lowStart = mCallback.getChildStartAt(low);
+        final int highStart = mCallback.getChildStartAt(high);
+        final int lowEnd = mCallback.getChildEndAt(low);
+        final int highEnd = mCallback.getChildEndAt(high);
+        if ((lowStart < highStart && lowEnd > highEnd)
+                || (lowStart > highStart && lowEnd < highEnd)) {
+            // start和end的变化方向不一致, 没有排好序
+            return findOneViewWithinBoundFlags(fromIndex, toIndex, preferredBoundFlags,
+                    acceptableBoundFlags);
+        }
+        // start相同时(例如尺寸为0的子View)用end判断方向
+        mSortedAscending = lowStart != highStart ? lowStart < highStart : lowEnd <= highEnd;
+        // 遍历顺序和坐标递增的方向是否一致
+        final boolean increasing = forward == mSortedAscending;
+        final int next = forward ? 1 : -1;
+        if (preferredBoundFlags != 0 && findMatchRange(preferredBoundFlags)) {
+            final int index = getSortedIndex(increasing ? mRangeStart : mRangeEnd - 1);
+            // 遍历顺序上的第一个: 前一个不应该满足条件
+            if (!matchesAt(index, preferredBoundFlags)
+                    || (index != fromIndex && matchesAt(index - next, preferredBoundFlags))) {
+                return findOneViewWithinBoundFlags(fromIndex, toIndex, preferredBoundFlags,
+                        acceptableBoundFlags);
+            }
+            return mCallback.getChildAt(index);
+        }
+        if (acceptableBoundFlags != 0 && findMatchRange(acceptableBoundFlags)) {
+            // 和逐个检查一样, 返回遍历顺序上最后一个满足条件的: 后一个不应该满足条件
+            final int index = getSortedIndex(increasing ? mRangeEnd - 1 : mRangeStart);
+            if (!matchesAt(index, acceptableBoundFlags)
+                    || (index + next != toIndex && matchesAt(index + next, acceptableBoundFlags))) {
+                return findOneViewWithinBoundFlags(fromIndex, toIndex, preferredBoundFlags,
+                        acceptableBoundFlags);
+            }
+            return mCallback.getChildAt(index);
+        }
+        return null;
+    }
+
+    //第index个子View是否满足flags
+    private boolean matchesAt(int index, int flags) {
+        mBoundFlags.setBounds(mCallback.getParentStart(), mCallback.getParentEnd(),
+                mCallback.getChildStartAt(index), mCallback.getChildEndAt(index));
+        mBoundFlags.resetFlags();
+        mBoundFlags.addFlags(flags);
+        return mBoundFlags.boundsMatch();
+    }
+
+    //每一组允许的比较结果都是连续的(不是只有GT和LT)
+    private static boolean isContiguous(int flags) {
+        for (int pos = CVS_PVS_POS; pos <= CVE_PVE_POS; pos += 4) {
+            if (((flags >> pos) & MASK) == (GT | LT)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 求满足flags的子View区间, 按坐标递增的顺序编号, 结果保存在[mRangeStart, mRangeEnd)
+     *
+     * @return 区间是否非空
+     */
+    private boolean findMatchRange(int flags) {
+        final int count = mSortedHigh - mSortedLow + 1;
+        int rangeStart = 0;
+        int rangeEnd = count;
+        for (int pos = CVS_PVS_POS; pos <= CVE_PVE_POS && rangeStart < rangeEnd; pos += 4) {
+            final int bits = (flags >> pos) & MASK;
+            if (bits == 0) {
+                continue;
+            }
+            final boolean childEnd = pos == CVE_PVS_POS || pos == CVE_PVE_POS;
+            final int target = (pos == CVS_PVS_POS || pos == CVE_PVS_POS)
+                    ? mCallback.getParentStart() : mCallback.getParentEnd();
+            // [0, lower)小于target, [lower, upper)等于target, [upper, count)大于target
+            final int lower = lowerBound(count, childEnd, target, false);
+            final int upper = lowerBound(count, childEnd, target, true);
+            final int start = (bits & LT) != 0 ? 0 : (bits & EQ) != 0 ? lower : upper;
+            final int end = (bits & GT) != 0 ? count : (bits & EQ) != 0 ? upper : lower;
+            rangeStart = Math.max(rangeStart, start);
+            rangeEnd = Math.min(rangeEnd, end);
+        }
+        mRangeStart = rangeStart;
+        mRangeEnd = rangeEnd;
+        return rangeStart < rangeEnd;
+    }
+
+    //第一个坐标 >= target (strict时 > target)的编号, 都不满足时返回count
+    private int lowerBound(int count, boolean childEnd, int target, boolean strict) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            final int index = getSortedIndex(mid);
+            final int value = childEnd ? mCallback.getChildEndAt(index)
+                    : mCallback.getChildStartAt(index);
+            if (strict ? value > target : value >= target) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    //按坐标递增顺序的第rank个子View的index
+    private int getSortedIndex(int rank) {
+        return mSortedAscending ? mSortedLow + rank : mSortedHigh - rank;
     }
 
     //返回View和父view, 是否满足 boundsFlags 的条件
@@ -215,5 +356,11 @@ public class ViewBoundsCheck {
         int getChildStart(View view);
 
         int getChildEnd(View view);
+
+        //第index个子View的start, 可以从缓存的快照读取
+        int getChildStartAt(int index);
+
+        //第index个子View的end
+        int getChildEndAt(int index);
     }
 }
@@ -17,6 +17,14 @@ public abstract class Adapter<VH extends ViewHolder> {
     //某一position对应的ID是否固定不变
     private boolean mHasStableIds = false;
     private StateRestorationPolicy mStateRestorationPolicy = StateRestorationPolicy.ALLOW;
+    //开启准备阶段之后才不为null
+    @Nullable
+    ItemPreparer mItemPreparer;
+    //通过key生成稳定id时使用
+    @Nullable
+    private StableIdMapper mStableIdMapper;
+    //是否分阶段绑定
+    private boolean mPhasedBindEnabled = false;
 
     /**
      * 创建一个给定类型的新ViewHolder
@@ -37,6 +45,118 @@ public abstract class Adapter<VH extends ViewHolder> {
         onBindViewHolder(holder, position);
     }
 
+    /**
+     * 局部更新, changeMask是{@link #notifyItemRangeChangedMask(int, int, long)}传入的掩码按位或的结果
+     * 只更新掩码对应的子View即可, 默认实现做完整绑定
+     */
+    public void onBindViewHolder(@NonNull VH holder, int position, long changeMask) {
+        onBindViewHolder(holder, position);
+    }
+
+
+    /**
+     * 准备阶段的输入, 在主线程调用: 返回position处item的不可变快照, 之后交给工作线程上的
+     * {@link #onPrepareItem(Object)}。工作线程不再读取position, 执行前数据发生结构变化也不会读错item
+     *
+     * @return item的快照, 返回null表示这个item不需要准备
+     */
+    @Nullable
+    public Object getItemSnapshot(int position) {
+        return null;
+    }
+
+    /**
+     * 准备阶段, 在工作线程上执行, 不能访问View, 也不能访问Adapter中可变的数据
+     * 适合提前做文字排版、日期格式化、span构建之类的纯计算, 结果会在绑定时交给
+     * {@link #onBindPreparedViewHolder(ViewHolder, int, Object)}
+     *
+     * @param itemSnapshot {@link #getItemSnapshot(int)}返回的快照
+     * @return 准备好的结果, 返回null表示不需要准备
+     */
+    @Nullable
+    public Object onPrepareItem(@NonNull Object itemSnapshot) {
+        return null;
+    }
+
+    /**
+     * 带有{@link #onPrepareItem(Object)}结果的完整绑定, 默认忽略preparedModel做普通绑定
+     */
+    public void onBindPreparedViewHolder(@NonNull VH holder, int position,
+                                         @NonNull Object preparedModel) {
+        onBindViewHolder(holder, position);
+    }
+
+    /**
+     * 分阶段绑定的第二阶段: 绑定次要内容(第二张图片、富文本等)
+     * <p>
+     * 开启{@link #setPhasedBindEnabled(boolean)}之后, onBindViewHolder只需要绑定主要内容,
+     * 这个方法会在之后主线程空闲时调用; 如果ViewHolder在此之前被重新绑定或回收, 则不会调用
+     */
+    public void onBindViewHolderDeferred(@NonNull VH holder, int position) {
+    }
+
+    /**
+     * 开启分阶段绑定, 预取和滑动时只需要在帧预算内完成主要内容的绑定
+     */
+    public final void setPhasedBindEnabled(boolean enabled) {
+        mPhasedBindEnabled = enabled;
+    }
+
+    public final boolean isPhasedBindEnabled() {
+        return mPhasedBindEnabled;
+    }
+
+    /**
+     * 执行ViewHolder等待中的第二阶段绑定
+     *
+     * @return 是否执行了
+     */
+    @SuppressWarnings("unchecked")
+    static boolean dispatchDeferredBind(@NonNull ViewHolder holder) {
+        if (!holder.hasAnyOfTheFlags(ViewHolder.FLAG_DEFERRED_BIND_PENDING)) {
+            return false;
+        }
+        holder.setFlags(0, ViewHolder.FLAG_DEFERRED_BIND_PENDING);
+        final Adapter<ViewHolder> adapter = (Adapter<ViewHolder>) holder.mBindingAdapter;
+        if (adapter == null || !holder.isBound() || holder.isInvalid() || holder.needsUpdate()
+                || holder.isRemoved()) {
+            return false;
+        }
+        final int position = holder.getBindingAdapterPosition();
+        if (position == RecyclerView.NO_POSITION) {
+            return false;
+        }
+        TraceCompat.beginSection("TRACE_DEFERRED_BIND_VIEW_TAG");
+        try {
+            adapter.onBindViewHolderDeferred(holder, position);
+        } finally {
+            TraceCompat.endSection();
+        }
+        return true;
+    }
+
+    /**
+     * 开启准备阶段: LayoutManager报告的预取位置会在工作线程上执行{@link #onPrepareItem(Object)},
+     * 结果按item id保存在最多maxPreparedItems个元素的LRU中, 因此要求Adapter有稳定的id
+     */
+    public final void setItemPrepareEnabled(boolean enabled, int maxPreparedItems) {
+        if (enabled == (mItemPreparer != null)) {
+            return;
+        }
+        if (enabled) {
+            if (!hasStableIds()) {
+                throw new IllegalStateException("Item prepare requires stable ids");
+            }
+            if (maxPreparedItems <= 0) {
+                throw new IllegalArgumentException("maxPreparedItems must be positive");
+            }
+            mItemPreparer = new ItemPreparer(this, maxPreparedItems);
+            registerAdapterDataObserver(mItemPreparer);
+        } else {
+            unregisterAdapterDataObserver(mItemPreparer);
+            mItemPreparer = null;
+        }
+    }
 
     /**
      * 创建一个新的ViewHolder，并初始化一些供RecyclerView使用的私有字段。
@@ -62,29 +182,110 @@ public abstract class Adapter<VH extends ViewHolder> {
     public final void bindViewHolder(@NonNull VH holder, int position) {
         //给定的viewHolder现在没有绑定在任何adapter上
         boolean rootBind = holder.mBindingAdapter == null;
+        // 只有完整绑定才需要第二阶段; 局部更新时保留之前还没执行的第二阶段
+        final boolean needsDeferredBind = holder.isDeferredBindPending()
+                || (holder.getChangeMask() == 0 && holder.getUnmodifiedPayloads().isEmpty());
         if (rootBind) {
-            holder.mPosition = position;
-            if (hasStableIds()) {
-                holder.mItemId = getItemId(position);
-            }
-            holder.setFlags(ViewHolder.FLAG_BOUND,
-                    ViewHolder.FLAG_BOUND | ViewHolder.FLAG_UPDATE | ViewHolder.FLAG_INVALID
-                            | ViewHolder.FLAG_ADAPTER_POSITION_UNKNOWN);
+            onPreRootBind(holder, position);
             TraceCompat.beginSection("TRACE_BIND_VIEW_TAG");
         }
         //绑定到当前adapter上
         holder.mBindingAdapter = this;
-        onBindViewHolder(holder, position, holder.getUnmodifiedPayloads());
+        dispatchBindViewHolder(holder, position);
+        if (mPhasedBindEnabled && needsDeferredBind) {
+            holder.addFlags(ViewHolder.FLAG_DEFERRED_BIND_PENDING);
+        }
         if (rootBind) {
-            holder.clearPayload();
-            final ViewGroup.LayoutParams layoutParams = holder.itemView.getLayoutParams();
-            if (layoutParams instanceof RecyclerView.LayoutParams) {
-                ((RecyclerView.LayoutParams) layoutParams).mInsetsDirty = true;
-            }
+            onPostRootBind(holder);
             TraceCompat.endSection();
         }
     }
 
+    /**
+     * 一次绑定多个ViewHolder, holders.get(i)绑定到positions[i]
+     * 只有RecyclerView直接持有的Adapter会被这样调用, 整批只有一个trace区间
+     */
+    public final void bindViewHolders(@NonNull List<VH> holders, @NonNull int[] positions) {
+        final int count = holders.size();
+        if (positions.length < count) {
+            throw new IllegalArgumentException("positions.length " + positions.length
+                    + " is smaller than holder count " + count);
+        }
+        for (int i = 0; i < count; i++) {
+            final VH holder = holders.get(i);
+            onPreRootBind(holder, positions[i]);
+            holder.mBindingAdapter = this;
+        }
+        TraceCompat.beginSection("TRACE_BIND_VIEW_TAG");
+        try {
+            onBindViewHolders(holders, positions);
+        } finally {
+            TraceCompat.endSection();
+        }
+        for (int i = 0; i < count; i++) {
+            final VH holder = holders.get(i);
+            // 批量绑定的都是完整绑定
+            if (mPhasedBindEnabled) {
+                holder.addFlags(ViewHolder.FLAG_DEFERRED_BIND_PENDING);
+            }
+            onPostRootBind(holder);
+        }
+    }
+
+    /**
+     * 批量绑定, 适合需要从数据库/缓存中查数据的Adapter把多次查询合并成一次
+     * 传进来的ViewHolder都需要完整绑定, 不带payload
+     * 默认实现逐个调用onBindViewHolder
+     */
+    public void onBindViewHolders(@NonNull List<VH> holders, @NonNull int[] positions) {
+        final int count = holders.size();
+        for (int i = 0; i < count; i++) {
+            dispatchBindViewHolder(holders.get(i), positions[i]);
+        }
+    }
+
+    //根据payload的类型选择对应的onBindViewHolder
+    private void dispatchBindViewHolder(@NonNull VH holder, int position) {
+        final long changeMask = holder.getChangeMask();
+        if (changeMask == 0) {
+            final List<Object> payloads = holder.getUnmodifiedPayloads();
+            if (payloads.isEmpty() && mItemPreparer != null) {
+                // 完整绑定时优先使用准备好的结果
+                final Object preparedModel = mItemPreparer.consume(getItemId(position));
+                if (preparedModel != null) {
+                    onBindPreparedViewHolder(holder, position, preparedModel);
+                    return;
+                }
+            }
+            onBindViewHolder(holder, position, payloads);
+        } else if (!holder.hasPayloads()) {
+            onBindViewHolder(holder, position, changeMask);
+        } else {
+            // 掩码和普通payload混用时无法只走其中一条局部更新的路径, 直接完整绑定
+            onBindViewHolder(holder, position);
+        }
+    }
+
+    private void onPreRootBind(@NonNull VH holder, int position) {
+        holder.mPosition = position;
+        if (hasStableIds()) {
+            holder.mItemId = getItemId(position);
+        }
+        holder.mMeasurementKey = getMeasurementKey(position);
+        holder.setFlags(ViewHolder.FLAG_BOUND,
+                ViewHolder.FLAG_BOUND | ViewHolder.FLAG_UPDATE | ViewHolder.FLAG_INVALID
+                        | ViewHolder.FLAG_ADAPTER_POSITION_UNKNOWN
+                        | ViewHolder.FLAG_DEFERRED_BIND_PENDING);
+    }
+
+    private void onPostRootBind(@NonNull VH holder) {
+        holder.clearPayload();
+        final ViewGroup.LayoutParams layoutParams = holder.itemView.getLayoutParams();
+        if (layoutParams instanceof RecyclerView.LayoutParams) {
+            ((RecyclerView.LayoutParams) layoutParams).mInsetsDirty = true;
+        }
+    }
+
     /**
      * 返回位置上项目的视图类型
      */
@@ -92,6 +293,14 @@ public abstract class Adapter<VH extends ViewHolder> {
         return 0;
     }
 
+    /**
+     * 返回位置上内容的测量key: key相同(并且viewType相同)的item在相同的MeasureSpec下测量结果一定相同,
+     * LayoutManager重新绑定后可以复用之前的测量结果。默认{@link RecyclerView#NO_ID}, 不缓存
+     */
+    public long getMeasurementKey(int position) {
+        return RecyclerView.NO_ID;
+    }
+
     public void setHasStableIds(boolean hasStableIds) {
         if (hasObservers()) {
             throw new IllegalStateException("Cannot change whether this adapter has "
@@ -102,13 +311,53 @@ public abstract class Adapter<VH extends ViewHolder> {
 
     /**
      * 返回项目在位置的稳定ID。只有hasStableIds()==false时生效
+     * 开启了{@link #setHasKeyBasedStableIds()}时, 默认由{@link #getItemKey(int)}映射得到
      */
     public long getItemId(int position) {
+        if (mStableIdMapper != null) {
+            final Object key = getItemKey(position);
+            return key == null ? RecyclerView.NO_ID : mStableIdMapper.getId(key);
+        }
         return -1;
     }
 
+    /**
+     * 位置上item的key, 只在开启{@link #setHasKeyBasedStableIds()}之后使用
+     * 需要正确实现equals和hashCode, 相同的key会得到相同的稳定id
+     */
+    @Nullable
+    public Object getItemKey(int position) {
+        return null;
+    }
+
+    /**
+     * 开启基于key的稳定id: 不需要自己实现getItemId, 只要提供{@link #getItemKey(int)},
+     * 每个key会被分配一个稠密的64位id, 替换数据之后同一个key的id保持不变
+     * 和{@link #setHasStableIds(boolean)}一样, 必须在注册observer之前调用
+     */
+    public final void setHasKeyBasedStableIds() {
+        setHasStableIds(true);
+        if (mStableIdMapper == null) {
+            mStableIdMapper = new StableIdMapper();
+        }
+    }
+
     public abstract int getItemCount();
 
+    /**
+     * 把本Adapter中的位置localPosition换算成viewHolder在adapter中的位置
+     * 只有组合了其他Adapter的Adapter(例如{@link ConcatAdapter})需要重写
+     *
+     * @return adapter中的位置, viewHolder不是由adapter绑定的时候返回{@link RecyclerView#NO_POSITION}
+     */
+    public int findRelativeAdapterPositionIn(@NonNull Adapter<? extends ViewHolder> adapter,
+                                             @NonNull ViewHolder viewHolder, int localPosition) {
+        if (adapter == this) {
+            return localPosition;
+        }
+        return RecyclerView.NO_POSITION;
+    }
+
     public final boolean hasStableIds() {
         return mHasStableIds;
     }
@@ -340,6 +589,27 @@ public abstract class Adapter<VH extends ViewHolder> {
         mObservable.notifyItemRangeChanged(positionStart, itemCount, payload);
     }
 
+    /**
+     * 用位掩码描述item的哪些部分发生了变化, 多次通知会按位或合并,
+     * 重新绑定时通过{@link #onBindViewHolder(ViewHolder, int, long)}收到合并后的掩码
+     * <p>
+     * 和Object形式的payload不同, 这里不会装箱也不会往ViewHolder的payload列表里添加元素
+     *
+     * @param changeMask 不能为0
+     */
+    public final void notifyItemRangeChangedMask(int positionStart, int itemCount,
+                                                 long changeMask) {
+        if (changeMask == 0) {
+            throw new IllegalArgumentException("changeMask must not be 0");
+        }
+        mObservable.notifyItemRangeChanged(positionStart, itemCount,
+                ChangeMask.obtain(changeMask));
+    }
+
+    public final void notifyItemChangedMask(int position, long changeMask) {
+        notifyItemRangeChangedMask(position, 1, changeMask);
+    }
+
     /**
      * Notify any registered observers that the item reflected at <code>position</code>
      * has been newly inserted. The item previously at <code>position</code> is now at
@@ -389,6 +659,16 @@ public abstract class Adapter<VH extends ViewHolder> {
         mObservable.notifyItemRangeInserted(positionStart, itemCount);
     }
 
+    /**
+     * 只在末尾追加了itemCount个item, positionStart必须等于追加之前的item数量
+     * <p>
+     * 和{@link #notifyItemRangeInserted(int, int)}相比, RecyclerView知道已有item的位置都没有变化,
+     * 可以跳过位置偏移和pre-layout; 可见窗口不在末尾时甚至不需要重新布局
+     */
+    public final void notifyItemRangeAppended(int positionStart, int itemCount) {
+        mObservable.notifyItemRangeAppended(positionStart, itemCount);
+    }
+
     /**
      * Notify any registered observers that the item previously located at <code>position</code>
      * has been removed from the data set. The items previously located at and after
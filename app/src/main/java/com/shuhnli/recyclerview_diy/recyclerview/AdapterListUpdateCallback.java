@@ -0,0 +1,37 @@
+package com.shuhnli.recyclerview_diy.recyclerview;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * 把列表更新事件转换成Adapter的notifyItemRange*调用
+ * 必须在主线程使用
+ */
+public final class AdapterListUpdateCallback implements ListUpdateCallback {
+    @NonNull
+    private final Adapter mAdapter;
+
+    public AdapterListUpdateCallback(@NonNull Adapter adapter) {
+        mAdapter = adapter;
+    }
+
+    @Override
+    public void onInserted(int position, int count) {
+        mAdapter.notifyItemRangeInserted(position, count);
+    }
+
+    @Override
+    public void onRemoved(int position, int count) {
+        mAdapter.notifyItemRangeRemoved(position, count);
+    }
+
+    @Override
+    public void onMoved(int fromPosition, int toPosition) {
+        mAdapter.notifyItemMoved(fromPosition, toPosition);
+    }
+
+    @Override
+    public void onChanged(int position, int count, @Nullable Object payload) {
+        mAdapter.notifyItemRangeChanged(position, count, payload);
+    }
+}
@@ -0,0 +1,183 @@
+package com.shuhnli.recyclerview_diy.recyclerview;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 在后台线程计算新旧列表的差异, 再回到主线程把结果分发给Adapter
+ * <p>
+ * 每次{@link #submitList(List)}都会生成一个新的版本号, 旧版本的计算在下一个检查点被放弃,
+ * 旧版本的结果即使算完了也会被丢弃, 所以连续快速提交时只有最后一次会生效。
+ * <p>
+ * 提交进来的列表不能再被修改。
+ */
+public class AsyncListDiffer<T> {
+
+    //所有实例共享的后台线程
+    private static final Object sExecutorLock = new Object();
+    private static Executor sDiffExecutor = null;
+
+    private final ListUpdateCallback mUpdateCallback;
+    private final DiffUtil.ItemCallback<T> mItemCallback;
+    private final Executor mBackgroundExecutor;
+    private final Executor mMainThreadExecutor;
+
+    @Nullable
+    private List<T> mList;
+
+    //只读视图, 对外暴露
+    @NonNull
+    private List<T> mReadOnlyList = Collections.emptyList();
+
+    //最近一次提交的版本号, 后台线程通过它判断自己是否已经过期
+    final AtomicInteger mMaxScheduledGeneration = new AtomicInteger();
+
+    public AsyncListDiffer(@NonNull Adapter adapter, @NonNull DiffUtil.ItemCallback<T> itemCallback) {
+        this(new AdapterListUpdateCallback(adapter), itemCallback, null);
+    }
+
+    /**
+     * @param backgroundExecutor 计算差异的线程池, 传null时使用共享的后台线程池
+     */
+    public AsyncListDiffer(@NonNull ListUpdateCallback listUpdateCallback,
+                           @NonNull DiffUtil.ItemCallback<T> itemCallback,
+                           @Nullable Executor backgroundExecutor) {
+        mUpdateCallback = listUpdateCallback;
+        mItemCallback = itemCallback;
+        if (backgroundExecutor == null) {
+            synchronized (sExecutorLock) {
+                if (sDiffExecutor == null) {
+                    sDiffExecutor = Executors.newFixedThreadPool(2, new ThreadFactory() {
+                        private int mCount = 0;
+
+                        @Override
+                        public Thread newThread(@NonNull Runnable r) {
+                            final Thread thread = new Thread(r, "RV-Diff-" + (mCount++));
+                            // 不能因为还有diff线程阻止进程退出
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+                }
+            }
+            backgroundExecutor = sDiffExecutor;
+        }
+        mBackgroundExecutor = backgroundExecutor;
+        mMainThreadExecutor = new MainThreadExecutor();
+    }
+
+    /**
+     * 当前正在展示的列表, 不可修改
+     */
+    @NonNull
+    public List<T> getCurrentList() {
+        return mReadOnlyList;
+    }
+
+    public void submitList(@Nullable final List<T> newList) {
+        submitList(newList, null);
+    }
+
+    /**
+     * 提交一个新列表, 差异在后台计算, 结果在主线程分发
+     *
+     * @param commitCallback 新列表生效之后在主线程回调, 如果这次提交被后面的提交覆盖了则不会回调
+     */
+    public void submitList(@Nullable final List<T> newList,
+                           @Nullable final Runnable commitCallback) {
+        final int runGeneration = mMaxScheduledGeneration.incrementAndGet();
+
+        if (newList == mList) {
+            // 同一个列表, 什么都不用做
+            if (commitCallback != null) {
+                commitCallback.run();
+            }
+            return;
+        }
+
+        // 清空
+        if (newList == null) {
+            final int countRemoved = mList.size();
+            mList = null;
+            mReadOnlyList = Collections.emptyList();
+            mUpdateCallback.onRemoved(0, countRemoved);
+            onCurrentListChanged(commitCallback);
+            return;
+        }
+
+        // 第一次设置, 直接插入, 不需要计算
+        if (mList == null) {
+            mList = newList;
+            mReadOnlyList = Collections.unmodifiableList(newList);
+            mUpdateCallback.onInserted(0, newList.size());
+            onCurrentListChanged(commitCallback);
+            return;
+        }
+
+        final List<T> oldList = mList;
+        mBackgroundExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final DiffUtil.DiffResult result;
+                try {
+                    result = DiffUtil.calculateDiff(oldList, newList, mItemCallback, true,
+                            new DiffUtil.CancellationSignal() {
+                                @Override
+                                public boolean isCanceled() {
+                                    return mMaxScheduledGeneration.get() != runGeneration;
+                                }
+                            });
+                } catch (CancellationException e) {
+                    // 已经有更新的列表提交了, 这次计算作废
+                    return;
+                }
+
+                mMainThreadExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (mMaxScheduledGeneration.get() == runGeneration) {
+                            latchList(newList, result, commitCallback);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    void latchList(@NonNull List<T> newList, @NonNull DiffUtil.DiffResult diffResult,
+                   @Nullable Runnable commitCallback) {
+        mList = newList;
+        mReadOnlyList = Collections.unmodifiableList(newList);
+        diffResult.dispatchUpdatesTo(mUpdateCallback);
+        onCurrentListChanged(commitCallback);
+    }
+
+    private void onCurrentListChanged(@Nullable Runnable commitCallback) {
+        if (commitCallback != null) {
+            commitCallback.run();
+        }
+    }
+
+    private static class MainThreadExecutor implements Executor {
+        final Handler mHandler = new Handler(Looper.getMainLooper());
+
+        MainThreadExecutor() {
+        }
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            mHandler.post(command);
+        }
+    }
+}
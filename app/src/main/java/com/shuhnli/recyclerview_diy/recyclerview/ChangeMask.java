@@ -0,0 +1,33 @@
+package com.shuhnli.recyclerview_diy.recyclerview;
+
+/**
+ * 位掩码形式的payload, 由{@link Adapter#notifyItemRangeChangedMask(int, int, long)}产生
+ * <p>
+ * 和普通payload走同一条通知链路, 但到达ViewHolder时不会进入payload列表,
+ * 而是直接OR到{@link ViewHolder#mChangeMask}上。
+ * 最近使用的掩码缓存在固定大小的表里共享实例, 稳定运行后不会再有分配, 内存也不会随掩码种类增长。
+ */
+final class ChangeMask {
+    private static final int CACHE_SIZE = 64;
+    private static final int CACHE_MASK = CACHE_SIZE - 1;
+    //直接映射的缓存, 冲突时覆盖旧的实例, 只在主线程访问
+    private static final ChangeMask[] sCache = new ChangeMask[CACHE_SIZE];
+
+    final long mMask;
+
+    private ChangeMask(long mask) {
+        mMask = mask;
+    }
+
+    static ChangeMask obtain(long mask) {
+        int hash = (int) (mask ^ (mask >>> 32));
+        hash ^= (hash >>> 16);
+        final int index = hash & CACHE_MASK;
+        ChangeMask changeMask = sCache[index];
+        if (changeMask == null || changeMask.mMask != mask) {
+            changeMask = new ChangeMask(mask);
+            sCache[index] = changeMask;
+        }
+        return changeMask;
+    }
+}
@@ -0,0 +1,345 @@
+package com.shuhnli.recyclerview_diy.recyclerview;
+
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.shuhnli.recyclerview_diy.utils.FenwickTree;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * 把多个Adapter按顺序拼接成一个Adapter
+ * <p>
+ * 用树状数组维护每个子Adapter的item数量的前缀和:
+ * 1. 全局位置 -> (子Adapter, 局部位置) 的查找是O(log k), k为子Adapter的数量
+ * 2. 子Adapter的notifyItemRange*事件直接加上它的偏移量转成全局位置, 不需要重新扫描
+ * <p>
+ * 每个子Adapter的viewType都被映射到独立的全局viewType, 不同子Adapter之间不会共享ViewHolder
+ */
+public final class ConcatAdapter extends Adapter<ViewHolder> {
+
+    private final List<ChildAdapter> mChildren = new ArrayList<>();
+    //每个子Adapter的item数量
+    private final FenwickTree mItemCounts = new FenwickTree();
+
+    //全局viewType -> 子Adapter
+    private final SparseArray<ChildAdapter> mGlobalTypeOwners = new SparseArray<>();
+    //全局viewType -> 子Adapter中的viewType
+    private final SparseIntArray mGlobalToLocalType = new SparseIntArray();
+    private int mNextViewType = 0;
+
+    //ViewHolder -> 绑定它的子Adapter
+    private final IdentityHashMap<ViewHolder, ChildAdapter> mBinderLookup = new IdentityHashMap<>();
+
+    private final List<WeakReference<RecyclerView>> mAttachedRecyclerViews = new ArrayList<>();
+
+    //findChild的输出, 只在主线程使用
+    private int mLocalPosition;
+
+    @SafeVarargs
+    public ConcatAdapter(@NonNull Adapter<? extends ViewHolder>... adapters) {
+        for (Adapter<? extends ViewHolder> adapter : adapters) {
+            addAdapter(adapter);
+        }
+    }
+
+    /**
+     * 添加到末尾
+     */
+    public boolean addAdapter(@NonNull Adapter<? extends ViewHolder> adapter) {
+        return addAdapter(mChildren.size(), adapter);
+    }
+
+    /**
+     * 在index处添加一个子Adapter, 同一个Adapter只能添加一次
+     */
+    public boolean addAdapter(int index, @NonNull Adapter<? extends ViewHolder> adapter) {
+        if (index < 0 || index > mChildren.size()) {
+            throw new IndexOutOfBoundsException("Index must be between 0 and "
+                    + mChildren.size() + ". Given:" + index);
+        }
+        if (indexOfAdapter(adapter) != -1) {
+            return false;
+        }
+        final ChildAdapter child = new ChildAdapter(adapter);
+        mChildren.add(index, child);
+        for (int i = index; i < mChildren.size(); i++) {
+            mChildren.get(i).mIndex = i;
+        }
+        mItemCounts.insert(index, child.mItemCount);
+        adapter.registerAdapterDataObserver(child);
+        for (WeakReference<RecyclerView> reference : mAttachedRecyclerViews) {
+            final RecyclerView recyclerView = reference.get();
+            if (recyclerView != null) {
+                adapter.onAttachedToRecyclerView(recyclerView);
+            }
+        }
+        if (child.mItemCount > 0) {
+            notifyItemRangeInserted((int) mItemCounts.prefixSum(index), child.mItemCount);
+        }
+        return true;
+    }
+
+    public boolean removeAdapter(@NonNull Adapter<? extends ViewHolder> adapter) {
+        final int index = indexOfAdapter(adapter);
+        if (index == -1) {
+            return false;
+        }
+        final ChildAdapter child = mChildren.get(index);
+        final int offset = (int) mItemCounts.prefixSum(index);
+        mChildren.remove(index);
+        for (int i = index; i < mChildren.size(); i++) {
+            mChildren.get(i).mIndex = i;
+        }
+        mItemCounts.remove(index);
+        child.mIndex = -1;
+        adapter.unregisterAdapterDataObserver(child);
+        for (WeakReference<RecyclerView> reference : mAttachedRecyclerViews) {
+            final RecyclerView recyclerView = reference.get();
+            if (recyclerView != null) {
+                adapter.onDetachedFromRecyclerView(recyclerView);
+            }
+        }
+        if (child.mItemCount > 0) {
+            notifyItemRangeRemoved(offset, child.mItemCount);
+        }
+        return true;
+    }
+
+    @NonNull
+    public List<Adapter<? extends ViewHolder>> getAdapters() {
+        final List<Adapter<? extends ViewHolder>> adapters = new ArrayList<>(mChildren.size());
+        for (ChildAdapter child : mChildren) {
+            adapters.add(child.mAdapter);
+        }
+        return Collections.unmodifiableList(adapters);
+    }
+
+    private int indexOfAdapter(Adapter<? extends ViewHolder> adapter) {
+        for (int i = 0; i < mChildren.size(); i++) {
+            if (mChildren.get(i).mAdapter == adapter) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 找到globalPosition所在的子Adapter, 局部位置写入mLocalPosition, O(log k)
+     */
+    @NonNull
+    private ChildAdapter findChild(int globalPosition) {
+        final int index = mItemCounts.findIndex(globalPosition);
+        if (globalPosition < 0 || index >= mChildren.size()) {
+            throw new IllegalArgumentException("Cannot find child adapter for " + globalPosition);
+        }
+        mLocalPosition = globalPosition - (int) mItemCounts.prefixSum(index);
+        return mChildren.get(index);
+    }
+
+    @Override
+    public int getItemCount() {
+        return (int) mItemCounts.total();
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        final ChildAdapter child = findChild(position);
+        return child.toGlobalViewType(child.mAdapter.getItemViewType(mLocalPosition));
+    }
+
+    @Override
+    public long getItemId(int position) {
+        final ChildAdapter child = findChild(position);
+        return child.mAdapter.getItemId(mLocalPosition);
+    }
+
+    @Override
+    public long getMeasurementKey(int position) {
+        final ChildAdapter child = findChild(position);
+        return child.mAdapter.getMeasurementKey(mLocalPosition);
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        final ChildAdapter child = mGlobalTypeOwners.get(viewType);
+        if (child == null) {
+            throw new IllegalArgumentException("Cannot find the child adapter for view type "
+                    + viewType);
+        }
+        return child.mAdapter.createViewHolder(parent, mGlobalToLocalType.get(viewType));
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        final ChildAdapter child = findChild(position);
+        mBinderLookup.put(holder, child);
+        bindInChild(child.mAdapter, holder, mLocalPosition);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <VH extends ViewHolder> void bindInChild(Adapter<VH> adapter,
+                                                             ViewHolder holder, int position) {
+        adapter.bindViewHolder((VH) holder, position);
+    }
+
+    @Override
+    public int findRelativeAdapterPositionIn(@NonNull Adapter<? extends ViewHolder> adapter,
+                                             @NonNull ViewHolder viewHolder, int localPosition) {
+        if (adapter == this) {
+            return localPosition;
+        }
+        final ChildAdapter child = mBinderLookup.get(viewHolder);
+        if (child == null || child.mIndex == -1) {
+            return RecyclerView.NO_POSITION;
+        }
+        final int childPosition = localPosition - (int) mItemCounts.prefixSum(child.mIndex);
+        final int itemCount = child.mAdapter.getItemCount();
+        if (childPosition < 0 || childPosition >= itemCount) {
+            return RecyclerView.NO_POSITION;
+        }
+        return child.mAdapter.findRelativeAdapterPositionIn(adapter, viewHolder, childPosition);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void onViewRecycled(@NonNull ViewHolder holder) {
+        final ChildAdapter child = mBinderLookup.remove(holder);
+        if (child == null) {
+            throw new IllegalStateException("Cannot find child adapter for " + holder);
+        }
+        ((Adapter<ViewHolder>) child.mAdapter).onViewRecycled(holder);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean onFailedToRecycleView(@NonNull ViewHolder holder) {
+        final ChildAdapter child = mBinderLookup.remove(holder);
+        if (child == null) {
+            throw new IllegalStateException("Cannot find child adapter for " + holder);
+        }
+        return ((Adapter<ViewHolder>) child.mAdapter).onFailedToRecycleView(holder);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void onViewAttachedToWindow(@NonNull ViewHolder holder) {
+        final ChildAdapter child = mBinderLookup.get(holder);
+        if (child != null) {
+            ((Adapter<ViewHolder>) child.mAdapter).onViewAttachedToWindow(holder);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void onViewDetachedFromWindow(@NonNull ViewHolder holder) {
+        final ChildAdapter child = mBinderLookup.get(holder);
+        if (child != null) {
+            ((Adapter<ViewHolder>) child.mAdapter).onViewDetachedFromWindow(holder);
+        }
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        mAttachedRecyclerViews.add(new WeakReference<>(recyclerView));
+        for (ChildAdapter child : mChildren) {
+            child.mAdapter.onAttachedToRecyclerView(recyclerView);
+        }
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        for (int i = mAttachedRecyclerViews.size() - 1; i >= 0; i--) {
+            final RecyclerView attached = mAttachedRecyclerViews.get(i).get();
+            if (attached == null || attached == recyclerView) {
+                mAttachedRecyclerViews.remove(i);
+            }
+        }
+        for (ChildAdapter child : mChildren) {
+            child.mAdapter.onDetachedFromRecyclerView(recyclerView);
+        }
+    }
+
+    /**
+     * 一个子Adapter, 同时监听它的数据变化并换算成全局位置
+     */
+    private final class ChildAdapter extends RecyclerView.AdapterDataObserver {
+        final Adapter<? extends ViewHolder> mAdapter;
+        //子Adapter的viewType -> 全局viewType
+        private final SparseIntArray mLocalToGlobalType = new SparseIntArray(1);
+        //在mChildren中的下标, 被移除后为-1
+        int mIndex = -1;
+        int mItemCount;
+
+        ChildAdapter(Adapter<? extends ViewHolder> adapter) {
+            mAdapter = adapter;
+            mItemCount = adapter.getItemCount();
+        }
+
+        int toGlobalViewType(int localType) {
+            final int index = mLocalToGlobalType.indexOfKey(localType);
+            if (index >= 0) {
+                return mLocalToGlobalType.valueAt(index);
+            }
+            final int globalType = mNextViewType++;
+            mLocalToGlobalType.put(localType, globalType);
+            mGlobalTypeOwners.put(globalType, this);
+            mGlobalToLocalType.put(globalType, localType);
+            return globalType;
+        }
+
+        private int offset() {
+            return (int) mItemCounts.prefixSum(mIndex);
+        }
+
+        @Override
+        public void onChanged() {
+            mItemCount = mAdapter.getItemCount();
+            mItemCounts.set(mIndex, mItemCount);
+            notifyDataSetChanged();
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            notifyItemRangeChanged(offset() + positionStart, itemCount);
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount,
+                                       @Nullable Object payload) {
+            notifyItemRangeChanged(offset() + positionStart, itemCount, payload);
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            mItemCount += itemCount;
+            mItemCounts.add(mIndex, itemCount);
+            notifyItemRangeInserted(offset() + positionStart, itemCount);
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            mItemCount -= itemCount;
+            mItemCounts.add(mIndex, -itemCount);
+            notifyItemRangeRemoved(offset() + positionStart, itemCount);
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            if (itemCount != 1) {
+                throw new IllegalArgumentException("moving more than 1 item is not supported");
+            }
+            final int offset = offset();
+            notifyItemMoved(offset + fromPosition, offset + toPosition);
+        }
+    }
+}
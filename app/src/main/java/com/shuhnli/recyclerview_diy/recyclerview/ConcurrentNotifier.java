@@ -0,0 +1,169 @@
+package com.shuhnli.recyclerview_diy.recyclerview;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 可以在任意线程调用的notify入口
+ * <p>
+ * Adapter的notify*只能在主线程调用(RecyclerViewDataObserver会检查布局状态并直接修改AdapterHelper)。
+ * 这里把操作放进一个无锁的多生产者单消费者队列, 在下一帧开始时由主线程一次性取出,
+ * 按提交顺序转成普通的notify*调用。
+ * <p>
+ * 数据快照的替换通过{@link #postSnapshotSwap(Runnable)}提交, 和notify操作在同一个队列里排队,
+ * 所以主线程上"替换数据"和"描述这次替换的notify"的先后顺序与生产者提交的顺序一致。
+ * 同一个生产者线程提交的操作保证有序; 不同线程之间的顺序由各自入队的先后决定。
+ */
+public final class ConcurrentNotifier {
+    private static final int TYPE_CHANGED = 0;
+    private static final int TYPE_RANGE_CHANGED = 1;
+    private static final int TYPE_RANGE_INSERTED = 2;
+    private static final int TYPE_RANGE_REMOVED = 3;
+    private static final int TYPE_MOVED = 4;
+    private static final int TYPE_SNAPSHOT_SWAP = 5;
+
+    private final Adapter<?> mAdapter;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    //队列的尾部, 生产者通过getAndSet追加
+    private final AtomicReference<Op> mTail;
+    //队列的头部(已经消费的最后一个节点), 只有主线程访问
+    private Op mHead;
+
+    //是否已经安排了下一帧的消费, 避免每个操作都post一次
+    private final AtomicBoolean mDrainScheduled = new AtomicBoolean(false);
+
+    private final Choreographer.FrameCallback mFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            drain();
+        }
+    };
+
+    private final Runnable mScheduleRunnable = new Runnable() {
+        @Override
+        public void run() {
+            // Choreographer必须在主线程获取
+            Choreographer.getInstance().postFrameCallback(mFrameCallback);
+        }
+    };
+
+    public ConcurrentNotifier(@NonNull Adapter<?> adapter) {
+        mAdapter = adapter;
+        final Op stub = new Op();
+        mHead = stub;
+        mTail = new AtomicReference<>(stub);
+    }
+
+    public void postDataSetChanged() {
+        enqueue(TYPE_CHANGED, 0, 0, null, null);
+    }
+
+    public void postItemRangeChanged(int positionStart, int itemCount) {
+        enqueue(TYPE_RANGE_CHANGED, positionStart, itemCount, null, null);
+    }
+
+    public void postItemRangeChanged(int positionStart, int itemCount, @Nullable Object payload) {
+        enqueue(TYPE_RANGE_CHANGED, positionStart, itemCount, payload, null);
+    }
+
+    public void postItemRangeInserted(int positionStart, int itemCount) {
+        enqueue(TYPE_RANGE_INSERTED, positionStart, itemCount, null, null);
+    }
+
+    public void postItemRangeRemoved(int positionStart, int itemCount) {
+        enqueue(TYPE_RANGE_REMOVED, positionStart, itemCount, null, null);
+    }
+
+    public void postItemMoved(int fromPosition, int toPosition) {
+        enqueue(TYPE_MOVED, fromPosition, toPosition, null, null);
+    }
+
+    /**
+     * 在主线程上替换Adapter的数据, swap会在它之前提交的notify之后、之后提交的notify之前执行
+     */
+    public void postSnapshotSwap(@NonNull Runnable swap) {
+        enqueue(TYPE_SNAPSHOT_SWAP, 0, 0, null, swap);
+    }
+
+    private void enqueue(int type, int arg1, int arg2, @Nullable Object payload,
+                         @Nullable Runnable swap) {
+        final Op op = new Op();
+        op.mType = type;
+        op.mArg1 = arg1;
+        op.mArg2 = arg2;
+        op.mPayload = payload;
+        op.mSwap = swap;
+        final Op prev = mTail.getAndSet(op);
+        // 从getAndSet到这里之间, 消费者可能暂时看不到op, 它会在下一次drain中被取出
+        prev.mNext = op;
+        if (mDrainScheduled.compareAndSet(false, true)) {
+            mMainHandler.post(mScheduleRunnable);
+        }
+    }
+
+    /**
+     * 取出队列中所有操作并转成notify调用, 只在主线程执行
+     */
+    void drain() {
+        // 先清掉标记再取, 这样取的过程中新入队的操作一定会安排新的一次drain
+        mDrainScheduled.set(false);
+        Op next = mHead.mNext;
+        while (next != null) {
+            // 取出的节点成为新的头节点, 清掉引用避免持有payload
+            mHead = next;
+            final int type = next.mType;
+            final int arg1 = next.mArg1;
+            final int arg2 = next.mArg2;
+            final Object payload = next.mPayload;
+            final Runnable swap = next.mSwap;
+            next.mPayload = null;
+            next.mSwap = null;
+            dispatch(type, arg1, arg2, payload, swap);
+            next = mHead.mNext;
+        }
+    }
+
+    private void dispatch(int type, int arg1, int arg2, @Nullable Object payload,
+                          @Nullable Runnable swap) {
+        switch (type) {
+            case TYPE_CHANGED:
+                mAdapter.notifyDataSetChanged();
+                break;
+            case TYPE_RANGE_CHANGED:
+                mAdapter.notifyItemRangeChanged(arg1, arg2, payload);
+                break;
+            case TYPE_RANGE_INSERTED:
+                mAdapter.notifyItemRangeInserted(arg1, arg2);
+                break;
+            case TYPE_RANGE_REMOVED:
+                mAdapter.notifyItemRangeRemoved(arg1, arg2);
+                break;
+            case TYPE_MOVED:
+                mAdapter.notifyItemMoved(arg1, arg2);
+                break;
+            case TYPE_SNAPSHOT_SWAP:
+                swap.run();
+                break;
+        }
+    }
+
+    /**
+     * 队列中的一个操作, 字段在入队前写好, 通过mNext的volatile写发布给消费者
+     */
+    private static final class Op {
+        int mType;
+        int mArg1;
+        int mArg2;
+        Object mPayload;
+        Runnable mSwap;
+        volatile Op mNext;
+    }
+}
@@ -0,0 +1,82 @@
+package com.shuhnli.recyclerview_diy.recyclerview;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+
+/**
+ * 分阶段绑定的第二阶段队列
+ * <p>
+ * 预取和滑动时只在帧预算内完成主要内容的绑定, 剩下的{@link Adapter#onBindViewHolderDeferred}
+ * 放到这里, 在主线程空闲时按时间片执行, 一个时间片执行不完就等下一次空闲。
+ * <p>
+ * 只在主线程访问
+ */
+final class DeferredBindQueue implements MessageQueue.IdleHandler {
+    //每个空闲时间片最多占用的时间
+    private static final long SLICE_BUDGET_NS = 4_000_000L;
+
+    private final ArrayList<ViewHolder> mPending = new ArrayList<>();
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private boolean mIdleHandlerAdded;
+
+    private final Runnable mWakeUpRunnable = new Runnable() {
+        @Override
+        public void run() {
+            // 空消息, 只是为了让消息队列再空闲一次
+        }
+    };
+
+    void add(@NonNull ViewHolder holder) {
+        mPending.add(holder);
+        if (!mIdleHandlerAdded) {
+            mIdleHandlerAdded = true;
+            Looper.myQueue().addIdleHandler(this);
+        }
+    }
+
+    /**
+     * 立即执行所有等待中的第二阶段绑定
+     */
+    void flush() {
+        runUntil(Long.MAX_VALUE);
+    }
+
+    void clear() {
+        mPending.clear();
+        if (mIdleHandlerAdded) {
+            mIdleHandlerAdded = false;
+            Looper.myQueue().removeIdleHandler(this);
+        }
+    }
+
+    @Override
+    public boolean queueIdle() {
+        runUntil(SystemClock.elapsedRealtimeNanos() + SLICE_BUDGET_NS);
+        if (mPending.isEmpty()) {
+            mIdleHandlerAdded = false;
+            return false;
+        }
+        // 队列在没有新消息之前不会再次空闲, 发一个空消息触发下一个时间片
+        mMainHandler.post(mWakeUpRunnable);
+        return true;
+    }
+
+    private void runUntil(long deadlineNs) {
+        // 先进先出, 先绑定的先补全
+        int index = 0;
+        final int count = mPending.size();
+        while (index < count) {
+            Adapter.dispatchDeferredBind(mPending.get(index++));
+            if (SystemClock.elapsedRealtimeNanos() >= deadlineNs) {
+                break;
+            }
+        }
+        mPending.subList(0, index).clear();
+    }
+}
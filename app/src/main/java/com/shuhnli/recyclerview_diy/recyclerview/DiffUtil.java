@@ -0,0 +1,874 @@
+package com.shuhnli.recyclerview_diy.recyclerview;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * 计算两个列表之间的差异, 并输出把旧列表变换成新列表的最小更新操作序列
+ * <p>
+ * 使用Myers差分算法(线性空间版本, 从两端同时搜索中间的snake), 复杂度 O(N + D^2), D为编辑距离。
+ * 之后可选地做一次移动检测: 把被删除的item和被插入的item按key配对, 配对成功的变成move操作。
+ * <p>
+ * 核心只依赖纯Java, 比较操作都在 long[] key 和 int[] 内容hash 上进行,
+ * 所以可以直接在JVM上对10万级别的列表做基准测试。
+ * <p>
+ * 计算可能比较耗时, 应该放在后台线程执行, 见{@link AsyncListDiffer}。
+ */
+public class DiffUtil {
+
+    private DiffUtil() {
+        // utility class, no instance.
+    }
+
+    private static final Comparator<Diagonal> DIAGONAL_COMPARATOR = new Comparator<Diagonal>() {
+        @Override
+        public int compare(Diagonal o1, Diagonal o2) {
+            return o1.x - o2.x;
+        }
+    };
+
+    /**
+     * 在调用线程上同步计算差异, 默认开启移动检测
+     */
+    @NonNull
+    public static <T> DiffResult calculateDiff(@NonNull List<T> oldList, @NonNull List<T> newList,
+                                               @NonNull ItemCallback<T> itemCallback) {
+        return calculateDiff(oldList, newList, itemCallback, true, null);
+    }
+
+    /**
+     * 先把两个列表的key和内容hash一次性取出来, 之后的比较全部在原始类型数组上进行
+     *
+     * @param detectMoves 是否需要检测移动
+     * @param signal      可选的取消信号, 被取消时抛出{@link CancellationException}
+     */
+    @NonNull
+    public static <T> DiffResult calculateDiff(@NonNull List<T> oldList, @NonNull List<T> newList,
+                                               @NonNull ItemCallback<T> itemCallback,
+                                               boolean detectMoves,
+                                               @Nullable CancellationSignal signal) {
+        final int oldSize = oldList.size();
+        final int newSize = newList.size();
+        final long[] oldKeys = new long[oldSize];
+        final int[] oldHashes = new int[oldSize];
+        for (int i = 0; i < oldSize; i++) {
+            final T item = oldList.get(i);
+            oldKeys[i] = itemCallback.getItemKey(item);
+            oldHashes[i] = itemCallback.getContentHash(item);
+        }
+        final long[] newKeys = new long[newSize];
+        final int[] newHashes = new int[newSize];
+        for (int i = 0; i < newSize; i++) {
+            final T item = newList.get(i);
+            newKeys[i] = itemCallback.getItemKey(item);
+            newHashes[i] = itemCallback.getContentHash(item);
+        }
+        return calculateDiff(
+                new KeyCallback<>(oldKeys, oldHashes, newKeys, newHashes,
+                        oldList, newList, itemCallback),
+                detectMoves, signal);
+    }
+
+    /**
+     * 直接基于key和内容hash数组计算差异, 不会产生payload
+     */
+    @NonNull
+    public static DiffResult calculateDiff(@NonNull long[] oldKeys, @NonNull int[] oldHashes,
+                                           @NonNull long[] newKeys, @NonNull int[] newHashes,
+                                           boolean detectMoves) {
+        if (oldKeys.length != oldHashes.length || newKeys.length != newHashes.length) {
+            throw new IllegalArgumentException("keys and hashes must have the same length");
+        }
+        return calculateDiff(
+                new KeyCallback<>(oldKeys, oldHashes, newKeys, newHashes, null, null, null),
+                detectMoves, null);
+    }
+
+    @NonNull
+    public static DiffResult calculateDiff(@NonNull Callback cb) {
+        return calculateDiff(cb, true, null);
+    }
+
+    @NonNull
+    public static DiffResult calculateDiff(@NonNull Callback cb, boolean detectMoves,
+                                           @Nullable CancellationSignal signal) {
+        final int oldSize = cb.getOldListSize();
+        final int newSize = cb.getNewListSize();
+
+        final List<Diagonal> diagonals = new ArrayList<>();
+
+        // 待处理的区间, 用栈代替递归
+        final List<Range> stack = new ArrayList<>();
+        stack.add(new Range(0, oldSize, 0, newSize));
+
+        final int max = (oldSize + newSize + 1) / 2;
+        // forward和backward数组在整个计算过程中复用, 结束后还会作为DiffResult的状态数组
+        final CenteredArray forward = new CenteredArray(max * 2 + 1);
+        final CenteredArray backward = new CenteredArray(max * 2 + 1);
+
+        // 回收不再使用的Range, 避免反复分配
+        final List<Range> rangePool = new ArrayList<>();
+        while (!stack.isEmpty()) {
+            if (signal != null && signal.isCanceled()) {
+                throw new CancellationException("diff cancelled");
+            }
+            final Range range = stack.remove(stack.size() - 1);
+            final Snake snake = midPoint(range, cb, forward, backward);
+            if (snake != null) {
+                if (snake.diagonalSize() > 0) {
+                    diagonals.add(snake.toDiagonal());
+                }
+                // 左半部分
+                final Range left = rangePool.isEmpty() ? new Range() : rangePool.remove(
+                        rangePool.size() - 1);
+                left.oldListStart = range.oldListStart;
+                left.newListStart = range.newListStart;
+                left.oldListEnd = snake.startX;
+                left.newListEnd = snake.startY;
+                stack.add(left);
+
+                // 右半部分直接复用当前range
+                range.oldListStart = snake.endX;
+                range.newListStart = snake.endY;
+                stack.add(range);
+            } else {
+                rangePool.add(range);
+            }
+        }
+        Collections.sort(diagonals, DIAGONAL_COMPARATOR);
+
+        return new DiffResult(cb, diagonals, forward.backingData(), backward.backingData(),
+                detectMoves);
+    }
+
+    /**
+     * 找到range中间的snake, 如果range中已经没有需要处理的内容则返回null
+     */
+    @Nullable
+    private static Snake midPoint(Range range, Callback cb, CenteredArray forward,
+                                  CenteredArray backward) {
+        if (range.oldSize() < 1 || range.newSize() < 1) {
+            return null;
+        }
+        final int max = (range.oldSize() + range.newSize() + 1) / 2;
+        forward.set(1, range.oldListStart);
+        backward.set(1, range.oldListEnd);
+        for (int d = 0; d < max; d++) {
+            Snake snake = forward(range, cb, forward, backward, d);
+            if (snake != null) {
+                return snake;
+            }
+            snake = backward(range, cb, forward, backward, d);
+            if (snake != null) {
+                return snake;
+            }
+        }
+        return null;
+    }
+
+    @Nullable
+    private static Snake forward(Range range, Callback cb, CenteredArray forward,
+                                 CenteredArray backward, int d) {
+        final boolean checkForSnake = Math.abs(range.oldSize() - range.newSize()) % 2 == 1;
+        final int delta = range.oldSize() - range.newSize();
+        for (int k = -d; k <= d; k += 2) {
+            final int startX;
+            final int startY;
+            int x, y;
+            if (k == -d || (k != d && forward.get(k + 1) > forward.get(k - 1))) {
+                // 向下走一步(插入)
+                x = startX = forward.get(k + 1);
+            } else {
+                // 向右走一步(删除)
+                startX = forward.get(k - 1);
+                x = startX + 1;
+            }
+            y = range.newListStart + (x - range.oldListStart) - k;
+            startY = (d == 0 || x != startX) ? y : y - 1;
+            // 沿对角线尽量走远
+            while (x < range.oldListEnd
+                    && y < range.newListEnd
+                    && cb.areItemsTheSame(x, y)) {
+                x++;
+                y++;
+            }
+            forward.set(k, x);
+            if (checkForSnake) {
+                final int backwardsK = delta - k;
+                if (backwardsK >= -d + 1
+                        && backwardsK <= d - 1
+                        && backward.get(backwardsK) <= x) {
+                    // 和反向搜索相遇了
+                    final Snake snake = new Snake();
+                    snake.startX = startX;
+                    snake.startY = startY;
+                    snake.endX = x;
+                    snake.endY = y;
+                    snake.reverse = false;
+                    return snake;
+                }
+            }
+        }
+        return null;
+    }
+
+    @Nullable
+    private static Snake backward(Range range, Callback cb, CenteredArray forward,
+                                  CenteredArray backward, int d) {
+        final boolean checkForSnake = (range.oldSize() - range.newSize()) % 2 == 0;
+        final int delta = range.oldSize() - range.newSize();
+        for (int k = -d; k <= d; k += 2) {
+            final int startX;
+            final int startY;
+            int x, y;
+            if (k == -d || (k != d && backward.get(k + 1) < backward.get(k - 1))) {
+                // 向上走一步
+                x = startX = backward.get(k + 1);
+            } else {
+                // 向左走一步
+                startX = backward.get(k - 1);
+                x = startX - 1;
+            }
+            y = range.newListEnd - ((range.oldListEnd - x) - k);
+            startY = (d == 0 || x != startX) ? y : y + 1;
+            while (x > range.oldListStart
+                    && y > range.newListStart
+                    && cb.areItemsTheSame(x - 1, y - 1)) {
+                x--;
+                y--;
+            }
+            backward.set(k, x);
+            if (checkForSnake) {
+                final int forwardsK = delta - k;
+                if (forwardsK >= -d
+                        && forwardsK <= d
+                        && forward.get(forwardsK) >= x) {
+                    final Snake snake = new Snake();
+                    // 反向的snake, 起止点需要交换
+                    snake.startX = x;
+                    snake.startY = y;
+                    snake.endX = startX;
+                    snake.endY = startY;
+                    snake.reverse = true;
+                    return snake;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * DiffUtil用来访问两个列表的回调
+     */
+    public abstract static class Callback {
+        public abstract int getOldListSize();
+
+        public abstract int getNewListSize();
+
+        //是否是同一个item(一般比较id/key)
+        public abstract boolean areItemsTheSame(int oldItemPosition, int newItemPosition);
+
+        //同一个item的内容是否没变, 只有areItemsTheSame返回true时才会调用
+        public abstract boolean areContentsTheSame(int oldItemPosition, int newItemPosition);
+
+        //内容变化时的payload, 会透传给onBindViewHolder(holder, position, payloads)
+        @Nullable
+        public Object getChangePayload(int oldItemPosition, int newItemPosition) {
+            return null;
+        }
+    }
+
+    /**
+     * 基于item本身的回调, 只需要提供key和内容hash
+     * key相等表示同一个item, hash相等表示内容没有变化
+     */
+    public abstract static class ItemCallback<T> {
+        //item的唯一标识, 在新旧列表中需要保持一致
+        public abstract long getItemKey(@NonNull T item);
+
+        //item内容的hash
+        public abstract int getContentHash(@NonNull T item);
+
+        @Nullable
+        public Object getChangePayload(@NonNull T oldItem, @NonNull T newItem) {
+            return null;
+        }
+    }
+
+    /**
+     * 计算的取消信号, 在后台计算时用来提前放弃已经过期的任务
+     */
+    public interface CancellationSignal {
+        boolean isCanceled();
+    }
+
+    /**
+     * 基于原始类型数组的Callback, 内层循环里不会有虚函数调用和装箱
+     */
+    static final class KeyCallback<T> extends Callback {
+        final long[] mOldKeys;
+        final int[] mOldHashes;
+        final long[] mNewKeys;
+        final int[] mNewHashes;
+        //只在需要payload时使用
+        @Nullable
+        private final List<T> mOldList;
+        @Nullable
+        private final List<T> mNewList;
+        @Nullable
+        private final ItemCallback<T> mItemCallback;
+
+        KeyCallback(long[] oldKeys, int[] oldHashes, long[] newKeys, int[] newHashes,
+                    @Nullable List<T> oldList, @Nullable List<T> newList,
+                    @Nullable ItemCallback<T> itemCallback) {
+            mOldKeys = oldKeys;
+            mOldHashes = oldHashes;
+            mNewKeys = newKeys;
+            mNewHashes = newHashes;
+            mOldList = oldList;
+            mNewList = newList;
+            mItemCallback = itemCallback;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return mOldKeys.length;
+        }
+
+        @Override
+        public int getNewListSize() {
+            return mNewKeys.length;
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return mOldKeys[oldItemPosition] == mNewKeys[newItemPosition];
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            return mOldHashes[oldItemPosition] == mNewHashes[newItemPosition];
+        }
+
+        @Nullable
+        @Override
+        public Object getChangePayload(int oldItemPosition, int newItemPosition) {
+            if (mItemCallback == null || mOldList == null || mNewList == null) {
+                return null;
+            }
+            return mItemCallback.getChangePayload(mOldList.get(oldItemPosition),
+                    mNewList.get(newItemPosition));
+        }
+    }
+
+    /**
+     * 新旧列表中都存在且连续相同的一段, (x, y)是在旧/新列表中的起点
+     */
+    static class Diagonal {
+        public final int x;
+        public final int y;
+        public final int size;
+
+        Diagonal(int x, int y, int size) {
+            this.x = x;
+            this.y = y;
+            this.size = size;
+        }
+
+        int endX() {
+            return x + size;
+        }
+
+        int endY() {
+            return y + size;
+        }
+    }
+
+    /**
+     * Myers算法中的snake: 最多一步插入/删除, 后面跟着一段对角线
+     */
+    static class Snake {
+        public int startX;
+        public int startY;
+        public int endX;
+        public int endY;
+        //是否是反向搜索得到的
+        public boolean reverse;
+
+        boolean hasAdditionOrRemoval() {
+            return endY - startY != endX - startX;
+        }
+
+        boolean isAddition() {
+            return endY - startY > endX - startX;
+        }
+
+        int diagonalSize() {
+            return Math.min(endX - startX, endY - startY);
+        }
+
+        /**
+         * 去掉snake中的插入/删除那一步, 只保留对角线
+         */
+        @NonNull
+        Diagonal toDiagonal() {
+            if (hasAdditionOrRemoval()) {
+                if (reverse) {
+                    // 反向snake的插入/删除在末尾
+                    return new Diagonal(startX, startY, diagonalSize());
+                } else {
+                    // 正向snake的插入/删除在开头
+                    if (isAddition()) {
+                        return new Diagonal(startX, startY + 1, diagonalSize());
+                    } else {
+                        return new Diagonal(startX + 1, startY, diagonalSize());
+                    }
+                }
+            } else {
+                return new Diagonal(startX, startY, endX - startX);
+            }
+        }
+    }
+
+    /**
+     * 需要比较的区间: 旧列表[oldListStart, oldListEnd) 和新列表[newListStart, newListEnd)
+     */
+    static class Range {
+        int oldListStart, oldListEnd;
+        int newListStart, newListEnd;
+
+        Range() {
+        }
+
+        Range(int oldListStart, int oldListEnd, int newListStart, int newListEnd) {
+            this.oldListStart = oldListStart;
+            this.oldListEnd = oldListEnd;
+            this.newListStart = newListStart;
+            this.newListEnd = newListEnd;
+        }
+
+        int oldSize() {
+            return oldListEnd - oldListStart;
+        }
+
+        int newSize() {
+            return newListEnd - newListStart;
+        }
+    }
+
+    /**
+     * 下标可以为负数的数组, k对角线的取值范围是[-d, d]
+     */
+    static class CenteredArray {
+        private final int[] mData;
+        private final int mMid;
+
+        CenteredArray(int size) {
+            mData = new int[size];
+            mMid = mData.length / 2;
+        }
+
+        int get(int index) {
+            return mData[index + mMid];
+        }
+
+        int[] backingData() {
+            return mData;
+        }
+
+        void set(int index, int value) {
+            mData[index + mMid] = value;
+        }
+    }
+
+    /**
+     * long key -> 新列表中还没有被匹配的位置, 开放寻址的原始类型哈希表
+     * 同一个key可能对应多个位置, 用mNext串成从小到大的链表
+     */
+    static final class KeyIndex {
+        private static final int EMPTY = -1;
+        //key对应的位置已经取完, 槽位不能置为EMPTY, 否则会打断探测链
+        private static final int DRAINED = -2;
+        private final long[] mKeys;
+        private final int[] mHeads;
+        private final int[] mNext;
+        private final int mMask;
+
+        KeyIndex(int expectedSize, int positionCount) {
+            int capacity = 2;
+            while (capacity < expectedSize * 2) {
+                capacity <<= 1;
+            }
+            mKeys = new long[capacity];
+            mHeads = new int[capacity];
+            Arrays.fill(mHeads, EMPTY);
+            mNext = new int[positionCount];
+            mMask = capacity - 1;
+        }
+
+        private int slot(long key) {
+            int h = (int) (key ^ (key >>> 32)) * 0x9E3779B9;
+            int index = (h ^ (h >>> 16)) & mMask;
+            while (mHeads[index] != EMPTY && mKeys[index] != key) {
+                index = (index + 1) & mMask;
+            }
+            return index;
+        }
+
+        /**
+         * 需要按位置从大到小添加, 这样链表头就是最小的位置
+         */
+        void push(long key, int position) {
+            final int index = slot(key);
+            mKeys[index] = key;
+            mNext[position] = mHeads[index];
+            mHeads[index] = position;
+        }
+
+        /**
+         * 取出key对应的最小位置, 没有则返回-1
+         */
+        int poll(long key) {
+            final int index = slot(key);
+            final int position = mHeads[index];
+            if (position < 0) {
+                return EMPTY;
+            }
+            mHeads[index] = mNext[position] == EMPTY ? DRAINED : mNext[position];
+            return position;
+        }
+    }
+
+    /**
+     * 差异计算的结果
+     * 通过{@link #dispatchUpdatesTo(ListUpdateCallback)}或{@link #dispatchUpdatesTo(Adapter)}
+     * 分发成最小的更新序列
+     */
+    public static class DiffResult {
+        /**
+         * 差异计算时item被标记为"不存在"时返回的位置
+         */
+        public static final int NO_POSITION = -1;
+
+        // item状态的标记位, 低4位是状态, 高位存对应列表里的位置
+        private static final int FLAG_NOT_CHANGED = 1;
+        private static final int FLAG_CHANGED = FLAG_NOT_CHANGED << 1;
+        private static final int FLAG_MOVED_CHANGED = FLAG_CHANGED << 1;
+        private static final int FLAG_MOVED_NOT_CHANGED = FLAG_MOVED_CHANGED << 1;
+        private static final int FLAG_MOVED = FLAG_MOVED_CHANGED | FLAG_MOVED_NOT_CHANGED;
+        private static final int FLAG_OFFSET = 4;
+        private static final int FLAG_MASK = (1 << FLAG_OFFSET) - 1;
+
+        private final List<Diagonal> mDiagonals;
+        private final int[] mOldItemStatuses;
+        private final int[] mNewItemStatuses;
+        private final Callback mCallback;
+        private final int mOldListSize;
+        private final int mNewListSize;
+        private final boolean mDetectMoves;
+
+        DiffResult(Callback callback, List<Diagonal> diagonals, int[] oldItemStatuses,
+                   int[] newItemStatuses, boolean detectMoves) {
+            mDiagonals = diagonals;
+            mOldItemStatuses = oldItemStatuses;
+            mNewItemStatuses = newItemStatuses;
+            Arrays.fill(mOldItemStatuses, 0);
+            Arrays.fill(mNewItemStatuses, 0);
+            mCallback = callback;
+            mOldListSize = callback.getOldListSize();
+            mNewListSize = callback.getNewListSize();
+            mDetectMoves = detectMoves;
+            addEdgeDiagonals();
+            findMatchingItems();
+        }
+
+        /**
+         * 在头尾各加一个空的对角线, 这样遍历时不用处理边界
+         */
+        private void addEdgeDiagonals() {
+            final Diagonal first = mDiagonals.isEmpty() ? null : mDiagonals.get(0);
+            if (first == null || first.x != 0 || first.y != 0) {
+                mDiagonals.add(0, new Diagonal(0, 0, 0));
+            }
+            mDiagonals.add(new Diagonal(mOldListSize, mNewListSize, 0));
+        }
+
+        private void findMatchingItems() {
+            for (Diagonal diagonal : mDiagonals) {
+                for (int offset = 0; offset < diagonal.size; offset++) {
+                    final int posX = diagonal.x + offset;
+                    final int posY = diagonal.y + offset;
+                    final boolean theSame = mCallback.areContentsTheSame(posX, posY);
+                    final int changeFlag = theSame ? FLAG_NOT_CHANGED : FLAG_CHANGED;
+                    mOldItemStatuses[posX] = (posY << FLAG_OFFSET) | changeFlag;
+                    mNewItemStatuses[posY] = (posX << FLAG_OFFSET) | changeFlag;
+                }
+            }
+            if (mDetectMoves) {
+                if (mCallback instanceof KeyCallback) {
+                    findMoveMatchesByKey((KeyCallback<?>) mCallback);
+                } else {
+                    findMoveMatches();
+                }
+            }
+        }
+
+        /**
+         * 基于key的移动检测: 把所有未匹配的新item按key建索引, 再用未匹配的旧item去查, O(N)
+         */
+        private void findMoveMatchesByKey(KeyCallback<?> callback) {
+            int unmatched = 0;
+            for (int posY = 0; posY < mNewListSize; posY++) {
+                if (mNewItemStatuses[posY] == 0) {
+                    unmatched++;
+                }
+            }
+            if (unmatched == 0) {
+                return;
+            }
+            final KeyIndex index = new KeyIndex(unmatched, mNewListSize);
+            for (int posY = mNewListSize - 1; posY >= 0; posY--) {
+                if (mNewItemStatuses[posY] == 0) {
+                    index.push(callback.mNewKeys[posY], posY);
+                }
+            }
+            for (int posX = 0; posX < mOldListSize; posX++) {
+                if (mOldItemStatuses[posX] != 0) {
+                    continue;
+                }
+                final int posY = index.poll(callback.mOldKeys[posX]);
+                if (posY < 0) {
+                    continue;
+                }
+                final boolean contentsMatching = callback.areContentsTheSame(posX, posY);
+                final int changeFlag = contentsMatching ? FLAG_MOVED_NOT_CHANGED
+                        : FLAG_MOVED_CHANGED;
+                mOldItemStatuses[posX] = (posY << FLAG_OFFSET) | changeFlag;
+                mNewItemStatuses[posY] = (posX << FLAG_OFFSET) | changeFlag;
+            }
+        }
+
+        /**
+         * 通用的移动检测, 对每个被删除的旧item线性查找被插入的新item, 最坏O(N^2)
+         */
+        private void findMoveMatches() {
+            int posX = 0;
+            for (Diagonal diagonal : mDiagonals) {
+                while (posX < diagonal.x) {
+                    if (mOldItemStatuses[posX] == 0) {
+                        findMatchingAddition(posX);
+                    }
+                    posX++;
+                }
+                posX = diagonal.endX();
+            }
+        }
+
+        private void findMatchingAddition(int posX) {
+            int posY = 0;
+            final int diagonalsSize = mDiagonals.size();
+            for (int i = 0; i < diagonalsSize; i++) {
+                final Diagonal diagonal = mDiagonals.get(i);
+                while (posY < diagonal.y) {
+                    if (mNewItemStatuses[posY] == 0) {
+                        if (mCallback.areItemsTheSame(posX, posY)) {
+                            final boolean contentsMatching = mCallback.areContentsTheSame(posX,
+                                    posY);
+                            final int changeFlag = contentsMatching ? FLAG_MOVED_NOT_CHANGED
+                                    : FLAG_MOVED_CHANGED;
+                            mOldItemStatuses[posX] = (posY << FLAG_OFFSET) | changeFlag;
+                            mNewItemStatuses[posY] = (posX << FLAG_OFFSET) | changeFlag;
+                            return;
+                        }
+                    }
+                    posY++;
+                }
+                posY = diagonal.endY();
+            }
+        }
+
+        /**
+         * 旧列表中的位置在新列表中的位置, item被删除时返回{@link #NO_POSITION}
+         */
+        public int convertOldPositionToNew(int oldListPosition) {
+            if (oldListPosition < 0 || oldListPosition >= mOldListSize) {
+                throw new IndexOutOfBoundsException("Index out of bounds - passed position = "
+                        + oldListPosition + ", old list size = " + mOldListSize);
+            }
+            final int status = mOldItemStatuses[oldListPosition];
+            if ((status & FLAG_MASK) == 0) {
+                return NO_POSITION;
+            } else {
+                return status >> FLAG_OFFSET;
+            }
+        }
+
+        /**
+         * 新列表中的位置在旧列表中的位置, item是新插入的时返回{@link #NO_POSITION}
+         */
+        public int convertNewPositionToOld(int newListPosition) {
+            if (newListPosition < 0 || newListPosition >= mNewListSize) {
+                throw new IndexOutOfBoundsException("Index out of bounds - passed position = "
+                        + newListPosition + ", new list size = " + mNewListSize);
+            }
+            final int status = mNewItemStatuses[newListPosition];
+            if ((status & FLAG_MASK) == 0) {
+                return NO_POSITION;
+            } else {
+                return status >> FLAG_OFFSET;
+            }
+        }
+
+        /**
+         * 把更新分发给Adapter, 必须在主线程调用
+         */
+        public void dispatchUpdatesTo(@NonNull final Adapter adapter) {
+            dispatchUpdatesTo(new AdapterListUpdateCallback(adapter));
+        }
+
+        /**
+         * 从后往前遍历对角线, 依次输出删除/插入/移动/变化事件。
+         * 移动的两端先被记成postponed update, 等另一端出现时再输出onMoved。
+         * 连续的同类事件会经过{@link BatchingListUpdateCallback}合并成区间事件。
+         */
+        public void dispatchUpdatesTo(@NonNull ListUpdateCallback updateCallback) {
+            final BatchingListUpdateCallback batchingCallback;
+            if (updateCallback instanceof BatchingListUpdateCallback) {
+                batchingCallback = (BatchingListUpdateCallback) updateCallback;
+            } else {
+                batchingCallback = new BatchingListUpdateCallback(updateCallback);
+            }
+            // 当前列表的大小, 随着事件的输出而变化
+            int currentListSize = mOldListSize;
+            // 还没有找到另一端的移动操作
+            final ArrayDeque<PostponedUpdate> postponedUpdates = new ArrayDeque<>();
+            int posX = mOldListSize;
+            int posY = mNewListSize;
+            for (int diagonalIndex = mDiagonals.size() - 1; diagonalIndex >= 0; diagonalIndex--) {
+                final Diagonal diagonal = mDiagonals.get(diagonalIndex);
+                final int endX = diagonal.endX();
+                final int endY = diagonal.endY();
+                // 对角线之后旧列表中多出来的: 删除或移出
+                while (posX > endX) {
+                    posX--;
+                    final int status = mOldItemStatuses[posX];
+                    if ((status & FLAG_MOVED) != 0) {
+                        final int newPos = status >> FLAG_OFFSET;
+                        final PostponedUpdate postponedUpdate = getPostponedUpdate(
+                                postponedUpdates, newPos, false);
+                        if (postponedUpdate != null) {
+                            // 插入端已经出现过了, 现在可以输出move
+                            final int updatedNewPos = currentListSize
+                                    - postponedUpdate.currentPos;
+                            batchingCallback.onMoved(posX, updatedNewPos - 1);
+                            if ((status & FLAG_MOVED_CHANGED) != 0) {
+                                final Object changePayload = mCallback.getChangePayload(posX,
+                                        newPos);
+                                batchingCallback.onChanged(updatedNewPos - 1, 1, changePayload);
+                            }
+                        } else {
+                            // 插入端还没出现, 先记下来
+                            postponedUpdates.add(new PostponedUpdate(
+                                    posX, currentListSize - posX - 1, true));
+                        }
+                    } else {
+                        batchingCallback.onRemoved(posX, 1);
+                        currentListSize--;
+                    }
+                }
+                // 对角线之后新列表中多出来的: 插入或移入
+                while (posY > endY) {
+                    posY--;
+                    final int status = mNewItemStatuses[posY];
+                    if ((status & FLAG_MOVED) != 0) {
+                        final int oldPos = status >> FLAG_OFFSET;
+                        final PostponedUpdate postponedUpdate = getPostponedUpdate(
+                                postponedUpdates, oldPos, true);
+                        if (postponedUpdate == null) {
+                            postponedUpdates.add(new PostponedUpdate(
+                                    posY, currentListSize - posX, false));
+                        } else {
+                            final int updatedOldPos = currentListSize
+                                    - postponedUpdate.currentPos - 1;
+                            batchingCallback.onMoved(updatedOldPos, posX);
+                            if ((status & FLAG_MOVED_CHANGED) != 0) {
+                                final Object changePayload = mCallback.getChangePayload(oldPos,
+                                        posY);
+                                batchingCallback.onChanged(posX, 1, changePayload);
+                            }
+                        }
+                    } else {
+                        batchingCallback.onInserted(posX, 1);
+                        currentListSize++;
+                    }
+                }
+                // 对角线上内容变化的item
+                posX = diagonal.x;
+                posY = diagonal.y;
+                for (int i = 0; i < diagonal.size; i++) {
+                    if ((mOldItemStatuses[posX] & FLAG_MASK) == FLAG_CHANGED) {
+                        final Object changePayload = mCallback.getChangePayload(posX, posY);
+                        batchingCallback.onChanged(posX, 1, changePayload);
+                    }
+                    posX++;
+                    posY++;
+                }
+                posX = diagonal.x;
+                posY = diagonal.y;
+            }
+            batchingCallback.dispatchLastEvent();
+        }
+
+        @Nullable
+        private static PostponedUpdate getPostponedUpdate(ArrayDeque<PostponedUpdate> updates,
+                                                          int posInList, boolean removal) {
+            PostponedUpdate postponedUpdate = null;
+            final Iterator<PostponedUpdate> itr = updates.iterator();
+            while (itr.hasNext()) {
+                final PostponedUpdate update = itr.next();
+                if (update.posInOwnerList == posInList && update.removal == removal) {
+                    postponedUpdate = update;
+                    itr.remove();
+                    break;
+                }
+            }
+            // 之后记录的操作的位置都要修正
+            while (itr.hasNext()) {
+                final PostponedUpdate update = itr.next();
+                if (removal) {
+                    update.currentPos--;
+                } else {
+                    update.currentPos++;
+                }
+            }
+            return postponedUpdate;
+        }
+    }
+
+    /**
+     * 还没有配对的移动操作
+     */
+    private static class PostponedUpdate {
+        //在自己所属列表(旧列表或新列表)中的位置
+        int posInOwnerList;
+        //从列表末尾算起的位置
+        int currentPos;
+        //是否是删除端
+        boolean removal;
+
+        PostponedUpdate(int posInOwnerList, int currentPos, boolean removal) {
+            this.posInOwnerList = posInOwnerList;
+            this.currentPos = currentPos;
+            this.removal = removal;
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.shuhnli.recyclerview_diy.recyclerview;
+
+import android.util.Log;
+import android.view.Choreographer;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.view.ViewCompat;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+
+/**
+ * ViewHolder生命周期追踪, 用于排查ViewHolder泄漏, 默认关闭
+ * <p>
+ * 开启后:
+ * 1. 每个ViewHolder的mFlags、scrap容器、所属RecyclerView的变化记录在一个固定大小的环形缓冲区里
+ * 2. 连续N帧仍然不可回收(setIsRecyclable调用不成对)的ViewHolder会被报告
+ * 3. 缓存池和缓存中持有的、属于已经detach的RecyclerView的ViewHolder会被报告
+ * <p>
+ * 只能在主线程使用
+ */
+public final class HolderLifecycleTracer {
+    private static final String TAG = "HolderTracer";
+
+    //每个ViewHolder保留的最近事件数, 必须是2的幂
+    static final int RING_SIZE = 16;
+    //每隔多少帧扫描一次缓存
+    private static final int SCAN_INTERVAL_FRAMES = 60;
+
+    static final int EVENT_FLAGS = 0;
+    static final int EVENT_RECYCLABLE = 1;
+    static final int EVENT_SCRAP = 2;
+    static final int EVENT_OWNER = 3;
+    static final int EVENT_NESTED = 4;
+    static final int EVENT_RESET = 5;
+
+    private static final String[] EVENT_NAMES = {
+            "flags", "recyclable", "scrap", "owner", "nested", "reset"
+    };
+
+    /**
+     * 泄漏报告
+     */
+    public interface LeakListener {
+        /**
+         * ViewHolder连续frames帧不可回收
+         *
+         * @param history 最近的状态变化, 由旧到新
+         */
+        void onHolderStuckUnrecyclable(@NonNull ViewHolder holder, int frames,
+                                       @NonNull String history);
+
+        /**
+         * 缓存池或缓存中持有属于已经detach的RecyclerView的ViewHolder
+         *
+         * @param where 持有它的地方
+         */
+        void onHolderRetainedByDetached(@NonNull ViewHolder holder,
+                                        @NonNull RecyclerView detachedOwner,
+                                        @NonNull String where, @NonNull String history);
+    }
+
+    private static boolean sEnabled;
+    private static int sMaxUnrecyclableFrames;
+    @Nullable
+    private static LeakListener sListener;
+    private static long sFrame;
+
+    //曾经变成不可回收的ViewHolder
+    private static final ArrayList<WeakReference<ViewHolder>> sWatched = new ArrayList<>();
+    //需要扫描缓存的RecyclerView
+    private static final ArrayList<WeakReference<RecyclerView>> sRecyclerViews =
+            new ArrayList<>();
+
+    private static final Choreographer.FrameCallback sFrameCallback =
+            new Choreographer.FrameCallback() {
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    if (!sEnabled) {
+                        return;
+                    }
+                    sFrame++;
+                    checkUnrecyclable();
+                    if (sFrame % SCAN_INTERVAL_FRAMES == 0) {
+                        scanRetained();
+                    }
+                    Choreographer.getInstance().postFrameCallback(this);
+                }
+            };
+
+    private HolderLifecycleTracer() {
+    }
+
+    /**
+     * 开启追踪, 只对之后发生的状态变化生效
+     *
+     * @param maxUnrecyclableFrames 连续不可回收超过这么多帧就报告
+     * @param listener              为null时输出到日志
+     */
+    public static void enable(int maxUnrecyclableFrames, @Nullable LeakListener listener) {
+        if (maxUnrecyclableFrames <= 0) {
+            throw new IllegalArgumentException("maxUnrecyclableFrames must be positive");
+        }
+        sMaxUnrecyclableFrames = maxUnrecyclableFrames;
+        sListener = listener;
+        if (!sEnabled) {
+            sEnabled = true;
+            Choreographer.getInstance().postFrameCallback(sFrameCallback);
+        }
+    }
+
+    public static void disable() {
+        sEnabled = false;
+        sListener = null;
+        sWatched.clear();
+        sRecyclerViews.clear();
+        Choreographer.getInstance().removeFrameCallback(sFrameCallback);
+    }
+
+    public static boolean isEnabled() {
+        return sEnabled;
+    }
+
+    /**
+     * 把RecyclerView的缓存和缓存池加入扫描, attach时调用
+     */
+    static void watchRecyclerView(@NonNull RecyclerView recyclerView) {
+        if (!sEnabled) {
+            return;
+        }
+        for (int i = sRecyclerViews.size() - 1; i >= 0; i--) {
+            if (sRecyclerViews.get(i).get() == recyclerView) {
+                return;
+            }
+        }
+        sRecyclerViews.add(new WeakReference<>(recyclerView));
+    }
+
+    /**
+     * 记录一次状态变化
+     */
+    static void trace(@NonNull ViewHolder holder, int event) {
+        if (!sEnabled) {
+            return;
+        }
+        Ring ring = holder.mTraceRing;
+        if (ring == null) {
+            ring = new Ring();
+            holder.mTraceRing = ring;
+        }
+        final int flags = holder.mFlags;
+        ring.add(event, flags, sFrame);
+        if (event == EVENT_OWNER) {
+            // 换了所属的RecyclerView, 之前的报告不再适用
+            ring.mRetainReported = false;
+        }
+        final boolean notRecyclable = (flags & ViewHolder.FLAG_NOT_RECYCLABLE) != 0;
+        if (notRecyclable && ring.mNotRecyclableSince < 0) {
+            ring.mNotRecyclableSince = sFrame;
+            ring.mStuckReported = false;
+            sWatched.add(new WeakReference<>(holder));
+        } else if (!notRecyclable) {
+            ring.mNotRecyclableSince = -1;
+        }
+    }
+
+    /**
+     * ViewHolder最近的状态变化, 没有记录时返回空字符串
+     */
+    @NonNull
+    public static String dumpHistory(@NonNull ViewHolder holder) {
+        final Ring ring = holder.mTraceRing;
+        if (ring == null) {
+            return "";
+        }
+        final StringBuilder sb = new StringBuilder();
+        final int count = Math.min(ring.mCount, RING_SIZE);
+        for (int i = count; i > 0; i--) {
+            final int index = (ring.mCount - i) & (RING_SIZE - 1);
+            sb.append('[').append(ring.mFrames[index]).append("] ")
+                    .append(EVENT_NAMES[ring.mEvents[index]])
+                    .append(" flags=0x").append(Integer.toHexString(ring.mFlags[index]))
+                    .append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static void checkUnrecyclable() {
+        for (int i = sWatched.size() - 1; i >= 0; i--) {
+            final ViewHolder holder = sWatched.get(i).get();
+            final Ring ring = holder == null ? null : holder.mTraceRing;
+            if (ring == null || ring.mNotRecyclableSince < 0) {
+                // 已经被回收或恢复了可回收
+                sWatched.remove(i);
+                continue;
+            }
+            final long frames = sFrame - ring.mNotRecyclableSince;
+            if (frames >= sMaxUnrecyclableFrames && !ring.mStuckReported) {
+                ring.mStuckReported = true;
+                reportStuck(holder, (int) frames);
+            }
+        }
+    }
+
+    private static void scanRetained() {
+        for (int i = sRecyclerViews.size() - 1; i >= 0; i--) {
+            final RecyclerView recyclerView = sRecyclerViews.get(i).get();
+            if (recyclerView == null) {
+                sRecyclerViews.remove(i);
+                continue;
+            }
+            final Recycler recycler = recyclerView.mRecycler;
+            scanList(recycler.mCachedViews, recyclerView, "cachedViews of " + recyclerView);
+            scanList(recycler.mAttachedScrap, recyclerView, "attachedScrap of " + recyclerView);
+            if (recycler.mChangedScrap != null) {
+                scanList(recycler.mChangedScrap, recyclerView, "changedScrap of " + recyclerView);
+            }
+            final RecycledViewPool pool = recycler.getRecycledViewPool();
+            for (int j = 0; j < pool.mScrap.size(); j++) {
+                // 缓存池中的ViewHolder不应该还有所属的RecyclerView
+                scanList(pool.mScrap.valueAt(j).mScrapHeap, null, "pool " + pool);
+            }
+        }
+    }
+
+    private static void scanList(@NonNull ArrayList<ViewHolder> holders,
+                                 @Nullable RecyclerView container, @NonNull String where) {
+        for (int i = 0; i < holders.size(); i++) {
+            final ViewHolder holder = holders.get(i);
+            final RecyclerView owner = holder.mOwnerRecyclerView;
+            if (owner == null || owner == container || ViewCompat.isAttachedToWindow(owner)) {
+                continue;
+            }
+            Ring ring = holder.mTraceRing;
+            if (ring == null) {
+                ring = new Ring();
+                holder.mTraceRing = ring;
+            }
+            if (!ring.mRetainReported) {
+                ring.mRetainReported = true;
+                reportRetained(holder, owner, where);
+            }
+        }
+    }
+
+    private static void reportStuck(@NonNull ViewHolder holder, int frames) {
+        final String history = dumpHistory(holder);
+        if (sListener != null) {
+            sListener.onHolderStuckUnrecyclable(holder, frames, history);
+        } else {
+            Log.w(TAG, holder + " not recyclable for " + frames + " frames\n" + history);
+        }
+    }
+
+    private static void reportRetained(@NonNull ViewHolder holder, @NonNull RecyclerView owner,
+                                       @NonNull String where) {
+        final String history = dumpHistory(holder);
+        if (sListener != null) {
+            sListener.onHolderRetainedByDetached(holder, owner, where, history);
+        } else {
+            Log.w(TAG, holder + " of detached " + owner + " retained by " + where + "\n"
+                    + history);
+        }
+    }
+
+    /**
+     * 单个ViewHolder的环形事件缓冲区, 事件、flags和帧号分别放在三个数组里
+     */
+    static final class Ring {
+        final int[] mEvents = new int[RING_SIZE];
+        final int[] mFlags = new int[RING_SIZE];
+        final long[] mFrames = new long[RING_SIZE];
+        //写入的总数, 下一次写入的位置是mCount & (RING_SIZE - 1)
+        int mCount;
+        //从哪一帧开始不可回收, 可回收时为-1
+        long mNotRecyclableSince = -1;
+        boolean mStuckReported;
+        boolean mRetainReported;
+
+        void add(int event, int flags, long frame) {
+            final int index = mCount & (RING_SIZE - 1);
+            mEvents[index] = event;
+            mFlags[index] = flags;
+            mFrames[index] = frame;
+            mCount++;
+        }
+    }
+}
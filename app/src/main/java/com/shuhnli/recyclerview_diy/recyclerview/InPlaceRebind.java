@@ -0,0 +1,29 @@
+package com.shuhnli.recyclerview_diy.recyclerview;
+
+/**
+ * 原地更新({@link RecyclerView}在只有内容变化时让LayoutManager直接重新绑定子View)之前的检查。
+ * <p>
+ * 原地更新不经过Recycler重新取ViewHolder, 没有类型和id的校验: item变成另一种类型(比如加载中的占位行变成内容行)、
+ * 或者稳定id变了, 原来的ViewHolder就不能再显示它, 只能走完整布局换一个ViewHolder。
+ */
+final class InPlaceRebind {
+
+    private InPlaceRebind() {
+    }
+
+    /**
+     * @param holderType   ViewHolder当前的类型
+     * @param holderId     ViewHolder当前的id
+     * @param itemType     变化之后item的类型
+     * @param hasStableIds Adapter是否有稳定id, 没有时不比较id
+     * @param itemId       变化之后item的id
+     * @return 变化之后的item是否还能绑定到原来的ViewHolder上
+     */
+    static boolean canRebind(int holderType, long holderId, int itemType, boolean hasStableIds,
+                             long itemId) {
+        if (holderType != itemType) {
+            return false;
+        }
+        return !hasStableIds || holderId == itemId;
+    }
+}
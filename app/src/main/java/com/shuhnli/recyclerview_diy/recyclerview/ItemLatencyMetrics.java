@@ -0,0 +1,263 @@
+package com.shuhnli.recyclerview_diy.recyclerview;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.SparseArray;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 按viewType统计ViewHolder创建和绑定耗时的直方图
+ * <p>
+ * 通过{@link RecyclerView#setItemLatencyMetrics(ItemLatencyMetrics)}设置后, Recycler测量的耗时除了用于
+ * {@link RecycledViewPool}的平均值估算, 还会记录到这里。直方图是对数分桶的(每个2的幂分8个桶, 误差约12%),
+ * 记录时不分配对象。可以随时通过{@link #getStats(int)}查询, 也可以通过{@link Listener}定期上报。
+ * <p>
+ * 只能在主线程使用。同一个实例可以设置给多个RecyclerView, 统计会合并。
+ */
+public final class ItemLatencyMetrics {
+    //默认的帧预算, 没有deadline的绑定超过它就算超时
+    public static final long DEFAULT_FRAME_BUDGET_NS = 16_666_666L;
+
+    /**
+     * 定期上报的回调, 在主线程调用
+     */
+    public interface Listener {
+        void onReport(@NonNull List<TypeStats> stats);
+    }
+
+    /**
+     * 某个viewType的统计快照, 耗时单位都是纳秒
+     */
+    public static final class TypeStats {
+        public final int viewType;
+        public final long createCount;
+        public final long createP50Ns;
+        public final long createP90Ns;
+        public final long createP99Ns;
+        public final long bindCount;
+        public final long bindP50Ns;
+        public final long bindP90Ns;
+        public final long bindP99Ns;
+        //超过deadline(或帧预算)的绑定次数
+        public final long bindDeadlineMissCount;
+
+        TypeStats(int viewType, @NonNull Histogram create, @NonNull Histogram bind,
+                  long bindDeadlineMissCount) {
+            this.viewType = viewType;
+            createCount = create.mCount;
+            createP50Ns = create.percentile(0.5);
+            createP90Ns = create.percentile(0.9);
+            createP99Ns = create.percentile(0.99);
+            bindCount = bind.mCount;
+            bindP50Ns = bind.percentile(0.5);
+            bindP90Ns = bind.percentile(0.9);
+            bindP99Ns = bind.percentile(0.99);
+            this.bindDeadlineMissCount = bindDeadlineMissCount;
+        }
+
+        @Override
+        public String toString() {
+            return "TypeStats{viewType=" + viewType
+                    + ", create=" + createCount + " p50/p90/p99=" + createP50Ns + "/"
+                    + createP90Ns + "/" + createP99Ns
+                    + ", bind=" + bindCount + " p50/p90/p99=" + bindP50Ns + "/"
+                    + bindP90Ns + "/" + bindP99Ns
+                    + ", bindDeadlineMiss=" + bindDeadlineMissCount + "}";
+        }
+    }
+
+    private final long mFrameBudgetNs;
+    private final SparseArray<TypeMetrics> mTypes = new SparseArray<>();
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    @Nullable
+    private Listener mListener;
+    private long mReportIntervalMs;
+    private boolean mResetAfterReport;
+
+    private final Runnable mReportRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (mListener == null) {
+                return;
+            }
+            mListener.onReport(getAllStats());
+            if (mResetAfterReport) {
+                reset();
+            }
+            mMainHandler.postDelayed(this, mReportIntervalMs);
+        }
+    };
+
+    public ItemLatencyMetrics() {
+        this(DEFAULT_FRAME_BUDGET_NS);
+    }
+
+    /**
+     * @param frameBudgetNs 没有deadline的绑定(布局时同步绑定)超过这个耗时算作超时
+     */
+    public ItemLatencyMetrics(long frameBudgetNs) {
+        mFrameBudgetNs = frameBudgetNs;
+    }
+
+    /**
+     * 每隔intervalMs上报一次统计
+     *
+     * @param resetAfterReport 上报之后是否清空, 清空时每次上报的是这个周期内的数据
+     */
+    public void setListener(@Nullable Listener listener, long intervalMs,
+                            boolean resetAfterReport) {
+        mMainHandler.removeCallbacks(mReportRunnable);
+        mListener = listener;
+        mReportIntervalMs = intervalMs;
+        mResetAfterReport = resetAfterReport;
+        if (listener != null) {
+            if (intervalMs <= 0) {
+                throw new IllegalArgumentException("intervalMs must be positive");
+            }
+            mMainHandler.postDelayed(mReportRunnable, intervalMs);
+        }
+    }
+
+    void recordCreate(int viewType, long durationNs) {
+        getTypeMetrics(viewType).mCreate.record(durationNs);
+    }
+
+    /**
+     * @param deadlineNs 绑定的deadline, FOREVER_NS表示没有deadline, 这时用帧预算判断是否超时
+     */
+    void recordBind(int viewType, long startNs, long endNs, long deadlineNs) {
+        final TypeMetrics metrics = getTypeMetrics(viewType);
+        final long durationNs = endNs - startNs;
+        metrics.mBind.record(durationNs);
+        final boolean missed = deadlineNs == RecyclerView.FOREVER_NS
+                ? durationNs > mFrameBudgetNs : endNs > deadlineNs;
+        if (missed) {
+            metrics.mBindDeadlineMissCount++;
+        }
+    }
+
+    @NonNull
+    private TypeMetrics getTypeMetrics(int viewType) {
+        TypeMetrics metrics = mTypes.get(viewType);
+        if (metrics == null) {
+            metrics = new TypeMetrics();
+            mTypes.put(viewType, metrics);
+        }
+        return metrics;
+    }
+
+    /**
+     * viewType的统计快照, 没有记录时返回null
+     */
+    @Nullable
+    public TypeStats getStats(int viewType) {
+        final TypeMetrics metrics = mTypes.get(viewType);
+        if (metrics == null) {
+            return null;
+        }
+        return new TypeStats(viewType, metrics.mCreate, metrics.mBind,
+                metrics.mBindDeadlineMissCount);
+    }
+
+    @NonNull
+    public List<TypeStats> getAllStats() {
+        final int size = mTypes.size();
+        final ArrayList<TypeStats> stats = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            final TypeMetrics metrics = mTypes.valueAt(i);
+            stats.add(new TypeStats(mTypes.keyAt(i), metrics.mCreate, metrics.mBind,
+                    metrics.mBindDeadlineMissCount));
+        }
+        return stats;
+    }
+
+    /**
+     * 清空所有统计, 直方图的数组会保留下来复用
+     */
+    public void reset() {
+        for (int i = 0; i < mTypes.size(); i++) {
+            final TypeMetrics metrics = mTypes.valueAt(i);
+            metrics.mCreate.clear();
+            metrics.mBind.clear();
+            metrics.mBindDeadlineMissCount = 0;
+        }
+    }
+
+    private static final class TypeMetrics {
+        final Histogram mCreate = new Histogram();
+        final Histogram mBind = new Histogram();
+        long mBindDeadlineMissCount;
+    }
+
+    /**
+     * 对数分桶的直方图
+     * <p>
+     * 小于2^MIN_EXPONENT纳秒的都在第0个桶; 之后每个2的幂分SUB_BUCKETS个桶, 最大到2^MAX_EXPONENT纳秒
+     */
+    static final class Histogram {
+        private static final int MIN_EXPONENT = 10;
+        private static final int MAX_EXPONENT = 36;
+        private static final int SUB_BUCKET_BITS = 3;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        static final int BUCKET_COUNT = (MAX_EXPONENT - MIN_EXPONENT) * SUB_BUCKETS + 1;
+
+        final long[] mBuckets = new long[BUCKET_COUNT];
+        long mCount;
+
+        static int bucketOf(long valueNs) {
+            if (valueNs < (1L << MIN_EXPONENT)) {
+                return 0;
+            }
+            final int exponent = 63 - Long.numberOfLeadingZeros(valueNs);
+            if (exponent >= MAX_EXPONENT) {
+                return BUCKET_COUNT - 1;
+            }
+            final int sub = (int) (valueNs >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+            return (exponent - MIN_EXPONENT) * SUB_BUCKETS + sub + 1;
+        }
+
+        /**
+         * 桶的上界, 作为落在这个桶里的值的估计
+         */
+        static long upperBoundOf(int bucket) {
+            if (bucket == 0) {
+                return 1L << MIN_EXPONENT;
+            }
+            final int exponent = (bucket - 1) / SUB_BUCKETS + MIN_EXPONENT;
+            final int sub = (bucket - 1) % SUB_BUCKETS;
+            return (1L << exponent) + ((long) (sub + 1) << (exponent - SUB_BUCKET_BITS));
+        }
+
+        void record(long valueNs) {
+            mBuckets[bucketOf(valueNs)]++;
+            mCount++;
+        }
+
+        long percentile(double fraction) {
+            if (mCount == 0) {
+                return 0;
+            }
+            final long target = Math.max(1, (long) Math.ceil(mCount * fraction));
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                seen += mBuckets[i];
+                if (seen >= target) {
+                    return upperBoundOf(i);
+                }
+            }
+            return upperBoundOf(BUCKET_COUNT - 1);
+        }
+
+        void clear() {
+            Arrays.fill(mBuckets, 0);
+            mCount = 0;
+        }
+    }
+}
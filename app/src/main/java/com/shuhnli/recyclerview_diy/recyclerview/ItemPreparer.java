@@ -0,0 +1,193 @@
+package com.shuhnli.recyclerview_diy.recyclerview;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LongSparseArray;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.shuhnli.recyclerview_diy.layoutManager.LayoutManager;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 在工作线程上为即将出现的位置执行{@link Adapter#onPrepareItem(Object)}, 结果按item id缓存
+ * <p>
+ * 需要准备哪些位置由LayoutManager通过{@link LayoutManager.LayoutPrefetchRegistry#addPosition(int, int)}报告,
+ * 绑定时如果缓存中已经有准备好的结果, 会通过{@link Adapter#onBindPreparedViewHolder}交给Adapter。
+ * <p>
+ * 工作线程只拿到主线程上取得的item快照, 不读取position; 结构变化不影响正在执行的任务,
+ * 只有内容变化的item对应的任务会被作废。
+ * <p>
+ * 除了onPrepareItem本身, 所有状态只在主线程访问
+ */
+final class ItemPreparer extends RecyclerView.AdapterDataObserver
+        implements LayoutManager.LayoutPrefetchRegistry {
+
+    private static final Object sExecutorLock = new Object();
+    private static ExecutorService sPrepareExecutor;
+
+    private final Adapter<?> mAdapter;
+    private final Executor mExecutor;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    //item id -> 准备好的结果, 按long查询, 绑定时不会装箱
+    private final LongSparseArray<Prepared> mPrepared = new LongSparseArray<>();
+    private final int mMaxPreparedItems;
+    //放入mPrepared的顺序, 超过容量时淘汰最早放入的
+    private int mNextSequence;
+    //正在准备的item id -> 这次请求的token, 只接受token匹配的结果
+    private final LongSparseArray<Object> mPending = new LongSparseArray<>();
+
+    ItemPreparer(@NonNull Adapter<?> adapter, int maxPreparedItems) {
+        mAdapter = adapter;
+        mMaxPreparedItems = maxPreparedItems;
+        mExecutor = getDefaultExecutor();
+    }
+
+    private static Executor getDefaultExecutor() {
+        synchronized (sExecutorLock) {
+            if (sPrepareExecutor == null) {
+                sPrepareExecutor = Executors.newFixedThreadPool(2, new ThreadFactory() {
+                    private int mCount = 0;
+
+                    @Override
+                    public Thread newThread(@NonNull Runnable r) {
+                        final Thread thread = new Thread(r, "RV-Prepare-" + (mCount++));
+                        thread.setPriority(Thread.MIN_PRIORITY);
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+            }
+            return sPrepareExecutor;
+        }
+    }
+
+    /**
+     * 滑动时收集LayoutManager的预取位置, 为它们提交准备任务
+     */
+    void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+        final LayoutManager layout = recyclerView.getLayoutManager();
+        if (layout == null || !layout.isItemPrefetchEnabled() || (dx == 0 && dy == 0)) {
+            return;
+        }
+        layout.collectAdjacentPrefetchPositions(dx, dy, recyclerView.mState, this);
+    }
+
+    @Override
+    public void addPosition(int layoutPosition, int pixelDistance) {
+        if (layoutPosition < 0 || layoutPosition >= mAdapter.getItemCount()) {
+            return;
+        }
+        final long itemId = mAdapter.getItemId(layoutPosition);
+        if (itemId == RecyclerView.NO_ID
+                || mPrepared.get(itemId) != null || mPending.get(itemId) != null) {
+            return;
+        }
+        // 快照在主线程上取得, 工作线程执行时position可能已经失效
+        final Object itemSnapshot = mAdapter.getItemSnapshot(layoutPosition);
+        if (itemSnapshot == null) {
+            return;
+        }
+        final Object token = new Object();
+        mPending.put(itemId, token);
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Object model = mAdapter.onPrepareItem(itemSnapshot);
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (mPending.get(itemId) != token) {
+                            // item的内容在准备期间变化了
+                            return;
+                        }
+                        mPending.remove(itemId);
+                        if (model != null) {
+                            putPrepared(itemId, model);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    private void putPrepared(long itemId, @NonNull Object model) {
+        if (mPrepared.size() >= mMaxPreparedItems) {
+            // 容量很小, 线性查找最早放入的结果
+            int oldestIndex = 0;
+            for (int i = 1; i < mPrepared.size(); i++) {
+                if (mPrepared.valueAt(i).mSequence < mPrepared.valueAt(oldestIndex).mSequence) {
+                    oldestIndex = i;
+                }
+            }
+            mPrepared.removeAt(oldestIndex);
+        }
+        mPrepared.put(itemId, new Prepared(model, mNextSequence++));
+    }
+
+    /**
+     * 取出已经准备好的结果, 没有时返回null
+     * 结果只使用一次, 重新绑定时需要重新准备
+     */
+    @Nullable
+    Object consume(long itemId) {
+        if (itemId == RecyclerView.NO_ID || mPrepared.size() == 0) {
+            return null;
+        }
+        final int index = mPrepared.indexOfKey(itemId);
+        if (index < 0) {
+            return null;
+        }
+        final Object model = mPrepared.valueAt(index).mModel;
+        mPrepared.removeAt(index);
+        return model;
+    }
+
+    private void invalidateAll() {
+        mPending.clear();
+        mPrepared.clear();
+    }
+
+    private void invalidateRange(int positionStart, int itemCount) {
+        // 内容变化的item, 已有的结果和正在执行的任务都作废
+        final int end = Math.min(positionStart + itemCount, mAdapter.getItemCount());
+        for (int position = Math.max(0, positionStart); position < end; position++) {
+            final long itemId = mAdapter.getItemId(position);
+            mPrepared.remove(itemId);
+            mPending.remove(itemId);
+        }
+    }
+
+    @Override
+    public void onChanged() {
+        invalidateAll();
+    }
+
+    @Override
+    public void onItemRangeChanged(int positionStart, int itemCount) {
+        invalidateRange(positionStart, itemCount);
+    }
+
+    @Override
+    public void onItemRangeChanged(int positionStart, int itemCount, @Nullable Object payload) {
+        invalidateRange(positionStart, itemCount);
+    }
+
+    // 结构变化不影响已缓存的结果和正在执行的任务: 都是按id保存的, 任务使用的也是提交时的快照
+
+    private static final class Prepared {
+        final Object mModel;
+        final int mSequence;
+
+        Prepared(Object model, int sequence) {
+            mModel = model;
+            mSequence = sequence;
+        }
+    }
+}
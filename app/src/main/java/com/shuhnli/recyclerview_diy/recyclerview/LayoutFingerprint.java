@@ -0,0 +1,65 @@
+package com.shuhnli.recyclerview_diy.recyclerview;
+
+import android.view.View;
+
+/**
+ * 一次布局的输入: adapter数据的版本、请求布局的次数、尺寸和测量模式、子View数量和锚点(第一个子View)
+ * <p>
+ * 和上一次完整布局结束时的指纹相同时, 再布局一次也只会得到相同的结果
+ */
+final class LayoutFingerprint {
+    private boolean mValid;
+    private int mAdapterGeneration;
+    private int mLayoutRequestGeneration;
+    private int mItemCount;
+    private int mWidth;
+    private int mHeight;
+    private int mWidthMode;
+    private int mHeightMode;
+    private int mChildCount;
+    private int mAnchorPosition;
+    private int mAnchorLeft;
+    private int mAnchorTop;
+
+    void capture(RecyclerView recyclerView) {
+        mAdapterGeneration = recyclerView.mAdapterGeneration;
+        mLayoutRequestGeneration = recyclerView.mLayoutRequestGeneration;
+        mItemCount = recyclerView.mAdapter != null ? recyclerView.mAdapter.getItemCount() : 0;
+        mWidth = recyclerView.getWidth();
+        mHeight = recyclerView.getHeight();
+        mWidthMode = recyclerView.mLayout != null ? recyclerView.mLayout.getWidthMode() : 0;
+        mHeightMode = recyclerView.mLayout != null ? recyclerView.mLayout.getHeightMode() : 0;
+        mChildCount = recyclerView.mChildHelper.getChildCount();
+        if (mChildCount > 0) {
+            final View anchor = recyclerView.mChildHelper.getChildAt(0);
+            final ViewHolder holder = RecyclerView.getChildViewHolderInt(anchor);
+            mAnchorPosition = holder != null ? holder.getLayoutPosition() : RecyclerView.NO_POSITION;
+            mAnchorLeft = anchor.getLeft();
+            mAnchorTop = anchor.getTop();
+        } else {
+            mAnchorPosition = RecyclerView.NO_POSITION;
+            mAnchorLeft = 0;
+            mAnchorTop = 0;
+        }
+        mValid = true;
+    }
+
+    void invalidate() {
+        mValid = false;
+    }
+
+    boolean sameAs(LayoutFingerprint other) {
+        return mValid && other.mValid
+                && mAdapterGeneration == other.mAdapterGeneration
+                && mLayoutRequestGeneration == other.mLayoutRequestGeneration
+                && mItemCount == other.mItemCount
+                && mWidth == other.mWidth
+                && mHeight == other.mHeight
+                && mWidthMode == other.mWidthMode
+                && mHeightMode == other.mHeightMode
+                && mChildCount == other.mChildCount
+                && mAnchorPosition == other.mAnchorPosition
+                && mAnchorLeft == other.mAnchorLeft
+                && mAnchorTop == other.mAnchorTop;
+    }
+}
@@ -0,0 +1,39 @@
+package com.shuhnli.recyclerview_diy.recyclerview;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.List;
+
+/**
+ * 基于{@link AsyncListDiffer}的Adapter, 只需要submitList, 差异在后台计算后自动分发notify事件
+ */
+public abstract class ListAdapter<T, VH extends ViewHolder> extends Adapter<VH> {
+    final AsyncListDiffer<T> mDiffer;
+
+    protected ListAdapter(@NonNull DiffUtil.ItemCallback<T> diffCallback) {
+        mDiffer = new AsyncListDiffer<>(this, diffCallback);
+    }
+
+    public void submitList(@Nullable List<T> list) {
+        mDiffer.submitList(list);
+    }
+
+    public void submitList(@Nullable List<T> list, @Nullable Runnable commitCallback) {
+        mDiffer.submitList(list, commitCallback);
+    }
+
+    protected T getItem(int position) {
+        return mDiffer.getCurrentList().get(position);
+    }
+
+    @Override
+    public int getItemCount() {
+        return mDiffer.getCurrentList().size();
+    }
+
+    @NonNull
+    public List<T> getCurrentList() {
+        return mDiffer.getCurrentList();
+    }
+}
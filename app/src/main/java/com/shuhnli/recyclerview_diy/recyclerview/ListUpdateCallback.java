@@ -0,0 +1,22 @@
+package com.shuhnli.recyclerview_diy.recyclerview;
+
+import androidx.annotation.Nullable;
+
+/**
+ * 接收列表更新事件的接口, 由{@link DiffUtil.DiffResult#dispatchUpdatesTo(ListUpdateCallback)}回调
+ * 事件的顺序就是应用到旧列表上的顺序, 每个事件里的position都是基于前面事件执行之后的列表
+ */
+public interface ListUpdateCallback {
+
+    //在position处插入了count个item
+    void onInserted(int position, int count);
+
+    //从position处移除了count个item
+    void onRemoved(int position, int count);
+
+    //把fromPosition的item移动到toPosition
+    void onMoved(int fromPosition, int toPosition);
+
+    //从position开始的count个item内容发生了变化
+    void onChanged(int position, int count, @Nullable Object payload);
+}
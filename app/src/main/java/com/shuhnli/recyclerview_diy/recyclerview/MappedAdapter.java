@@ -0,0 +1,72 @@
+package com.shuhnli.recyclerview_diy.recyclerview;
+
+import androidx.annotation.NonNull;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 数据来自{@link MappedRecordStore}的Adapter
+ * <p>
+ * getItemCount和getItemId直接读取映射的内存, 记录只在绑定时解码到一个复用的flyweight对象中,
+ * 所以不管数据集多大, 堆上都只有一个解码后的对象。
+ * flyweight在{@link #onBindRecord}返回后就会被下一条记录覆盖, 不能被ViewHolder持有。
+ */
+public abstract class MappedAdapter<T, VH extends ViewHolder> extends Adapter<VH> {
+
+    /**
+     * 把一条记录解码到target中
+     */
+    public interface RecordDecoder<T> {
+        void decode(@NonNull ByteBuffer buffer, int offset, int length, @NonNull T target);
+    }
+
+    private final MappedRecordStore mStore;
+    private final RecordDecoder<T> mDecoder;
+    //绑定时复用的解码对象
+    private final T mFlyweight;
+
+    protected MappedAdapter(@NonNull MappedRecordStore store, @NonNull RecordDecoder<T> decoder,
+                            @NonNull T flyweight) {
+        mStore = store;
+        mDecoder = decoder;
+        mFlyweight = flyweight;
+        if (store.hasIdField()) {
+            setHasStableIds(true);
+        }
+    }
+
+    @NonNull
+    public MappedRecordStore getStore() {
+        return mStore;
+    }
+
+    @Override
+    public int getItemCount() {
+        return mStore.getRecordCount();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return mStore.getRecordId(position);
+    }
+
+    @Override
+    public final void onBindViewHolder(@NonNull VH holder, int position) {
+        onBindRecord(holder, position, decode(position));
+    }
+
+    /**
+     * 把position处的记录解码到flyweight中并返回, 只能在主线程使用
+     */
+    @NonNull
+    protected final T decode(int position) {
+        mDecoder.decode(mStore.getBuffer(), mStore.getRecordOffset(position),
+                mStore.getRecordLength(position), mFlyweight);
+        return mFlyweight;
+    }
+
+    /**
+     * 用解码后的记录更新ViewHolder, record是复用的对象, 不能保存
+     */
+    public abstract void onBindRecord(@NonNull VH holder, int position, @NonNull T record);
+}
@@ -0,0 +1,175 @@
+package com.shuhnli.recyclerview_diy.recyclerview;
+
+import androidx.annotation.NonNull;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * 只读内存映射的二进制记录文件, 数据不加载到Java堆上
+ * <p>
+ * 支持两种格式:
+ * 1. 定长记录: [header][record 0][record 1]..., 每条记录recordSize字节
+ * 2. 带偏移索引的变长记录: [int count][int offset 0]...[int offset count][data],
+ * offset相对于data的起点, 第i条记录是[offset i, offset i+1)
+ * <p>
+ * 单个文件不能超过2GB(MappedByteBuffer的限制)
+ */
+public final class MappedRecordStore implements Closeable {
+    public static final int NO_ID_FIELD = -1;
+
+    private final RandomAccessFile mFile;
+    private final MappedByteBuffer mBuffer;
+    private final int mRecordCount;
+    //定长格式: 第一条记录的位置和记录大小; 变长格式下mRecordSize为0
+    private final int mDataStart;
+    private final int mRecordSize;
+    //变长格式: 偏移索引的起点
+    private final int mIndexStart;
+    //记录内id字段(long)的偏移, 没有id时为NO_ID_FIELD
+    private final int mIdFieldOffset;
+
+    private MappedRecordStore(RandomAccessFile file, MappedByteBuffer buffer, int recordCount,
+                              int dataStart, int recordSize, int indexStart,
+                              int idFieldOffset) {
+        mFile = file;
+        mBuffer = buffer;
+        mRecordCount = recordCount;
+        mDataStart = dataStart;
+        mRecordSize = recordSize;
+        mIndexStart = indexStart;
+        mIdFieldOffset = idFieldOffset;
+    }
+
+    /**
+     * 打开定长记录格式的文件
+     *
+     * @param headerSize    文件头的字节数, 会被跳过
+     * @param recordSize    每条记录的字节数
+     * @param idFieldOffset 记录内long类型id字段的偏移, 没有时传{@link #NO_ID_FIELD}
+     */
+    @NonNull
+    public static MappedRecordStore openFixedStride(@NonNull File file, int headerSize,
+                                                    int recordSize, int idFieldOffset,
+                                                    @NonNull ByteOrder order) throws IOException {
+        if (recordSize <= 0) {
+            throw new IllegalArgumentException("recordSize must be positive");
+        }
+        if (idFieldOffset != NO_ID_FIELD && (idFieldOffset < 0 || idFieldOffset + 8 > recordSize)) {
+            throw new IllegalArgumentException("id field is out of the record");
+        }
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            final MappedByteBuffer buffer = map(raf, order);
+            final int recordCount = (buffer.capacity() - headerSize) / recordSize;
+            if (recordCount < 0) {
+                throw new IOException("file is smaller than its header: " + file);
+            }
+            return new MappedRecordStore(raf, buffer, recordCount, headerSize, recordSize, 0,
+                    idFieldOffset);
+        } catch (IOException | RuntimeException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 打开带偏移索引的变长记录格式的文件
+     *
+     * @param idFieldOffset 记录内long类型id字段的偏移, 没有时传{@link #NO_ID_FIELD}
+     */
+    @NonNull
+    public static MappedRecordStore openIndexed(@NonNull File file, int idFieldOffset,
+                                                @NonNull ByteOrder order) throws IOException {
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            final MappedByteBuffer buffer = map(raf, order);
+            final int recordCount = buffer.getInt(0);
+            final int indexStart = 4;
+            final long dataStart = indexStart + 4L * (recordCount + 1L);
+            if (recordCount < 0 || dataStart > buffer.capacity()) {
+                throw new IOException("corrupted record index: " + file);
+            }
+            return new MappedRecordStore(raf, buffer, recordCount, (int) dataStart, 0,
+                    indexStart, idFieldOffset);
+        } catch (IOException | RuntimeException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    private static MappedByteBuffer map(RandomAccessFile raf, ByteOrder order)
+            throws IOException {
+        final FileChannel channel = raf.getChannel();
+        final long size = channel.size();
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("file is too large to map: " + size);
+        }
+        final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        buffer.order(order);
+        return buffer;
+    }
+
+    public int getRecordCount() {
+        return mRecordCount;
+    }
+
+    public boolean hasIdField() {
+        return mIdFieldOffset != NO_ID_FIELD;
+    }
+
+    /**
+     * 直接从映射的内存中读取id, 不解码记录
+     */
+    public long getRecordId(int position) {
+        if (mIdFieldOffset == NO_ID_FIELD) {
+            return RecyclerView.NO_ID;
+        }
+        return mBuffer.getLong(getRecordOffset(position) + mIdFieldOffset);
+    }
+
+    /**
+     * 记录在buffer中的起始位置
+     */
+    public int getRecordOffset(int position) {
+        checkPosition(position);
+        if (mRecordSize > 0) {
+            return mDataStart + position * mRecordSize;
+        }
+        return mDataStart + mBuffer.getInt(mIndexStart + position * 4);
+    }
+
+    public int getRecordLength(int position) {
+        checkPosition(position);
+        if (mRecordSize > 0) {
+            return mRecordSize;
+        }
+        final int index = mIndexStart + position * 4;
+        return mBuffer.getInt(index + 4) - mBuffer.getInt(index);
+    }
+
+    /**
+     * 映射的只读buffer, 只应该使用绝对位置的读取方法(getInt(index)等)
+     */
+    @NonNull
+    public ByteBuffer getBuffer() {
+        return mBuffer;
+    }
+
+    private void checkPosition(int position) {
+        if (position < 0 || position >= mRecordCount) {
+            throw new IndexOutOfBoundsException("Index: " + position + ", Size: " + mRecordCount);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        mFile.close();
+    }
+}
@@ -0,0 +1,324 @@
+package com.shuhnli.recyclerview_diy.recyclerview;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.shuhnli.recyclerview_diy.layoutManager.LayoutManager;
+
+import java.util.List;
+
+/**
+ * 分页加载的Adapter, 数据按固定大小的页通过{@link PageLoader}加载
+ * <p>
+ * 1. 还没有加载的位置是占位符, {@link #getItem(int)}返回null
+ * 2. 需要加载哪些页由可见位置和LayoutManager的预取位置决定:
+ * 滑动时调用{@link LayoutManager#collectAdjacentPrefetchPositions}, 和预取使用相同的距离
+ * 3. 只保留可见和预取范围前后windowPages页的数据, 窗口之外的页会被丢弃, 内存占用不随滑动距离增长
+ * <p>
+ * 必须在主线程使用
+ */
+public abstract class PagedAdapter<T, VH extends ViewHolder> extends Adapter<VH> {
+
+    /**
+     * 分页数据源, loadPage可以在任意线程回调结果
+     */
+    public interface PageLoader<T> {
+        //数据总数, 决定占位符的数量
+        int getTotalCount();
+
+        //加载从startPosition开始的loadSize个item, 完成后调用callback
+        void loadPage(int startPosition, int loadSize, @NonNull PageCallback<T> callback);
+    }
+
+    public interface PageCallback<T> {
+        void onPageLoaded(@NonNull List<T> items);
+    }
+
+    private final PageLoader<T> mLoader;
+    private final int mPageSize;
+    //当前页前后各保留多少页
+    private final int mWindowPages;
+
+    //pageIndex -> 这一页的item
+    private final SparseArray<Object[]> mPages = new SparseArray<>();
+    //正在加载的页 -> 这次加载请求的token, 只接受token匹配的结果
+    //invalidate或移出窗口时删除, 过期的结果和重新请求之前的旧结果都会被丢弃
+    private final SparseIntArray mLoadingPages = new SparseIntArray();
+    private int mNextLoadToken = 1;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    private int mTotalCount;
+
+    //最近一次被访问的页的范围, 窗口以它为中心
+    private int mFirstAccessedPage = -1;
+    private int mLastAccessedPage = -1;
+
+    //被丢弃的页需要通知的位置范围, 窗口前后各一段, 合并之后在下一个消息里统一notify
+    private int mTrimmedBeforeStart = RecyclerView.NO_POSITION;
+    private int mTrimmedBeforeEnd = RecyclerView.NO_POSITION;
+    private int mTrimmedAfterStart = RecyclerView.NO_POSITION;
+    private int mTrimmedAfterEnd = RecyclerView.NO_POSITION;
+    private boolean mTrimNotifyPosted;
+    private final Runnable mTrimNotifyRunnable = new Runnable() {
+        @Override
+        public void run() {
+            dispatchTrimmedRanges();
+        }
+    };
+
+    private final PrefetchCollector mPrefetchCollector = new PrefetchCollector();
+
+    private final RecyclerView.OnScrollListener mScrollListener = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+            final LayoutManager layout = recyclerView.getLayoutManager();
+            if (layout == null || !layout.isItemPrefetchEnabled() || (dx == 0 && dy == 0)) {
+                return;
+            }
+            mPrefetchCollector.reset();
+            layout.collectAdjacentPrefetchPositions(dx, dy, recyclerView.mState,
+                    mPrefetchCollector);
+            // 可见的位置也要在窗口内, 否则可见范围超过一页时, 可见的页会被丢弃又在绑定时重新加载
+            final int childCount = layout.getChildCount();
+            for (int i = 0; i < childCount; i++) {
+                final View child = layout.getChildAt(i);
+                if (child != null) {
+                    mPrefetchCollector.addPosition(layout.getPosition(child), 0);
+                }
+            }
+            if (mPrefetchCollector.mMinPosition != RecyclerView.NO_POSITION) {
+                loadAround(mPrefetchCollector.mMinPosition, mPrefetchCollector.mMaxPosition);
+            }
+        }
+    };
+
+    /**
+     * @param pageSize    每页的item数量
+     * @param windowPages 当前访问的页前后各保留的页数
+     */
+    protected PagedAdapter(@NonNull PageLoader<T> loader, int pageSize, int windowPages) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize must be positive");
+        }
+        if (windowPages < 1) {
+            // 窗口至少要覆盖预取位置和可见位置之间的那一页
+            throw new IllegalArgumentException("windowPages must be at least 1");
+        }
+        mLoader = loader;
+        mPageSize = pageSize;
+        mWindowPages = windowPages;
+        mTotalCount = loader.getTotalCount();
+    }
+
+    @Override
+    public int getItemCount() {
+        return mTotalCount;
+    }
+
+    /**
+     * 获取position处的item, 还没加载时返回null(占位符), 并触发这一页的加载
+     * 一般在onBindViewHolder中调用, 这里只加载不丢弃, 丢弃页只在滑动回调中进行
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public T getItem(int position) {
+        if (position < 0 || position >= mTotalCount) {
+            throw new IndexOutOfBoundsException("Index: " + position + ", Size: " + mTotalCount);
+        }
+        loadPageIfNeeded(position / mPageSize);
+        final Object[] page = mPages.get(position / mPageSize);
+        return page == null ? null : (T) page[position % mPageSize];
+    }
+
+    /**
+     * 不触发加载, 只查看position处是否已经加载
+     */
+    public boolean isPlaceholder(int position) {
+        final Object[] page = mPages.get(position / mPageSize);
+        return page == null;
+    }
+
+    /**
+     * 数据源发生了变化, 丢弃所有已加载的页和正在加载的结果, 重新读取总数
+     */
+    public void invalidate() {
+        mPages.clear();
+        mLoadingPages.clear();
+        // notifyDataSetChanged已经覆盖了被丢弃的页
+        mTrimmedBeforeStart = mTrimmedAfterStart = RecyclerView.NO_POSITION;
+        mTrimmedBeforeEnd = mTrimmedAfterEnd = RecyclerView.NO_POSITION;
+        mTotalCount = mLoader.getTotalCount();
+        notifyDataSetChanged();
+    }
+
+    /**
+     * 确保[minPosition, maxPosition]覆盖的页已经加载或正在加载, 并丢弃窗口之外的页
+     * 丢弃页的notify会post到下一个消息, 可以在滑动回调中调用
+     */
+    void loadAround(int minPosition, int maxPosition) {
+        if (mTotalCount == 0) {
+            return;
+        }
+        final int lastPage = (mTotalCount - 1) / mPageSize;
+        final int firstPage = Math.max(0, Math.min(minPosition, maxPosition) / mPageSize);
+        final int endPage = Math.min(lastPage, Math.max(minPosition, maxPosition) / mPageSize);
+        if (firstPage == mFirstAccessedPage && endPage == mLastAccessedPage) {
+            return;
+        }
+        mFirstAccessedPage = firstPage;
+        mLastAccessedPage = endPage;
+        for (int pageIndex = firstPage; pageIndex <= endPage; pageIndex++) {
+            loadPageIfNeeded(pageIndex);
+        }
+        trimPages(firstPage - mWindowPages, endPage + mWindowPages);
+    }
+
+    private void loadPageIfNeeded(final int pageIndex) {
+        if (mPages.get(pageIndex) != null || mLoadingPages.indexOfKey(pageIndex) >= 0) {
+            return;
+        }
+        final int token = mNextLoadToken++;
+        mLoadingPages.put(pageIndex, token);
+        final int startPosition = pageIndex * mPageSize;
+        final int loadSize = Math.min(mPageSize, mTotalCount - startPosition);
+        mLoader.loadPage(startPosition, loadSize, new PageCallback<T>() {
+            @Override
+            public void onPageLoaded(@NonNull final List<T> items) {
+                // 即使是在主线程同步回调也要post, 因为可能正处于onBindViewHolder中, 不能notify
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onPageLoadedInternal(token, pageIndex, items);
+                    }
+                });
+            }
+        });
+    }
+
+    void onPageLoadedInternal(int token, int pageIndex, @NonNull List<T> items) {
+        if (mLoadingPages.get(pageIndex, 0) != token) {
+            // 数据源已经失效, 或者这一页在加载期间被移出窗口后又重新请求了, 只接受最新一次请求的结果
+            return;
+        }
+        mLoadingPages.delete(pageIndex);
+        final int startPosition = pageIndex * mPageSize;
+        final int loadSize = Math.min(mPageSize, mTotalCount - startPosition);
+        if (items.size() != loadSize) {
+            throw new IllegalStateException("PageLoader returned " + items.size()
+                    + " items for page " + pageIndex + ", expected " + loadSize);
+        }
+        final Object[] page = items.toArray();
+        mPages.put(pageIndex, page);
+        // 占位符变成了真实数据
+        notifyItemRangeChanged(startPosition, loadSize);
+    }
+
+    /**
+     * 丢弃[keepFirstPage, keepLastPage]之外的页
+     */
+    private void trimPages(int keepFirstPage, int keepLastPage) {
+        for (int i = mPages.size() - 1; i >= 0; i--) {
+            final int pageIndex = mPages.keyAt(i);
+            if (pageIndex < keepFirstPage || pageIndex > keepLastPage) {
+                mPages.removeAt(i);
+                // 缓存中的ViewHolder可能还持有这一页的数据, 需要重新绑定成占位符
+                final int startPosition = pageIndex * mPageSize;
+                final int endPosition = Math.min(startPosition + mPageSize, mTotalCount);
+                if (pageIndex < keepFirstPage) {
+                    if (mTrimmedBeforeStart == RecyclerView.NO_POSITION) {
+                        mTrimmedBeforeStart = startPosition;
+                        mTrimmedBeforeEnd = endPosition;
+                    } else {
+                        mTrimmedBeforeStart = Math.min(mTrimmedBeforeStart, startPosition);
+                        mTrimmedBeforeEnd = Math.max(mTrimmedBeforeEnd, endPosition);
+                    }
+                } else {
+                    if (mTrimmedAfterStart == RecyclerView.NO_POSITION) {
+                        mTrimmedAfterStart = startPosition;
+                        mTrimmedAfterEnd = endPosition;
+                    } else {
+                        mTrimmedAfterStart = Math.min(mTrimmedAfterStart, startPosition);
+                        mTrimmedAfterEnd = Math.max(mTrimmedAfterEnd, endPosition);
+                    }
+                }
+            }
+        }
+        if (!mTrimNotifyPosted && (mTrimmedBeforeStart != RecyclerView.NO_POSITION
+                || mTrimmedAfterStart != RecyclerView.NO_POSITION)) {
+            // 不在滑动回调里notify, 合并之后在下一个消息里分发
+            mTrimNotifyPosted = true;
+            mMainHandler.post(mTrimNotifyRunnable);
+        }
+        for (int i = mLoadingPages.size() - 1; i >= 0; i--) {
+            final int pageIndex = mLoadingPages.keyAt(i);
+            if (pageIndex < keepFirstPage || pageIndex > keepLastPage) {
+                mLoadingPages.removeAt(i);
+            }
+        }
+    }
+
+    void dispatchTrimmedRanges() {
+        mTrimNotifyPosted = false;
+        final int beforeStart = mTrimmedBeforeStart;
+        final int beforeEnd = Math.min(mTrimmedBeforeEnd, mTotalCount);
+        final int afterStart = mTrimmedAfterStart;
+        final int afterEnd = Math.min(mTrimmedAfterEnd, mTotalCount);
+        mTrimmedBeforeStart = mTrimmedAfterStart = RecyclerView.NO_POSITION;
+        mTrimmedBeforeEnd = mTrimmedAfterEnd = RecyclerView.NO_POSITION;
+        if (beforeStart != RecyclerView.NO_POSITION && beforeEnd > beforeStart) {
+            notifyItemRangeChanged(beforeStart, beforeEnd - beforeStart);
+        }
+        if (afterStart != RecyclerView.NO_POSITION && afterEnd > afterStart) {
+            notifyItemRangeChanged(afterStart, afterEnd - afterStart);
+        }
+    }
+
+    /**
+     * 当前持有的页数, 最多为 可见页数 + 2 * windowPages
+     */
+    public int getLoadedPageCount() {
+        return mPages.size();
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        recyclerView.addOnScrollListener(mScrollListener);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        recyclerView.removeOnScrollListener(mScrollListener);
+    }
+
+    /**
+     * 收集LayoutManager报告的预取位置, 只记录最小和最大的位置
+     */
+    private static class PrefetchCollector implements LayoutManager.LayoutPrefetchRegistry {
+        int mMinPosition = RecyclerView.NO_POSITION;
+        int mMaxPosition = RecyclerView.NO_POSITION;
+
+        void reset() {
+            mMinPosition = RecyclerView.NO_POSITION;
+            mMaxPosition = RecyclerView.NO_POSITION;
+        }
+
+        @Override
+        public void addPosition(int layoutPosition, int pixelDistance) {
+            if (layoutPosition < 0) {
+                return;
+            }
+            if (mMinPosition == RecyclerView.NO_POSITION || layoutPosition < mMinPosition) {
+                mMinPosition = layoutPosition;
+            }
+            if (layoutPosition > mMaxPosition) {
+                mMaxPosition = layoutPosition;
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.shuhnli.recyclerview_diy.recyclerview;
+
+import androidx.annotation.NonNull;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * 每个RecyclerView一份的payload存储, 代替每个ViewHolder各自持有的payload列表
+ * <p>
+ * ViewHolder收到第一个payload时借用一个槽位, 绑定完成(clearPayload)后归还,
+ * 槽位里的数组和只读列表视图都会被下一个借用者复用, 所以同时持有payload的ViewHolder数量稳定之后,
+ * 滑动和局部刷新不会再分配对象。缓存池里的ViewHolder不占用任何payload存储, 放不进缓存池或者不能回收
+ * 而被丢弃的ViewHolder也会归还槽位。
+ * <p>
+ * 只能在主线程使用
+ */
+final class PayloadStore {
+    static final int NO_SLOT = -1;
+
+    private static final int INITIAL_SLOT_CAPACITY = 4;
+
+    private Object[][] mPayloads = new Object[8][];
+    private int[] mCounts = new int[8];
+    private SlotList[] mViews = new SlotList[8];
+    private int mSlotCount;
+
+    //归还的槽位
+    private int[] mFreeSlots = new int[8];
+    private int mFreeCount;
+
+    /**
+     * 借用一个空的槽位
+     */
+    int acquire() {
+        if (mFreeCount > 0) {
+            return mFreeSlots[--mFreeCount];
+        }
+        final int slot = mSlotCount++;
+        if (slot == mPayloads.length) {
+            final int capacity = slot * 2;
+            mPayloads = Arrays.copyOf(mPayloads, capacity);
+            mCounts = Arrays.copyOf(mCounts, capacity);
+            mViews = Arrays.copyOf(mViews, capacity);
+        }
+        mPayloads[slot] = new Object[INITIAL_SLOT_CAPACITY];
+        mViews[slot] = new SlotList(slot);
+        return slot;
+    }
+
+    /**
+     * 归还槽位, 清掉对payload的引用
+     */
+    void release(int slot) {
+        Arrays.fill(mPayloads[slot], 0, mCounts[slot], null);
+        mCounts[slot] = 0;
+        if (mFreeCount == mFreeSlots.length) {
+            mFreeSlots = Arrays.copyOf(mFreeSlots, mFreeCount * 2);
+        }
+        mFreeSlots[mFreeCount++] = slot;
+    }
+
+    void add(int slot, @NonNull Object payload) {
+        Object[] payloads = mPayloads[slot];
+        final int count = mCounts[slot];
+        if (count == payloads.length) {
+            payloads = Arrays.copyOf(payloads, count * 2);
+            mPayloads[slot] = payloads;
+        }
+        payloads[count] = payload;
+        mCounts[slot] = count + 1;
+    }
+
+    int size(int slot) {
+        return mCounts[slot];
+    }
+
+    /**
+     * 槽位的只读视图, 槽位归还之后内容会变化, 不能保存
+     */
+    @NonNull
+    List<Object> list(int slot) {
+        return mViews[slot];
+    }
+
+    private final class SlotList extends AbstractList<Object> implements RandomAccess {
+        private final int mSlot;
+
+        SlotList(int slot) {
+            mSlot = slot;
+        }
+
+        @Override
+        public Object get(int index) {
+            if (index < 0 || index >= mCounts[mSlot]) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: "
+                        + mCounts[mSlot]);
+            }
+            return mPayloads[mSlot][index];
+        }
+
+        @Override
+        public int size() {
+            return mCounts[mSlot];
+        }
+    }
+}
@@ -78,6 +78,8 @@ public class RecycledViewPool {
         final int viewType = scrap.getItemViewType();
         final ArrayList<ViewHolder> scrapHeap = getScrapDataForType(viewType).mScrapHeap;
         if (mScrap.get(viewType).mMaxScrap <= scrapHeap.size()) {
+            // 丢弃这个ViewHolder, 归还它占用的payload槽位
+            scrap.clearPayload();
             return;
         }
         if (scrapHeap.contains(scrap)) {
@@ -117,6 +119,11 @@ public class RecycledViewPool {
         return expectedDurationNs == 0 || (approxCurrentNs + expectedDurationNs < deadlineNs);
     }
 
+    //预计绑定这一类型需要的时间, 还没有统计数据时为0
+    long getExpectedBindTimeNs(int viewType) {
+        return getScrapDataForType(viewType).mBindRunningAverageNs;
+    }
+
     void attach() {
         mAttachCount++;
     }
@@ -11,6 +11,7 @@ import androidx.core.view.ViewCompat;
 
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -51,6 +52,9 @@ public final class Recycler {
 
     static final int DEFAULT_CACHE_SIZE = 2;
 
+    //批量获取View时, 暂存需要绑定的ViewHolder
+    private final BatchBind mBatchBind = new BatchBind();
+
 
 
 
@@ -126,6 +130,7 @@ public final class Recycler {
                                                 int position, long deadlineNs) {
         holder.mBindingAdapter = null;
         holder.mOwnerRecyclerView = RecyclerView.this;
+        HolderLifecycleTracer.trace(holder, HolderLifecycleTracer.EVENT_OWNER);
         final int viewType = holder.getItemViewType();
         long startBindNs = getNanoTime();
         if (deadlineNs != FOREVER_NS
@@ -135,14 +140,112 @@ public final class Recycler {
         }
         mAdapter.bindViewHolder(holder, offsetPosition);
         long endBindNs = getNanoTime();
+        // 分阶段绑定时这里只统计了主要内容的耗时, 次要内容在空闲时绑定
         mRecyclerPool.factorInBindTime(holder.getItemViewType(), endBindNs - startBindNs);
+        if (mItemLatencyMetrics != null) {
+            mItemLatencyMetrics.recordBind(viewType, startBindNs, endBindNs, deadlineNs);
+        }
         attachAccessibilityDelegateOnBind(holder);
+        if (holder.isDeferredBindPending()) {
+            mDeferredBindQueue.add(holder);
+        }
         if (mState.isPreLayout()) {
             holder.mPreLayoutPosition = position;
         }
         return true;
     }
 
+    /**
+     * 批量版本的{@link #tryBindViewHolderByDeadline}, 通过{@link Adapter#bindViewHolders}一次绑定整批
+     * deadline不够绑定整批时一个都不绑定, 返回false
+     */
+    @SuppressWarnings("unchecked")
+    private boolean tryBindViewHoldersByDeadline(@NonNull BatchBind batch, long deadlineNs) {
+        final int count = batch.mHolders.size();
+        if (count == 0) {
+            return true;
+        }
+        long startBindNs = getNanoTime();
+        if (deadlineNs != FOREVER_NS) {
+            long expectedNs = 0;
+            for (int i = 0; i < count; i++) {
+                expectedNs += mRecyclerPool.getExpectedBindTimeNs(
+                        batch.mHolders.get(i).getItemViewType());
+            }
+            if (startBindNs + expectedNs >= deadlineNs) {
+                // abort - we have a deadline we can't meet
+                batch.clear();
+                return false;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            final ViewHolder holder = batch.mHolders.get(i);
+            holder.mBindingAdapter = null;
+            holder.mOwnerRecyclerView = RecyclerView.this;
+            HolderLifecycleTracer.trace(holder, HolderLifecycleTracer.EVENT_OWNER);
+        }
+        // 批量绑定只能测到整批的耗时, 按每种viewType之前的平均绑定耗时分摊
+        long expectedTotalNs = 0;
+        for (int i = 0; i < count; i++) {
+            final long expectedNs = mRecyclerPool.getExpectedBindTimeNs(
+                    batch.mHolders.get(i).getItemViewType());
+            if (expectedNs <= 0) {
+                // 有viewType还没有统计数据, 没法按比例分摊
+                expectedTotalNs = 0;
+                break;
+            }
+            batch.mExpectedBindNs[i] = expectedNs;
+            expectedTotalNs += expectedNs;
+        }
+        mAdapter.bindViewHolders(batch.mHolders, batch.mOffsetPositions);
+        long endBindNs = getNanoTime();
+        final long batchBindNs = endBindNs - startBindNs;
+        long holderStartNs = startBindNs;
+        for (int i = 0; i < count; i++) {
+            final ViewHolder holder = batch.mHolders.get(i);
+            // 还没有统计数据时平均分摊
+            final long holderBindNs = expectedTotalNs > 0
+                    ? batchBindNs * batch.mExpectedBindNs[i] / expectedTotalNs
+                    : batchBindNs / count;
+            mRecyclerPool.factorInBindTime(holder.getItemViewType(), holderBindNs);
+            if (mItemLatencyMetrics != null) {
+                mItemLatencyMetrics.recordBind(holder.getItemViewType(), holderStartNs,
+                        holderStartNs + holderBindNs, deadlineNs);
+            }
+            holderStartNs += holderBindNs;
+            attachAccessibilityDelegateOnBind(holder);
+            if (holder.isDeferredBindPending()) {
+                mDeferredBindQueue.add(holder);
+            }
+            if (mState.isPreLayout()) {
+                holder.mPreLayoutPosition = batch.mPositions[i];
+            }
+            final RecyclerView.LayoutParams lp =
+                    (RecyclerView.LayoutParams) holder.itemView.getLayoutParams();
+            lp.mPendingInvalidate = batch.mFromScrapOrHiddenOrCache[i];
+        }
+        batch.clear();
+        return true;
+    }
+
+    /**
+     * 一次获取多个位置的View, 其中需要完整绑定的ViewHolder会通过{@link Adapter#bindViewHolders}
+     * 一次性绑定, Adapter可以把多次数据查询合并成一次
+     * <p>
+     * 给LayoutManager在一次填充中连续需要多个View时使用, 结果和依次调用{@link #getViewForPosition(int)}相同
+     *
+     * @param positions 需要的位置
+     * @param count     positions中有效的元素个数
+     * @param outViews  输出, 长度不能小于count
+     */
+    public void getViewsForPositions(@NonNull int[] positions, int count, @NonNull View[] outViews) {
+        for (int i = 0; i < count; i++) {
+            outViews[i] = tryGetViewHolderForPositionByDeadline(positions[i], false, FOREVER_NS,
+                    mBatchBind).itemView;
+        }
+        tryBindViewHoldersByDeadline(mBatchBind, FOREVER_NS);
+    }
+
     /**
      * Binds the given View to the position. The View can be a View previously retrieved via
      * {@link #getViewForPosition(int)} or created by
@@ -262,6 +365,16 @@ public final class Recycler {
     @Nullable
     ViewHolder tryGetViewHolderForPositionByDeadline(int position,
                                                      boolean dryRun, long deadlineNs) {
+        return tryGetViewHolderForPositionByDeadline(position, dryRun, deadlineNs, null);
+    }
+
+    /**
+     * @param batch 不为null时, 需要完整绑定的ViewHolder先放进batch, 由调用方统一绑定
+     */
+    @Nullable
+    private ViewHolder tryGetViewHolderForPositionByDeadline(int position, boolean dryRun,
+                                                             long deadlineNs,
+                                                             @Nullable BatchBind batch) {
         if (position < 0 || position >= mState.getItemCount()) {
             throw new IndexOutOfBoundsException("Invalid item position " + position
                     + "(" + position + "). Item count:" + mState.getItemCount()
@@ -358,11 +471,15 @@ public final class Recycler {
                     RecyclerView innerView = findNestedRecyclerView(holder.itemView);
                     if (innerView != null) {
                         holder.mNestedRecyclerView = new WeakReference<>(innerView);
+                        HolderLifecycleTracer.trace(holder, HolderLifecycleTracer.EVENT_NESTED);
                     }
                 }
 
                 long end = getNanoTime();
                 mRecyclerPool.factorInCreateTime(type, end - start);
+                if (mItemLatencyMetrics != null) {
+                    mItemLatencyMetrics.recordCreate(type, end - start);
+                }
                 if (DEBUG) {
                     Log.d(TAG, "tryGetViewHolderForPositionByDeadline created new ViewHolder");
                 }
@@ -396,7 +513,11 @@ public final class Recycler {
                         + exceptionLabel());
             }
             final int offsetPosition = mAdapterHelper.findPositionOffset(position);
-            bound = tryBindViewHolderByDeadline(holder, offsetPosition, position, deadlineNs);
+            if (batch != null && !dryRun && batch.canDefer(holder)) {
+                batch.add(holder, offsetPosition, position, fromScrapOrHiddenOrCache);
+            } else {
+                bound = tryBindViewHolderByDeadline(holder, offsetPosition, position, deadlineNs);
+            }
         }
 
         final ViewGroup.LayoutParams lp = holder.itemView.getLayoutParams();
@@ -596,6 +717,9 @@ public final class Recycler {
                         + "re-visit here. We are still removing it from animation lists"
                         + exceptionLabel());
             }
+            // 已经不在列表里了, 之后不管是回收还是丢弃都用不到之前的payload, 先归还槽位;
+            // 万一又被复用, 没有payload时会完整绑定
+            holder.clearPayload();
         }
         // even if the holder is not removed, we still call this method so that it is removed
         // from view holder lists.
@@ -603,6 +727,7 @@ public final class Recycler {
         if (!cached && !recycled && transientStatePreventsRecycling) {
             holder.mBindingAdapter = null;
             holder.mOwnerRecyclerView = null;
+            HolderLifecycleTracer.trace(holder, HolderLifecycleTracer.EVENT_OWNER);
         }
     }
 
@@ -633,6 +758,7 @@ public final class Recycler {
         }
         holder.mBindingAdapter = null;
         holder.mOwnerRecyclerView = null;
+        HolderLifecycleTracer.trace(holder, HolderLifecycleTracer.EVENT_OWNER);
         getRecycledViewPool().putRecycledView(holder);
     }
 
@@ -643,8 +769,7 @@ public final class Recycler {
      */
     void quickRecycleScrapView(View view) {
         final ViewHolder holder = getChildViewHolderInt(view);
-        holder.mScrapContainer = null;
-        holder.mInChangeScrap = false;
+        holder.setScrapContainer(null, false);
         holder.clearReturnedFromScrapFlag();
         recycleViewHolderInternal(holder);
     }
@@ -690,8 +815,7 @@ public final class Recycler {
         } else {
             mAttachedScrap.remove(holder);
         }
-        holder.mScrapContainer = null;
-        holder.mInChangeScrap = false;
+        holder.setScrapContainer(null, false);
         holder.clearReturnedFromScrapFlag();
     }
 
@@ -1037,4 +1161,41 @@ public final class Recycler {
             }
         }
     }
+
+    /**
+     * 等待批量绑定的ViewHolder, 复用数组避免每次分配
+     */
+    static final class BatchBind {
+        final ArrayList<ViewHolder> mHolders = new ArrayList<>();
+        int[] mOffsetPositions = new int[8];
+        int[] mPositions = new int[8];
+        boolean[] mFromScrapOrHiddenOrCache = new boolean[8];
+        //每个ViewHolder预计的绑定耗时, 用来分摊整批的耗时
+        long[] mExpectedBindNs = new long[8];
+
+        //只有需要完整绑定的ViewHolder才能放进批量绑定, 带局部更新payload的仍然单独绑定
+        boolean canDefer(ViewHolder holder) {
+            return holder.getChangeMask() == 0 && holder.getUnmodifiedPayloads().isEmpty();
+        }
+
+        void add(ViewHolder holder, int offsetPosition, int position,
+                 boolean fromScrapOrHiddenOrCache) {
+            final int index = mHolders.size();
+            if (index == mPositions.length) {
+                final int capacity = index * 2;
+                mOffsetPositions = Arrays.copyOf(mOffsetPositions, capacity);
+                mPositions = Arrays.copyOf(mPositions, capacity);
+                mFromScrapOrHiddenOrCache = Arrays.copyOf(mFromScrapOrHiddenOrCache, capacity);
+                mExpectedBindNs = Arrays.copyOf(mExpectedBindNs, capacity);
+            }
+            mHolders.add(holder);
+            mOffsetPositions[index] = offsetPosition;
+            mPositions[index] = position;
+            mFromScrapOrHiddenOrCache[index] = fromScrapOrHiddenOrCache;
+        }
+
+        void clear() {
+            mHolders.clear();
+        }
+    }
 }
@@ -284,6 +284,9 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
 
     static final int MAX_SCROLL_DURATION = 2000;
 
+    //追加数据时跟随末尾, 最多逐屏滑动几次, 超过之后直接跳到末尾
+    private static final int MAX_TAIL_FOLLOW_STEPS = 2;
+
     /**
      * RecyclerView is calculating a scroll.
      * If there are too many of these in Systrace, some Views inside RecyclerView might be causing
@@ -345,6 +348,16 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
 
     final Recycler mRecycler = new Recycler();
 
+    //子View的payload存储, 绑定完成后复用
+    final PayloadStore mPayloadStore = new PayloadStore();
+
+    //按viewType统计创建和绑定耗时, 默认不统计
+    @Nullable
+    ItemLatencyMetrics mItemLatencyMetrics;
+
+    //分阶段绑定中等待空闲时执行的第二阶段
+    final DeferredBindQueue mDeferredBindQueue = new DeferredBindQueue();
+
     SavedState mPendingSavedState;
 
     /**
@@ -454,6 +467,16 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
      */
     boolean mDataSetHasChangedAfterLayout = false;
 
+    //adapter数据变化(包括更换adapter)的次数
+    int mAdapterGeneration;
+    //RecyclerView自己、子View或者LayoutManager请求布局的次数
+    int mLayoutRequestGeneration;
+    //上一次完整布局结束时的指纹, 和当前指纹相同时跳过布局
+    private final LayoutFingerprint mLastLayoutFingerprint = new LayoutFingerprint();
+    private final LayoutFingerprint mCurrentLayoutFingerprint = new LayoutFingerprint();
+    //因为指纹相同跳过的布局次数
+    private int mSkippedLayoutPassCount;
+
     /**
      * True after the data set has completely changed and
      * {@link LayoutManager#onItemsChanged(RecyclerView)} should be called during the subsequent
@@ -1190,6 +1213,7 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
         mAdapterHelper.reset();
         final Adapter oldAdapter = mAdapter;
         mAdapter = adapter;
+        mAdapterGeneration++;
         if (adapter != null) {
             adapter.registerAdapterDataObserver(mObserver);
             adapter.onAttachedToRecyclerView(this);
@@ -1330,6 +1354,7 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
             return;
         }
         stopScroll();
+        mLastLayoutFingerprint.invalidate();
         // TODO We should do this switch a dispatchLayout pass and animate children. There is a good
         // chance that LayoutManagers will re-use views.
         if (mLayout != null) {
@@ -1493,6 +1518,18 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
         return mLayout;
     }
 
+    /**
+     * 设置创建/绑定耗时的统计, 传null关闭
+     */
+    public void setItemLatencyMetrics(@Nullable ItemLatencyMetrics metrics) {
+        mItemLatencyMetrics = metrics;
+    }
+
+    @Nullable
+    public ItemLatencyMetrics getItemLatencyMetrics() {
+        return mItemLatencyMetrics;
+    }
+
     /**
      * Retrieve this RecyclerView's {@link RecycledViewPool}. This method will never return null;
      * if no pool is set for this view a new one will be created. See
@@ -1966,7 +2003,11 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
             mAdapterHelper.preProcess();
             if (!mLayoutWasDefered) {
                 if (hasUpdatedView()) {
-                    dispatchLayout();
+                    if (tryRelayoutUpdatedChildren()) {
+                        mAdapterHelper.consumePostponedUpdates();
+                    } else {
+                        dispatchLayout();
+                    }
                 } else {
                     // no need to layout, clean state
                     mAdapterHelper.consumePostponedUpdates();
@@ -1982,6 +2023,77 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
         }
     }
 
+    /**
+     * 只有item内容变化时, 让LayoutManager原地更新变化的子View, 不走dispatchLayout的三个步骤。
+     * <p>
+     * setHasFixedSize(true)时由mUpdateChildViewsRunnable调用; 滑动、smoothScroll等路径在处理滑动之前
+     * 也会调用, 这时没有固定尺寸的RecyclerView在notify时已经requestLayout, 之后的布局会按新的子View尺寸
+     * 重新测量自己, 这里只是提前把变化的子View摆好。
+     * <p>
+     * 原地更新不运行任何item动画, 条件见{@link #canSkipChangeAnimations()}
+     *
+     * @return LayoutManager是否已经处理完
+     */
+    private boolean tryRelayoutUpdatedChildren() {
+        if (mLayout == null || mAdapter == null || mState.mLayoutStep != State.STEP_START
+                || !canSkipChangeAnimations() || !canRebindUpdatedChildren()) {
+            return false;
+        }
+        if (!mLayout.relayoutUpdatedChildren(mRecycler, mState)) {
+            return false;
+        }
+        // ItemDecoration跟着子View的新位置重新绘制
+        invalidate();
+        return true;
+    }
+
+    /**
+     * 变化的子View都还能用原来的ViewHolder绑定: 类型没变, 有稳定id时id也没变。
+     * 否则需要完整布局, 由Recycler按类型重新取ViewHolder
+     */
+    private boolean canRebindUpdatedChildren() {
+        final boolean hasStableIds = mAdapter.hasStableIds();
+        final int childCount = mChildHelper.getChildCount();
+        for (int i = 0; i < childCount; i++) {
+            final ViewHolder holder = getChildViewHolderInt(mChildHelper.getChildAt(i));
+            if (holder == null || holder.shouldIgnore() || !holder.isUpdated()) {
+                continue;
+            }
+            final int offsetPosition = mAdapterHelper.findPositionOffset(holder.mPosition);
+            if (offsetPosition < 0 || offsetPosition >= mAdapter.getItemCount()) {
+                return false;
+            }
+            if (!InPlaceRebind.canRebind(holder.getItemViewType(), holder.getItemId(),
+                    mAdapter.getItemViewType(offsetPosition), hasStableIds,
+                    hasStableIds ? mAdapter.getItemId(offsetPosition) : NO_ID)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 原地更新不会运行change动画: 只有没有ItemAnimator, 或者变化都是局部更新(payload或变化掩码,
+     * 动画也是原地复用同一个ViewHolder)时才可以跳过。
+     * <p>
+     * 完整的notifyItemChanged(没有payload)只要有ItemAnimator(默认就有DefaultItemAnimator)就返回false,
+     * 照常走dispatchLayout运行change动画; 想让完整更新也走原地更新, 需要setItemAnimator(null)
+     */
+    private boolean canSkipChangeAnimations() {
+        if (mItemAnimator == null) {
+            return true;
+        }
+        final int childCount = mChildHelper.getChildCount();
+        for (int i = 0; i < childCount; i++) {
+            final ViewHolder holder = getChildViewHolderInt(mChildHelper.getChildAt(i));
+            if (holder != null && !holder.shouldIgnore() && holder.isUpdated()
+                    && !holder.isPartialUpdate()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * @return True if an existing view holder needs to be updated
      */
@@ -3043,6 +3155,7 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
             mLayout.dispatchAttachedToWindow(this);
         }
         mPostedAnimatorRunner = false;
+        HolderLifecycleTracer.watchRecyclerView(this);
 
         if (ALLOW_THREAD_GAP_WORK) {
             // Register with gap worker
@@ -3079,6 +3192,7 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
             mLayout.dispatchDetachedFromWindow(this, mRecycler);
         }
         mPendingAccessibilityImportanceChange.clear();
+        mDeferredBindQueue.clear();
         removeCallbacks(mItemAnimatorRunner);
         mViewInfoStore.onDetach();
 
@@ -3674,6 +3788,11 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
      * the LayoutManager {@link LayoutManager#supportsPredictiveItemAnimations()
      * supports item animations}.
      *
+     * <p>
+     * 可见item只有内容变化时, RecyclerView会让LayoutManager原地更新变化的子View, 不走完整布局;
+     * 设置了ItemAnimator时这只对带payload的局部更新生效, 完整的notifyItemChanged仍然完整布局并运行change动画,
+     * 设为null后完整更新也走原地更新。
+     *
      * @param animator The ItemAnimator being set. If null, no animations will occur
      *                 when changes occur to the items in this RecyclerView.
      */
@@ -3901,6 +4020,12 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
         mLastAutoMeasureNonExactMeasuredHeight = 0;
         mLastAutoMeasureSkippedDueToExact = false;
 
+        if (!needsRemeasureDueToExactSkip && canSkipLayoutPass()) {
+            // 输入和上一次完整布局完全相同(比如父View移动了RecyclerView但没有改变尺寸), 三个步骤的结果都不会变化
+            mSkippedLayoutPassCount++;
+            return;
+        }
+
         if (mState.mLayoutStep == State.STEP_START) {
             dispatchLayoutStep1();
             mLayout.setExactMeasureSpecsFrom(this);
@@ -3924,6 +4049,41 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
             mLayout.setExactMeasureSpecsFrom(this);
         }
         dispatchLayoutStep3();
+        mLastLayoutFingerprint.capture(this);
+    }
+
+    /**
+     * 这一次布局是否可以跳过: 没有待处理的adapter更新, onMeasure也没有开始布局, 子View都不需要重新布局,
+     * 并且布局指纹和上一次完整布局结束时相同
+     */
+    private boolean canSkipLayoutPass() {
+        if (!mFirstLayoutComplete || mDataSetHasChangedAfterLayout || mPendingSavedState != null
+                || mState.mLayoutStep != State.STEP_START || mAdapterHelper.hasPendingUpdates()
+                || mLayout.getWidth() != getWidth() || mLayout.getHeight() != getHeight()) {
+            return false;
+        }
+        final int childCount = mChildHelper.getChildCount();
+        for (int i = 0; i < childCount; i++) {
+            if (mChildHelper.getChildAt(i).isLayoutRequested()) {
+                return false;
+            }
+        }
+        mCurrentLayoutFingerprint.capture(this);
+        return mCurrentLayoutFingerprint.sameAs(mLastLayoutFingerprint);
+    }
+
+    /**
+     * 因为布局的输入没有变化而跳过的布局次数, 用来验证多余的布局是否被消除
+     */
+    public int getSkippedLayoutPassCount() {
+        return mSkippedLayoutPassCount;
+    }
+
+    @Override
+    public void requestLayout() {
+        // 之后的一次布局不能跳过
+        mLayoutRequestGeneration++;
+        super.requestLayout();
     }
 
     private void saveFocusInfo() {
@@ -4655,6 +4815,115 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
         requestLayout();
     }
 
+    /**
+     * 处理只在末尾追加的数据
+     * 已有item的位置都没有变化, 所以不需要offsetPositionRecordsForInsert, 也不需要pre-layout和动画
+     */
+    void processTailAppend(int oldItemCount, int itemCount) {
+        final int newItemCount = oldItemCount + itemCount;
+        // 不经过布局, 需要自己同步State中的数量, 并像普通插入一样通知LayoutManager
+        mState.mItemCount = newItemCount;
+        if (mLayout == null) {
+            awakenScrollBars();
+            return;
+        }
+        mLayout.onItemsAdded(this, oldItemCount, itemCount);
+        final View tailChild = findAttachedChildForPosition(oldItemCount - 1);
+        if (tailChild == null) {
+            // 原来的最后一个item不在屏幕上, 新的item都在窗口之外, 滑动到那里时LayoutManager会按新的数量填充
+            awakenScrollBars();
+            return;
+        }
+        final boolean vertical = mLayout.canScrollVertically();
+        final int direction = findTailDirection(tailChild, vertical);
+        if (mScrollState != SCROLL_STATE_IDLE) {
+            // 用户正在拖动或者列表正在滑动, 不跟随末尾, 之后的滑动会按新的数量填充
+            if (getTailGap(tailChild, vertical, direction) > 0) {
+                // 末尾后面还有空白, 新的item应该直接出现, 布局会保持当前的锚点
+                requestLayout();
+            } else {
+                awakenScrollBars();
+            }
+            return;
+        }
+        // 跟随末尾: 每次最多滑动一屏, 滑动时LayoutManager只填充新出现的item, 滑动距离就是追加的长度
+        final int step = direction * Math.max(1, vertical
+                ? getHeight() - getPaddingTop() - getPaddingBottom()
+                : getWidth() - getPaddingLeft() - getPaddingRight());
+        for (int i = 0; i < MAX_TAIL_FOLLOW_STEPS; i++) {
+            mReusableIntPair[0] = 0;
+            mReusableIntPair[1] = 0;
+            scrollStep(vertical ? 0 : step, vertical ? step : 0, mReusableIntPair);
+            final int consumedX = mReusableIntPair[0];
+            final int consumedY = mReusableIntPair[1];
+            if (consumedX != 0 || consumedY != 0) {
+                dispatchOnScrolled(consumedX, consumedY);
+            }
+            if (Math.abs(vertical ? consumedY : consumedX) < Math.abs(step)) {
+                // 已经到达新的末尾
+                awakenScrollBars();
+                return;
+            }
+        }
+        // 追加的内容超过了几屏, 逐屏滑动会创建很多马上被回收的item, 直接跳到末尾
+        mLayout.scrollToPosition(newItemCount - 1);
+        requestLayout();
+    }
+
+    //附着在RecyclerView上、位置为position的子View
+    @Nullable
+    private View findAttachedChildForPosition(int position) {
+        final int childCount = mChildHelper.getChildCount();
+        for (int i = 0; i < childCount; i++) {
+            final View child = mChildHelper.getChildAt(i);
+            final ViewHolder holder = getChildViewHolderInt(child);
+            if (holder != null && !holder.shouldIgnore() && !holder.isRemoved()
+                    && holder.mPosition == position) {
+                return child;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 末尾在滑动方向上的朝向: 1表示末尾在下方(右方), -1表示反向布局时末尾在上方(左方)
+     * 通过比较最后一个item和位置最小的子View的坐标得到, 只有一个子View时认为是正向
+     */
+    private int findTailDirection(View tailChild, boolean vertical) {
+        View headChild = null;
+        int headPosition = Integer.MAX_VALUE;
+        final int childCount = mChildHelper.getChildCount();
+        for (int i = 0; i < childCount; i++) {
+            final View child = mChildHelper.getChildAt(i);
+            final ViewHolder holder = getChildViewHolderInt(child);
+            if (holder != null && !holder.shouldIgnore() && !holder.isRemoved()
+                    && holder.mPosition < headPosition) {
+                headPosition = holder.mPosition;
+                headChild = child;
+            }
+        }
+        if (headChild == null || headChild == tailChild) {
+            return 1;
+        }
+        final int headStart = vertical ? mLayout.getDecoratedTop(headChild)
+                : mLayout.getDecoratedLeft(headChild);
+        final int tailStart = vertical ? mLayout.getDecoratedTop(tailChild)
+                : mLayout.getDecoratedLeft(tailChild);
+        return tailStart >= headStart ? 1 : -1;
+    }
+
+    //最后一个item和RecyclerView边缘之间的空白, 小于等于0表示没有空白
+    private int getTailGap(View tailChild, boolean vertical, int direction) {
+        if (direction > 0) {
+            return vertical
+                    ? getHeight() - getPaddingBottom() - mLayout.getDecoratedBottom(tailChild)
+                    : getWidth() - getPaddingRight() - mLayout.getDecoratedRight(tailChild);
+        }
+        return vertical
+                ? mLayout.getDecoratedTop(tailChild) - getPaddingTop()
+                : mLayout.getDecoratedLeft(tailChild) - getPaddingLeft();
+    }
+
     void offsetPositionRecordsForInsert(int positionStart, int itemCount) {
         final int childCount = mChildHelper.getUnfilteredChildCount();
         for (int i = 0; i < childCount; i++) {
@@ -4731,7 +5000,9 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
     }
 
     boolean canReuseUpdatedViewHolder(ViewHolder viewHolder) {
-        return mItemAnimator == null || mItemAnimator.canReuseUpdatedViewHolder(viewHolder,
+        // 变化掩码不在payload列表里, 只有掩码的更新也是局部更新, 可以复用原来的ViewHolder
+        return mItemAnimator == null || viewHolder.getChangeMask() != 0
+                || mItemAnimator.canReuseUpdatedViewHolder(viewHolder,
                 viewHolder.getUnmodifiedPayloads());
     }
 
@@ -5223,6 +5494,11 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
         // Pass the real deltas to onScrolled, the RecyclerView-specific method.
         onScrolled(hresult, vresult);
 
+        //为预取位置提前准备数据
+        if (mAdapter != null && mAdapter.mItemPreparer != null) {
+            mAdapter.mItemPreparer.onScrolled(this, hresult, vresult);
+        }
+
         // Invoke listeners last. Subclassed view methods always handle the event first.
         // All internal state is consistent by the time listeners are invoked.
         if (mScrollListener != null) {
@@ -5586,6 +5862,7 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
         @Override
         public void onChanged() {
             assertNotInLayoutOrScroll(null);
+            mAdapterGeneration++;
             mState.mStructureChanged = true;
 
             processDataSetCompletelyChanged(true);
@@ -5597,6 +5874,7 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
         @Override
         public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
             assertNotInLayoutOrScroll(null);
+            mAdapterGeneration++;
             if (mAdapterHelper.onItemRangeChanged(positionStart, itemCount, payload)) {
                 triggerUpdateProcessor();
             }
@@ -5605,14 +5883,33 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
         @Override
         public void onItemRangeInserted(int positionStart, int itemCount) {
             assertNotInLayoutOrScroll(null);
+            mAdapterGeneration++;
             if (mAdapterHelper.onItemRangeInserted(positionStart, itemCount)) {
                 triggerUpdateProcessor();
             }
         }
 
+        @Override
+        public void onItemRangeAppended(int positionStart, int itemCount) {
+            assertNotInLayoutOrScroll(null);
+            mAdapterGeneration++;
+            if (itemCount < 1) {
+                return;
+            }
+            if (!mFirstLayoutComplete || mDataSetHasChangedAfterLayout
+                    || mAdapterHelper.hasPendingUpdates()
+                    || positionStart != mState.mItemCount) {
+                // 还有没处理完的更新, 位置信息不可靠, 走普通插入的完整流程
+                onItemRangeInserted(positionStart, itemCount);
+                return;
+            }
+            processTailAppend(positionStart, itemCount);
+        }
+
         @Override
         public void onItemRangeRemoved(int positionStart, int itemCount) {
             assertNotInLayoutOrScroll(null);
+            mAdapterGeneration++;
             if (mAdapterHelper.onItemRangeRemoved(positionStart, itemCount)) {
                 triggerUpdateProcessor();
             }
@@ -5621,6 +5918,7 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
         @Override
         public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
             assertNotInLayoutOrScroll(null);
+            mAdapterGeneration++;
             if (mAdapterHelper.onItemRangeMoved(fromPosition, toPosition, itemCount)) {
                 triggerUpdateProcessor();
             }
@@ -5735,6 +6033,7 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
                 }
             }
             holder.mNestedRecyclerView = null; // not nested
+            HolderLifecycleTracer.trace(holder, HolderLifecycleTracer.EVENT_NESTED);
         }
     }
 
@@ -6195,6 +6494,11 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
             // do nothing
         }
 
+        //只在末尾追加, 默认当作普通插入处理
+        public void onItemRangeAppended(int positionStart, int itemCount) {
+            onItemRangeInserted(positionStart, itemCount);
+        }
+
         public void onItemRangeRemoved(int positionStart, int itemCount) {
             // do nothing
         }
@@ -6758,6 +7062,12 @@ public class RecyclerView extends ViewGroup implements ScrollingView, NestedScro
             }
         }
 
+        public void notifyItemRangeAppended(int positionStart, int itemCount) {
+            for (int i = mObservers.size() - 1; i >= 0; i--) {
+                mObservers.get(i).onItemRangeAppended(positionStart, itemCount);
+            }
+        }
+
         public void notifyItemRangeRemoved(int positionStart, int itemCount) {
             // since onItemRangeRemoved() is implemented by the app, it could do anything, including
             // removing itself from {@link mObservers} - and that could cause problems if
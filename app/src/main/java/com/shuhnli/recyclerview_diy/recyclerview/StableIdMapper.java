@@ -0,0 +1,120 @@
+package com.shuhnli.recyclerview_diy.recyclerview;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * 把任意的item key映射成稠密的64位id, 同一个key始终得到同一个id
+ * <p>
+ * 开放寻址(线性探测)的哈希表, key的hash、key和id分别放在三个数组里, 查找时先比较int hash,
+ * hash相同再用equals比较key, 所以不同key的hash冲突不会导致id冲突。
+ * 映射不会因为数据替换而丢失, 因此notifyDataSetChanged之后id依然稳定。
+ * <p>
+ * 只能在主线程使用
+ */
+public final class StableIdMapper {
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private int[] mHashes;
+    private Object[] mKeys;
+    private long[] mIds;
+    private int mSize;
+    private int mMask;
+    private long mNextId = 0;
+
+    public StableIdMapper() {
+        this(16);
+    }
+
+    public StableIdMapper(int initialCapacity) {
+        int capacity = 2;
+        while (capacity * LOAD_FACTOR < initialCapacity) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        mHashes = new int[capacity];
+        mKeys = new Object[capacity];
+        mIds = new long[capacity];
+        mMask = capacity - 1;
+    }
+
+    private static int spread(int hash) {
+        final int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * key对应的id, 第一次出现的key会分配一个新的id
+     */
+    public long getId(@NonNull Object key) {
+        final int hash = spread(key.hashCode());
+        int index = hash & mMask;
+        Object existing;
+        while ((existing = mKeys[index]) != null) {
+            if (mHashes[index] == hash && existing.equals(key)) {
+                return mIds[index];
+            }
+            index = (index + 1) & mMask;
+        }
+        final long id = mNextId++;
+        mHashes[index] = hash;
+        mKeys[index] = key;
+        mIds[index] = id;
+        mSize++;
+        if (mSize > mKeys.length * LOAD_FACTOR) {
+            resize(mKeys.length * 2);
+        }
+        return id;
+    }
+
+    /**
+     * 查询key对应的id, 不存在时返回{@link RecyclerView#NO_ID}, 不会分配新的id
+     */
+    public long peekId(@NonNull Object key) {
+        final int hash = spread(key.hashCode());
+        int index = hash & mMask;
+        Object existing;
+        while ((existing = mKeys[index]) != null) {
+            if (mHashes[index] == hash && existing.equals(key)) {
+                return mIds[index];
+            }
+            index = (index + 1) & mMask;
+        }
+        return RecyclerView.NO_ID;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * 清空所有映射, 之后分配的id不会和之前的重复
+     */
+    public void clear() {
+        Arrays.fill(mKeys, null);
+        mSize = 0;
+    }
+
+    private void resize(int capacity) {
+        final int[] oldHashes = mHashes;
+        final Object[] oldKeys = mKeys;
+        final long[] oldIds = mIds;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == null) {
+                continue;
+            }
+            int index = oldHashes[i] & mMask;
+            while (mKeys[index] != null) {
+                index = (index + 1) & mMask;
+            }
+            mHashes[index] = oldHashes[i];
+            mKeys[index] = oldKeys[i];
+            mIds[index] = oldIds[i];
+        }
+    }
+}
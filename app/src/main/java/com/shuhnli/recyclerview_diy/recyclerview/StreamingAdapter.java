@@ -0,0 +1,106 @@
+package com.shuhnli.recyclerview_diy.recyclerview;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * 只在末尾追加数据的Adapter, 适合日志、聊天这类不断增长的列表
+ * <p>
+ * 生产者可以在任意线程调用{@link #append(Object)}, 追加的数据先放在缓冲区里,
+ * 每一帧开始时在主线程统一发布一次, 通过{@link #notifyItemRangeAppended(int, int)}通知,
+ * RecyclerView会跳过位置偏移和pre-layout。
+ */
+public abstract class StreamingAdapter<T, VH extends ViewHolder> extends Adapter<VH> {
+
+    //已经发布的数据, 只在主线程访问
+    private final ArrayList<T> mItems = new ArrayList<>();
+
+    private final Object mLock = new Object();
+    //生产者写入的缓冲区, 和mDrainBuffer交替使用, 由mLock保护
+    private ArrayList<T> mPending = new ArrayList<>();
+    private ArrayList<T> mDrainBuffer = new ArrayList<>();
+    private boolean mPublishScheduled;
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    private final Choreographer.FrameCallback mPublishCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            publishPending();
+        }
+    };
+
+    private final Runnable mScheduleRunnable = new Runnable() {
+        @Override
+        public void run() {
+            Choreographer.getInstance().postFrameCallback(mPublishCallback);
+        }
+    };
+
+    /**
+     * 追加一个item, 可以在任意线程调用, 下一帧才会显示
+     */
+    public void append(@NonNull T item) {
+        synchronized (mLock) {
+            mPending.add(item);
+            scheduleLocked();
+        }
+    }
+
+    public void appendAll(@NonNull Collection<? extends T> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        synchronized (mLock) {
+            mPending.addAll(items);
+            scheduleLocked();
+        }
+    }
+
+    private void scheduleLocked() {
+        if (!mPublishScheduled) {
+            mPublishScheduled = true;
+            mMainHandler.post(mScheduleRunnable);
+        }
+    }
+
+    /**
+     * 把缓冲区里的数据发布出去, 每帧最多一次
+     */
+    void publishPending() {
+        final ArrayList<T> drained;
+        synchronized (mLock) {
+            mPublishScheduled = false;
+            if (mPending.isEmpty()) {
+                return;
+            }
+            // 交换缓冲区, 锁内只做指针交换
+            drained = mPending;
+            mPending = mDrainBuffer;
+            mDrainBuffer = drained;
+        }
+        final int oldCount = mItems.size();
+        mItems.addAll(drained);
+        drained.clear();
+        notifyItemRangeAppended(oldCount, mItems.size() - oldCount);
+    }
+
+    /**
+     * 已经发布的item, 只能在主线程调用
+     */
+    @NonNull
+    public T getItem(int position) {
+        return mItems.get(position);
+    }
+
+    @Override
+    public int getItemCount() {
+        return mItems.size();
+    }
+}
@@ -9,7 +9,6 @@ import androidx.annotation.VisibleForTesting;
 import androidx.core.view.ViewCompat;
 
 import java.lang.ref.WeakReference;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -24,6 +23,8 @@ public abstract class ViewHolder {
     int mOldPosition = -1;
     long mItemId = -1;
     int mItemViewType = -1;
+    //绑定时adapter给出的测量key, 见Adapter#getMeasurementKey
+    long mMeasurementKey = NO_ID;
     int mPreLayoutPosition = -1;
 
     // The item that this holder is shadowing during an item change event/animation
@@ -115,12 +116,20 @@ public abstract class ViewHolder {
      */
     static final int FLAG_BOUNCED_FROM_HIDDEN_LIST = 1 << 13;
 
+    /**
+     * 分阶段绑定: 主要内容已经绑定, 次要内容还在等待空闲时绑定
+     */
+    static final int FLAG_DEFERRED_BIND_PENDING = 1 << 14;
+
     int mFlags;
 
     private static final List<Object> FULLUPDATE_PAYLOADS = Collections.emptyList();
 
-    List<Object> mPayloads = null;
-    List<Object> mUnmodifiedPayloads = null;
+    //payload存放在所属RecyclerView的PayloadStore中, 没有payload时不占用槽位
+    PayloadStore mPayloadStore = null;
+    int mPayloadSlot = PayloadStore.NO_SLOT;
+    //位掩码形式的payload, 多次通知之间按位或合并, 不需要分配列表
+    long mChangeMask = 0;
 
     private int mIsRecyclableCount = 0;
 
@@ -144,6 +153,9 @@ public abstract class ViewHolder {
     // 绑定的适配器
     Adapter<? extends ViewHolder> mBindingAdapter;
 
+    //开启HolderLifecycleTracer之后才会创建
+    HolderLifecycleTracer.Ring mTraceRing;
+
     public ViewHolder(@NonNull View itemView) {
         this.itemView = itemView;
     }
@@ -317,6 +329,11 @@ public abstract class ViewHolder {
         return mItemId;
     }
 
+    //获取绑定内容的测量key
+    public final long getMeasurementKey() {
+        return mMeasurementKey;
+    }
+
     //获取view的Type
     public final int getItemViewType() {
         return mItemViewType;
@@ -335,20 +352,21 @@ public abstract class ViewHolder {
     }
 
     public void clearReturnedFromScrapFlag() {
-        mFlags = mFlags & ~FLAG_RETURNED_FROM_SCRAP;
+        setFlags(0, FLAG_RETURNED_FROM_SCRAP);
     }
 
     void clearTmpDetachFlag() {
-        mFlags = mFlags & ~FLAG_TMP_DETACHED;
+        setFlags(0, FLAG_TMP_DETACHED);
     }
 
     void stopIgnoring() {
-        mFlags = mFlags & ~FLAG_IGNORE;
+        setFlags(0, FLAG_IGNORE);
     }
 
     void setScrapContainer(RecyclerView.Recycler recycler, boolean isChangeScrap) {
         mScrapContainer = recycler;
         mInChangeScrap = isChangeScrap;
+        HolderLifecycleTracer.trace(this, HolderLifecycleTracer.EVENT_SCRAP);
     }
 
     public boolean isInvalid() {
@@ -367,6 +385,10 @@ public abstract class ViewHolder {
         return (mFlags & FLAG_REMOVED) != 0;
     }
 
+    boolean isDeferredBindPending() {
+        return (mFlags & FLAG_DEFERRED_BIND_PENDING) != 0;
+    }
+
     boolean hasAnyOfTheFlags(int flags) {
         return (mFlags & flags) != 0;
     }
@@ -384,44 +406,89 @@ public abstract class ViewHolder {
     }
 
     void setFlags(int flags, int mask) {
+        final int oldFlags = mFlags;
         mFlags = (mFlags & ~mask) | (flags & mask);
+        if (mFlags != oldFlags) {
+            HolderLifecycleTracer.trace(this, HolderLifecycleTracer.EVENT_FLAGS);
+        }
     }
 
     void addFlags(int flags) {
+        final int oldFlags = mFlags;
         mFlags |= flags;
+        if (mFlags != oldFlags) {
+            HolderLifecycleTracer.trace(this, HolderLifecycleTracer.EVENT_FLAGS);
+        }
     }
 
     void addChangePayload(Object payload) {
+        if (payload != null && !(payload instanceof ChangeMask) && mOwnerRecyclerView == null) {
+            // 没有所属的RecyclerView就没有PayloadStore, 按完整更新处理
+            payload = null;
+        }
         if (payload == null) {
             addFlags(FLAG_ADAPTER_FULLUPDATE);
+            // 完整绑定用不到之前的payload, 提前归还槽位
+            releasePayloadSlot();
         } else if ((mFlags & FLAG_ADAPTER_FULLUPDATE) == 0) {
-            createPayloadsIfNeeded();
-            mPayloads.add(payload);
+            if (payload instanceof ChangeMask) {
+                mChangeMask |= ((ChangeMask) payload).mMask;
+                return;
+            }
+            if (mPayloadSlot == PayloadStore.NO_SLOT) {
+                mPayloadStore = mOwnerRecyclerView.mPayloadStore;
+                mPayloadSlot = mPayloadStore.acquire();
+            }
+            mPayloadStore.add(mPayloadSlot, payload);
         }
     }
 
-    private void createPayloadsIfNeeded() {
-        if (mPayloads == null) {
-            mPayloads = new ArrayList<Object>();
-            mUnmodifiedPayloads = Collections.unmodifiableList(mPayloads);
+    private void releasePayloadSlot() {
+        if (mPayloadSlot != PayloadStore.NO_SLOT) {
+            mPayloadStore.release(mPayloadSlot);
+            mPayloadSlot = PayloadStore.NO_SLOT;
+            mPayloadStore = null;
         }
     }
 
+    /**
+     * 是否有普通(非{@link ChangeMask})的payload
+     */
+    boolean hasPayloads() {
+        return mPayloadSlot != PayloadStore.NO_SLOT && mPayloadStore.size(mPayloadSlot) > 0;
+    }
+
     void clearPayload() {
-        if (mPayloads != null) {
-            mPayloads.clear();
+        releasePayloadSlot();
+        mChangeMask = 0;
+        setFlags(0, FLAG_ADAPTER_FULLUPDATE);
+    }
+
+    /**
+     * 累积的变化掩码, 需要完整绑定时返回0
+     */
+    long getChangeMask() {
+        if ((mFlags & FLAG_ADAPTER_FULLUPDATE) != 0) {
+            return 0;
         }
-        mFlags = mFlags & ~FLAG_ADAPTER_FULLUPDATE;
+        return mChangeMask;
+    }
+
+    /**
+     * 累积的更新都是局部更新(payload或变化掩码), 没有完整更新
+     */
+    boolean isPartialUpdate() {
+        return (mFlags & FLAG_ADAPTER_FULLUPDATE) == 0 && (hasPayloads() || mChangeMask != 0);
     }
 
     List<Object> getUnmodifiedPayloads() {
         if ((mFlags & FLAG_ADAPTER_FULLUPDATE) == 0) {
-            if (mPayloads == null || mPayloads.size() == 0) {
+            if (!hasPayloads()) {
                 // Initial state,  no update being called.
                 return FULLUPDATE_PAYLOADS;
             }
-            // there are none-null payloads
-            return mUnmodifiedPayloads;
+            // there are none-null payloads, 列表在clearPayload之后会被复用, 不能保存
+            return mPayloadStore.list(mPayloadSlot);
         } else {
             // a full update has been called.
             return FULLUPDATE_PAYLOADS;
@@ -433,6 +500,7 @@ public abstract class ViewHolder {
         mPosition = NO_POSITION;
         mOldPosition = NO_POSITION;
         mItemId = NO_ID;
+        mMeasurementKey = NO_ID;
         mPreLayoutPosition = NO_POSITION;
         mIsRecyclableCount = 0;
         mShadowedHolder = null;
@@ -441,6 +509,7 @@ public abstract class ViewHolder {
         mWasImportantForAccessibilityBeforeHidden = ViewCompat.IMPORTANT_FOR_ACCESSIBILITY_AUTO;
         mPendingAccessibilityState = PENDING_ACCESSIBILITY_STATE_NOT_SET;
         clearNestedRecyclerViewIfNotNested(this);
+        HolderLifecycleTracer.trace(this, HolderLifecycleTracer.EVENT_RESET);
     }
 
     /**
@@ -519,6 +588,7 @@ public abstract class ViewHolder {
         } else if (recyclable && mIsRecyclableCount == 0) {
             mFlags &= ~FLAG_NOT_RECYCLABLE;
         }
+        HolderLifecycleTracer.trace(this, HolderLifecycleTracer.EVENT_RECYCLABLE);
         if (DEBUG) {
             Log.d(TAG, "setIsRecyclable val:" + recyclable + ":" + this);
         }
@@ -0,0 +1,336 @@
+package com.shuhnli.recyclerview_diy.utils;
+
+import java.util.Arrays;
+
+/**
+ * 树状数组(Fenwick tree), 维护一个int数组的前缀和
+ * <p>
+ * 单点修改, 前缀和查询, 以及"某个偏移量落在哪个下标上"的查询都是O(log n)。
+ * 在中间插入或删除元素需要O(n)重建, 适合元素个数变化不频繁、元素值频繁变化的场景。
+ * 在末尾追加和截断不需要重建; 移动一小段元素时逐个单点修改, 变化范围较大时才重建。
+ */
+public class FenwickTree {
+    //原始值, 下标从0开始
+    private int[] mValues;
+    //树状数组, 下标从1开始
+    private long[] mTree;
+    private int mSize;
+    //move时暂存被移动的区间
+    private int[] mScratch = new int[0];
+
+    public FenwickTree() {
+        this(8);
+    }
+
+    public FenwickTree(int initialCapacity) {
+        final int capacity = Math.max(1, initialCapacity);
+        mValues = new int[capacity];
+        mTree = new long[capacity + 1];
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public void clear() {
+        Arrays.fill(mValues, 0, mSize, 0);
+        Arrays.fill(mTree, 0, mSize + 1, 0);
+        mSize = 0;
+    }
+
+    /**
+     * 用values的前size个元素重新构建, O(n)
+     */
+    public void build(int[] values, int size) {
+        ensureCapacity(size);
+        System.arraycopy(values, 0, mValues, 0, size);
+        mSize = size;
+        rebuild();
+    }
+
+    /**
+     * 把数组的大小改成size, 新增的元素都是fillValue。变小或者只增加少量元素时不需要重建
+     */
+    public void resize(int size, int fillValue) {
+        if (size <= mSize) {
+            truncate(size);
+            return;
+        }
+        if (!shouldRebuild(size - mSize)) {
+            append(size - mSize, fillValue);
+            return;
+        }
+        ensureCapacity(size);
+        Arrays.fill(mValues, mSize, size, fillValue);
+        mSize = size;
+        rebuild();
+    }
+
+    /**
+     * 在末尾追加count个值为value的元素, 不需要重建, O(count·log n)
+     */
+    public void append(int count, int value) {
+        if (count <= 0) {
+            return;
+        }
+        ensureCapacity(mSize + count);
+        for (int k = 0; k < count; k++) {
+            final int node = ++mSize;
+            mValues[node - 1] = value;
+            // node负责(node - lowbit, node]这一段, 前面的部分正好是已有的几个子节点
+            long sum = value;
+            final int lower = node - (node & -node);
+            for (int i = node - 1; i > lower; i -= i & -i) {
+                sum += mTree[i];
+            }
+            mTree[node] = sum;
+        }
+    }
+
+    //删掉size之后的元素, 前面的节点都不包含它们, O(1)
+    private void truncate(int size) {
+        if (size < 0) {
+            throw new IndexOutOfBoundsException("Size: " + size);
+        }
+        Arrays.fill(mValues, size, mSize, 0);
+        mSize = size;
+    }
+
+    public int get(int index) {
+        checkIndex(index);
+        return mValues[index];
+    }
+
+    public void set(int index, int value) {
+        checkIndex(index);
+        final int delta = value - mValues[index];
+        if (delta != 0) {
+            add(index, delta);
+        }
+    }
+
+    public void add(int index, int delta) {
+        checkIndex(index);
+        mValues[index] += delta;
+        for (int i = index + 1; i <= mSize; i += i & -i) {
+            mTree[i] += delta;
+        }
+    }
+
+    /**
+     * 在index处插入一个元素, O(n)
+     */
+    public void insert(int index, int value) {
+        if (index < 0 || index > mSize) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + mSize);
+        }
+        if (index == mSize) {
+            append(1, value);
+            return;
+        }
+        ensureCapacity(mSize + 1);
+        System.arraycopy(mValues, index, mValues, index + 1, mSize - index);
+        mValues[index] = value;
+        mSize++;
+        rebuild();
+    }
+
+    /**
+     * 在index处插入count个值为value的元素, O(n)
+     */
+    public void insert(int index, int count, int value) {
+        if (index < 0 || index > mSize) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + mSize);
+        }
+        if (count <= 0) {
+            return;
+        }
+        if (index == mSize && !shouldRebuild(count)) {
+            append(count, value);
+            return;
+        }
+        ensureCapacity(mSize + count);
+        System.arraycopy(mValues, index, mValues, index + count, mSize - index);
+        Arrays.fill(mValues, index, index + count, value);
+        mSize += count;
+        rebuild();
+    }
+
+    /**
+     * 删除[index, index + count)的元素, O(n)
+     */
+    public void remove(int index, int count) {
+        if (count <= 0) {
+            return;
+        }
+        if (index < 0 || index + count > mSize) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Count: " + count
+                    + ", Size: " + mSize);
+        }
+        if (index + count == mSize) {
+            truncate(index);
+            return;
+        }
+        System.arraycopy(mValues, index + count, mValues, index, mSize - index - count);
+        Arrays.fill(mValues, mSize - count, mSize, 0);
+        mSize -= count;
+        rebuild();
+    }
+
+    /**
+     * 把[from, from + count)的元素移动到to开始的位置(to是移走之后的下标), 中间的元素依次平移。
+     * 变化的范围较小时逐个单点修改, 否则重建一次
+     */
+    public void move(int from, int to, int count) {
+        if (count <= 0 || from == to) {
+            return;
+        }
+        if (from < 0 || to < 0 || from + count > mSize || to + count > mSize) {
+            throw new IndexOutOfBoundsException("From: " + from + ", To: " + to
+                    + ", Count: " + count + ", Size: " + mSize);
+        }
+        final int start = Math.min(from, to);
+        final int length = Math.max(from, to) + count - start;
+        if (mScratch.length < length) {
+            mScratch = new int[length];
+        }
+        System.arraycopy(mValues, start, mScratch, 0, length);
+        // 向后移动时被跨过的元素在前, 向前移动时被移动的元素在前
+        final int skipped = Math.abs(to - from);
+        final boolean rebuild = shouldRebuild(length);
+        for (int k = 0; k < length; k++) {
+            final int source;
+            if (from < to) {
+                source = k < skipped ? count + k : k - skipped;
+            } else {
+                source = k < count ? skipped + k : k - count;
+            }
+            if (rebuild) {
+                mValues[start + k] = mScratch[source];
+            } else {
+                set(start + k, mScratch[source]);
+            }
+        }
+        if (rebuild) {
+            rebuild();
+        }
+    }
+
+    /**
+     * 删除index处的元素, O(n)
+     */
+    public void remove(int index) {
+        checkIndex(index);
+        if (index == mSize - 1) {
+            truncate(index);
+            return;
+        }
+        System.arraycopy(mValues, index + 1, mValues, index, mSize - index - 1);
+        mSize--;
+        mValues[mSize] = 0;
+        rebuild();
+    }
+
+    /**
+     * [0, end)区间的和
+     */
+    public long prefixSum(int end) {
+        if (end < 0 || end > mSize) {
+            throw new IndexOutOfBoundsException("End: " + end + ", Size: " + mSize);
+        }
+        long sum = 0;
+        for (int i = end; i > 0; i -= i & -i) {
+            sum += mTree[i];
+        }
+        return sum;
+    }
+
+    public long total() {
+        return prefixSum(mSize);
+    }
+
+    /**
+     * 找到偏移量offset落在的下标, 即满足 prefixSum(i) <= offset < prefixSum(i + 1) 的最小i
+     * 要求所有元素非负。offset小于0时返回0, 大于等于总和时返回size()
+     */
+    public int findIndex(long offset) {
+        if (offset < 0) {
+            return 0;
+        }
+        int position = 0;
+        long remaining = offset;
+        for (int step = Integer.highestOneBit(Math.max(1, mSize)); step > 0; step >>= 1) {
+            final int next = position + step;
+            if (next <= mSize && mTree[next] <= remaining) {
+                position = next;
+                remaining -= mTree[next];
+            }
+        }
+        return position;
+    }
+
+    /**
+     * 和{@link #findIndex(long)}相同的查询, 元素的值由两棵树决定: marked中为1的位置取values中的值,
+     * 为0的位置取fillValue。两棵树同时下降, 每个节点的值是 values节点 + (覆盖的元素数 - marked节点) * fillValue,
+     * 一共O(log n)。要求两棵树大小相同, marked的元素只有0和1, 所有值非负
+     */
+    public static int findIndex(FenwickTree values, FenwickTree marked, long fillValue,
+                                long offset) {
+        if (values.mSize != marked.mSize) {
+            throw new IllegalArgumentException("Size mismatch: " + values.mSize + ", "
+                    + marked.mSize);
+        }
+        if (offset < 0) {
+            return 0;
+        }
+        final int size = values.mSize;
+        int position = 0;
+        long remaining = offset;
+        for (int step = Integer.highestOneBit(Math.max(1, size)); step > 0; step >>= 1) {
+            final int next = position + step;
+            if (next > size) {
+                continue;
+            }
+            // position是2·step的倍数, 节点next正好覆盖(position, next]这step个元素
+            final long weight = values.mTree[next] + (step - marked.mTree[next]) * fillValue;
+            if (weight <= remaining) {
+                position = next;
+                remaining -= weight;
+            }
+        }
+        return position;
+    }
+
+    //修改或追加changed个元素时, 逐个单点修改(changed·log n)比重建(n)更慢
+    private boolean shouldRebuild(int changed) {
+        final long size = (long) mSize + changed;
+        final int log = 64 - Long.numberOfLeadingZeros(size);
+        return (long) changed * log > size;
+    }
+
+    private void rebuild() {
+        Arrays.fill(mTree, 0, mSize + 1, 0);
+        for (int i = 1; i <= mSize; i++) {
+            mTree[i] += mValues[i - 1];
+            final int parent = i + (i & -i);
+            if (parent <= mSize) {
+                mTree[parent] += mTree[i];
+            }
+        }
+    }
+
+    private void ensureCapacity(int size) {
+        if (size <= mValues.length) {
+            return;
+        }
+        final int capacity = Math.max(size, mValues.length * 2);
+        mValues = Arrays.copyOf(mValues, capacity);
+        mTree = Arrays.copyOf(mTree, capacity + 1);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + mSize);
+        }
+    }
+}
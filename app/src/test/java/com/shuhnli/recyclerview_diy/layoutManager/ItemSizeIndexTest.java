@@ -0,0 +1,158 @@
+package com.shuhnli.recyclerview_diy.layoutManager;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 和一个记录每个位置尺寸的List对照(没有测量过的是UNMEASURED), 检查数据变化之后的偏移量和位置查询
+ */
+public class ItemSizeIndexTest {
+
+    @Test
+    public void unmeasuredPositions_useAverageSize() {
+        final ItemSizeIndex index = new ItemSizeIndex();
+        index.setItemCount(4);
+        index.record(0, 10);
+        index.record(2, 30);
+        assertEquals(20, index.getEstimatedSize());
+        assertEquals(10 + 20, index.getOffsetOf(2));
+        assertEquals(10 + 20 + 30 + 20, index.getTotalSize());
+        assertEquals(1, index.findPositionAt(10));
+        assertEquals(2, index.findPositionAt(59));
+        assertEquals(3, index.findPositionAt(60));
+    }
+
+    @Test
+    public void appendAtEnd_keepsMeasuredSizes() {
+        final ItemSizeIndex index = new ItemSizeIndex();
+        index.setItemCount(3);
+        index.record(0, 5);
+        index.record(1, 7);
+        index.record(2, 9);
+        index.onItemsAdded(3, 2);
+        assertEquals(5, index.getItemCount());
+        assertEquals(21, index.getOffsetOf(3));
+        // 新增的位置按平均值7估算
+        assertEquals(21 + 14, index.getTotalSize());
+        index.onItemsRemoved(3, 2);
+        assertEquals(21, index.getTotalSize());
+    }
+
+    @Test
+    public void moveRange_shiftsSizes() {
+        final ItemSizeIndex index = new ItemSizeIndex();
+        index.setItemCount(5);
+        for (int i = 0; i < 5; i++) {
+            index.record(i, i + 1);
+        }
+        index.onItemsMoved(0, 3, 2);
+        final int[] sizes = index.toArray();
+        assertEquals(3, sizes[0]);
+        assertEquals(4, sizes[1]);
+        assertEquals(5, sizes[2]);
+        assertEquals(1, sizes[3]);
+        assertEquals(2, sizes[4]);
+    }
+
+    @Test
+    public void recordAll_keepsOtherPositions() {
+        final ItemSizeIndex index = new ItemSizeIndex();
+        index.setItemCount(4);
+        index.record(1, 8);
+        index.recordAll(new int[]{ItemSizeIndex.UNMEASURED, ItemSizeIndex.UNMEASURED, 4, 4});
+        final int[] sizes = index.toArray();
+        assertEquals(ItemSizeIndex.UNMEASURED, sizes[0]);
+        assertEquals(8, sizes[1]);
+        assertEquals(4, sizes[2]);
+        assertEquals(4, sizes[3]);
+        assertEquals(16, index.getTotalSize() - index.getEstimatedSize());
+    }
+
+    @Test
+    public void randomOperations_matchNaiveOffsets() {
+        final Random random = new Random(11);
+        final ItemSizeIndex index = new ItemSizeIndex();
+        final List<Integer> expected = new ArrayList<>();
+        for (int step = 0; step < 3000; step++) {
+            final int size = expected.size();
+            switch (random.nextInt(5)) {
+                case 0: {
+                    // 一半的插入在末尾
+                    final int start = random.nextBoolean() ? size : random.nextInt(size + 1);
+                    final int count = 1 + random.nextInt(4);
+                    index.onItemsAdded(start, count);
+                    for (int i = 0; i < count; i++) {
+                        expected.add(start, ItemSizeIndex.UNMEASURED);
+                    }
+                    break;
+                }
+                case 1: {
+                    if (size > 0) {
+                        final int start = random.nextInt(size);
+                        final int count = 1 + random.nextInt(Math.min(3, size - start));
+                        index.onItemsRemoved(start, count);
+                        for (int i = 0; i < count; i++) {
+                            expected.remove(start);
+                        }
+                    }
+                    break;
+                }
+                case 2: {
+                    if (size > 0) {
+                        final int from = random.nextInt(size);
+                        final int to = random.nextInt(size);
+                        index.onItemsMoved(from, to, 1);
+                        expected.add(to, expected.remove(from));
+                    }
+                    break;
+                }
+                default: {
+                    if (size > 0) {
+                        final int position = random.nextInt(size);
+                        final int itemSize = random.nextInt(50);
+                        index.record(position, itemSize);
+                        expected.set(position, itemSize);
+                    }
+                    break;
+                }
+            }
+            assertMatches(expected, index);
+        }
+    }
+
+    private static void assertMatches(List<Integer> expected, ItemSizeIndex index) {
+        final int count = expected.size();
+        assertEquals(count, index.getItemCount());
+        long measuredTotal = 0;
+        int measuredCount = 0;
+        for (int size : expected) {
+            if (size != ItemSizeIndex.UNMEASURED) {
+                measuredTotal += size;
+                measuredCount++;
+            }
+        }
+        final int estimate = measuredCount == 0 ? 0 : (int) (measuredTotal / measuredCount);
+        assertEquals(estimate, index.getEstimatedSize());
+        long offset = 0;
+        for (int i = 0; i < count; i++) {
+            assertEquals(offset, index.getOffsetOf(i));
+            final int size = expected.get(i);
+            offset += size == ItemSizeIndex.UNMEASURED ? estimate : size;
+        }
+        assertEquals(offset, index.getTotalSize());
+        // 每个偏移量都落在最后一个起点不大于它的位置上
+        for (int i = 0; i < count; i++) {
+            final long start = index.getOffsetOf(i);
+            final long end = i + 1 < count ? index.getOffsetOf(i + 1) : Long.MAX_VALUE;
+            if (end > start) {
+                assertEquals(i, index.findPositionAt(start));
+                assertEquals(i, index.findPositionAt(Math.min(end - 1, start + 100)));
+            }
+        }
+    }
+}
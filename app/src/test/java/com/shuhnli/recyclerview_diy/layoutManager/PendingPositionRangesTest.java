@@ -0,0 +1,133 @@
+package com.shuhnli.recyclerview_diy.layoutManager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 和一个记录每个位置是否待处理的List对照, 待处理的位置在数据变化之后必须仍被某个区间覆盖
+ */
+public class PendingPositionRangesTest {
+
+    @Test
+    public void tailAppend_recordsOnlyAppendedRange() {
+        final PendingPositionRanges ranges = new PendingPositionRanges();
+        ranges.onItemsAdded(1000, 20);
+        ranges.add(1000, 20);
+        assertEquals(1, ranges.size());
+        assertEquals(1000, ranges.getStart(0));
+        assertEquals(1020, ranges.getEnd(0));
+        // 紧接着再追加时合并
+        ranges.onItemsAdded(1020, 5);
+        ranges.add(1020, 5);
+        assertEquals(1, ranges.size());
+        assertEquals(1025, ranges.getEnd(0));
+    }
+
+    @Test
+    public void removeAndInsertBefore_shiftRanges() {
+        final PendingPositionRanges ranges = new PendingPositionRanges();
+        ranges.add(10, 5);
+        ranges.onItemsRemoved(2, 3);
+        assertEquals(7, ranges.getStart(0));
+        assertEquals(12, ranges.getEnd(0));
+        ranges.onItemsAdded(0, 4);
+        assertEquals(11, ranges.getStart(0));
+        assertEquals(16, ranges.getEnd(0));
+        ranges.onItemsRemoved(11, 5);
+        assertTrue(ranges.isEmpty());
+    }
+
+    @Test
+    public void tooManyRanges_fallBackToAll() {
+        final PendingPositionRanges ranges = new PendingPositionRanges();
+        for (int i = 0; i < 17; i++) {
+            ranges.add(i * 10, 1);
+        }
+        assertTrue(ranges.isAll());
+        assertFalse(ranges.isEmpty());
+        ranges.clear();
+        assertTrue(ranges.isEmpty());
+    }
+
+    @Test
+    public void randomOperations_coverPendingPositions() {
+        final Random random = new Random(9);
+        for (int round = 0; round < 200; round++) {
+            final PendingPositionRanges ranges = new PendingPositionRanges();
+            final List<Boolean> pending = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                pending.add(false);
+            }
+            for (int step = 0; step < 30; step++) {
+                final int size = pending.size();
+                switch (random.nextInt(4)) {
+                    case 0: {
+                        final int start = random.nextInt(size + 1);
+                        final int count = 1 + random.nextInt(5);
+                        ranges.onItemsAdded(start, count);
+                        ranges.add(start, count);
+                        for (int i = 0; i < count; i++) {
+                            pending.add(start, true);
+                        }
+                        break;
+                    }
+                    case 1: {
+                        if (size > 0) {
+                            final int start = random.nextInt(size);
+                            final int count = 1 + random.nextInt(Math.min(5, size - start));
+                            ranges.onItemsRemoved(start, count);
+                            for (int i = 0; i < count; i++) {
+                                pending.remove(start);
+                            }
+                        }
+                        break;
+                    }
+                    case 2: {
+                        if (size > 0) {
+                            final int from = random.nextInt(size);
+                            final int to = random.nextInt(size);
+                            ranges.onItemsMoved(from, to, 1);
+                            pending.add(to, pending.remove(from));
+                        }
+                        break;
+                    }
+                    default: {
+                        if (size > 0) {
+                            final int start = random.nextInt(size);
+                            final int count = 1 + random.nextInt(Math.min(3, size - start));
+                            ranges.add(start, count);
+                            for (int i = 0; i < count; i++) {
+                                pending.set(start + i, true);
+                            }
+                        }
+                        break;
+                    }
+                }
+                if (ranges.isAll()) {
+                    break;
+                }
+                for (int i = 0; i < pending.size(); i++) {
+                    if (pending.get(i)) {
+                        assertTrue("position " + i + " not covered", isCovered(ranges, i));
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean isCovered(PendingPositionRanges ranges, int position) {
+        for (int r = 0; r < ranges.size(); r++) {
+            if (ranges.getStart(r) <= position && position < ranges.getEnd(r)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,164 @@
+package com.shuhnli.recyclerview_diy.layoutManager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * 带检查点的span index缓存和逐个计算的结果对照
+ */
+public class SpanSizeLookupTest {
+    private static final int SPAN_COUNT = 5;
+
+    @Test
+    public void sequentialAccess_matchesNaive() {
+        final RandomLookup lookup = new RandomLookup(1000, new Random(1));
+        for (int i = 0; i < lookup.mSizes.length; i++) {
+            assertPosition(lookup, i);
+        }
+    }
+
+    @Test
+    public void randomAccess_acrossCheckpoints() {
+        final Random random = new Random(2);
+        final RandomLookup lookup = new RandomLookup(2000, random);
+        for (int i = 0; i < 5000; i++) {
+            assertPosition(lookup, random.nextInt(lookup.mSizes.length));
+        }
+    }
+
+    @Test
+    public void invalidateFrom_keepsEarlierCheckpointsValid() {
+        final Random random = new Random(3);
+        final RandomLookup lookup = new RandomLookup(1000, random);
+        // 先把检查点都算出来
+        lookup.getCachedSpanIndex(lookup.mSizes.length - 1, SPAN_COUNT);
+        for (int round = 0; round < 200; round++) {
+            final int changed = random.nextInt(lookup.mSizes.length);
+            lookup.mSizes[changed] = 1 + random.nextInt(SPAN_COUNT + 1);
+            lookup.invalidateSpanIndexCacheFrom(changed);
+            for (int i = 0; i < 20; i++) {
+                assertPosition(lookup, random.nextInt(lookup.mSizes.length));
+            }
+        }
+    }
+
+    @Test
+    public void spanCountChange_invalidatesCache() {
+        final RandomLookup lookup = new RandomLookup(500, new Random(4));
+        lookup.getCachedSpanIndex(499, SPAN_COUNT);
+        for (int i = 0; i < 500; i += 7) {
+            final int[] expected = naive(lookup.mSizes, i, 3);
+            assertEquals(expected[0], lookup.getCachedSpanIndex(i, 3));
+            assertEquals(expected[1], lookup.getCachedSpanGroupIndex(i, 3));
+        }
+    }
+
+    @Test
+    public void defaultLookup_isArithmetic() {
+        final GridLayoutManager.DefaultSpanSizeLookup lookup =
+                new GridLayoutManager.DefaultSpanSizeLookup();
+        assertEquals(2, lookup.getCachedSpanIndex(7, SPAN_COUNT));
+        assertEquals(1, lookup.getCachedSpanGroupIndex(7, SPAN_COUNT));
+    }
+
+    @Test
+    public void findRowStartPosition_matchesNaive() {
+        final RandomLookup lookup = new RandomLookup(300, new Random(5));
+        for (int i = 0; i < lookup.mSizes.length; i++) {
+            int expected = i;
+            while (expected > 0 && naive(lookup.mSizes, expected, SPAN_COUNT)[0] > 0) {
+                expected--;
+            }
+            assertEquals(expected, lookup.findRowStartPosition(i, SPAN_COUNT));
+        }
+        final GridLayoutManager.DefaultSpanSizeLookup defaultLookup =
+                new GridLayoutManager.DefaultSpanSizeLookup();
+        assertEquals(10, defaultLookup.findRowStartPosition(14, SPAN_COUNT));
+    }
+
+    @Test
+    public void offsetInRow_snapsToRowStart() {
+        // 和GridLayoutManager一样, 一行的尺寸平分给这一行的item, 余数给第一个
+        final Random random = new Random(6);
+        final RandomLookup lookup = new RandomLookup(200, random);
+        final int count = lookup.mSizes.length;
+        final ItemSizeIndex index = new ItemSizeIndex();
+        index.setItemCount(count);
+        int rowStart = 0;
+        while (rowStart < count) {
+            int rowEnd = rowStart + 1;
+            while (rowEnd < count && naive(lookup.mSizes, rowEnd, SPAN_COUNT)[0] > 0) {
+                rowEnd++;
+            }
+            final int rowSize = 20 + random.nextInt(80);
+            final int items = rowEnd - rowStart;
+            for (int i = rowStart; i < rowEnd; i++) {
+                index.record(i, rowSize / items + (i == rowStart ? rowSize % items : 0));
+            }
+            rowStart = rowEnd;
+        }
+        for (long target = 0; target < index.getTotalSize(); target += 7) {
+            final int position = lookup.findRowStartPosition(index.findPositionAt(target),
+                    SPAN_COUNT);
+            assertEquals(0, naive(lookup.mSizes, position, SPAN_COUNT)[0]);
+            // 目标落在这一行里, 偏移量小于一行的高度
+            final int group = naive(lookup.mSizes, position, SPAN_COUNT)[1];
+            int nextRow = position + 1;
+            while (nextRow < count && naive(lookup.mSizes, nextRow, SPAN_COUNT)[1] == group) {
+                nextRow++;
+            }
+            final long rowEndOffset = nextRow < count ? index.getOffsetOf(nextRow)
+                    : index.getTotalSize();
+            assertTrue(index.getOffsetOf(position) <= target);
+            assertTrue(target < rowEndOffset);
+        }
+    }
+
+    private static void assertPosition(RandomLookup lookup, int position) {
+        final int[] expected = naive(lookup.mSizes, position, SPAN_COUNT);
+        assertEquals("span index of " + position, expected[0],
+                lookup.getCachedSpanIndex(position, SPAN_COUNT));
+        assertEquals("group index of " + position, expected[1],
+                lookup.getCachedSpanGroupIndex(position, SPAN_COUNT));
+        assertEquals(expected[0], lookup.getSpanIndex(position, SPAN_COUNT));
+        assertEquals(expected[1], lookup.getSpanGroupIndex(position, SPAN_COUNT));
+    }
+
+    //逐个放置item, 返回{span index, 行号}
+    private static int[] naive(int[] sizes, int position, int spanCount) {
+        int span = 0;
+        int group = 0;
+        for (int i = 0; ; i++) {
+            final int size = Math.min(sizes[i], spanCount);
+            if (span + size > spanCount) {
+                span = 0;
+                group++;
+            }
+            if (i == position) {
+                return new int[]{span, group};
+            }
+            span += size;
+        }
+    }
+
+    private static final class RandomLookup extends GridLayoutManager.SpanSizeLookup {
+        final int[] mSizes;
+
+        RandomLookup(int count, Random random) {
+            mSizes = new int[count];
+            for (int i = 0; i < count; i++) {
+                // 偶尔超过spanCount, 检查截断
+                mSizes[i] = 1 + random.nextInt(SPAN_COUNT + 1);
+            }
+        }
+
+        @Override
+        public int getSpanSize(int position) {
+            return mSizes[position];
+        }
+    }
+}
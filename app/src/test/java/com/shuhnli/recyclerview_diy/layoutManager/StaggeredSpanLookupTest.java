@@ -0,0 +1,152 @@
+package com.shuhnli.recyclerview_diy.layoutManager;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import com.shuhnli.recyclerview_diy.recyclerview.RecyclerView;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 瀑布流的span分配表和span最小堆, 分别和List、逐个比较的结果对照
+ */
+public class StaggeredSpanLookupTest {
+    private static final int INVALID = StaggeredGridLayoutManager.SpanLookup.INVALID_SPAN;
+
+    @Test
+    public void setSpan_growsAndKeepsOthersInvalid() {
+        final StaggeredGridLayoutManager.SpanLookup lookup =
+                new StaggeredGridLayoutManager.SpanLookup();
+        assertEquals(INVALID, lookup.getSpan(0));
+        lookup.setSpan(3, 1);
+        lookup.setSpan(40, 2);
+        assertEquals(1, lookup.getSpan(3));
+        assertEquals(2, lookup.getSpan(40));
+        assertEquals(INVALID, lookup.getSpan(2));
+        assertEquals(INVALID, lookup.getSpan(39));
+        assertEquals(INVALID, lookup.getSpan(41));
+        assertEquals(INVALID, lookup.getSpan(-1));
+    }
+
+    @Test
+    public void insertAndRemove_shiftAssignments() {
+        final StaggeredGridLayoutManager.SpanLookup lookup =
+                new StaggeredGridLayoutManager.SpanLookup();
+        for (int i = 0; i < 6; i++) {
+            lookup.setSpan(i, i % 3);
+        }
+        lookup.offsetForAddition(2, 2);
+        assertArrayEquals(new int[]{0, 1, INVALID, INVALID, 2, 0, 1, 2}, lookup.toArray());
+        lookup.offsetForRemoval(1, 3);
+        assertArrayEquals(new int[]{0, 2, 0, 1, 2}, lookup.toArray());
+        lookup.invalidateAfter(3);
+        assertArrayEquals(new int[]{0, 2, 0}, lookup.toArray());
+        assertEquals(INVALID, lookup.getSpan(3));
+    }
+
+    @Test
+    public void randomOperations_matchList() {
+        final Random random = new Random(42);
+        final StaggeredGridLayoutManager.SpanLookup lookup =
+                new StaggeredGridLayoutManager.SpanLookup();
+        final List<Integer> expected = new ArrayList<>();
+        for (int step = 0; step < 3000; step++) {
+            final int size = expected.size();
+            switch (random.nextInt(4)) {
+                case 0: {
+                    final int position = random.nextInt(size + 5);
+                    final int span = random.nextInt(4);
+                    lookup.setSpan(position, span);
+                    while (expected.size() <= position) {
+                        expected.add(INVALID);
+                    }
+                    expected.set(position, span);
+                    break;
+                }
+                case 1: {
+                    final int start = random.nextInt(size + 2);
+                    final int count = 1 + random.nextInt(3);
+                    lookup.offsetForAddition(start, count);
+                    if (start < size) {
+                        for (int i = 0; i < count; i++) {
+                            expected.add(start, INVALID);
+                        }
+                    }
+                    break;
+                }
+                case 2: {
+                    final int start = random.nextInt(size + 2);
+                    final int count = 1 + random.nextInt(3);
+                    lookup.offsetForRemoval(start, count);
+                    for (int i = 0; i < count && start < expected.size(); i++) {
+                        expected.remove(start);
+                    }
+                    break;
+                }
+                default: {
+                    if (random.nextInt(10) == 0) {
+                        final int position = random.nextInt(size + 1);
+                        lookup.invalidateAfter(position);
+                        while (expected.size() > position) {
+                            expected.remove(expected.size() - 1);
+                        }
+                    }
+                    break;
+                }
+            }
+            for (int i = 0; i < expected.size() + 3; i++) {
+                final int span = i < expected.size() ? expected.get(i) : INVALID;
+                assertEquals(span, lookup.getSpan(i));
+            }
+        }
+    }
+
+    @Test
+    public void findFirstPositions_perSpan() {
+        final StaggeredGridLayoutManager.SpanLookup lookup =
+                new StaggeredGridLayoutManager.SpanLookup();
+        lookup.setSpan(0, 0);
+        lookup.setSpan(1, 1);
+        lookup.setSpan(2, 1);
+        lookup.setSpan(5, 2);
+        final int[] first = new int[3];
+        lookup.findFirstPositions(first, 10);
+        assertArrayEquals(new int[]{0, 1, 5}, first);
+        // 只看end之前的位置
+        lookup.findFirstPositions(first, 5);
+        assertArrayEquals(new int[]{0, 1, RecyclerView.NO_POSITION}, first);
+    }
+
+    @Test
+    public void heap_peeksSmallestKeyThenLowestSpan() {
+        final Random random = new Random(7);
+        final int spanCount = 5;
+        final StaggeredGridLayoutManager.SpanHeap heap = new StaggeredGridLayoutManager.SpanHeap();
+        final int[] keys = new int[spanCount];
+        for (int round = 0; round < 50; round++) {
+            heap.reset(spanCount);
+            for (int span = 0; span < spanCount; span++) {
+                keys[span] = random.nextInt(20);
+                heap.add(span, keys[span]);
+            }
+            for (int step = 0; step < 200; step++) {
+                int expected = 0;
+                for (int span = 1; span < spanCount; span++) {
+                    if (keys[span] < keys[expected]) {
+                        expected = span;
+                    }
+                }
+                assertEquals(expected, heap.peek());
+                assertEquals(keys[expected], heap.peekKey());
+                // 和填充时一样, 大多数时候是最小的span变长
+                final int span = random.nextInt(3) == 0 ? random.nextInt(spanCount) : expected;
+                keys[span] += random.nextInt(21) - 5;
+                heap.update(span, keys[span]);
+            }
+        }
+    }
+}
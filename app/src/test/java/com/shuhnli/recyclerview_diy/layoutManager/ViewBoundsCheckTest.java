@@ -0,0 +1,135 @@
+package com.shuhnli.recyclerview_diy.layoutManager;
+
+import static org.junit.Assert.assertEquals;
+
+import android.view.View;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * 用数组模拟子View的边界, 检查二分查找和逐个检查的结果相同。
+ * getChildAt只记录被取出的下标, 不需要创建View
+ */
+public class ViewBoundsCheckTest {
+    private static final int COMPLETELY_VISIBLE = ViewBoundsCheck.FLAG_CVS_GT_PVS
+            | ViewBoundsCheck.FLAG_CVS_EQ_PVS | ViewBoundsCheck.FLAG_CVE_LT_PVE
+            | ViewBoundsCheck.FLAG_CVE_EQ_PVE;
+    private static final int PARTIALLY_VISIBLE = ViewBoundsCheck.FLAG_CVS_LT_PVE
+            | ViewBoundsCheck.FLAG_CVE_GT_PVS;
+
+    private static class FakeChildren implements ViewBoundsCheck.Callback {
+        int[] mStarts;
+        int[] mEnds;
+        int mParentStart;
+        int mParentEnd;
+        int mReturnedIndex = -1;
+
+        @Override
+        public View getChildAt(int index) {
+            mReturnedIndex = index;
+            return null;
+        }
+
+        @Override
+        public int getParentStart() {
+            return mParentStart;
+        }
+
+        @Override
+        public int getParentEnd() {
+            return mParentEnd;
+        }
+
+        @Override
+        public int getChildStart(View view) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int getChildEnd(View view) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int getChildStartAt(int index) {
+            return mStarts[index];
+        }
+
+        @Override
+        public int getChildEndAt(int index) {
+            return mEnds[index];
+        }
+    }
+
+    private final FakeChildren mChildren = new FakeChildren();
+    private final ViewBoundsCheck mCheck = new ViewBoundsCheck(mChildren);
+
+    @Test
+    public void sortedSearch_matchesLinearSearch() {
+        final Random random = new Random(5);
+        for (int round = 0; round < 500; round++) {
+            final int count = 1 + random.nextInt(30);
+            layoutLinear(random, count, random.nextBoolean());
+            mChildren.mParentStart = random.nextInt(200);
+            mChildren.mParentEnd = mChildren.mParentStart + random.nextInt(400);
+            assertSameResult(0, count, COMPLETELY_VISIBLE, PARTIALLY_VISIBLE);
+            assertSameResult(0, count, PARTIALLY_VISIBLE, 0);
+            assertSameResult(count - 1, -1, COMPLETELY_VISIBLE, PARTIALLY_VISIBLE);
+            assertSameResult(count - 1, -1, PARTIALLY_VISIBLE, 0);
+        }
+    }
+
+    @Test
+    public void overlappingInsets_fallBackToLinearSearch() {
+        // 负的偏移让第二个子View的end超过了第三个
+        mChildren.mStarts = new int[]{0, 100, 150, 300};
+        mChildren.mEnds = new int[]{100, 260, 250, 400};
+        mChildren.mParentStart = 0;
+        mChildren.mParentEnd = 255;
+        assertSameResult(3, -1, COMPLETELY_VISIBLE, PARTIALLY_VISIBLE);
+        assertSameResult(0, 4, COMPLETELY_VISIBLE, PARTIALLY_VISIBLE);
+    }
+
+    @Test
+    public void gridRowStraddlingEdge_findsShortItem() {
+        // 网格的一行: 起点相同, 高度不同, 较高的子View超出了父View的末尾
+        mChildren.mStarts = new int[]{0, 0, 100, 100, 100};
+        mChildren.mEnds = new int[]{100, 100, 160, 260, 180};
+        mChildren.mParentStart = 0;
+        mChildren.mParentEnd = 200;
+        assertEquals(4, findLinear(4, -1, COMPLETELY_VISIBLE, PARTIALLY_VISIBLE));
+        assertSameResult(4, -1, COMPLETELY_VISIBLE, PARTIALLY_VISIBLE);
+        mChildren.mParentStart = 150;
+        assertEquals(2, findLinear(0, 5, PARTIALLY_VISIBLE, 0));
+        assertSameResult(0, 5, PARTIALLY_VISIBLE, 0);
+    }
+
+    //依次排列的子View, 有些尺寸为0, reversed时坐标随下标递减
+    private void layoutLinear(Random random, int count, boolean reversed) {
+        mChildren.mStarts = new int[count];
+        mChildren.mEnds = new int[count];
+        int line = 0;
+        for (int i = 0; i < count; i++) {
+            final int size = random.nextInt(4) == 0 ? 0 : 1 + random.nextInt(60);
+            final int index = reversed ? count - 1 - i : i;
+            mChildren.mStarts[index] = line;
+            mChildren.mEnds[index] = line + size;
+            line += size;
+        }
+    }
+
+    private int findLinear(int fromIndex, int toIndex, int preferred, int acceptable) {
+        mChildren.mReturnedIndex = -1;
+        mCheck.findOneViewWithinBoundFlags(fromIndex, toIndex, preferred, acceptable);
+        return mChildren.mReturnedIndex;
+    }
+
+    private void assertSameResult(int fromIndex, int toIndex, int preferred, int acceptable) {
+        final int expected = findLinear(fromIndex, toIndex, preferred, acceptable);
+        mChildren.mReturnedIndex = -1;
+        mCheck.findOneViewWithinBoundFlagsSorted(fromIndex, toIndex, preferred, acceptable);
+        assertEquals(expected, mChildren.mReturnedIndex);
+    }
+}
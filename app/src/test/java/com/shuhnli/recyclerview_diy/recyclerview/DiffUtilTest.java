@@ -0,0 +1,165 @@
+package com.shuhnli.recyclerview_diy.recyclerview;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.Nullable;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 把DiffResult分发出来的操作依次应用到旧列表上, 检查结果和新列表一致
+ */
+public class DiffUtilTest {
+
+    @Test
+    public void sameLists_dispatchNothing() {
+        final long[] keys = {1, 2, 3, 4};
+        final int[] hashes = {10, 20, 30, 40};
+        final Recorder recorder = apply(keys, hashes, keys.clone(), hashes.clone(), true);
+        assertEquals(0, recorder.mEventCount);
+    }
+
+    @Test
+    public void emptyToFull_dispatchOneInsert() {
+        final Recorder recorder = apply(new long[0], new int[0],
+                new long[]{1, 2, 3}, new int[]{1, 2, 3}, true);
+        assertEquals(1, recorder.mEventCount);
+    }
+
+    @Test
+    public void contentChange_dispatchChange() {
+        final Recorder recorder = apply(new long[]{1, 2, 3}, new int[]{1, 2, 3},
+                new long[]{1, 2, 3}, new int[]{1, 5, 3}, true);
+        assertEquals(1, recorder.mEventCount);
+        assertTrue(recorder.mItems.get(1).mChanged);
+    }
+
+    @Test
+    public void swap_detectedAsMove() {
+        final Recorder recorder = apply(new long[]{1, 2, 3}, new int[]{1, 2, 3},
+                new long[]{3, 2, 1}, new int[]{3, 2, 1}, true);
+        assertEquals(0, recorder.mInsertCount);
+        assertEquals(0, recorder.mRemoveCount);
+    }
+
+    @Test
+    public void randomLists_withAndWithoutMoves() {
+        final Random random = new Random(42);
+        for (int round = 0; round < 500; round++) {
+            final int oldSize = random.nextInt(60);
+            final long[] oldKeys = new long[oldSize];
+            final int[] oldHashes = new int[oldSize];
+            for (int i = 0; i < oldSize; i++) {
+                oldKeys[i] = i;
+                oldHashes[i] = random.nextInt(3);
+            }
+            // 随机删除、插入、移动和修改内容
+            final List<long[]> items = new ArrayList<>();
+            for (int i = 0; i < oldSize; i++) {
+                if (random.nextInt(5) != 0) {
+                    items.add(new long[]{oldKeys[i], random.nextInt(4) == 0
+                            ? oldHashes[i] + 1 : oldHashes[i]});
+                }
+            }
+            final int inserts = random.nextInt(10);
+            for (int i = 0; i < inserts; i++) {
+                items.add(random.nextInt(items.size() + 1), new long[]{1000 + i, 0});
+            }
+            final int moves = random.nextInt(4);
+            for (int i = 0; i < moves && items.size() > 1; i++) {
+                items.add(random.nextInt(items.size()),
+                        items.remove(random.nextInt(items.size())));
+            }
+            final long[] newKeys = new long[items.size()];
+            final int[] newHashes = new int[items.size()];
+            for (int i = 0; i < newKeys.length; i++) {
+                newKeys[i] = items.get(i)[0];
+                newHashes[i] = (int) items.get(i)[1];
+            }
+            apply(oldKeys, oldHashes, newKeys, newHashes, true);
+            apply(oldKeys, oldHashes, newKeys, newHashes, false);
+        }
+    }
+
+    private static Recorder apply(long[] oldKeys, int[] oldHashes, long[] newKeys,
+                                  int[] newHashes, boolean detectMoves) {
+        final Recorder recorder = new Recorder(oldKeys, oldHashes);
+        DiffUtil.calculateDiff(oldKeys, oldHashes, newKeys, newHashes, detectMoves)
+                .dispatchUpdatesTo(recorder);
+        assertEquals(newKeys.length, recorder.mItems.size());
+        for (int i = 0; i < newKeys.length; i++) {
+            final Item item = recorder.mItems.get(i);
+            if (item.mInserted) {
+                continue;
+            }
+            assertEquals("key at " + i, newKeys[i], item.mKey);
+            assertTrue("content change at " + i + " not dispatched",
+                    item.mHash == newHashes[i] || item.mChanged);
+        }
+        return recorder;
+    }
+
+    private static final class Item {
+        final long mKey;
+        final int mHash;
+        boolean mInserted;
+        boolean mChanged;
+
+        Item(long key, int hash) {
+            mKey = key;
+            mHash = hash;
+        }
+    }
+
+    private static final class Recorder implements ListUpdateCallback {
+        final List<Item> mItems = new ArrayList<>();
+        int mEventCount;
+        int mInsertCount;
+        int mRemoveCount;
+
+        Recorder(long[] keys, int[] hashes) {
+            for (int i = 0; i < keys.length; i++) {
+                mItems.add(new Item(keys[i], hashes[i]));
+            }
+        }
+
+        @Override
+        public void onInserted(int position, int count) {
+            mEventCount++;
+            mInsertCount += count;
+            for (int i = 0; i < count; i++) {
+                final Item item = new Item(-1, 0);
+                item.mInserted = true;
+                mItems.add(position, item);
+            }
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            mEventCount++;
+            mRemoveCount += count;
+            for (int i = 0; i < count; i++) {
+                mItems.remove(position);
+            }
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            mEventCount++;
+            mItems.add(toPosition, mItems.remove(fromPosition));
+        }
+
+        @Override
+        public void onChanged(int position, int count, @Nullable Object payload) {
+            mEventCount++;
+            for (int i = 0; i < count; i++) {
+                mItems.get(position + i).mChanged = true;
+            }
+        }
+    }
+}
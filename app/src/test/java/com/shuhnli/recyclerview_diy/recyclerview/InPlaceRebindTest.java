@@ -0,0 +1,36 @@
+package com.shuhnli.recyclerview_diy.recyclerview;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class InPlaceRebindTest {
+    private static final int TYPE_LOADING = 0;
+    private static final int TYPE_CONTENT = 1;
+
+    @Test
+    public void sameType_canRebind() {
+        assertTrue(InPlaceRebind.canRebind(TYPE_CONTENT, RecyclerView.NO_ID, TYPE_CONTENT,
+                false, RecyclerView.NO_ID));
+    }
+
+    @Test
+    public void typeChanged_needsFullLayout() {
+        // 加载中的占位行变成了内容行
+        assertFalse(InPlaceRebind.canRebind(TYPE_LOADING, RecyclerView.NO_ID, TYPE_CONTENT,
+                false, RecyclerView.NO_ID));
+        assertFalse(InPlaceRebind.canRebind(TYPE_LOADING, 7, TYPE_CONTENT, true, 7));
+    }
+
+    @Test
+    public void stableIdChanged_needsFullLayout() {
+        assertFalse(InPlaceRebind.canRebind(TYPE_CONTENT, 7, TYPE_CONTENT, true, 8));
+        assertTrue(InPlaceRebind.canRebind(TYPE_CONTENT, 7, TYPE_CONTENT, true, 7));
+    }
+
+    @Test
+    public void withoutStableIds_idIsIgnored() {
+        assertTrue(InPlaceRebind.canRebind(TYPE_CONTENT, 7, TYPE_CONTENT, false, 8));
+    }
+}
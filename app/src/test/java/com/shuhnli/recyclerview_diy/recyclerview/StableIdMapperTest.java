@@ -0,0 +1,85 @@
+package com.shuhnli.recyclerview_diy.recyclerview;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+public class StableIdMapperTest {
+
+    @Test
+    public void sameKey_sameId() {
+        final StableIdMapper mapper = new StableIdMapper();
+        final long id = mapper.getId("a");
+        assertEquals(id, mapper.getId(new String("a")));
+        assertEquals(id, mapper.peekId("a"));
+        assertEquals(1, mapper.size());
+    }
+
+    @Test
+    public void peekId_doesNotAllocate() {
+        final StableIdMapper mapper = new StableIdMapper();
+        assertEquals(RecyclerView.NO_ID, mapper.peekId("missing"));
+        assertEquals(0, mapper.size());
+    }
+
+    @Test
+    public void collidingHashes_getDistinctIds() {
+        final StableIdMapper mapper = new StableIdMapper(2);
+        final Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            ids.add(mapper.getId(new CollidingKey(i)));
+        }
+        assertEquals(100, ids.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(mapper.getId(new CollidingKey(i)), mapper.peekId(new CollidingKey(i)));
+        }
+    }
+
+    @Test
+    public void idsSurviveResize() {
+        final StableIdMapper mapper = new StableIdMapper(2);
+        final Map<Integer, Long> expected = new HashMap<>();
+        for (int i = 0; i < 10000; i++) {
+            expected.put(i, mapper.getId(i));
+        }
+        assertEquals(10000, mapper.size());
+        for (int i = 0; i < 10000; i++) {
+            assertEquals(expected.get(i).longValue(), mapper.getId(i));
+        }
+    }
+
+    @Test
+    public void clear_neverReusesIds() {
+        final StableIdMapper mapper = new StableIdMapper();
+        final long before = mapper.getId("a");
+        mapper.clear();
+        assertEquals(0, mapper.size());
+        assertEquals(RecyclerView.NO_ID, mapper.peekId("a"));
+        assertTrue(mapper.getId("a") != before);
+    }
+
+    //hashCode全部相同的key
+    private static final class CollidingKey {
+        final int mValue;
+
+        CollidingKey(int value) {
+            mValue = value;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof CollidingKey && ((CollidingKey) o).mValue == mValue;
+        }
+
+        @Override
+        public int hashCode() {
+            return 42;
+        }
+    }
+}
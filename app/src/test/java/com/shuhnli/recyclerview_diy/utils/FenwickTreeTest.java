@@ -0,0 +1,229 @@
+package com.shuhnli.recyclerview_diy.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 和一个直接求和的List对照, 检查各种修改之后的前缀和与下标查询
+ */
+public class FenwickTreeTest {
+
+    @Test
+    public void emptyTree() {
+        final FenwickTree tree = new FenwickTree();
+        assertEquals(0, tree.size());
+        assertEquals(0, tree.total());
+        assertEquals(0, tree.findIndex(0));
+        assertEquals(0, tree.findIndex(100));
+    }
+
+    @Test
+    public void findIndex_skipsZeroSizedElements() {
+        final FenwickTree tree = new FenwickTree();
+        tree.build(new int[]{0, 5, 0, 0, 3}, 5);
+        assertEquals(1, tree.findIndex(0));
+        assertEquals(1, tree.findIndex(4));
+        assertEquals(4, tree.findIndex(5));
+        assertEquals(5, tree.findIndex(8));
+        assertEquals(0, tree.findIndex(-1));
+    }
+
+    @Test
+    public void append_matchesBuild() {
+        final FenwickTree appended = new FenwickTree(1);
+        final int[] values = new int[100];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i % 7;
+            appended.append(1, values[i]);
+        }
+        final FenwickTree built = new FenwickTree();
+        built.build(values, values.length);
+        for (int i = 0; i <= values.length; i++) {
+            assertEquals(built.prefixSum(i), appended.prefixSum(i));
+        }
+    }
+
+    @Test
+    public void appendAfterTruncate_ignoresStaleNodes() {
+        final FenwickTree tree = new FenwickTree();
+        tree.build(new int[]{1, 2, 3, 4, 5, 6, 7, 8}, 8);
+        tree.remove(3, 5);
+        tree.append(5, 10);
+        final List<Integer> expected = new ArrayList<>();
+        expected.add(1);
+        expected.add(2);
+        expected.add(3);
+        for (int i = 0; i < 5; i++) {
+            expected.add(10);
+        }
+        assertMatches(expected, tree);
+    }
+
+    @Test
+    public void move_forwardAndBackward() {
+        final FenwickTree tree = new FenwickTree();
+        tree.build(new int[]{0, 1, 2, 3, 4, 5, 6, 7}, 8);
+        tree.move(1, 4, 2);
+        assertValues(tree, 0, 3, 4, 5, 1, 2, 6, 7);
+        tree.move(4, 1, 2);
+        assertValues(tree, 0, 1, 2, 3, 4, 5, 6, 7);
+        tree.move(7, 0, 1);
+        assertValues(tree, 7, 0, 1, 2, 3, 4, 5, 6);
+    }
+
+    @Test
+    public void findIndexWithFill_matchesEffectiveValues() {
+        final Random random = new Random(3);
+        for (int round = 0; round < 50; round++) {
+            final int size = random.nextInt(40);
+            final int fill = random.nextInt(6);
+            final int[] values = new int[size];
+            final int[] marked = new int[size];
+            final int[] effective = new int[size];
+            for (int i = 0; i < size; i++) {
+                if (random.nextBoolean()) {
+                    values[i] = random.nextInt(6);
+                    marked[i] = 1;
+                    effective[i] = values[i];
+                } else {
+                    effective[i] = fill;
+                }
+            }
+            final FenwickTree valueTree = new FenwickTree();
+            valueTree.build(values, size);
+            final FenwickTree markedTree = new FenwickTree();
+            markedTree.build(marked, size);
+            final FenwickTree expected = new FenwickTree();
+            expected.build(effective, size);
+            for (long offset = -1; offset <= expected.total() + 1; offset++) {
+                assertEquals(expected.findIndex(offset),
+                        FenwickTree.findIndex(valueTree, markedTree, fill, offset));
+            }
+        }
+    }
+
+    @Test
+    public void randomOperations_matchNaiveSums() {
+        final Random random = new Random(7);
+        final FenwickTree tree = new FenwickTree(1);
+        final List<Integer> expected = new ArrayList<>();
+        for (int step = 0; step < 5000; step++) {
+            final int size = expected.size();
+            switch (random.nextInt(8)) {
+                case 0: {
+                    final int index = random.nextInt(size + 1);
+                    final int value = random.nextInt(10);
+                    tree.insert(index, value);
+                    expected.add(index, value);
+                    break;
+                }
+                case 1: {
+                    final int index = random.nextInt(size + 1);
+                    final int count = random.nextInt(4);
+                    final int value = random.nextInt(10);
+                    tree.insert(index, count, value);
+                    for (int i = 0; i < count; i++) {
+                        expected.add(index, value);
+                    }
+                    break;
+                }
+                case 2: {
+                    if (size > 0) {
+                        final int index = random.nextInt(size);
+                        final int count = 1 + random.nextInt(Math.min(3, size - index));
+                        tree.remove(index, count);
+                        for (int i = 0; i < count; i++) {
+                            expected.remove(index);
+                        }
+                    }
+                    break;
+                }
+                case 3: {
+                    if (size > 0) {
+                        final int index = random.nextInt(size);
+                        final int value = random.nextInt(10);
+                        tree.set(index, value);
+                        expected.set(index, value);
+                    }
+                    break;
+                }
+                case 4: {
+                    final int newSize = Math.max(0, size + random.nextInt(7) - 3);
+                    final int fill = random.nextInt(10);
+                    tree.resize(newSize, fill);
+                    while (expected.size() > newSize) {
+                        expected.remove(expected.size() - 1);
+                    }
+                    while (expected.size() < newSize) {
+                        expected.add(fill);
+                    }
+                    break;
+                }
+                case 5: {
+                    final int count = random.nextInt(4);
+                    final int value = random.nextInt(10);
+                    tree.append(count, value);
+                    for (int i = 0; i < count; i++) {
+                        expected.add(value);
+                    }
+                    break;
+                }
+                case 6: {
+                    if (size > 0) {
+                        final int count = 1 + random.nextInt(Math.min(3, size));
+                        final int from = random.nextInt(size - count + 1);
+                        final int to = random.nextInt(size - count + 1);
+                        tree.move(from, to, count);
+                        final List<Integer> moved = new ArrayList<>(
+                                expected.subList(from, from + count));
+                        expected.subList(from, from + count).clear();
+                        expected.addAll(to, moved);
+                    }
+                    break;
+                }
+                default: {
+                    if (size > 0) {
+                        final int index = random.nextInt(size);
+                        tree.remove(index);
+                        expected.remove(index);
+                    }
+                    break;
+                }
+            }
+            assertMatches(expected, tree);
+        }
+    }
+
+    private static void assertValues(FenwickTree tree, int... values) {
+        final List<Integer> expected = new ArrayList<>();
+        for (int value : values) {
+            expected.add(value);
+        }
+        assertMatches(expected, tree);
+    }
+
+    private static void assertMatches(List<Integer> expected, FenwickTree tree) {
+        assertEquals(expected.size(), tree.size());
+        long sum = 0;
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).intValue(), tree.get(i));
+            assertEquals(sum, tree.prefixSum(i));
+            sum += expected.get(i);
+        }
+        assertEquals(sum, tree.total());
+        // 每个偏移量都应该落在包含它的元素上
+        long offset = 0;
+        for (int i = 0; i < expected.size(); i++) {
+            for (int j = 0; j < expected.get(i); j++) {
+                assertEquals(i, tree.findIndex(offset + j));
+            }
+            offset += expected.get(i);
+        }
+        assertEquals(expected.size(), tree.findIndex(offset));
+    }
+}